@@ -1,8 +1,8 @@
 // com.payiskoul.institution.classroom.controller.ClassroomStudentController.java
 package com.payiskoul.institution.classroom.controller;
 
+import com.payiskoul.institution.classroom.dto.ClassroomStudentListResponse;
 import com.payiskoul.institution.classroom.service.ClassroomStudentService;
-import com.payiskoul.institution.student.dto.StudentResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,10 +15,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/v1/classrooms")
 @RequiredArgsConstructor
@@ -26,21 +25,28 @@ import java.util.List;
 @Tag(name = "Étudiants par classe", description = "API pour la gestion des étudiants par classe")
 public class ClassroomStudentController {
 
+    // Taille de page maximale : une page d'étudiants est chargée en une seule requête $in
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ClassroomStudentService classroomStudentService;
 
     @GetMapping("/{classroomId}/students")
     @Operation(summary = "Récupérer les étudiants d'une classe",
-            description = "Récupère la liste des étudiants inscrits dans une classe spécifique")
+            description = "Récupère la liste paginée des étudiants inscrits dans une classe spécifique (100 par page au plus)")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Liste des étudiants récupérée avec succès",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = StudentResponse.class))),
+                            schema = @Schema(implementation = ClassroomStudentListResponse.class))),
             @ApiResponse(responseCode = "404", description = "Classe non trouvée")
     })
-    public ResponseEntity<List<StudentResponse>> getStudentsByClassroom(@PathVariable String classroomId) {
+    public ResponseEntity<ClassroomStudentListResponse> getStudentsByClassroom(
+            @PathVariable String classroomId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
         log.info("Récupération des étudiants pour la classe: {}", classroomId);
 
-        List<StudentResponse> students = classroomStudentService.getStudentsByClassroom(classroomId);
+        ClassroomStudentListResponse students = classroomStudentService.getStudentsByClassroom(classroomId,
+                Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
         return ResponseEntity.ok(students);
     }
 }
\ No newline at end of file
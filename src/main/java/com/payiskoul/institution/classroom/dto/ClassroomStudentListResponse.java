@@ -0,0 +1,24 @@
+package com.payiskoul.institution.classroom.dto;
+
+import com.payiskoul.institution.student.dto.StudentResponse;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Réponse paginée contenant la liste des étudiants d'une classe")
+public record ClassroomStudentListResponse(
+        @Schema(description = "Numéro de page", example = "0")
+        int page,
+
+        @Schema(description = "Taille de la page", example = "10")
+        int size,
+
+        @Schema(description = "Nombre total d'éléments", example = "25")
+        long totalElements,
+
+        @Schema(description = "Nombre total de pages", example = "3")
+        int totalPages,
+
+        @Schema(description = "Liste des étudiants")
+        List<StudentResponse> students
+) {}
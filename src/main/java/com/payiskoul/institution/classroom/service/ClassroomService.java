@@ -1,5 +1,6 @@
 package com.payiskoul.institution.classroom.service;
 
+import com.mongodb.client.result.UpdateResult;
 import com.payiskoul.institution.classroom.dto.ClassroomList;
 import com.payiskoul.institution.classroom.dto.ClassroomResponse;
 import com.payiskoul.institution.classroom.dto.CreateClassroomRequest;
@@ -13,6 +14,13 @@ import com.payiskoul.institution.program.repository.TrainingOfferRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,6 +39,7 @@ public class ClassroomService {
 
     private final ClassroomRepository classroomRepository;
     private final TrainingOfferRepository trainingOfferRepository; // Remplace ProgramLevelRepository
+    private final MongoTemplate mongoTemplate;
 
     /**
      * Crée une nouvelle classe pour une offre spécifique
@@ -142,7 +151,10 @@ public class ClassroomService {
     }
 
     /**
-     * Ajoute un étudiant à une classe disponible
+     * Ajoute un étudiant à une classe disponible.
+     * La place est réservée par un findAndModify conditionnel (currentCount < capacity, puis $inc) :
+     * des inscriptions simultanées ne peuvent pas dépasser la capacité d'une classe.
+     * Sans classe spécifiée, l'étudiant est placé dans la classe de l'offre la moins remplie.
      * @param offerId ID de l'offre (remplace programId)
      * @param classroomId ID de la classe (optionnel)
      * @return l'ID de la classe dans l'étudiant a été ajouté
@@ -156,69 +168,85 @@ public class ClassroomService {
 
         // Si un ID de classe est spécifié, utiliser cette classe
         if (classroomId != null && !classroomId.isEmpty()) {
-            classroom = classroomRepository.findById(classroomId)
-                    .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
-                            "Classe introuvable", Map.of("classroomId", classroomId)));
-
-            // Vérifier que la classe appartient à la bonne offre
-            if (!classroom.getProgramLevelId().equals(offerId)) {
-                throw new BusinessException(ErrorCode.INVALID_CLASSROOM_PROGRAM,
-                        "La classe spécifiée n'appartient pas à cette offre",
-                        Map.of(
-                                "classroomId", classroomId,
-                                "offerId", offerId,
-                                "classroomOfferId", classroom.getProgramLevelId()
-                        ));
-            }
+            classroom = reserveSeat(Query.query(Criteria.where("_id").is(classroomId)
+                    .and("programLevelId").is(offerId)));
+
+            if (classroom == null) {
+                // Réservation refusée : déterminer la cause pour l'erreur
+                Classroom existing = classroomRepository.findById(classroomId)
+                        .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
+                                "Classe introuvable", Map.of("classroomId", classroomId)));
+
+                // Vérifier que la classe appartient à la bonne offre
+                if (!offerId.equals(existing.getProgramLevelId())) {
+                    throw new BusinessException(ErrorCode.INVALID_CLASSROOM_PROGRAM,
+                            "La classe spécifiée n'appartient pas à cette offre",
+                            Map.of(
+                                    "classroomId", classroomId,
+                                    "offerId", offerId,
+                                    "classroomOfferId", existing.getProgramLevelId()
+                            ));
+                }
 
-            // Vérifier qu'il reste de la place
-            if (classroom.getCurrentCount() >= classroom.getCapacity()) {
                 throw new BusinessException(ErrorCode.CLASSROOM_FULL,
                         "La classe spécifiée est complète",
                         Map.of(
                                 "classroomId", classroomId,
-                                "capacity", classroom.getCapacity(),
-                                "currentCount", classroom.getCurrentCount()
+                                "capacity", existing.getCapacity(),
+                                "currentCount", existing.getCurrentCount()
                         ));
             }
         } else {
-            // Sinon, trouver une classe avec de la place disponible
-            classroom = classroomRepository.findFirstByProgramLevelIdAndCurrentCountLessThan(
-                            offerId, Integer.MAX_VALUE)
-                    .orElseThrow(() -> new BusinessException(ErrorCode.NO_CLASSROOM_AVAILABLE,
-                            "Aucune classe disponible pour cette offre",
-                            Map.of("offerId", offerId)));
-        }
+            // Sinon, la classe la moins remplie parmi celles qui ont de la place
+            classroom = reserveSeat(Query.query(Criteria.where("programLevelId").is(offerId))
+                    .with(Sort.by("currentCount", "_id")));
 
-        // Incrémenter le nombre d'étudiants
-        classroom.setCurrentCount(classroom.getCurrentCount() + 1);
-        classroomRepository.save(classroom);
+            if (classroom == null) {
+                throw new BusinessException(ErrorCode.NO_CLASSROOM_AVAILABLE,
+                        "Aucune classe disponible pour cette offre",
+                        Map.of("offerId", offerId));
+            }
+        }
 
         log.info("Étudiant ajouté à la classe {}", classroom.getId());
         return classroom.getId();
     }
 
     /**
-     * Supprime un étudiant d'une classe
+     * Supprime un étudiant d'une classe, par un décrément conditionnel (currentCount > 0)
      * @param classroomId ID de la classe
      */
     @Transactional
     public void removeStudentFromClassroom(String classroomId) {
         log.info("Suppression d'un étudiant de la classe {}", classroomId);
 
-        Classroom classroom = classroomRepository.findById(classroomId)
-                .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
-                        "Classe introuvable", Map.of("classroomId", classroomId)));
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(classroomId).and("currentCount").gt(0)),
+                new Update().inc("currentCount", -1),
+                Classroom.class);
 
-        if (classroom.getCurrentCount() > 0) {
-            classroom.setCurrentCount(classroom.getCurrentCount() - 1);
-            classroomRepository.save(classroom);
+        if (result.getModifiedCount() > 0) {
             log.info("Étudiant retiré de la classe {}", classroomId);
+        } else if (!classroomRepository.existsById(classroomId)) {
+            throw new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
+                    "Classe introuvable", Map.of("classroomId", classroomId));
         } else {
             log.warn("Tentative de retirer un étudiant d'une classe vide: {}", classroomId);
         }
     }
 
+    /**
+     * Réserve atomiquement une place dans la première classe correspondant à la requête qui n'est pas complète
+     * @return la classe après réservation, ou null si aucune classe correspondante n'a de place
+     */
+    private Classroom reserveSeat(Query query) {
+        query.addCriteria(Criteria.expr(ComparisonOperators.valueOf("currentCount").lessThan("capacity")));
+        return mongoTemplate.findAndModify(query,
+                new Update().inc("currentCount", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                Classroom.class);
+    }
+
     /**
      * Convertit une entité Classroom en DTO ClassroomResponse
      * @param classroom entité Classroom
@@ -1,24 +1,25 @@
 // com.payiskoul.institution.classroom.service.ClassroomStudentService.java
 package com.payiskoul.institution.classroom.service;
 
-import com.payiskoul.institution.classroom.model.Classroom;
+import com.payiskoul.institution.classroom.dto.ClassroomStudentListResponse;
 import com.payiskoul.institution.classroom.repository.ClassroomRepository;
-import com.payiskoul.institution.exception.BusinessException;
 import com.payiskoul.institution.exception.ClassroomNotFound;
-import com.payiskoul.institution.exception.ErrorCode;
 import com.payiskoul.institution.student.dto.StudentResponse;
 import com.payiskoul.institution.student.model.Enrollment;
 import com.payiskoul.institution.student.model.Student;
 import com.payiskoul.institution.student.repository.EnrollmentRepository;
-import com.payiskoul.institution.student.repository.StudentRepository;
+import com.payiskoul.institution.student.service.RosterLoader;
+import com.payiskoul.institution.student.service.RosterLoader.Roster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,34 +28,36 @@ public class ClassroomStudentService {
 
     private final ClassroomRepository classroomRepository;
     private final EnrollmentRepository enrollmentRepository;
-    private final StudentRepository studentRepository;
+    private final RosterLoader rosterLoader;
 
     /**
-     * Récupère tous les étudiants inscrits dans une classe spécifique
+     * Récupère les étudiants inscrits dans une classe spécifique avec pagination
      * @param classroomId ID de la classe
-     * @return la liste des étudiants
+     * @param page numéro de page
+     * @param size taille de la page
+     * @return la liste paginée des étudiants
      */
     //@Cacheable(value = "classroomStudents", key = "#classroomId")
-    public List<StudentResponse> getStudentsByClassroom(String classroomId) {
-        log.info("Récupération des étudiants pour la classe {}", classroomId);
+    public ClassroomStudentListResponse getStudentsByClassroom(String classroomId, int page, int size) {
+        log.info("Récupération des étudiants pour la classe {} - page: {}, size: {}", classroomId, page, size);
 
         // Vérifier que la classe existe
         classroomRepository.findById(classroomId)
                 .orElseThrow(() -> new ClassroomNotFound( "Classe introuvable", Map.of("classroomId", classroomId)));
 
-        // Récupérer toutes les inscriptions pour cette classe
-        List<Enrollment> enrollments = enrollmentRepository.findByClassroomId(classroomId);
+        // Récupérer une page d'inscriptions pour cette classe
+        Pageable pageable = PageRequest.of(page, size, Sort.by("enrolledAt").descending());
+        Page<Enrollment> enrollmentsPage = enrollmentRepository.findByClassroomId(classroomId, pageable);
 
-        log.info("Nombre d'inscriptions trouvées pour la classe {}: {}", classroomId, enrollments.size());
+        log.info("Nombre d'inscriptions trouvées pour la classe {}: {}", classroomId, enrollmentsPage.getTotalElements());
+
+        // Étudiants de la page : une seule requête $in
+        Roster roster = rosterLoader.load(enrollmentsPage.getContent(), false, RosterLoader.STUDENT_DETAIL_FIELDS);
 
         // Transformer les inscriptions en réponses d'étudiants
-        return enrollments.stream()
+        List<StudentResponse> students = enrollmentsPage.getContent().stream()
                 .map(enrollment -> {
-                    // Récupérer l'étudiant associé à l'inscription
-                    Student student = studentRepository.findById(enrollment.getStudentId())
-                            .orElseThrow(() -> new BusinessException(ErrorCode.STUDENT_NOT_FOUND,
-                                    "Étudiant introuvable",
-                                    Map.of("studentId", enrollment.getStudentId())));
+                    Student student = roster.student(enrollment);
 
                     // Convertir en DTO de réponse
                     return new StudentResponse(
@@ -70,5 +73,13 @@ public class ClassroomStudentService {
                     );
                 })
                 .toList();
+
+        return new ClassroomStudentListResponse(
+                enrollmentsPage.getNumber(),
+                enrollmentsPage.getSize(),
+                enrollmentsPage.getTotalElements(),
+                enrollmentsPage.getTotalPages(),
+                students
+        );
     }
-}
\ No newline at end of file
+}
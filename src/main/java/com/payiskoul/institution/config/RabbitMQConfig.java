@@ -1,13 +1,20 @@
 package com.payiskoul.institution.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration du message broker pour le service Institutions
  */
@@ -19,6 +26,7 @@ public class RabbitMQConfig {
     public static final String TRANSACTION_EXCHANGE = "payiskoul.transaction.exchange";
     public static final String TUITION_EXCHANGE = "payiskoul.tuition.exchange";
     public static final String PAYISKOUL_EVENTS_EXCHANGE = "payiskoul.events";
+    public static final String RETRY_EXCHANGE = "payiskoul.retry.exchange";
 
     // Routing keys
     public static final String TRANSACTION_ROUTING_KEY = "transaction.event";
@@ -28,6 +36,27 @@ public class RabbitMQConfig {
     // Queues
     public static final String TRANSACTION_QUEUE = "payiskoul.transaction.queue";
     public static final String TUITION_PAYMENT_QUEUE = "payiskoul.tuitions.queue";
+    public static final String PARKING_LOT_QUEUE = "payiskoul.parking-lot.queue";
+
+    // Queues disposant de files de réessai différé
+    public static final List<String> RETRYABLE_QUEUES = List.of(TRANSACTION_QUEUE, TUITION_PAYMENT_QUEUE);
+
+    // En-têtes de réessai
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    public static final String ORIGINAL_QUEUE_HEADER = "x-original-queue";
+    public static final String LAST_ERROR_HEADER = "x-last-error";
+    public static final String PARKED_AT_HEADER = "x-parked-at";
+
+    // Container factories
+    public static final String TRANSACTION_BATCH_CONTAINER_FACTORY = "transactionBatchContainerFactory";
+    public static final String PARTITIONED_CONTAINER_FACTORY = "partitionedContainerFactory";
+
+    /**
+     * Nom de la file de réessai différé d'une queue pour une tentative donnée (à partir de 1)
+     */
+    public static String retryQueue(String queue, int attempt) {
+        return queue + ".retry." + attempt;
+    }
 
     /**
      * Configurateur de convertisseur de messages JSON
@@ -47,6 +76,54 @@ public class RabbitMQConfig {
         return rabbitTemplate;
     }
 
+    /**
+     * Container factory pour la consommation par lot des transactions.
+     * Acquittement manuel par message, sans retry en mémoire : les échecs sont gérés message par message
+     */
+    @Bean(TRANSACTION_BATCH_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "payiskoul.tuition.batch.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory transactionBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${payiskoul.tuition.batch.size:200}") int batchSize,
+            @Value("${payiskoul.tuition.batch.receive-timeout:1000}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setAdviceChain();
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        return factory;
+    }
+
+    /**
+     * Container factory du mode partitionné : le thread consommateur ne fait que répartir les messages
+     * sur les lanes, qui les acquittent manuellement une fois traités.
+     * Un seul consommateur par défaut : avec plusieurs consommateurs concurrents, deux paiements d'un même
+     * étudiant peuvent être remis à leur lane dans un ordre différent de celui de la file
+     */
+    @Bean(PARTITIONED_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "payiskoul.tuition.lanes.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory partitionedContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${payiskoul.tuition.lanes.consumers:1}") int consumers,
+            @Value("${payiskoul.tuition.lanes.prefetch:250}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setAdviceChain();
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(consumers);
+        factory.setMaxConcurrentConsumers(consumers);
+        factory.setPrefetchCount(prefetch);
+        return factory;
+    }
+
     // --- Configuration des Exchanges ---
 
     @Bean
@@ -64,6 +141,11 @@ public class RabbitMQConfig {
         return new TopicExchange(PAYISKOUL_EVENTS_EXCHANGE);
     }
 
+    @Bean
+    public DirectExchange retryExchange() {
+        return new DirectExchange(RETRY_EXCHANGE);
+    }
+
     // --- Configuration des Queues ---
 
     @Bean
@@ -76,6 +158,32 @@ public class RabbitMQConfig {
         return QueueBuilder.durable(TUITION_PAYMENT_QUEUE).build();
     }
 
+    @Bean
+    public Queue parkingLotQueue() {
+        return QueueBuilder.durable(PARKING_LOT_QUEUE).build();
+    }
+
+    /**
+     * Files de réessai différé : une file par queue et par tentative, avec un TTL égal au délai de la tentative.
+     * À expiration, le message est renvoyé par dead-lettering vers sa queue d'origine (exchange par défaut)
+     */
+    @Bean
+    public Declarables retryQueues(@Value("${payiskoul.messaging.retry.delays:1000,5000,30000}") long[] delays) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (String queue : RETRYABLE_QUEUES) {
+            for (int attempt = 1; attempt <= delays.length; attempt++) {
+                Queue retryQueue = QueueBuilder.durable(retryQueue(queue, attempt))
+                        .ttl((int) delays[attempt - 1])
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(queue)
+                        .build();
+                declarables.add(retryQueue);
+                declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange()).with(retryQueue.getName()));
+            }
+        }
+        return new Declarables(declarables);
+    }
+
     // --- Configuration des Bindings ---
 
     @Bean
@@ -0,0 +1,26 @@
+package com.payiskoul.institution.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // Active les tâches planifiées (@Scheduled), notamment le relais de l'outbox
+
+    /**
+     * Pool des tâches planifiées. Le pool par défaut n'a qu'un thread : le relais de l'outbox, qui attend jusqu'à
+     * confirm-timeout les confirmations du broker, y retarderait les battements qui renouvellent les baux des jobs
+     * (cohortes, importations, files d'admission) au point de les laisser expirer. Un thread par tâche planifiée
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${payiskoul.scheduling.pool-size:5}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+}
@@ -17,6 +17,9 @@ public enum ErrorCode {
     CLASSROOM_ALREADY_EXISTS("Classe déjà existante"),
     CLASSROOM_FULL("Classe complète"),
     NO_CLASSROOM_AVAILABLE("Aucune classe disponible"),
+    OFFER_FULL("Plus de place disponible pour cette offre"),
+    ADMISSION_TICKET_NOT_FOUND("Ticket d'admission introuvable"),
+    ADMISSION_QUEUE_FULL("File d'admission saturée"),
     INVALID_INSTITUTION_PROGRAM("Programme invalide pour cette institution"),
     INVALID_CLASSROOM_PROGRAM("Classe invalide pour ce programme"),
 
@@ -27,12 +30,19 @@ public enum ErrorCode {
     IMPORT_DATA_VALIDATION_ERROR("Erreur de validation des données importées"),
     MAX_FILE_SIZE_EXCEEDED("Taille maximale du fichier dépassée"),
     UNSUPPORTED_FILE_TYPE("Type de fichier non supporté"),
+    IMPORT_JOB_NOT_FOUND("Job d'importation introuvable"),
+    IMPORT_JOB_NOT_FINISHED("Job d'importation non terminé"),
+    IMPORT_QUEUE_FULL("File d'attente des importations saturée"),
+    COHORT_JOB_NOT_FOUND("Job de cohorte introuvable"),
+    COHORT_JOB_ALREADY_RUNNING("Un job est déjà en cours pour cette offre"),
+    COHORT_JOB_QUEUE_FULL("File d'attente des jobs de cohorte saturée"),
     // Exceptions pour les validations de données
     INVALID_INPUT("Donnée d'entrée invalide"),
     DUPLICATE_DATA("Donnée en doublon"),
     INVALID_DATE_FORMAT("Format de date invalide"),
     // Nouveaux codes
     PAYMENT_ALREADY_PROCESSED("Paiement déjà traité"),
+    CONTENT_ACCESS_DENIED("Frais de formation non réglés"),
     DUPLICATE_REFERENCE("Référence de paiement dupliquée"),
 
     INVALID_PAYMENT_DATA("Données de paiement invalid"),
@@ -0,0 +1,52 @@
+package com.payiskoul.institution.messaging.controller;
+
+import com.payiskoul.institution.messaging.dto.ParkedMessageResponse;
+import com.payiskoul.institution.messaging.dto.ParkingLotReplayResponse;
+import com.payiskoul.institution.messaging.service.ParkingLotService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Administration du parking lot.
+ * L'application n'applique aucune authentification (la sécurité web est désactivée) : ces endpoints, qui rejouent
+ * des messages, ne sont exposés que si payiskoul.messaging.parking-lot.admin-api.enabled vaut true, sur une
+ * instance dont le port n'est joignable que par l'exploitation.
+ */
+@RestController
+@ConditionalOnProperty(name = "payiskoul.messaging.parking-lot.admin-api.enabled", havingValue = "true")
+@RequestMapping("/v1/admin/parking-lot")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Parking lot", description = "API d'administration des messages en échec définitif")
+public class ParkingLotController {
+
+    private final ParkingLotService parkingLotService;
+
+    @GetMapping
+    @Operation(summary = "Consulter le parking lot", description = "Liste les messages parqués sans les consommer")
+    public ResponseEntity<List<ParkedMessageResponse>> inspect(
+            @Parameter(description = "Nombre maximum de messages à lire")
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(parkingLotService.inspect(limit));
+    }
+
+    @PostMapping("/replay")
+    @Operation(summary = "Rejouer les messages parqués",
+            description = "Renvoie les messages du parking lot vers leur queue d'origine, éventuellement filtrés par queue")
+    public ResponseEntity<ParkingLotReplayResponse> replay(
+            @Parameter(description = "Queue d'origine des messages à rejouer (toutes si absente)")
+            @RequestParam(required = false) String queue,
+            @Parameter(description = "Nombre maximum de messages à examiner")
+            @RequestParam(defaultValue = "1000") int limit) {
+        log.info("Rejeu du parking lot: queue={}, limite={}", queue, limit);
+        return ResponseEntity.ok(new ParkingLotReplayResponse(parkingLotService.replay(queue, limit)));
+    }
+}
@@ -0,0 +1,22 @@
+package com.payiskoul.institution.messaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Message déposé dans le parking lot après épuisement des réessais")
+public record ParkedMessageResponse(
+        @Schema(description = "Queue d'origine du message", example = "payiskoul.tuitions.queue")
+        String originalQueue,
+
+        @Schema(description = "Nombre de réessais effectués", example = "3")
+        Integer retryCount,
+
+        @Schema(description = "Dernière erreur rencontrée")
+        String lastError,
+
+        @Schema(description = "Date de dépôt dans le parking lot")
+        String parkedAt,
+
+        @Schema(description = "Contenu JSON du message")
+        String payload
+) {
+}
@@ -0,0 +1,10 @@
+package com.payiskoul.institution.messaging.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Résultat du rejeu des messages du parking lot")
+public record ParkingLotReplayResponse(
+        @Schema(description = "Nombre de messages renvoyés vers leur queue d'origine", example = "12")
+        int replayed
+) {
+}
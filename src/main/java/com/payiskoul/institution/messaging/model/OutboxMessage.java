@@ -0,0 +1,48 @@
+package com.payiskoul.institution.messaging.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Événement en attente de publication sur RabbitMQ.
+ * Écrit avec le changement d'état qui le produit, puis publié par {@link com.payiskoul.institution.messaging.service.OutboxRelay}
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "outbox")
+@CompoundIndex(name = "status_created_idx", def = "{'status': 1, 'createdAt': 1}")
+public class OutboxMessage implements Serializable {
+    @Id
+    private String id;
+
+    private String exchange;
+    private String routingKey;
+
+    // Corps JSON et en-têtes de type tels que produits par le convertisseur de messages
+    private String payload;
+    private Map<String, String> headers;
+
+    private OutboxStatus status;
+    private int attempts;
+    private String lastError;
+
+    // Réservation par une instance du relais
+    private String lockedBy;
+    private LocalDateTime lockedUntil;
+
+    private LocalDateTime createdAt;
+
+    // Les messages publiés sont purgés automatiquement
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime publishedAt;
+}
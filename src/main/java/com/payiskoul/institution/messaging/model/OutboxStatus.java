@@ -0,0 +1,6 @@
+package com.payiskoul.institution.messaging.model;
+
+public enum OutboxStatus {
+    PENDING,
+    PUBLISHED
+}
@@ -0,0 +1,11 @@
+package com.payiskoul.institution.messaging.repository;
+
+import com.payiskoul.institution.messaging.model.OutboxMessage;
+import com.payiskoul.institution.messaging.model.OutboxStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxMessageRepository extends MongoRepository<OutboxMessage, String> {
+    long countByStatus(OutboxStatus status);
+}
@@ -0,0 +1,105 @@
+package com.payiskoul.institution.messaging.service;
+
+import com.payiskoul.institution.config.RabbitMQConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réessai non bloquant des messages en échec.
+ * <p>
+ * Au lieu de dormir dans le thread consommateur, un message en échec est republié dans la file de réessai
+ * correspondant à sa prochaine tentative (file à TTL renvoyant vers la queue d'origine). Une fois les tentatives
+ * épuisées, il est déposé dans le parking lot, d'où il peut être rejoué via {@link ParkingLotService}.
+ */
+@Service
+@Slf4j
+public class MessageRetryService {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+
+    public MessageRetryService(RabbitTemplate rabbitTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${payiskoul.messaging.retry.delays:1000,5000,30000}") long[] delays) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = delays.length;
+    }
+
+    /**
+     * Planifie une nouvelle tentative pour un message en échec, ou le dépose dans le parking lot
+     * @param queue la queue d'origine du message
+     * @param payload le contenu du message
+     * @param retryCount le nombre de réessais déjà effectués (en-tête x-retry-count, null au premier passage)
+     * @param error l'erreur rencontrée
+     * @return true si le message a été déposé dans le parking lot
+     */
+    public boolean retryOrPark(String queue, Object payload, Integer retryCount, Throwable error) {
+        try {
+            return route(queue, payload, retryCount == null ? 0 : retryCount, truncate(error.getMessage()));
+        } catch (AmqpException e) {
+            // Le message ne doit pas être perdu : il est remis immédiatement dans sa queue
+            throw new ImmediateRequeueAmqpException("Impossible de replanifier le message de " + queue, e);
+        }
+    }
+
+    /**
+     * Dépose directement un message dans le parking lot, lorsque le consommateur a déjà épuisé ses tentatives sur place
+     * @param queue la queue d'origine du message
+     * @param payload le contenu du message
+     * @param attempts le nombre de tentatives effectuées
+     * @param error l'erreur de la dernière tentative
+     */
+    public void park(String queue, Object payload, int attempts, Throwable error) {
+        try {
+            route(queue, payload, Math.max(attempts, maxAttempts), truncate(error.getMessage()));
+        } catch (AmqpException e) {
+            throw new ImmediateRequeueAmqpException("Impossible de déposer le message de " + queue + " dans le parking lot", e);
+        }
+    }
+
+    private boolean route(String queue, Object payload, int attempt, String reason) {
+
+        if (attempt < maxAttempts) {
+            int nextAttempt = attempt + 1;
+            rabbitTemplate.convertAndSend(RabbitMQConfig.RETRY_EXCHANGE, RabbitMQConfig.retryQueue(queue, nextAttempt), payload,
+                    message -> {
+                        message.getMessageProperties().setHeader(RabbitMQConfig.RETRY_COUNT_HEADER, nextAttempt);
+                        message.getMessageProperties().setHeader(RabbitMQConfig.ORIGINAL_QUEUE_HEADER, queue);
+                        message.getMessageProperties().setHeader(RabbitMQConfig.LAST_ERROR_HEADER, reason);
+                        return message;
+                    });
+            meterRegistry.counter("payiskoul.messaging.retried", "queue", queue).increment();
+            log.warn("Message de {} replanifié (tentative {}/{}): {}", queue, nextAttempt, maxAttempts, reason);
+            return false;
+        }
+
+        rabbitTemplate.convertAndSend("", RabbitMQConfig.PARKING_LOT_QUEUE, payload, message -> {
+            message.getMessageProperties().setHeader(RabbitMQConfig.RETRY_COUNT_HEADER, attempt);
+            message.getMessageProperties().setHeader(RabbitMQConfig.ORIGINAL_QUEUE_HEADER, queue);
+            message.getMessageProperties().setHeader(RabbitMQConfig.LAST_ERROR_HEADER, reason);
+            message.getMessageProperties().setHeader(RabbitMQConfig.PARKED_AT_HEADER, LocalDateTime.now().toString());
+            return message;
+        });
+        meterRegistry.counter("payiskoul.messaging.parked", "queue", queue).increment();
+        log.error("Message de {} déposé dans le parking lot après {} tentatives: {}", queue, attempt, reason);
+        return true;
+    }
+
+    private static String truncate(String value) {
+        if (value == null) {
+            return "Erreur inconnue";
+        }
+        return value.length() > MAX_ERROR_LENGTH ? value.substring(0, MAX_ERROR_LENGTH) : value;
+    }
+}
@@ -0,0 +1,220 @@
+package com.payiskoul.institution.messaging.service;
+
+import com.payiskoul.institution.messaging.model.OutboxMessage;
+import com.payiskoul.institution.messaging.model.OutboxStatus;
+import com.payiskoul.institution.messaging.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relais de l'outbox : publie les événements en attente par lots.
+ * <p>
+ * Les messages d'un lot sont envoyés les uns à la suite des autres sans attendre le broker, puis les
+ * confirmations (publisher confirms) sont attendues ensemble. Seuls les messages confirmés sont marqués publiés ;
+ * les autres restent en attente et sont republiés au passage suivant. Une réservation temporaire (lockedBy / lockedUntil)
+ * évite que plusieurs instances publient le même lot. La livraison est "au moins une fois" : le messageId AMQP
+ * est l'identifiant de l'entrée d'outbox.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String METRIC_PREFIX = "payiskoul.outbox";
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+
+    private final int batchSize;
+    private final long confirmTimeout;
+    private final long lease;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository,
+                       MongoTemplate mongoTemplate,
+                       RabbitTemplate rabbitTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${payiskoul.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${payiskoul.outbox.relay.confirm-timeout:5000}") long confirmTimeout,
+                       @Value("${payiskoul.outbox.relay.lease:30000}") long lease) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.batchSize = batchSize;
+        this.confirmTimeout = confirmTimeout;
+        this.lease = lease;
+
+        this.publishedCounter = meterRegistry.counter(METRIC_PREFIX + ".published");
+        this.failedCounter = meterRegistry.counter(METRIC_PREFIX + ".failed");
+        Gauge.builder(METRIC_PREFIX + ".pending", outboxMessageRepository, repository -> repository.countByStatus(OutboxStatus.PENDING))
+                .description("Nombre d'événements en attente de publication")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publie les événements en attente, lot par lot, jusqu'à vider l'outbox
+     */
+    @Scheduled(fixedDelayString = "${payiskoul.outbox.relay.interval:500}")
+    public void relay() {
+        try {
+            List<OutboxMessage> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) {
+                    publish(batch);
+                }
+            } while (batch.size() == batchSize);
+        } catch (Exception e) {
+            log.error("Erreur lors du relais de l'outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
+
+    /**
+     * Réserve pour cette instance les plus anciens événements en attente
+     */
+    private List<OutboxMessage> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria claimable = Criteria.where("status").is(OutboxStatus.PENDING)
+                .orOperator(Criteria.where("lockedUntil").is(null), Criteria.where("lockedUntil").lt(now));
+
+        Query candidates = Query.query(claimable)
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+                .limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, OutboxMessage.class).stream()
+                .map(OutboxMessage::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).andOperator(claimable)),
+                new Update().set("lockedBy", instanceId).set("lockedUntil", now.plusNanos(lease * 1_000_000)),
+                OutboxMessage.class);
+
+        return mongoTemplate.find(
+                Query.query(Criteria.where("_id").in(ids).and("lockedBy").is(instanceId))
+                        .with(Sort.by(Sort.Direction.ASC, "createdAt")),
+                OutboxMessage.class);
+    }
+
+    /**
+     * Envoie un lot sans attendre le broker entre deux messages, puis attend l'ensemble des confirmations
+     */
+    private void publish(List<OutboxMessage> batch) {
+        boolean confirms = rabbitTemplate.getConnectionFactory().isPublisherConfirms();
+        Map<String, CorrelationData> pending = new LinkedHashMap<>();
+        Map<String, String> failures = new HashMap<>();
+
+        for (OutboxMessage outboxMessage : batch) {
+            CorrelationData correlation = new CorrelationData(outboxMessage.getId());
+            try {
+                rabbitTemplate.send(outboxMessage.getExchange(), outboxMessage.getRoutingKey(),
+                        toAmqpMessage(outboxMessage), correlation);
+                pending.put(outboxMessage.getId(), correlation);
+            } catch (Exception e) {
+                failures.put(outboxMessage.getId(), e.getMessage());
+            }
+        }
+
+        List<String> published = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeout);
+        for (Map.Entry<String, CorrelationData> entry : pending.entrySet()) {
+            if (!confirms) {
+                // Sans publisher confirms, un envoi sans exception est considéré comme publié
+                published.add(entry.getKey());
+                continue;
+            }
+            try {
+                CorrelationData.Confirm confirm = entry.getValue().getFuture()
+                        .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (confirm.isAck()) {
+                    published.add(entry.getKey());
+                } else {
+                    failures.put(entry.getKey(), "Refusé par le broker: " + confirm.getReason());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.put(entry.getKey(), "Attente de confirmation interrompue");
+            } catch (Exception e) {
+                failures.put(entry.getKey(), "Confirmation non reçue: " + e.getMessage());
+            }
+        }
+
+        markPublished(published);
+        markFailed(failures);
+        log.debug("Outbox: {} événements publiés, {} en échec", published.size(), failures.size());
+    }
+
+    private Message toAmqpMessage(OutboxMessage outboxMessage) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setMessageId(outboxMessage.getId());
+        if (outboxMessage.getHeaders() != null) {
+            outboxMessage.getHeaders().forEach(properties::setHeader);
+        }
+        return new Message(outboxMessage.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private void markPublished(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids)),
+                new Update().set("status", OutboxStatus.PUBLISHED)
+                        .set("publishedAt", LocalDateTime.now())
+                        .unset("lockedBy")
+                        .unset("lockedUntil"),
+                OutboxMessage.class);
+        publishedCounter.increment(ids.size());
+    }
+
+    /**
+     * Libère la réservation des messages non confirmés pour qu'ils soient republiés au prochain passage
+     */
+    private void markFailed(Map<String, String> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxMessage.class);
+        failures.forEach((id, reason) -> {
+            log.warn("Échec de publication de l'événement {}: {}", id, reason);
+            operations.updateOne(
+                    Query.query(Criteria.where("_id").is(id)),
+                    new Update().inc("attempts", 1)
+                            .set("lastError", reason)
+                            .unset("lockedBy")
+                            .unset("lockedUntil"));
+        });
+        operations.execute();
+        failedCounter.increment(failures.size());
+    }
+}
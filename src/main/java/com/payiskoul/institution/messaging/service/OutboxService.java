@@ -0,0 +1,117 @@
+package com.payiskoul.institution.messaging.service;
+
+import com.payiskoul.institution.messaging.model.OutboxMessage;
+import com.payiskoul.institution.messaging.model.OutboxStatus;
+import com.payiskoul.institution.messaging.repository.OutboxMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Enregistrement des événements à publier dans la collection outbox.
+ * Les threads consommateurs n'attendent plus le broker : la publication est assurée par {@link OutboxRelay}
+ * <p>
+ * Un événement peut être enregistré avec un identifiant choisi par l'appelant (par exemple dérivé d'une référence
+ * de paiement) : un traitement rejoué après une interruption retrouve alors la ligne déjà enregistrée au lieu d'en
+ * créer une seconde.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final MessageConverter jsonMessageConverter;
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Enregistre un événement à publier
+     * @param exchange l'exchange de destination
+     * @param routingKey la clé de routage
+     * @param payload l'événement
+     */
+    public void enqueue(String exchange, String routingKey, Object payload) {
+        OutboxMessage message = outboxMessageRepository.insert(toOutboxMessage(exchange, routingKey, payload));
+        log.debug("Événement {} enregistré dans l'outbox: {}", routingKey, message.getId());
+    }
+
+    /**
+     * Enregistre un événement à publier sous un identifiant donné.
+     * Si un événement porte déjà cet identifiant, il a été enregistré par une tentative précédente et n'est pas dupliqué
+     * @param id l'identifiant du message dans l'outbox
+     * @param exchange l'exchange de destination
+     * @param routingKey la clé de routage
+     * @param payload l'événement
+     */
+    public void enqueue(String id, String exchange, String routingKey, Object payload) {
+        OutboxMessage message = toOutboxMessage(exchange, routingKey, payload);
+        message.setId(id);
+        try {
+            outboxMessageRepository.insert(message);
+            log.debug("Événement {} enregistré dans l'outbox: {}", routingKey, id);
+        } catch (DuplicateKeyException e) {
+            log.debug("Événement {} déjà présent dans l'outbox: {}", routingKey, id);
+        }
+    }
+
+    /**
+     * Enregistre plusieurs événements à publier vers la même destination en un seul bulkWrite non ordonné.
+     * Les événements dont l'identifiant est déjà présent ont été enregistrés par une tentative précédente
+     * et ne sont pas dupliqués
+     * @param exchange l'exchange de destination
+     * @param routingKey la clé de routage
+     * @param payloads les événements, indexés par leur identifiant dans l'outbox
+     */
+    public void enqueueAll(String exchange, String routingKey, Map<String, ?> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxMessage.class);
+        payloads.forEach((id, payload) -> {
+            OutboxMessage message = toOutboxMessage(exchange, routingKey, payload);
+            message.setId(id);
+            operations.insert(message);
+        });
+        try {
+            operations.execute();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY_ERROR)) {
+                throw e;
+            }
+            log.debug("{} événements {} déjà présents dans l'outbox", e.getErrors().size(), routingKey);
+        }
+        log.debug("{} événements {} enregistrés dans l'outbox", payloads.size(), routingKey);
+    }
+
+    private OutboxMessage toOutboxMessage(String exchange, String routingKey, Object payload) {
+        // Sérialisation immédiate avec le convertisseur JSON du RabbitTemplate : le relais publie les octets tels quels
+        Message message = jsonMessageConverter.toMessage(payload, new MessageProperties());
+
+        Map<String, String> headers = new HashMap<>();
+        message.getMessageProperties().getHeaders().forEach((key, value) -> headers.put(key, String.valueOf(value)));
+
+        return OutboxMessage.builder()
+                .exchange(exchange)
+                .routingKey(routingKey)
+                .payload(new String(message.getBody(), StandardCharsets.UTF_8))
+                .headers(headers)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.payiskoul.institution.messaging.service;
+
+import com.payiskoul.institution.config.RabbitMQConfig;
+import com.payiskoul.institution.messaging.dto.ParkedMessageResponse;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultation et rejeu des messages du parking lot
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ParkingLotService {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    /**
+     * Liste les premiers messages du parking lot sans les consommer (ils sont remis en file après lecture)
+     * @param limit le nombre maximum de messages à lire
+     * @return les messages parqués
+     */
+    public List<ParkedMessageResponse> inspect(int limit) {
+        return rabbitTemplate.execute(channel -> {
+            List<ParkedMessageResponse> messages = new ArrayList<>();
+            long lastDeliveryTag = 0;
+            for (int i = 0; i < limit; i++) {
+                GetResponse response = channel.basicGet(RabbitMQConfig.PARKING_LOT_QUEUE, false);
+                if (response == null) {
+                    break;
+                }
+                lastDeliveryTag = response.getEnvelope().getDeliveryTag();
+                messages.add(toResponse(response));
+            }
+            if (lastDeliveryTag > 0) {
+                channel.basicNack(lastDeliveryTag, true, true);
+            }
+            return messages;
+        });
+    }
+
+    /**
+     * Renvoie les messages du parking lot vers leur queue d'origine, avec un compteur de réessais remis à zéro
+     * @param queue la queue d'origine des messages à rejouer (toutes si null)
+     * @param limit le nombre maximum de messages à examiner
+     * @return le nombre de messages rejoués
+     */
+    public int replay(String queue, int limit) {
+        Integer replayed = rabbitTemplate.execute(channel -> {
+            int count = 0;
+            List<Long> skipped = new ArrayList<>();
+            for (int i = 0; i < limit; i++) {
+                GetResponse response = channel.basicGet(RabbitMQConfig.PARKING_LOT_QUEUE, false);
+                if (response == null) {
+                    break;
+                }
+                long deliveryTag = response.getEnvelope().getDeliveryTag();
+                String originalQueue = header(response, RabbitMQConfig.ORIGINAL_QUEUE_HEADER);
+                if (originalQueue == null || (queue != null && !queue.equals(originalQueue))) {
+                    skipped.add(deliveryTag);
+                    continue;
+                }
+
+                Map<String, Object> headers = new HashMap<>(response.getProps().getHeaders());
+                headers.remove(RabbitMQConfig.RETRY_COUNT_HEADER);
+                headers.remove(RabbitMQConfig.LAST_ERROR_HEADER);
+                headers.remove(RabbitMQConfig.PARKED_AT_HEADER);
+                AMQP.BasicProperties properties = response.getProps().builder().headers(headers).build();
+
+                channel.basicPublish("", originalQueue, properties, response.getBody());
+                channel.basicAck(deliveryTag, false);
+                count++;
+            }
+            // Les messages non concernés sont remis en file
+            for (Long deliveryTag : skipped) {
+                channel.basicNack(deliveryTag, false, true);
+            }
+            return count;
+        });
+        log.info("{} messages du parking lot rejoués{}", replayed, queue != null ? " vers " + queue : "");
+        return replayed != null ? replayed : 0;
+    }
+
+    private ParkedMessageResponse toResponse(GetResponse response) {
+        String retryCount = header(response, RabbitMQConfig.RETRY_COUNT_HEADER);
+        return new ParkedMessageResponse(
+                header(response, RabbitMQConfig.ORIGINAL_QUEUE_HEADER),
+                retryCount != null ? Integer.valueOf(retryCount) : null,
+                header(response, RabbitMQConfig.LAST_ERROR_HEADER),
+                header(response, RabbitMQConfig.PARKED_AT_HEADER),
+                new String(response.getBody(), StandardCharsets.UTF_8)
+        );
+    }
+
+    private static String header(GetResponse response, String name) {
+        Map<String, Object> headers = response.getProps().getHeaders();
+        Object value = headers != null ? headers.get(name) : null;
+        return value != null ? value.toString() : null;
+    }
+}
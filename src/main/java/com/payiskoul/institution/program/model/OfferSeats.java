@@ -0,0 +1,31 @@
+package com.payiskoul.institution.program.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+
+/**
+ * Effectif d'une offre de formation : nombre de ses inscriptions ENROLLED.
+ * Tenu hors du document de l'offre, qui est enregistré en entier (replaceOne) par les services de l'offre,
+ * et modifié uniquement par des $inc conditionnels ({@code OfferSeatService})
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "offer_seats")
+public class OfferSeats implements Serializable {
+    /**
+     * ID de l'offre
+     */
+    @Id
+    private String offerId;
+
+    /**
+     * Nombre d'inscriptions ENROLLED
+     */
+    private int enrolledCount;
+}
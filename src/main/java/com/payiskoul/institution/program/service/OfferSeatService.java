@@ -0,0 +1,135 @@
+package com.payiskoul.institution.program.service;
+
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.program.model.OfferSeats;
+import com.payiskoul.institution.program.model.TrainingOffer;
+import com.payiskoul.institution.student.model.Enrollment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Places des offres sous {@code maxStudents}.
+ * <p>
+ * L'effectif de chaque offre (nombre de ses inscriptions ENROLLED) est tenu dans la collection offer_seats
+ * ({@link OfferSeats}), hors du document de l'offre : les enregistrements complets de l'offre ne peuvent pas l'effacer.
+ * Une place est réservée par un $inc conditionnel (effectif + demandé <= maxStudents) avant l'écriture de
+ * l'inscription, et rendue par un décrément lorsque l'écriture échoue ou que l'inscription quitte l'état ENROLLED :
+ * des inscriptions simultanées, sur une ou plusieurs instances et par n'importe quel point d'entrée, ne peuvent pas
+ * dépasser la capacité de l'offre. Une offre sans {@code maxStudents} n'a pas de limite, mais son effectif est tenu
+ * à jour.
+ * <p>
+ * L'effectif d'une offre est initialisé à sa première utilisation, à partir de ses inscriptions ENROLLED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OfferSeatService {
+
+    private static final String ENROLLED_COUNT = "enrolledCount";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Réserve une place dans l'offre
+     * @param offerId ID de l'offre
+     * @throws BusinessException OFFER_FULL si l'offre n'a plus de place
+     */
+    public void reserve(String offerId) {
+        if (reserve(offerId, 1) == 0) {
+            throw new BusinessException(ErrorCode.OFFER_FULL,
+                    "Plus de place disponible pour cette offre", Map.of("offerId", offerId));
+        }
+    }
+
+    /**
+     * Réserve jusqu'à {@code requested} places dans l'offre.
+     * La réservation porte sur toutes les places à la fois ; si elle est refusée, l'effectif de l'offre
+     * est relu et la réservation est retentée sur ce qui reste.
+     * @param offerId ID de l'offre
+     * @param requested nombre de places demandées
+     * @return le nombre de places réservées, entre 0 et requested (0 si l'offre n'existe pas)
+     */
+    public int reserve(String offerId, int requested) {
+        Query offerQuery = Query.query(Criteria.where("_id").is(offerId));
+        offerQuery.fields().include("maxStudents");
+        TrainingOffer offer = mongoTemplate.findOne(offerQuery, TrainingOffer.class);
+        if (offer == null) {
+            return 0;
+        }
+        Integer maxStudents = offer.getMaxStudents();
+
+        int granted = requested;
+        while (granted > 0) {
+            Criteria room = Criteria.where("_id").is(offerId);
+            if (maxStudents != null) {
+                room = room.and(ENROLLED_COUNT).lte(maxStudents - granted);
+            }
+            if (mongoTemplate.updateFirst(Query.query(room), new Update().inc(ENROLLED_COUNT, granted),
+                    OfferSeats.class).getModifiedCount() == 1) {
+                return granted;
+            }
+
+            // Places prises entre-temps par une autre inscription, ou effectif pas encore initialisé : le relire
+            int enrolled = enrolledCount(offerId);
+            if (maxStudents != null) {
+                granted = Math.min(granted, Math.max(0, maxStudents - enrolled));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Rend des places réservées, sans descendre sous zéro
+     * @param offerId ID de l'offre
+     * @param count nombre de places à rendre
+     */
+    public void release(String offerId, int count) {
+        if (count <= 0) {
+            return;
+        }
+        boolean released = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(offerId).and(ENROLLED_COUNT).gte(count)),
+                new Update().inc(ENROLLED_COUNT, -count),
+                OfferSeats.class).getModifiedCount() == 1;
+        if (!released) {
+            log.warn("Impossible de rendre {} places de l'offre {}: effectif inférieur", count, offerId);
+        }
+    }
+
+    /**
+     * Effectif de l'offre, initialisé s'il n'existe pas encore
+     * @param offerId ID de l'offre
+     * @return le nombre d'inscriptions ENROLLED de l'offre
+     */
+    public int enrolledCount(String offerId) {
+        OfferSeats seats = mongoTemplate.findById(offerId, OfferSeats.class);
+        return seats != null ? seats.getEnrolledCount() : initialize(offerId);
+    }
+
+    /**
+     * Crée l'effectif d'une offre à partir de ses inscriptions ENROLLED. Les inscriptions réservent leur place avant
+     * d'être écrites, et aucune réservation n'aboutit avant cette création : le décompte est exact.
+     * Si une autre instance l'a créé entre-temps, c'est son effectif qui est retenu.
+     */
+    private int initialize(String offerId) {
+        int enrolled = (int) mongoTemplate.count(Query.query(Criteria.where("programLevelId").is(offerId)
+                .and("status").is(Enrollment.EnrollmentStatus.ENROLLED)), Enrollment.class);
+        try {
+            mongoTemplate.insert(new OfferSeats(offerId, enrolled));
+            log.info("Effectif de l'offre {} initialisé: {} inscrits", offerId, enrolled);
+            return enrolled;
+        } catch (DuplicateKeyException e) {
+            OfferSeats seats = mongoTemplate.findById(offerId, OfferSeats.class);
+            return seats != null ? seats.getEnrolledCount() : enrolled;
+        }
+    }
+}
@@ -1,165 +1,166 @@
 package com.payiskoul.institution.reports.service;
 
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
 import com.payiskoul.institution.program.model.TrainingOffer;
 import com.payiskoul.institution.program.repository.TrainingOfferRepository;
 import com.payiskoul.institution.student.model.Enrollment;
 import com.payiskoul.institution.student.model.Student;
-import com.payiskoul.institution.student.repository.EnrollmentRepository;
-import com.payiskoul.institution.student.repository.StudentRepository;
+import com.payiskoul.institution.student.service.RosterLoader;
+import com.payiskoul.institution.student.service.RosterLoader.Roster;
 import com.payiskoul.institution.training.model.LectureProgress;
-import com.payiskoul.institution.training.repository.LectureProgressRepository;
+import com.payiskoul.institution.training.model.TrainingLecture;
+import com.payiskoul.institution.training.model.TrainingSection;
 import com.payiskoul.institution.tuition.model.TuitionStatus;
-import com.payiskoul.institution.tuition.repository.TuitionStatusRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
-import java.io.StringWriter;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Service équivalent aux fonctions generate_course_report et generate_student_report de Django
+ * Service équivalent aux fonctions generate_course_report et generate_student_report de Django.
+ * <p>
+ * Les rapports sont écrits en flux : les inscriptions sont lues avec un curseur MongoDB et traitées par lots
+ * de {@link #CHUNK_SIZE}. Pour chaque lot, les étudiants, les statuts de paiement et les progressions sont chargés
+ * avec une requête $in par collection, puis les lignes du lot sont écrites et envoyées au client.
+ * La mémoire utilisée ne dépend que de la taille d'un lot, et l'en-tête part avant la lecture de la première inscription.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReportService {
 
+    private static final int CHUNK_SIZE = 500;
+    private static final String[] PROGRESS_FIELDS = {"enrollmentId", "lectureId", "isCompleted", "progressPercent",
+            "timeSpent", "lastAccessedAt", "completedAt"};
+
     private final TrainingOfferRepository trainingOfferRepository;
-    private final EnrollmentRepository enrollmentRepository;
-    private final StudentRepository studentRepository;
-    private final LectureProgressRepository lectureProgressRepository;
-    private final TuitionStatusRepository tuitionStatusRepository;
+    private final RosterLoader rosterLoader;
+    private final MongoTemplate mongoTemplate;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
-     * Génère un rapport CSV pour une offre de formation
+     * Vérifie qu'une offre existe, avant l'envoi des en-têtes de la réponse
+     * @param offerId ID de l'offre
+     * @return l'offre
+     */
+    public TrainingOffer findOffer(String offerId) {
+        return trainingOfferRepository.findById(offerId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
+                        "Offre introuvable", Map.of("offerId", offerId)));
+    }
+
+    /**
+     * Écrit le rapport CSV d'une offre de formation : une ligne par inscription
      * Équivalent de generate_course_report de Django
+     * @param offerId ID de l'offre
+     * @param outputStream flux de sortie
      */
-    public String generateOfferReport(String offerId) {
+    public void writeOfferReport(String offerId, OutputStream outputStream) throws IOException {
         log.info("Génération du rapport pour l'offre: {}", offerId);
 
-        TrainingOffer offer = trainingOfferRepository.findById(offerId)
-                .orElseThrow(() -> new RuntimeException("Offre introuvable: " + offerId));
-
-        StringWriter csvWriter = new StringWriter();
+        Writer csvWriter = writer(outputStream);
 
         // En-têtes CSV
         csvWriter.append("Matricule,Nom Complet,Email,Date Inscription,Statut Inscription,")
                 .append("Progression (%),Leçons Complétées,Temps Total (min),")
                 .append("Statut Paiement,Montant Payé,Montant Restant,Dernière Activité\n");
+        csvWriter.flush();
 
-        // Récupérer toutes les inscriptions pour cette offre
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(""); // TODO: Corriger cette méthode
-        List<Enrollment> offerEnrollments = enrollments.stream()
-                .filter(e -> e.getProgramLevelId().equals(offerId))
-                .collect(Collectors.toList());
-
-        for (Enrollment enrollment : offerEnrollments) {
-            try {
-                // Récupérer l'étudiant
-                Student student = studentRepository.findById(enrollment.getStudentId())
-                        .orElse(null);
+        Query query = Query.query(Criteria.where("programLevelId").is(offerId)).with(Sort.by("_id"));
+        long count = forEachChunk(query, Enrollment::getId, chunk -> {
+            Roster roster = rosterLoader.load(chunk, true, RosterLoader.STUDENT_SUMMARY_FIELDS);
+            Map<String, List<LectureProgress>> progress = findProgress(chunk);
 
+            for (Enrollment enrollment : chunk) {
+                Student student = roster.students().get(enrollment.getStudentId());
                 if (student == null) continue;
 
-                // Récupérer la progression
-                List<LectureProgress> progressList = lectureProgressRepository.findByEnrollmentId(enrollment.getId());
-
-                double progressPercent = 0.0;
-                long completedLectures = 0;
-                int totalTimeSpent = 0;
-                String lastActivity = "";
-
-                if (!progressList.isEmpty()) {
-                    progressPercent = progressList.stream()
-                            .mapToInt(LectureProgress::getProgressPercent)
-                            .average()
-                            .orElse(0.0);
-
-                    completedLectures = progressList.stream()
-                            .filter(LectureProgress::getIsCompleted)
-                            .count();
-
-                    totalTimeSpent = progressList.stream()
-                            .mapToInt(LectureProgress::getTimeSpent)
-                            .sum();
-
-                    lastActivity = progressList.stream()
-                            .filter(p -> p.getLastAccessedAt() != null)
-                            .map(p -> p.getLastAccessedAt().format(DATE_FORMATTER))
-                            .findFirst()
-                            .orElse("");
-                }
-
-                // Récupérer les informations de paiement
-                List<TuitionStatus> tuitionStatuses = tuitionStatusRepository.findByEnrollmentId(enrollment.getId());
-                String paymentStatus = "UNKNOWN";
-                String amountPaid = "0";
-                String amountRemaining = "0";
-
-                if (!tuitionStatuses.isEmpty()) {
-                    TuitionStatus status = tuitionStatuses.get(0);
-                    paymentStatus = status.getPaymentStatus().name();
-                    amountPaid = status.getPaidAmount().toString();
-                    amountRemaining = status.getRemainingAmount().toString();
-                }
+                // Progression
+                List<LectureProgress> progressList = progress.getOrDefault(enrollment.getId(), List.of());
+                double progressPercent = progressList.stream()
+                        .mapToInt(p -> Objects.requireNonNullElse(p.getProgressPercent(), 0))
+                        .average()
+                        .orElse(0.0);
+                long completedLectures = progressList.stream()
+                        .filter(p -> Boolean.TRUE.equals(p.getIsCompleted()))
+                        .count();
+                int totalTimeSpent = progressList.stream()
+                        .mapToInt(p -> Objects.requireNonNullElse(p.getTimeSpent(), 0))
+                        .sum();
+                String lastActivity = progressList.stream()
+                        .map(LectureProgress::getLastAccessedAt)
+                        .filter(Objects::nonNull)
+                        .max(Comparator.naturalOrder())
+                        .map(DATE_FORMATTER::format)
+                        .orElse("");
+
+                // Informations de paiement
+                Optional<TuitionStatus> tuitionStatus = roster.tuitionStatus(enrollment);
 
                 // Écrire la ligne CSV
                 csvWriter.append(escapeCsv(student.getMatricule())).append(",")
                         .append(escapeCsv(student.getFullName())).append(",")
                         .append(escapeCsv(student.getEmail())).append(",")
-                        .append(enrollment.getEnrolledAt().format(DATE_FORMATTER)).append(",")
-                        .append(enrollment.getStatus().name()).append(",")
+                        .append(format(enrollment.getEnrolledAt())).append(",")
+                        .append(enrollment.getStatus() != null ? enrollment.getStatus().name() : "").append(",")
                         .append(String.format("%.1f", progressPercent)).append(",")
                         .append(String.valueOf(completedLectures)).append(",")
                         .append(String.valueOf(totalTimeSpent / 60)).append(",") // Convertir en minutes
-                        .append(paymentStatus).append(",")
-                        .append(amountPaid).append(",")
-                        .append(amountRemaining).append(",")
+                        .append(tuitionStatus.map(status -> status.getPaymentStatus().name()).orElse("UNKNOWN")).append(",")
+                        .append(tuitionStatus.map(status -> status.getPaidAmount().toString()).orElse("0")).append(",")
+                        .append(tuitionStatus.map(status -> status.getRemainingAmount().toString()).orElse("0")).append(",")
                         .append(lastActivity).append("\n");
-
-            } catch (Exception e) {
-                log.error("Erreur lors de la génération du rapport pour l'inscription: {}", enrollment.getId(), e);
             }
-        }
+            csvWriter.flush();
+        });
 
-        log.info("Rapport généré pour l'offre {}: {} lignes", offerId, offerEnrollments.size());
-        return csvWriter.toString();
+        log.info("Rapport généré pour l'offre {}: {} lignes", offerId, count);
     }
 
     /**
-     * Génère un rapport CSV des étudiants pour une institution
+     * Écrit le rapport CSV des étudiants d'une institution : une ligne par étudiant.
+     * Les inscriptions sont lues triées par étudiant, de sorte que celles d'un même étudiant soient dans le même lot.
      * Équivalent de generate_student_report de Django
+     * @param institutionId ID de l'institution
+     * @param outputStream flux de sortie
      */
-    public String generateStudentReport(String institutionId) {
+    public void writeStudentReport(String institutionId, OutputStream outputStream) throws IOException {
         log.info("Génération du rapport des étudiants pour l'institution: {}", institutionId);
 
-        StringWriter csvWriter = new StringWriter();
+        Writer csvWriter = writer(outputStream);
 
         // En-têtes CSV
         csvWriter.append("Matricule,Nom Complet,Genre,Date Naissance,Email,Téléphone,")
                 .append("Date Inscription,Nombre Cours,Cours Actifs,Progression Moyenne (%),")
                 .append("Statut Paiement Global,Total Payé,Total Restant\n");
+        csvWriter.flush();
 
-        // Récupérer toutes les inscriptions de l'institution
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(""); // TODO: Corriger
-        Map<String, List<Enrollment>> studentEnrollments = enrollments.stream()
-                .filter(e -> e.getInstitutionId().equals(institutionId))
-                .collect(Collectors.groupingBy(Enrollment::getStudentId));
-
-        for (Map.Entry<String, List<Enrollment>> entry : studentEnrollments.entrySet()) {
-            try {
-                String studentId = entry.getKey();
-                List<Enrollment> studentEnrollmentList = entry.getValue();
+        Query query = Query.query(Criteria.where("institutionId").is(institutionId)).with(Sort.by("studentId", "_id"));
+        long count = forEachChunk(query, Enrollment::getStudentId, chunk -> {
+            Roster roster = rosterLoader.load(chunk, true, RosterLoader.STUDENT_DETAIL_FIELDS);
+            Map<String, List<LectureProgress>> progress = findProgress(chunk);
+            Map<String, List<Enrollment>> studentEnrollments = chunk.stream()
+                    .collect(Collectors.groupingBy(Enrollment::getStudentId, LinkedHashMap::new, Collectors.toList()));
 
-                // Récupérer l'étudiant
-                Student student = studentRepository.findById(studentId).orElse(null);
+            for (Map.Entry<String, List<Enrollment>> entry : studentEnrollments.entrySet()) {
+                Student student = roster.students().get(entry.getKey());
                 if (student == null) continue;
+                List<Enrollment> studentEnrollmentList = entry.getValue();
 
                 // Calculer les statistiques
                 int totalCourses = studentEnrollmentList.size();
@@ -170,100 +171,180 @@ public class ReportService {
                 // Progression moyenne
                 double averageProgress = 0.0;
                 for (Enrollment enrollment : studentEnrollmentList) {
-                    List<LectureProgress> progressList = lectureProgressRepository.findByEnrollmentId(enrollment.getId());
-                    if (!progressList.isEmpty()) {
-                        double enrollmentProgress = progressList.stream()
-                                .mapToInt(LectureProgress::getProgressPercent)
-                                .average()
-                                .orElse(0.0);
-                        averageProgress += enrollmentProgress;
-                    }
+                    averageProgress += progress.getOrDefault(enrollment.getId(), List.of()).stream()
+                            .mapToInt(p -> Objects.requireNonNullElse(p.getProgressPercent(), 0))
+                            .average()
+                            .orElse(0.0);
                 }
                 averageProgress = totalCourses > 0 ? averageProgress / totalCourses : 0.0;
 
-                // Informations de paiement globales
-                List<TuitionStatus> allTuitionStatuses = tuitionStatusRepository.findByMatricule(student.getMatricule());
-                String globalPaymentStatus = calculateGlobalPaymentStatus(allTuitionStatuses);
+                // Informations de paiement globales, sur les inscriptions de l'étudiant dans l'institution
+                List<TuitionStatus> allTuitionStatuses = studentEnrollmentList.stream()
+                        .map(roster::tuitionStatus)
+                        .flatMap(Optional::stream)
+                        .toList();
                 String totalPaid = allTuitionStatuses.stream()
                         .map(TuitionStatus::getPaidAmount)
-                        .reduce(java.math.BigDecimal.ZERO, java.math.BigDecimal::add)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add)
                         .toString();
                 String totalRemaining = allTuitionStatuses.stream()
                         .map(TuitionStatus::getRemainingAmount)
-                        .reduce(java.math.BigDecimal.ZERO, java.math.BigDecimal::add)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add)
                         .toString();
 
                 // Écrire la ligne CSV
                 csvWriter.append(escapeCsv(student.getMatricule())).append(",")
                         .append(escapeCsv(student.getFullName())).append(",")
-                        .append(student.getGender().name()).append(",")
-                        .append(student.getBirthDate().toString()).append(",")
+                        .append(student.getGender() != null ? student.getGender().name() : "").append(",")
+                        .append(student.getBirthDate() != null ? student.getBirthDate().toString() : "").append(",")
                         .append(escapeCsv(student.getEmail())).append(",")
                         .append(escapeCsv(student.getPhone())).append(",")
-                        .append(student.getRegisteredAt().format(DATE_FORMATTER)).append(",")
+                        .append(format(student.getRegisteredAt())).append(",")
                         .append(String.valueOf(totalCourses)).append(",")
                         .append(String.valueOf(activeCourses)).append(",")
                         .append(String.format("%.1f", averageProgress)).append(",")
-                        .append(globalPaymentStatus).append(",")
+                        .append(calculateGlobalPaymentStatus(allTuitionStatuses)).append(",")
                         .append(totalPaid).append(",")
                         .append(totalRemaining).append("\n");
-
-            } catch (Exception e) {
-                log.error("Erreur lors de la génération du rapport pour l'étudiant: {}", entry.getKey(), e);
             }
-        }
+            csvWriter.flush();
+        });
 
-        log.info("Rapport des étudiants généré pour l'institution {}: {} étudiants",
-                institutionId, studentEnrollments.size());
-        return csvWriter.toString();
+        log.info("Rapport des étudiants généré pour l'institution {}: {} inscriptions", institutionId, count);
     }
 
     /**
-     * Génère un rapport de progression détaillé pour une offre
+     * Écrit le rapport de progression détaillé d'une offre : une ligne par leçon consultée.
+     * Les titres des leçons et de leurs sections sont chargés avec une requête $in par lot, limitée aux leçons
+     * et sections pas encore rencontrées dans le rapport
+     * @param offerId ID de l'offre
+     * @param outputStream flux de sortie
      */
-    public String generateProgressReport(String offerId) {
+    public void writeProgressReport(String offerId, OutputStream outputStream) throws IOException {
         log.info("Génération du rapport de progression pour l'offre: {}", offerId);
 
-        StringWriter csvWriter = new StringWriter();
+        Writer csvWriter = writer(outputStream);
 
         // En-têtes CSV
         csvWriter.append("Matricule,Nom Étudiant,Leçon ID,Titre Leçon,Section,")
                 .append("Progression (%),Terminé,Temps Passé (min),Dernière Consultation,Date Completion\n");
+        csvWriter.flush();
 
-        // Récupérer toutes les inscriptions pour cette offre
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(""); // TODO: Corriger
-        List<Enrollment> offerEnrollments = enrollments.stream()
-                .filter(e -> e.getProgramLevelId().equals(offerId))
-                .collect(Collectors.toList());
+        Map<String, TrainingLecture> lectures = new HashMap<>();
+        Map<String, String> sectionTitles = new HashMap<>();
 
-        for (Enrollment enrollment : offerEnrollments) {
-            try {
-                Student student = studentRepository.findById(enrollment.getStudentId()).orElse(null);
-                if (student == null) continue;
+        Query query = Query.query(Criteria.where("programLevelId").is(offerId)).with(Sort.by("_id"));
+        forEachChunk(query, Enrollment::getId, chunk -> {
+            Roster roster = rosterLoader.load(chunk, false, "matricule", "fullName");
+            Map<String, List<LectureProgress>> progress = findProgress(chunk);
+            loadLectures(progress, lectures, sectionTitles);
 
-                List<LectureProgress> progressList = lectureProgressRepository.findByEnrollmentId(enrollment.getId());
+            for (Enrollment enrollment : chunk) {
+                Student student = roster.students().get(enrollment.getStudentId());
+                if (student == null) continue;
 
-                for (LectureProgress progress : progressList) {
+                for (LectureProgress lectureProgress : progress.getOrDefault(enrollment.getId(), List.of())) {
+                    TrainingLecture lecture = lectures.get(lectureProgress.getLectureId());
                     csvWriter.append(escapeCsv(student.getMatricule())).append(",")
                             .append(escapeCsv(student.getFullName())).append(",")
-                            .append(progress.getLectureId()).append(",")
-                            .append("Leçon").append(",") // TODO: Récupérer le vrai titre
-                            .append("Section").append(",") // TODO: Récupérer la vraie section
-                            .append(String.valueOf(progress.getProgressPercent())).append(",")
-                            .append(progress.getIsCompleted() ? "Oui" : "Non").append(",")
-                            .append(String.valueOf(progress.getTimeSpent() / 60)).append(",")
-                            .append(progress.getLastAccessedAt() != null ?
-                                    progress.getLastAccessedAt().format(DATE_FORMATTER) : "").append(",")
-                            .append(progress.getCompletedAt() != null ?
-                                    progress.getCompletedAt().format(DATE_FORMATTER) : "").append("\n");
+                            .append(lectureProgress.getLectureId()).append(",")
+                            .append(escapeCsv(lecture != null ? lecture.getTitle() : null)).append(",")
+                            .append(escapeCsv(lecture != null ? sectionTitles.get(lecture.getSectionId()) : null)).append(",")
+                            .append(String.valueOf(Objects.requireNonNullElse(lectureProgress.getProgressPercent(), 0))).append(",")
+                            .append(Boolean.TRUE.equals(lectureProgress.getIsCompleted()) ? "Oui" : "Non").append(",")
+                            .append(String.valueOf(Objects.requireNonNullElse(lectureProgress.getTimeSpent(), 0) / 60)).append(",")
+                            .append(format(lectureProgress.getLastAccessedAt())).append(",")
+                            .append(format(lectureProgress.getCompletedAt())).append("\n");
                 }
+            }
+            csvWriter.flush();
+        });
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
 
-            } catch (Exception e) {
-                log.error("Erreur lors de la génération du rapport de progression: {}", enrollment.getId(), e);
+    /**
+     * Parcourt les inscriptions avec un curseur et les transmet par lots d'au moins CHUNK_SIZE inscriptions ;
+     * un lot n'est jamais coupé entre deux inscriptions de même clé
+     * @return le nombre d'inscriptions lues
+     */
+    private long forEachChunk(Query query, Function<Enrollment, String> groupKey, ChunkWriter writer) throws IOException {
+        query.cursorBatchSize(CHUNK_SIZE);
+        long count = 0;
+        List<Enrollment> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (Stream<Enrollment> enrollments = mongoTemplate.stream(query, Enrollment.class)) {
+            Iterator<Enrollment> iterator = enrollments.iterator();
+            while (iterator.hasNext()) {
+                Enrollment enrollment = iterator.next();
+                if (chunk.size() >= CHUNK_SIZE
+                        && !Objects.equals(groupKey.apply(enrollment), groupKey.apply(chunk.get(chunk.size() - 1)))) {
+                    writer.write(chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+                chunk.add(enrollment);
+                count++;
             }
         }
+        if (!chunk.isEmpty()) {
+            writer.write(chunk);
+        }
+        return count;
+    }
+
+    /**
+     * Progressions des inscriptions d'un lot, par ID d'inscription (une requête $in)
+     */
+    private Map<String, List<LectureProgress>> findProgress(List<Enrollment> chunk) {
+        Query query = Query.query(Criteria.where("enrollmentId").in(chunk.stream().map(Enrollment::getId).toList()));
+        query.fields().include(PROGRESS_FIELDS);
+        return mongoTemplate.find(query, LectureProgress.class).stream()
+                .collect(Collectors.groupingBy(LectureProgress::getEnrollmentId));
+    }
+
+    /**
+     * Complète les leçons et les titres de section connus avec ceux des progressions d'un lot
+     * (une requête $in par collection, uniquement pour les identifiants pas encore chargés)
+     */
+    private void loadLectures(Map<String, List<LectureProgress>> progress, Map<String, TrainingLecture> lectures,
+                              Map<String, String> sectionTitles) {
+        Set<String> missingLectures = progress.values().stream()
+                .flatMap(List::stream)
+                .map(LectureProgress::getLectureId)
+                .filter(id -> id != null && !lectures.containsKey(id))
+                .collect(Collectors.toSet());
+        if (missingLectures.isEmpty()) {
+            return;
+        }
+
+        Query lectureQuery = Query.query(Criteria.where("_id").in(missingLectures));
+        lectureQuery.fields().include("title", "sectionId");
+        mongoTemplate.find(lectureQuery, TrainingLecture.class)
+                .forEach(lecture -> lectures.put(lecture.getId(), lecture));
+        // Leçons supprimées : mémorisées comme absentes pour ne pas être recherchées à chaque lot
+        missingLectures.forEach(id -> lectures.putIfAbsent(id, null));
+
+        Set<String> missingSections = lectures.values().stream()
+                .filter(Objects::nonNull)
+                .map(TrainingLecture::getSectionId)
+                .filter(id -> id != null && !sectionTitles.containsKey(id))
+                .collect(Collectors.toSet());
+        if (missingSections.isEmpty()) {
+            return;
+        }
+
+        Query sectionQuery = Query.query(Criteria.where("_id").in(missingSections));
+        sectionQuery.fields().include("title");
+        mongoTemplate.find(sectionQuery, TrainingSection.class)
+                .forEach(section -> sectionTitles.put(section.getId(), section.getTitle()));
+        missingSections.forEach(id -> sectionTitles.putIfAbsent(id, null));
+    }
 
-        return csvWriter.toString();
+    private static Writer writer(OutputStream outputStream) {
+        return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.format(DATE_FORMATTER) : "";
     }
 
     /**
@@ -297,4 +378,14 @@ public class ReportService {
         }
         return value;
     }
-}
\ No newline at end of file
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Écriture des lignes d'un lot d'inscriptions
+     */
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(List<Enrollment> chunk) throws IOException;
+    }
+}
@@ -0,0 +1,203 @@
+package com.payiskoul.institution.reports.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Rapports de paiement des frais de scolarité calculés entièrement côté MongoDB.
+ * <p>
+ * Le pipeline part des inscriptions filtrées (index sur programLevelId / institutionId), les joint à tuition_status
+ * par enrollmentId, puis compte les statuts et somme les montants en Decimal128 (exact) dans un seul $group.
+ * Les résultats sont lus avec un curseur.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TuitionReportService {
+
+    private static final String ENROLLMENTS_COLLECTION = "enrollments";
+    private static final String TUITION_STATUS_COLLECTION = "tuition_status";
+    private static final int CURSOR_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Calcule le rapport d'une offre
+     * @param offerId ID de l'offre
+     * @return le rapport, vide si l'offre n'a aucune inscription
+     */
+    public Optional<TuitionReportRow> offerReport(String offerId) {
+        try (Stream<TuitionReportRow> rows = streamReport(ReportGrouping.OFFER, new ReportFilter(offerId, null, null))) {
+            return rows.findFirst();
+        }
+    }
+
+    /**
+     * Calcule un rapport regroupé
+     * @param grouping le critère de regroupement
+     * @param filter les filtres optionnels
+     * @return une ligne par groupe, triées par clé
+     */
+    public List<TuitionReportRow> report(ReportGrouping grouping, ReportFilter filter) {
+        try (Stream<TuitionReportRow> rows = streamReport(grouping, filter)) {
+            return rows.toList();
+        }
+    }
+
+    /**
+     * Calcule un rapport regroupé en lisant les résultats au fil du curseur.
+     * Le flux doit être fermé par l'appelant.
+     * @param grouping le critère de regroupement
+     * @param filter les filtres optionnels
+     * @return les lignes du rapport, triées par clé
+     */
+    public Stream<TuitionReportRow> streamReport(ReportGrouping grouping, ReportFilter filter) {
+        log.info("Génération du rapport de paiement par {} (filtre: {})", grouping, filter);
+
+        Aggregation aggregation = Aggregation.newAggregation(pipeline(grouping, filter))
+                .withOptions(AggregationOptions.builder()
+                        .allowDiskUse(true)
+                        .cursorBatchSize(CURSOR_BATCH_SIZE)
+                        .build());
+
+        return mongoTemplate.aggregateStream(aggregation, ENROLLMENTS_COLLECTION, Document.class)
+                .map(TuitionReportService::toRow);
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
+
+    private List<AggregationOperation> pipeline(ReportGrouping grouping, ReportFilter filter) {
+        List<AggregationOperation> stages = new ArrayList<>();
+
+        Document match = new Document();
+        if (filter.offerId() != null) {
+            match.append("programLevelId", filter.offerId());
+        }
+        if (filter.institutionId() != null) {
+            match.append("institutionId", filter.institutionId());
+        }
+        if (filter.academicYear() != null) {
+            match.append("academicYear", filter.academicYear());
+        }
+        stages.add(stage(new Document("$match", match)));
+
+        // tuition_status.enrollmentId est stocké en chaîne, _id en ObjectId
+        stages.add(stage(new Document("$project", new Document("_id", 0)
+                .append("groupKey", "$" + grouping.field())
+                .append("enrollmentId", new Document("$toString", "$_id")))));
+
+        stages.add(stage(new Document("$lookup", new Document("from", TUITION_STATUS_COLLECTION)
+                .append("localField", "enrollmentId")
+                .append("foreignField", "enrollmentId")
+                .append("as", "tuition"))));
+        stages.add(stage(new Document("$unwind", new Document("path", "$tuition")
+                .append("preserveNullAndEmptyArrays", true))));
+
+        stages.add(stage(new Document("$group", new Document("_id", "$groupKey")
+                .append("enrollments", new Document("$sum", 1))
+                .append("paidCount", countStatus("PAID"))
+                .append("partiallyPaidCount", countStatus("PARTIALLY_PAID"))
+                .append("unpaidCount", countStatus("UNPAID"))
+                .append("totalAmount", sumAmount("$tuition.totalAmount"))
+                .append("totalPaid", sumAmount("$tuition.paidAmount"))
+                .append("totalRemaining", sumAmount("$tuition.remainingAmount")))));
+
+        stages.add(stage(new Document("$sort", new Document("_id", 1))));
+        return stages;
+    }
+
+    private static Document countStatus(String status) {
+        return new Document("$sum", new Document("$cond",
+                List.of(new Document("$eq", List.of("$tuition.paymentStatus", status)), 1, 0)));
+    }
+
+    private static Document sumAmount(String fieldPath) {
+        return new Document("$sum", new Document("$toDecimal", new Document("$ifNull", List.of(fieldPath, 0))));
+    }
+
+    private static AggregationOperation stage(Document stage) {
+        return context -> stage;
+    }
+
+    private static TuitionReportRow toRow(Document document) {
+        Object key = document.get("_id");
+        return new TuitionReportRow(
+                key != null ? key.toString() : null,
+                toLong(document.get("enrollments")),
+                toLong(document.get("paidCount")),
+                toLong(document.get("partiallyPaidCount")),
+                toLong(document.get("unpaidCount")),
+                toBigDecimal(document.get("totalAmount")),
+                toBigDecimal(document.get("totalPaid")),
+                toBigDecimal(document.get("totalRemaining"))
+        );
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        return value instanceof Number number ? new BigDecimal(number.toString()) : BigDecimal.ZERO;
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Critère de regroupement du rapport (champ de l'inscription)
+     */
+    public enum ReportGrouping {
+        OFFER("programLevelId"),
+        INSTITUTION("institutionId"),
+        ACADEMIC_YEAR("academicYear");
+
+        private final String field;
+
+        ReportGrouping(String field) {
+            this.field = field;
+        }
+
+        public String field() {
+            return field;
+        }
+    }
+
+    /**
+     * Filtres optionnels du rapport (null = pas de filtre)
+     */
+    public record ReportFilter(
+            String offerId,
+            String institutionId,
+            String academicYear
+    ) {}
+
+    /**
+     * Ligne de rapport pour un groupe
+     */
+    public record TuitionReportRow(
+            String groupKey,
+            long totalEnrollments,
+            long paidCount,
+            long partiallyPaidCount,
+            long unpaidCount,
+            BigDecimal totalAmount,
+            BigDecimal totalPaid,
+            BigDecimal totalRemaining
+    ) {}
+}
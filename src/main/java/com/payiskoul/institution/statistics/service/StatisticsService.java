@@ -2,14 +2,14 @@
 package com.payiskoul.institution.statistics.service;
 
 import com.payiskoul.institution.program.model.TrainingOffer;
+import com.payiskoul.institution.reports.service.TuitionReportService;
+import com.payiskoul.institution.reports.service.TuitionReportService.TuitionReportRow;
 import com.payiskoul.institution.review.model.Review;
 import com.payiskoul.institution.review.repository.ReviewRepository;
 import com.payiskoul.institution.student.model.Enrollment;
 import com.payiskoul.institution.student.repository.EnrollmentRepository;
 import com.payiskoul.institution.training.model.LectureProgress;
 import com.payiskoul.institution.training.repository.LectureProgressRepository;
-import com.payiskoul.institution.tuition.model.TuitionStatus;
-import com.payiskoul.institution.tuition.repository.TuitionStatusRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -30,7 +30,7 @@ public class StatisticsService {
     private final EnrollmentRepository enrollmentRepository;
     private final ReviewRepository reviewRepository;
     private final LectureProgressRepository lectureProgressRepository;
-    private final TuitionStatusRepository tuitionStatusRepository;
+    private final TuitionReportService tuitionReportService;
 
     /**
      * Calcule les statistiques complètes d'une offre de formation
@@ -134,41 +134,19 @@ public class StatisticsService {
     }
 
     /**
-     * Calcule les statistiques financières
+     * Calcule les statistiques financières (agrégation MongoDB sur les inscriptions de l'offre)
      */
     private Map<String, Object> calculateFinancialStats(String offerId) {
         Map<String, Object> financialStats = new HashMap<>();
 
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(""); // TODO: Méthode à corriger
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        BigDecimal totalPending = BigDecimal.ZERO;
-        long paidStudents = 0;
-        long partiallyPaidStudents = 0;
-        long unpaidStudents = 0;
-
-        for (Enrollment enrollment : enrollments) {
-            if (enrollment.getProgramLevelId().equals(offerId)) {
-                List<TuitionStatus> tuitionStatuses = tuitionStatusRepository.findByEnrollmentId(enrollment.getId());
-
-                if (!tuitionStatuses.isEmpty()) {
-                    TuitionStatus status = tuitionStatuses.get(0);
-                    totalRevenue = totalRevenue.add(status.getPaidAmount());
-                    totalPending = totalPending.add(status.getRemainingAmount());
-
-                    switch (status.getPaymentStatus()) {
-                        case PAID -> paidStudents++;
-                        case PARTIALLY_PAID -> partiallyPaidStudents++;
-                        case UNPAID -> unpaidStudents++;
-                    }
-                }
-            }
-        }
+        TuitionReportRow report = tuitionReportService.offerReport(offerId)
+                .orElse(new TuitionReportRow(offerId, 0L, 0L, 0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
 
-        financialStats.put("total_revenue", totalRevenue);
-        financialStats.put("total_pending", totalPending);
-        financialStats.put("paid_students", paidStudents);
-        financialStats.put("partially_paid_students", partiallyPaidStudents);
-        financialStats.put("unpaid_students", unpaidStudents);
+        financialStats.put("total_revenue", report.totalPaid());
+        financialStats.put("total_pending", report.totalRemaining());
+        financialStats.put("paid_students", report.paidCount());
+        financialStats.put("partially_paid_students", report.partiallyPaidCount());
+        financialStats.put("unpaid_students", report.unpaidCount());
 
         return financialStats;
     }
@@ -0,0 +1,86 @@
+package com.payiskoul.institution.student.controller;
+
+import com.payiskoul.institution.exception.ErrorResponse;
+import com.payiskoul.institution.student.dto.CohortJobResponse;
+import com.payiskoul.institution.student.dto.RebalanceJobRequest;
+import com.payiskoul.institution.student.dto.RolloverJobRequest;
+import com.payiskoul.institution.student.service.CohortJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/v1/cohort-jobs")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Traitements de cohorte", description = "API pour les passages d'année et le rééquilibrage des classes")
+public class CohortJobController {
+
+    private final CohortJobService cohortJobService;
+
+    @PostMapping("/rollover")
+    @Operation(summary = "Lancer un passage d'année en arrière-plan",
+            description = """
+                    Inscrit à l'offre cible tous les étudiants ENROLLED de l'offre d'origine, puis clôture leurs
+                    inscriptions d'origine (statut COMPLETED). Les deux offres doivent être académiques et appartenir
+                    à l'institution. Les inscrits sont affectés aux classes de l'offre cible et leurs statuts de
+                    paiement sont créés.
+                    
+                    **Suivi :** `GET /v1/cohort-jobs/{jobId}` pour la progression.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job planifié",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = CohortJobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Offre invalide, job déjà en cours pour l'une des offres ou file d'attente saturée",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<CohortJobResponse> submitRollover(@Valid @RequestBody RolloverJobRequest request) {
+        log.info("Réception d'un passage d'année de l'offre {} vers l'offre {}",
+                request.sourceOfferId(), request.targetOfferId());
+        return ResponseEntity.accepted().body(cohortJobService.submitRollover(request));
+    }
+
+    @PostMapping("/rebalance")
+    @Operation(summary = "Lancer le rééquilibrage des classes d'une offre en arrière-plan",
+            description = """
+                    Répartit les étudiants ENROLLED d'une offre académique aussi également que possible entre ses
+                    classes, dans la limite de leur capacité. Les derniers inscrits des classes les plus chargées
+                    sont déplacés.
+                    
+                    **Suivi :** `GET /v1/cohort-jobs/{jobId}` pour la progression.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job planifié",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = CohortJobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Offre invalide ou sans classes, job déjà en cours pour l'offre ou file d'attente saturée",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<CohortJobResponse> submitRebalance(@Valid @RequestBody RebalanceJobRequest request) {
+        log.info("Réception d'un rééquilibrage des classes de l'offre {}", request.offerId());
+        return ResponseEntity.accepted().body(cohortJobService.submitRebalance(request));
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Consulter l'état d'un job de cohorte",
+            description = "Retourne le statut du job, le nombre d'étudiants traités, son avancement et son débit moyen")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "État du job",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = CohortJobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Job introuvable",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<CohortJobResponse> getJob(
+            @Parameter(description = "ID du job", required = true)
+            @PathVariable String jobId) {
+        return ResponseEntity.ok(cohortJobService.getJob(jobId));
+    }
+}
@@ -1,12 +1,16 @@
 package com.payiskoul.institution.student.controller;
 
 import com.payiskoul.institution.exception.ErrorResponse;
+import com.payiskoul.institution.student.dto.AdmissionTicketResponse;
+import com.payiskoul.institution.student.dto.BulkEnrollmentRequest;
+import com.payiskoul.institution.student.dto.BulkEnrollmentResponse;
 import com.payiskoul.institution.student.dto.EnrollmentResponse;
 import com.payiskoul.institution.student.dto.EnrollmentStatusUpdateRequest;
 import com.payiskoul.institution.student.dto.EnrollmentStatusUpdateResponse;
 import com.payiskoul.institution.student.dto.OfferEnrollmentRequest;
 import com.payiskoul.institution.student.dto.StudentListResponse;
 import com.payiskoul.institution.student.dto.StudentQueryParams;
+import com.payiskoul.institution.student.service.AdmissionQueueService;
 import com.payiskoul.institution.student.service.OfferEnrollmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -30,6 +34,7 @@ import org.springframework.web.bind.annotation.*;
 public class OfferEnrollmentController {
 
     private final OfferEnrollmentService offerEnrollmentService;
+    private final AdmissionQueueService admissionQueueService;
 
     @PostMapping("/v1/enrollments")
     @Operation(
@@ -46,6 +51,8 @@ public class OfferEnrollmentController {
                     - Tous les champs sont obligatoires sauf `classroomId`
                     - Pour les offres académiques, l'étudiant sera assigné à une classe disponible
                     - Si `classroomId` est fourni, l'étudiant sera assigné à cette classe spécifique
+                    - La capacité de l'offre (`maxStudents`) est réservée de façon atomique : une offre complète
+                      refuse l'inscription (`OFFER_FULL`)
                     """
     )
     @ApiResponses(value = {
@@ -79,7 +86,7 @@ public class OfferEnrollmentController {
             ),
             @ApiResponse(
                     responseCode = "400",
-                    description = "Données d'entrée invalides",
+                    description = "Données d'entrée invalides ou offre complète",
                     content = @Content(
                             mediaType = "application/json",
                             schema = @Schema(implementation = ErrorResponse.class)
@@ -135,6 +142,108 @@ public class OfferEnrollmentController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/v1/enrollments/bulk")
+    @Operation(
+            summary = "Inscrire une cohorte d'étudiants à une offre",
+            description = """
+                    Inscrit jusqu'à 5000 étudiants existants à une offre en une seule demande.
+                    
+                    **Traitement :**
+                    - Les étudiants et les inscriptions existantes sont vérifiés en une requête chacun
+                    - Pour les offres académiques, les étudiants sont répartis dans les classes disponibles
+                      (ou dans la classe `classroomId` si elle est fournie, tant qu'elle a des places)
+                    - Les inscriptions et les statuts de paiement sont écrits en masse
+                    
+                    **Résultat :** un résultat par étudiant, dans l'ordre de la demande
+                    (`ENROLLED`, `ALREADY_ENROLLED`, `STUDENT_NOT_FOUND`, `DUPLICATE` ou `FAILED`).
+                    Un étudiant en échec ne fait pas échouer la demande.
+                    """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Demande traitée, voir le résultat de chaque étudiant",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = BulkEnrollmentResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Données d'entrée invalides ou offre d'une autre institution",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Offre ou classe non trouvée",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    public ResponseEntity<BulkEnrollmentResponse> enrollStudents(@Valid @RequestBody BulkEnrollmentRequest request) {
+        return ResponseEntity.ok(offerEnrollmentService.enrollStudents(request));
+    }
+
+    @PostMapping("/v1/enrollments/admissions")
+    @Operation(
+            summary = "Demander une inscription via la file d'admission",
+            description = """
+                    Place une demande d'inscription dans la file d'admission de l'offre et retourne immédiatement
+                    un ticket. Destiné aux ouvertures d'offres très demandées : les demandes sont traitées dans
+                    l'ordre d'arrivée, à débit contrôlé, et la capacité de l'offre (`maxStudents`, places en classe)
+                    est respectée.
+                    
+                    **Suivi :** interroger `GET /v1/enrollments/admissions/{ticketId}` jusqu'au statut
+                    `ADMITTED` (inscription créée) ou `REJECTED` (motif dans `errorMessage`).
+                    
+                    Une offre complète est refusée immédiatement, sans création de ticket.
+                    """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Demande placée en file d'admission",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = AdmissionTicketResponse.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Données invalides, offre complète ou file d'admission saturée",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)
+                    )
+            )
+    })
+    public ResponseEntity<AdmissionTicketResponse> requestAdmission(@Valid @RequestBody OfferEnrollmentRequest request) {
+        AdmissionTicketResponse response = admissionQueueService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/v1/enrollments/admissions/{ticketId}")
+    @Operation(summary = "Consulter un ticket d'admission",
+            description = "Retourne le statut d'une demande placée en file d'admission et, une fois admise, l'inscription créée")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "État du ticket",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AdmissionTicketResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Ticket introuvable",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<AdmissionTicketResponse> getAdmissionTicket(
+            @Parameter(description = "ID du ticket", required = true)
+            @PathVariable String ticketId) {
+        return ResponseEntity.ok(admissionQueueService.getTicket(ticketId));
+    }
+
     @PatchMapping("/v1/enrollments/{id}/status")
     @Operation(
             summary = "Modifier le statut d'une inscription",
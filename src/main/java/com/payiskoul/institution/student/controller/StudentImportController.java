@@ -1,6 +1,9 @@
 package com.payiskoul.institution.student.controller;
 
+import com.payiskoul.institution.student.dto.ImportJobResponse;
 import com.payiskoul.institution.student.dto.StudentImportResult;
+import com.payiskoul.institution.student.model.ImportFormat;
+import com.payiskoul.institution.student.service.StudentImportJobService;
 import com.payiskoul.institution.student.service.StudentImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,11 +16,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 
@@ -32,6 +39,7 @@ import java.io.IOException;
 public class StudentImportController {
 
     private final StudentImportService studentImportService;
+    private final StudentImportJobService studentImportJobService;
 
     // ============ ENDPOINTS PRINCIPAUX (AVEC OFFRES) ============
 
@@ -62,12 +70,14 @@ public class StudentImportController {
             @Parameter(description = "ID de l'offre à laquelle inscrire les étudiants", required = true)
             @RequestParam String offerId,
             @Parameter(description = "ID de la classe (optionnel)")
-            @RequestParam(required = false) String classroomId) {
+            @RequestParam(required = false) String classroomId,
+            @Parameter(description = "Encodage du fichier (optionnel, détecté automatiquement : UTF-8 ou Windows-1252)", example = "UTF-8")
+            @RequestParam(required = false) String charset) {
 
         log.info("Réception d'une demande d'importation CSV pour l'offre: {}, classe: {}",
                 offerId, classroomId != null ? classroomId : "non spécifiée");
 
-        StudentImportResult result = studentImportService.importStudentsFromCsv(file, offerId, classroomId);
+        StudentImportResult result = studentImportService.importStudentsFromCsv(file, offerId, classroomId, charset);
 
         return ResponseEntity.ok(result);
     }
@@ -106,6 +116,102 @@ public class StudentImportController {
         return ResponseEntity.ok(result);
     }
 
+    // ============ IMPORTATIONS ASYNCHRONES ============
+
+    @PostMapping(value = "/jobs/csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Lancer l'importation d'un fichier CSV en arrière-plan",
+            description = """
+                    Enregistre le fichier et retourne immédiatement l'ID du job d'importation.
+                    Le format attendu est le même que pour `/csv`.
+                    
+                    **Suivi :** `GET /jobs/{jobId}` pour la progression, `GET /jobs/{jobId}/failures` pour les lignes en échec.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job d'importation planifié",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Données d'entrée invalides, offre ou classe non trouvée, file d'attente saturée")
+    })
+    public ResponseEntity<ImportJobResponse> submitCsvImportJob(
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "ID de l'offre à laquelle inscrire les étudiants", required = true)
+            @RequestParam String offerId,
+            @Parameter(description = "ID de la classe (optionnel)")
+            @RequestParam(required = false) String classroomId,
+            @Parameter(description = "Encodage du fichier (optionnel, détecté automatiquement : UTF-8 ou Windows-1252)", example = "UTF-8")
+            @RequestParam(required = false) String charset) {
+
+        log.info("Réception d'un job d'importation CSV pour l'offre: {}, classe: {}",
+                offerId, classroomId != null ? classroomId : "non spécifiée");
+
+        ImportJobResponse job = studentImportJobService.submit(file, ImportFormat.CSV, offerId, classroomId, charset);
+
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @PostMapping(value = "/jobs/excel", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Lancer l'importation d'un fichier Excel en arrière-plan",
+            description = """
+                    Enregistre le fichier et retourne immédiatement l'ID du job d'importation.
+                    Le format attendu est le même que pour `/excel`.
+                    
+                    **Suivi :** `GET /jobs/{jobId}` pour la progression, `GET /jobs/{jobId}/failures` pour les lignes en échec.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job d'importation planifié",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Données d'entrée invalides, offre ou classe non trouvée, file d'attente saturée")
+    })
+    public ResponseEntity<ImportJobResponse> submitExcelImportJob(
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "ID de l'offre à laquelle inscrire les étudiants", required = true)
+            @RequestParam String offerId,
+            @Parameter(description = "ID de la classe (optionnel)")
+            @RequestParam(required = false) String classroomId) {
+
+        log.info("Réception d'un job d'importation Excel pour l'offre: {}, classe: {}",
+                offerId, classroomId != null ? classroomId : "non spécifiée");
+
+        ImportJobResponse job = studentImportJobService.submit(file, ImportFormat.EXCEL, offerId, classroomId, null);
+
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Consulter l'état d'un job d'importation",
+            description = "Retourne le statut du job, les lignes traitées et en échec ainsi que le débit moyen")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "État du job",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Job introuvable")
+    })
+    public ResponseEntity<ImportJobResponse> getImportJob(
+            @Parameter(description = "ID du job d'importation", required = true)
+            @PathVariable String jobId) {
+        return ResponseEntity.ok(studentImportJobService.getJob(jobId));
+    }
+
+    @GetMapping("/jobs/{jobId}/failures")
+    @Operation(summary = "Télécharger les lignes en échec d'un job d'importation",
+            description = "Fichier CSV des lignes rejetées avec leur numéro de ligne et la cause du rejet, disponible une fois le job terminé")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fichier CSV des lignes en échec"),
+            @ApiResponse(responseCode = "400", description = "Job introuvable ou non terminé")
+    })
+    public ResponseEntity<StreamingResponseBody> downloadImportJobFailures(
+            @Parameter(description = "ID du job d'importation", required = true)
+            @PathVariable String jobId) {
+
+        studentImportJobService.getFinishedJob(jobId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=import-" + jobId + "-failures.csv");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                .body(outputStream -> studentImportJobService.writeFailures(jobId, outputStream));
+    }
+
     @GetMapping("/template")
     @Operation(summary = "Générer un template Excel",
             description = """
@@ -123,29 +229,78 @@ public class StudentImportController {
                     """)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Template généré avec succès"),
+            @ApiResponse(responseCode = "304", description = "Template inchangé depuis le dernier téléchargement (ETag)"),
             @ApiResponse(responseCode = "404", description = "Offre ou classe non trouvée")
     })
     public ResponseEntity<Resource> generateExcelTemplate(
             @Parameter(description = "ID de l'offre", required = true)
             @RequestParam String offerId,
             @Parameter(description = "ID de la classe (optionnel)")
-            @RequestParam(required = false) String classroomId) throws IOException {
+            @RequestParam(required = false) String classroomId,
+            WebRequest webRequest) throws IOException {
 
         log.info("Génération d'un template Excel pour l'offre: {}, classe: {}",
                 offerId, classroomId != null ? classroomId : "non spécifiée");
 
-        byte[] templateBytes = studentImportService.generateExcelTemplate(offerId, classroomId);
+        StudentImportService.ExcelTemplate template = studentImportService.getExcelTemplate(offerId, classroomId);
+        if (webRequest.checkNotModified(template.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(template.etag())
+                    .build();
+        }
 
-        ByteArrayResource resource = new ByteArrayResource(templateBytes);
+        ByteArrayResource resource = new ByteArrayResource(template.content());
 
         HttpHeaders headers = new HttpHeaders();
         headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=student-import-template.xlsx");
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .contentLength(templateBytes.length)
+                .eTag(template.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentLength(template.content().length)
                 .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
                 .body(resource);
     }
 
+    @GetMapping("/template/roster")
+    @Operation(summary = "Générer un template Excel pré-rempli pour une réinscription",
+            description = """
+                    Génère un template Excel pour l'offre cible, pré-rempli avec les étudiants inscrits
+                    (ou ayant terminé) à une autre offre.
+                    
+                    **Utilisation :**
+                    1. Télécharger le template pré-rempli
+                    2. Retirer les étudiants qui ne se réinscrivent pas
+                    3. Uploader via `/excel` ou `/jobs/excel`
+                    
+                    Les étudiants étant identifiés par leur matricule, ils sont inscrits sans être recréés.
+                    """)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Template généré avec succès"),
+            @ApiResponse(responseCode = "404", description = "Offre ou classe non trouvée")
+    })
+    public ResponseEntity<StreamingResponseBody> generateRosterTemplate(
+            @Parameter(description = "ID de l'offre cible", required = true)
+            @RequestParam String offerId,
+            @Parameter(description = "ID de l'offre dont les étudiants sont pré-remplis", required = true)
+            @RequestParam String rosterOfferId,
+            @Parameter(description = "ID de la classe cible (optionnel)")
+            @RequestParam(required = false) String classroomId) {
+
+        log.info("Génération d'un template Excel pour l'offre: {} pré-rempli avec l'offre: {}", offerId, rosterOfferId);
+
+        // Validation avant l'envoi des en-têtes de la réponse
+        StudentImportService.RosterTemplate template =
+                studentImportService.prepareRosterTemplate(offerId, classroomId, rosterOfferId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=student-reenrollment-template.xlsx");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(outputStream -> studentImportService.writeRosterTemplate(template, outputStream));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.payiskoul.institution.student.dto;
+
+import com.payiskoul.institution.student.model.AdmissionStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * État d'un ticket d'admission
+ */
+@Schema(description = "État d'une demande d'inscription placée dans la file d'admission")
+public record AdmissionTicketResponse(
+        @Schema(description = "ID du ticket", example = "6650f1c2a4b5c6d7e8f90456")
+        String ticketId,
+
+        @Schema(description = "Statut du ticket", example = "QUEUED")
+        AdmissionStatus status,
+
+        @Schema(description = "ID de l'offre", example = "664f82a9e9d034f2fca9b0e2")
+        String offerId,
+
+        @Schema(description = "ID de l'étudiant", example = "634f82a9e9d034c2fca9b0e2")
+        String studentId,
+
+        @Schema(description = "ID de l'inscription créée (ticket ADMITTED)")
+        String enrollmentId,
+
+        @Schema(description = "ID de la classe assignée (ticket ADMITTED)")
+        String classroomId,
+
+        @Schema(description = "Motif du refus (ticket REJECTED)", example = "Plus de place disponible pour cette offre")
+        String errorMessage,
+
+        @Schema(description = "Date de création du ticket")
+        LocalDateTime createdAt,
+
+        @Schema(description = "Date de traitement du ticket")
+        LocalDateTime processedAt
+) {}
@@ -0,0 +1,30 @@
+package com.payiskoul.institution.student.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Demande d'inscription d'une cohorte d'étudiants existants à une offre
+ */
+@Schema(description = "Demande d'inscription en masse d'étudiants à une offre")
+public record BulkEnrollmentRequest(
+        @NotBlank(message = "L'ID de l'institution est obligatoire")
+        @Schema(description = "ID de l'institution", example = "664f82a9e9d034c2fcb9b0e2")
+        String institutionId,
+
+        @NotBlank(message = "L'ID de l'offre est obligatoire")
+        @Schema(description = "ID de l'offre", example = "664f82a9e9d034f2fca9b0e2")
+        String offerId,
+
+        @Schema(description = "ID de la classe (optionnel)", example = "664f82a9e9d034c2feca9b0e2")
+        String classroomId,
+
+        @NotEmpty(message = "La liste des étudiants est obligatoire")
+        @Size(max = 5000, message = "5000 étudiants au maximum par demande")
+        @Schema(description = "IDs des étudiants à inscrire", example = "[\"634f82a9e9d034c2fca9b0e2\"]")
+        List<String> studentIds
+) {}
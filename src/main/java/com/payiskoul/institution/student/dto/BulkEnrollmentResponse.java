@@ -0,0 +1,50 @@
+package com.payiskoul.institution.student.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Résultat d'une inscription en masse, étudiant par étudiant
+ */
+@Schema(description = "Résultat d'une inscription en masse")
+public record BulkEnrollmentResponse(
+        @Schema(description = "ID de l'offre", example = "664f82a9e9d034f2fca9b0e2")
+        String offerId,
+
+        @Schema(description = "Nombre d'étudiants inscrits", example = "118")
+        int enrolledCount,
+
+        @Schema(description = "Nombre d'étudiants non inscrits", example = "2")
+        int failedCount,
+
+        @Schema(description = "Résultat pour chaque étudiant, dans l'ordre de la demande")
+        List<Outcome> results
+) {
+
+    @Schema(description = "Résultat de l'inscription d'un étudiant")
+    public record Outcome(
+            @Schema(description = "ID de l'étudiant", example = "634f82a9e9d034c2fca9b0e2")
+            String studentId,
+
+            @Schema(description = "Résultat", example = "ENROLLED")
+            OutcomeStatus status,
+
+            @Schema(description = "ID de l'inscription créée", example = "665a1f2be9d034c2fca9b0e7")
+            String enrollmentId,
+
+            @Schema(description = "ID de la classe assignée", example = "664f82a9e9d034f2fca9b0e1")
+            String classroomId,
+
+            @Schema(description = "Message d'erreur", example = "Étudiant introuvable")
+            String errorMessage
+    ) {}
+
+    public enum OutcomeStatus {
+        ENROLLED,
+        ALREADY_ENROLLED,
+        STUDENT_NOT_FOUND,
+        DUPLICATE,
+        FAILED
+    }
+}
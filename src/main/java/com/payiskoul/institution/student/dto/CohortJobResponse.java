@@ -0,0 +1,57 @@
+package com.payiskoul.institution.student.dto;
+
+import com.payiskoul.institution.student.model.CohortJobStatus;
+import com.payiskoul.institution.student.model.CohortJobType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * État d'un job de passage d'année ou de rééquilibrage
+ */
+@Schema(description = "État d'un job de passage d'année ou de rééquilibrage des classes")
+public record CohortJobResponse(
+        @Schema(description = "ID du job", example = "6650f1c2a4b5c6d7e8f90123")
+        String jobId,
+
+        @Schema(description = "Type de job", example = "ROLLOVER")
+        CohortJobType type,
+
+        @Schema(description = "Statut du job", example = "RUNNING")
+        CohortJobStatus status,
+
+        @Schema(description = "ID de l'offre d'origine (passage d'année)")
+        String sourceOfferId,
+
+        @Schema(description = "ID de l'offre cible ou de l'offre rééquilibrée")
+        String offerId,
+
+        @Schema(description = "Nombre de partitions traitées en parallèle", example = "8")
+        int partitions,
+
+        @Schema(description = "Nombre d'étudiants à traiter (à passer ou à déplacer)", example = "3200")
+        long totalStudents,
+
+        @Schema(description = "Nombre d'étudiants traités", example = "1500")
+        long processed,
+
+        @Schema(description = "Nombre d'étudiants passés ou déplacés", example = "1490")
+        long succeeded,
+
+        @Schema(description = "Nombre d'étudiants en échec", example = "10")
+        long failed,
+
+        @Schema(description = "Avancement en pourcentage", example = "46.9")
+        double progress,
+
+        @Schema(description = "Débit moyen en étudiants par seconde", example = "850.5")
+        double studentsPerSecond,
+
+        @Schema(description = "Cause de l'échec du job")
+        String errorMessage,
+
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt
+) {
+}
@@ -0,0 +1,48 @@
+package com.payiskoul.institution.student.dto;
+
+import com.payiskoul.institution.student.model.ImportFormat;
+import com.payiskoul.institution.student.model.ImportJobStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * État d'un job d'importation d'étudiants
+ */
+@Schema(description = "État d'un job d'importation d'étudiants")
+public record ImportJobResponse(
+        @Schema(description = "ID du job", example = "6650f1c2a4b5c6d7e8f90123")
+        String jobId,
+
+        @Schema(description = "Statut du job", example = "RUNNING")
+        ImportJobStatus status,
+
+        @Schema(description = "Format du fichier", example = "CSV")
+        ImportFormat format,
+
+        @Schema(description = "Nom du fichier téléversé", example = "etudiants.csv")
+        String fileName,
+
+        @Schema(description = "ID de l'offre")
+        String offerId,
+
+        @Schema(description = "Nombre de lignes traitées", example = "1500")
+        long rowsProcessed,
+
+        @Schema(description = "Nombre d'étudiants importés avec succès", example = "1480")
+        long rowsSucceeded,
+
+        @Schema(description = "Nombre de lignes en échec", example = "20")
+        long rowsFailed,
+
+        @Schema(description = "Débit moyen en lignes par seconde", example = "850.5")
+        double rowsPerSecond,
+
+        @Schema(description = "Cause de l'échec du job")
+        String errorMessage,
+
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt
+) {
+}
@@ -0,0 +1,18 @@
+package com.payiskoul.institution.student.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Demande de rééquilibrage des classes d'une offre académique
+ */
+@Schema(description = "Demande de répartition équilibrée des inscrits entre les classes d'une offre")
+public record RebalanceJobRequest(
+        @NotBlank(message = "L'ID de l'institution est obligatoire")
+        @Schema(description = "ID de l'institution", example = "664f82a9e9d034c2fcb9b0e2")
+        String institutionId,
+
+        @NotBlank(message = "L'ID de l'offre est obligatoire")
+        @Schema(description = "ID de l'offre", example = "664f82a9e9d034f2fca9b0e2")
+        String offerId
+) {}
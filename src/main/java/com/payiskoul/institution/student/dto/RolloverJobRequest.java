@@ -0,0 +1,22 @@
+package com.payiskoul.institution.student.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Demande de passage d'année : les inscrits d'une offre académique sont inscrits à l'offre suivante
+ */
+@Schema(description = "Demande de passage des inscrits d'une offre académique à l'offre de l'année suivante")
+public record RolloverJobRequest(
+        @NotBlank(message = "L'ID de l'institution est obligatoire")
+        @Schema(description = "ID de l'institution", example = "664f82a9e9d034c2fcb9b0e2")
+        String institutionId,
+
+        @NotBlank(message = "L'ID de l'offre d'origine est obligatoire")
+        @Schema(description = "ID de l'offre d'origine", example = "664f82a9e9d034f2fca9b0e2")
+        String sourceOfferId,
+
+        @NotBlank(message = "L'ID de l'offre cible est obligatoire")
+        @Schema(description = "ID de l'offre cible", example = "665a12b9e9d034f2fca9b0f7")
+        String targetOfferId
+) {}
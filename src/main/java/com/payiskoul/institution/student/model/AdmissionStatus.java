@@ -0,0 +1,11 @@
+package com.payiskoul.institution.student.model;
+
+/**
+ * Statut d'un ticket d'admission
+ */
+public enum AdmissionStatus {
+    QUEUED,     // En file d'attente
+    PROCESSING, // En cours de traitement par le séquenceur
+    ADMITTED,   // Inscription créée
+    REJECTED    // Inscription refusée (offre complète, déjà inscrit...)
+}
@@ -0,0 +1,51 @@
+package com.payiskoul.institution.student.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Demande d'inscription placée dans la file d'admission d'une offre.
+ * Le ticket est créé immédiatement ; son statut passe à ADMITTED ou REJECTED
+ * lorsque le séquenceur de l'offre l'a traité
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "admission_tickets")
+@CompoundIndex(name = "owner_status_idx", def = "{'owner': 1, 'status': 1}")
+public class AdmissionTicket implements Serializable {
+    @Id
+    private String id;
+
+    @Indexed
+    private String offerId;
+    private String institutionId;
+    private String studentId;
+    private String studentName;
+    // Classe demandée (optionnelle)
+    private String classroomId;
+
+    @Indexed
+    private AdmissionStatus status;
+    // Instance du service dont le séquenceur traite le ticket, et échéance de son bail
+    private String owner;
+    private LocalDateTime leaseExpiresAt;
+
+    private String enrollmentId;
+    private String assignedClassroomId;
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+
+    // Les tickets traités sont purgés automatiquement
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,56 @@
+package com.payiskoul.institution.student.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Traitement de cohorte exécuté en arrière-plan : passage d'année ou rééquilibrage des classes.
+ * Les compteurs sont mis à jour après chaque lot traité
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "cohort_jobs")
+public class CohortJob implements Serializable {
+    @Id
+    private String id;
+
+    private CohortJobType type;
+
+    @Indexed
+    private String institutionId;
+    // Offre d'origine d'un passage d'année
+    @Indexed
+    private String sourceOfferId;
+    // Offre cible d'un passage d'année, ou offre dont les classes sont rééquilibrées
+    @Indexed
+    private String offerId;
+
+    private CohortJobStatus status;
+    // Instance du service qui exécute le job
+    private String owner;
+    // Échéance du bail de l'instance propriétaire, renouvelé tant qu'elle exécute le job
+    private LocalDateTime leaseExpiresAt;
+    // Nombre de partitions traitées en parallèle
+    private int partitions;
+
+    private long totalStudents;
+    private long processed;
+    private long succeeded;
+    private long failed;
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+
+    // Les jobs terminés sont purgés automatiquement
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime finishedAt;
+}
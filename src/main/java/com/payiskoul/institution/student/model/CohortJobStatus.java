@@ -0,0 +1,8 @@
+package com.payiskoul.institution.student.model;
+
+public enum CohortJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
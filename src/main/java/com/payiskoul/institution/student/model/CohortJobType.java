@@ -0,0 +1,8 @@
+package com.payiskoul.institution.student.model;
+
+public enum CohortJobType {
+    // Passage des inscrits d'une offre académique à l'offre de l'année suivante
+    ROLLOVER,
+    // Répartition équilibrée des inscrits entre les classes d'une offre
+    REBALANCE
+}
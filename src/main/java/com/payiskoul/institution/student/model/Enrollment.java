@@ -4,6 +4,8 @@ import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.io.Serializable;
@@ -15,12 +17,16 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "enrollments")
+@CompoundIndex(name = "institution_student_idx", def = "{'institutionId': 1, 'studentId': 1}")
 public class Enrollment implements Serializable {
     @Id
     private String id;
 
+    @Indexed
     private String studentId;
+    @Indexed
     private String programLevelId;
+    @Indexed
     private String institutionId;
     private String classroomId;
     private String academicYear;
@@ -35,6 +41,10 @@ public class Enrollment implements Serializable {
 
     private LocalDateTime completedAt;
 
+    // Clé d'idempotence de la ligne d'importation qui a créé l'inscription
+    @Indexed(unique = true, sparse = true)
+    private String importKey;
+
     public enum EnrollmentStatus {
         ENROLLED, COMPLETED, LEFT, SUSPENDED
     }
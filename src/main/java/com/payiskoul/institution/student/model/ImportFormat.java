@@ -0,0 +1,6 @@
+package com.payiskoul.institution.student.model;
+
+public enum ImportFormat {
+    CSV,
+    EXCEL
+}
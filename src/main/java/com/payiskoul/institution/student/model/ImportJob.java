@@ -0,0 +1,59 @@
+package com.payiskoul.institution.student.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Importation d'étudiants exécutée en arrière-plan.
+ * Le fichier téléversé est copié sur le disque local (spoolPath) puis traité par lots ;
+ * les compteurs et le point de reprise sont mis à jour après chaque lot
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "import_jobs")
+public class ImportJob implements Serializable {
+    @Id
+    private String id;
+
+    @Indexed
+    private String institutionId;
+    private String offerId;
+    private String classroomId;
+
+    private ImportFormat format;
+    // Encodage déclaré pour un fichier CSV (détecté si absent)
+    private String charset;
+    private String fileName;
+    private String spoolPath;
+    // Empreinte SHA-256 du fichier, base des clés d'idempotence des lignes
+    private String fileHash;
+
+    private ImportJobStatus status;
+    // Instance du service qui exécute le job
+    private String owner;
+    // Échéance du bail de l'instance propriétaire, renouvelé tant qu'elle exécute le job
+    private LocalDateTime leaseExpiresAt;
+
+    // Point de reprise, écrit avec les compteurs après chaque lot
+    private int checkpointRow;
+    private LocalDateTime checkpointAt;
+    private long rowsProcessed;
+    private long rowsSucceeded;
+    private long rowsFailed;
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+
+    // Les jobs terminés et leurs lignes en échec sont purgés automatiquement
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,34 @@
+package com.payiskoul.institution.student.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Ligne rejetée par un job d'importation, restituée au format CSV une fois le job terminé
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "import_job_failures")
+@CompoundIndex(name = "job_row_idx", def = "{'jobId': 1, 'rowNumber': 1}")
+public class ImportJobFailure implements Serializable {
+    @Id
+    private String id;
+
+    private String jobId;
+    private int rowNumber;
+    private Map<String, String> studentData;
+    private String errorMessage;
+
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,8 @@
+package com.payiskoul.institution.student.model;
+
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -30,6 +30,10 @@ public class Student implements Serializable {
     private String email;
     private String phone;
 
+    // Clé d'idempotence de la ligne d'importation qui a créé l'étudiant
+    @Indexed(unique = true, sparse = true)
+    private String importKey;
+
     @CreatedDate
     private LocalDateTime registeredAt;
 
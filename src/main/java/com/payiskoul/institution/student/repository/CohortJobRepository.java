@@ -0,0 +1,9 @@
+package com.payiskoul.institution.student.repository;
+
+import com.payiskoul.institution.student.model.CohortJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CohortJobRepository extends MongoRepository<CohortJob, String> {
+}
\ No newline at end of file
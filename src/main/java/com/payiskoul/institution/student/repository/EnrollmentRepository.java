@@ -22,15 +22,19 @@ public interface EnrollmentRepository extends MongoRepository<Enrollment, String
      */
     long countByProgramLevelId(String programLevelId);
     List<Enrollment> findByStudentId(String studentId);
+    List<Enrollment> findByStudentIdAndProgramLevelId(String studentId, String programLevelId);
     List<Enrollment> findByStudentIdAndAcademicYear(String studentId, String academicYear);
     boolean existsByStudentIdAndProgramLevelIdAndAcademicYear(String studentId, String programLevelId, String academicYear);
 
-    List<Enrollment> findByClassroomId(String classroomId);
+    Page<Enrollment> findByClassroomId(String classroomId, Pageable pageable);
     List<Enrollment> findByProgramLevelId(String programLevelId);
 
     @Query("{'programLevelId': ?0, 'status': 'ENROLLED'}")
     List<Enrollment> findActiveEnrollmentsByProgramLevelId(String programLevelId);
 
+    @Query(value = "{'programLevelId': ?0, 'status': 'ENROLLED'}", count = true)
+    long countActiveEnrollmentsByProgramLevelId(String programLevelId);
+
     @Query("{'institutionId': ?0}")
     List<Enrollment> findByInstitutionId(String institutionId);
 
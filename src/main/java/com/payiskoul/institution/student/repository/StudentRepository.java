@@ -4,6 +4,8 @@ import com.payiskoul.institution.student.model.Student;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +14,6 @@ public interface StudentRepository extends MongoRepository<Student, String> {
     boolean existsByEmail(String email);
 
     boolean existsByMatricule(String matricule);
+
+    List<Student> findByMatriculeIn(Collection<String> matricules);
 }
\ No newline at end of file
@@ -0,0 +1,542 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.classroom.model.Classroom;
+import com.payiskoul.institution.classroom.repository.ClassroomRepository;
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.program.model.OfferType;
+import com.payiskoul.institution.program.model.TrainingOffer;
+import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.program.service.OfferSeatService;
+import com.payiskoul.institution.student.dto.AdmissionTicketResponse;
+import com.payiskoul.institution.student.dto.EnrollmentResponse;
+import com.payiskoul.institution.student.dto.OfferEnrollmentRequest;
+import com.payiskoul.institution.student.dto.OfferInfo;
+import com.payiskoul.institution.student.dto.StudentInfo;
+import com.payiskoul.institution.student.model.AdmissionStatus;
+import com.payiskoul.institution.student.model.AdmissionTicket;
+import com.payiskoul.institution.student.model.Enrollment;
+import com.payiskoul.institution.student.repository.AdmissionTicketRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File d'admission des inscriptions aux offres très demandées.
+ * <p>
+ * Les demandes ne sont pas traitées dans le thread de la requête : chacune reçoit immédiatement un ticket,
+ * placé dans la file en mémoire de son offre. Un séquenceur vide chaque file à un débit borné
+ * ({@code rate-per-second} par offre) et traite ses tickets un par un : les inscriptions à une même offre
+ * ne se disputent plus les documents de l'offre et de ses classes. Le client suit le résultat en interrogeant le ticket.
+ * <p>
+ * Chaque admission réserve sa place en base, de façon atomique, sous {@code maxStudents} ({@link OfferSeatService})
+ * et dans une classe : c'est cette réservation qui garantit la capacité de l'offre, quelles que soient l'instance
+ * et le point d'entrée de l'inscription. Chaque file tient en plus un inventaire des places, lu en base à sa création,
+ * qui ne sert qu'à refuser les demandes sans accès à la base une fois l'offre complète. Il est relu après chaque
+ * inscription en masse à l'offre (importation, inscription d'une cohorte) et à chaque battement ({@code heartbeat}),
+ * pour tenir compte des places prises ou rendues ailleurs.
+ * <p>
+ * Un ticket appartient à une instance tant que son bail ({@code lease-duration}) n'a pas expiré : l'instance renouvelle
+ * périodiquement le bail de ses tickets en attente. Les tickets dont le bail a expiré (instance arrêtée ou bloquée)
+ * sont repris par une autre instance ; un arrêt normal rend le bail des tickets non traités.
+ */
+@Service
+@Slf4j
+public class AdmissionQueueService {
+
+    private static final String METRIC_PREFIX = "payiskoul.student.admission";
+    private static final int UNLIMITED = -1;
+    private static final long TICK_MILLIS = 100;
+    // Durée d'inactivité après laquelle une file vide est retirée, son inventaire étant relu à la demande suivante
+    private static final long IDLE_MILLIS = 60_000;
+    private static final long SHUTDOWN_GRACE_SECONDS = 10;
+    private static final List<AdmissionStatus> PENDING_STATUSES =
+            List.of(AdmissionStatus.QUEUED, AdmissionStatus.PROCESSING);
+
+    private final AdmissionTicketRepository admissionTicketRepository;
+    private final TrainingOfferRepository trainingOfferRepository;
+    private final ClassroomRepository classroomRepository;
+    private final OfferEnrollmentService offerEnrollmentService;
+    private final OfferSeatService offerSeatService;
+    private final MongoTemplate mongoTemplate;
+
+    private final int admissionsPerTick;
+    private final int maxQueuedPerOffer;
+    private final Duration leaseDuration;
+    private final ScheduledThreadPoolExecutor sequencer;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Files d'admission par offre
+    private final ConcurrentMap<String, OfferQueue> queues = new ConcurrentHashMap<>();
+
+    public AdmissionQueueService(AdmissionTicketRepository admissionTicketRepository,
+                                 TrainingOfferRepository trainingOfferRepository,
+                                 ClassroomRepository classroomRepository,
+                                 OfferEnrollmentService offerEnrollmentService,
+                                 OfferSeatService offerSeatService,
+                                 MongoTemplate mongoTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${payiskoul.student.admission.rate-per-second:100}") int ratePerSecond,
+                                 @Value("${payiskoul.student.admission.workers:2}") int workers,
+                                 @Value("${payiskoul.student.admission.max-queued-per-offer:10000}") int maxQueuedPerOffer,
+                                 @Value("${payiskoul.student.admission.lease-duration:60000}") long leaseDuration) {
+        this.admissionTicketRepository = admissionTicketRepository;
+        this.trainingOfferRepository = trainingOfferRepository;
+        this.classroomRepository = classroomRepository;
+        this.offerEnrollmentService = offerEnrollmentService;
+        this.offerSeatService = offerSeatService;
+        this.mongoTemplate = mongoTemplate;
+        this.admissionsPerTick = (int) Math.max(1, ratePerSecond * TICK_MILLIS / 1000);
+        this.maxQueuedPerOffer = maxQueuedPerOffer;
+        this.leaseDuration = Duration.ofMillis(leaseDuration);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sequencer = new ScheduledThreadPoolExecutor(Math.max(1, workers),
+                runnable -> new Thread(runnable, "admission-sequencer-" + threadCount.incrementAndGet()));
+        this.sequencer.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        Gauge.builder(METRIC_PREFIX + ".queued", this, AdmissionQueueService::queuedCount)
+                .description("Nombre de demandes d'inscription en file d'admission")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Place une demande d'inscription dans la file d'admission de l'offre
+     * @param request demande d'inscription
+     * @return le ticket, à l'état QUEUED
+     */
+    public AdmissionTicketResponse submit(OfferEnrollmentRequest request) {
+        String studentId = request.student().id();
+        if (studentId == null || studentId.isEmpty()) {
+            throw new BusinessException(ErrorCode.INVALID_INPUT,
+                    "L'ID de l'étudiant est obligatoire pour les inscriptions",
+                    Map.of("studentName", String.valueOf(request.student().fullname())));
+        }
+
+        String offerId = request.offer().id();
+        OfferQueue queue = queues.computeIfAbsent(offerId, this::openQueue);
+
+        // Vérifier que l'offre appartient à l'institution
+        if (!queue.offer.getInstitutionId().equals(request.institutionId())) {
+            throw new BusinessException(ErrorCode.INVALID_INSTITUTION_PROGRAM,
+                    "Cette offre n'appartient pas à cette institution",
+                    Map.of("institutionId", request.institutionId(), "offerId", offerId));
+        }
+        // Refus immédiat, sans écriture, une fois l'offre complète ou la file saturée ; un inventaire à relire
+        // laisse passer la demande, le séquenceur le relit avant de la traiter
+        if (queue.remainingSeats == 0 && !queue.inventoryStale) {
+            throw new BusinessException(ErrorCode.OFFER_FULL,
+                    "Plus de place disponible pour cette offre", Map.of("offerId", offerId));
+        }
+        if (queue.tickets.remainingCapacity() == 0) {
+            throw new BusinessException(ErrorCode.ADMISSION_QUEUE_FULL,
+                    "Trop de demandes en attente pour cette offre, veuillez réessayer plus tard",
+                    Map.of("offerId", offerId, "maxQueued", maxQueuedPerOffer));
+        }
+
+        AdmissionTicket ticket = admissionTicketRepository.insert(AdmissionTicket.builder()
+                .id(new ObjectId().toHexString())
+                .offerId(offerId)
+                .institutionId(request.institutionId())
+                .studentId(studentId)
+                .studentName(request.student().fullname())
+                .classroomId(request.classroomId())
+                .status(AdmissionStatus.QUEUED)
+                .owner(instanceId)
+                .leaseExpiresAt(leaseDeadline())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        if (!enqueue(ticket)) {
+            complete(ticket, AdmissionStatus.REJECTED, null, null, "File d'admission saturée");
+            throw new BusinessException(ErrorCode.ADMISSION_QUEUE_FULL,
+                    "Trop de demandes en attente pour cette offre, veuillez réessayer plus tard",
+                    Map.of("offerId", offerId, "maxQueued", maxQueuedPerOffer));
+        }
+
+        log.debug("Ticket d'admission {} placé en file pour l'offre {}", ticket.getId(), offerId);
+        return toResponse(ticket);
+    }
+
+    /**
+     * Retourne l'état d'un ticket d'admission
+     * @param ticketId ID du ticket
+     * @return l'état du ticket
+     */
+    public AdmissionTicketResponse getTicket(String ticketId) {
+        return admissionTicketRepository.findById(ticketId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new BusinessException(ErrorCode.ADMISSION_TICKET_NOT_FOUND,
+                        "Ticket d'admission introuvable", Map.of("ticketId", ticketId)));
+    }
+
+    /**
+     * Renouvelle le bail des tickets en attente de l'instance, puis reprend les tickets dont le bail a expiré.
+     * Les inventaires des files sont marqués à relire : des places ont pu être prises ou rendues par d'autres instances
+     */
+    @Scheduled(fixedDelayString = "${payiskoul.student.admission.heartbeat-interval:15000}")
+    public void heartbeat() {
+        if (sequencer.isShutdown()) {
+            return;
+        }
+        queues.values().forEach(queue -> queue.inventoryStale = true);
+        try {
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("owner").is(instanceId).and("status").in(PENDING_STATUSES)),
+                    new Update().set("leaseExpiresAt", leaseDeadline()),
+                    AdmissionTicket.class);
+            resumeStaleTickets();
+        } catch (Exception e) {
+            log.error("Erreur lors du renouvellement des baux des tickets d'admission: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reprend les tickets dont le bail a expiré : leur instance s'est arrêtée sans le rendre, ou ne le renouvelle plus.
+     * Chaque ticket est réattribué de façon conditionnelle afin qu'une seule instance le reprenne.
+     * Un ticket repris à l'état PROCESSING a pu être inscrit juste avant l'arrêt de son instance : si l'inscription
+     * existe, il est marqué ADMITTED avec elle au lieu d'être rejoué (et refusé comme doublon).
+     */
+    private void resumeStaleTickets() {
+        Criteria expired = new Criteria().orOperator(
+                Criteria.where("leaseExpiresAt").lt(LocalDateTime.now()),
+                Criteria.where("leaseExpiresAt").is(null));
+        List<AdmissionTicket> stale = mongoTemplate.find(
+                Query.query(Criteria.where("status").in(PENDING_STATUSES)).addCriteria(expired)
+                        .with(Sort.by("createdAt")),
+                AdmissionTicket.class);
+
+        int resumed = 0;
+        int recovered = 0;
+        for (AdmissionTicket ticket : stale) {
+            AdmissionStatus previousStatus = ticket.getStatus();
+            boolean claimed = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(ticket.getId())
+                                    .and("status").is(previousStatus)
+                                    .and("owner").is(ticket.getOwner()))
+                            .addCriteria(expired),
+                    new Update()
+                            .set("owner", instanceId)
+                            .set("status", AdmissionStatus.QUEUED)
+                            .set("leaseExpiresAt", leaseDeadline()),
+                    AdmissionTicket.class).getModifiedCount() == 1;
+            if (!claimed) {
+                continue;
+            }
+
+            ticket.setOwner(instanceId);
+            ticket.setStatus(AdmissionStatus.QUEUED);
+            if (previousStatus == AdmissionStatus.PROCESSING) {
+                Enrollment enrollment = findTicketEnrollment(ticket);
+                if (enrollment != null) {
+                    complete(ticket, AdmissionStatus.ADMITTED, enrollment.getId(), enrollment.getClassroomId(), null);
+                    recovered++;
+                    continue;
+                }
+            }
+            try {
+                if (enqueue(ticket)) {
+                    resumed++;
+                } else {
+                    // File saturée : le ticket reste en attente pour une autre instance
+                    releaseLease(Query.query(Criteria.where("_id").is(ticket.getId()).and("owner").is(instanceId)));
+                }
+            } catch (BusinessException e) {
+                complete(ticket, AdmissionStatus.REJECTED, null, null, e.getMessage());
+            }
+        }
+
+        if (resumed > 0) {
+            log.info("{} tickets d'admission repris après expiration de leur bail", resumed);
+        }
+        if (recovered > 0) {
+            log.info("{} tickets d'admission déjà inscrits avant l'expiration de leur bail, marqués admis", recovered);
+        }
+    }
+
+    /**
+     * Inscription créée pour le ticket : une inscription de l'étudiant à l'offre enregistrée après la création du ticket
+     * @return l'inscription, null si le ticket n'a pas été inscrit
+     */
+    private Enrollment findTicketEnrollment(AdmissionTicket ticket) {
+        Criteria criteria = Criteria.where("studentId").is(ticket.getStudentId())
+                .and("programLevelId").is(ticket.getOfferId());
+        if (ticket.getCreatedAt() != null) {
+            criteria = criteria.and("enrolledAt").gte(ticket.getCreatedAt());
+        }
+        return mongoTemplate.findOne(Query.query(criteria).with(Sort.by(Sort.Direction.DESC, "enrolledAt")),
+                Enrollment.class);
+    }
+
+    /**
+     * Arrête le séquenceur. Une fois les admissions en cours terminées, le bail des tickets non traités est rendu
+     * pour qu'une autre instance les reprenne sans attendre son expiration
+     */
+    @PreDestroy
+    public void shutdown() {
+        sequencer.shutdownNow();
+        try {
+            if (sequencer.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                releaseLease(Query.query(Criteria.where("owner").is(instanceId).and("status").in(PENDING_STATUSES)));
+            } else {
+                log.warn("Admissions toujours en cours à l'arrêt : les tickets seront repris à l'expiration de leur bail");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Impossible de rendre le bail des tickets d'admission: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marque l'inventaire de la file de l'offre comme à relire : des places ont été prises hors file d'admission
+     */
+    @EventListener
+    public void onEnrollmentsCreated(StudentBulkImporter.EnrollmentsCreated event) {
+        OfferQueue queue = queues.get(event.offerId());
+        if (queue != null) {
+            queue.inventoryStale = true;
+        }
+    }
+
+    // ============ SÉQUENCEUR ============
+
+    /**
+     * Confie au pool chaque file non vide qui n'est pas déjà en cours de traitement
+     */
+    private void tick() {
+        try {
+            queues.values().forEach(queue -> {
+                if (queue.draining.compareAndSet(false, true)) {
+                    sequencer.execute(() -> drain(queue));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Une exception arrêterait la planification
+            log.error("Erreur du séquenceur d'admission: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Traite au plus admissionsPerTick tickets d'une file
+     */
+    private void drain(OfferQueue queue) {
+        try {
+            for (int i = 0; i < admissionsPerTick; i++) {
+                AdmissionTicket ticket = queue.tickets.poll();
+                if (ticket == null) {
+                    break;
+                }
+                admit(queue, ticket);
+            }
+        } catch (RuntimeException e) {
+            log.error("Erreur lors du traitement de la file d'admission de l'offre {}: {}",
+                    queue.offer.getId(), e.getMessage(), e);
+        } finally {
+            queue.draining.set(false);
+            queues.computeIfPresent(queue.offer.getId(),
+                    (offerId, current) -> current == queue && current.isIdle() ? null : current);
+        }
+    }
+
+    private void admit(OfferQueue queue, AdmissionTicket ticket) {
+        if (queue.inventoryStale) {
+            queue.inventoryStale = false;
+            TrainingOffer offer = trainingOfferRepository.findById(queue.offer.getId()).orElse(queue.offer);
+            queue.remainingSeats = countSeats(offer, queue.hasClassrooms
+                    ? classroomRepository.findByProgramLevelId(offer.getId())
+                    : List.of());
+        }
+        if (queue.remainingSeats == 0) {
+            complete(ticket, AdmissionStatus.REJECTED, null, null, "Plus de place disponible pour cette offre");
+            return;
+        }
+
+        // Prise en charge conditionnelle : un ticket repris par une autre instance n'est pas traité deux fois
+        boolean claimed = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(ticket.getId())
+                        .and("status").is(AdmissionStatus.QUEUED)
+                        .and("owner").is(instanceId)),
+                new Update().set("status", AdmissionStatus.PROCESSING),
+                AdmissionTicket.class).getModifiedCount() == 1;
+        if (!claimed) {
+            log.debug("Ticket d'admission {} déjà pris en charge, ignoré", ticket.getId());
+            return;
+        }
+
+        OfferEnrollmentRequest request = new OfferEnrollmentRequest(
+                new StudentInfo(ticket.getStudentId(), ticket.getStudentName(), null),
+                new OfferInfo(queue.offer.getId(), queue.offer.getLabel()),
+                ticket.getInstitutionId(),
+                ticket.getClassroomId());
+        try {
+            EnrollmentResponse enrollment = offerEnrollmentService.createEnrollment(request, queue.hasClassrooms);
+            queue.consumeSeat();
+            complete(ticket, AdmissionStatus.ADMITTED, enrollment.id(), enrollment.classroomId(), null);
+        } catch (BusinessException e) {
+            if (e.getErrorCode() == ErrorCode.NO_CLASSROOM_AVAILABLE || e.getErrorCode() == ErrorCode.OFFER_FULL) {
+                // Offre ou classes complètes : les tickets suivants sont refusés sans accès à la base
+                queue.remainingSeats = 0;
+            }
+            complete(ticket, AdmissionStatus.REJECTED, null, null, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Échec du traitement du ticket d'admission {}: {}", ticket.getId(), e.getMessage(), e);
+            complete(ticket, AdmissionStatus.REJECTED, null, null, "Inscription impossible: " + e.getMessage());
+        }
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
+
+    /**
+     * Crée la file d'une offre et initialise son inventaire de places depuis la base
+     */
+    private OfferQueue openQueue(String offerId) {
+        TrainingOffer offer = trainingOfferRepository.findById(offerId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
+                        "Offre introuvable", Map.of("offerId", offerId)));
+
+        List<Classroom> classrooms = offer.getOfferType() == OfferType.ACADEMIC
+                ? classroomRepository.findByProgramLevelId(offerId)
+                : List.of();
+        boolean hasClassrooms = !classrooms.isEmpty();
+        int seats = countSeats(offer, classrooms);
+
+        log.info("File d'admission ouverte pour l'offre {}: {} places", offerId,
+                seats == UNLIMITED ? "illimitées" : seats);
+        return new OfferQueue(offer, hasClassrooms, seats, maxQueuedPerOffer);
+    }
+
+    /**
+     * Places restantes d'une offre : sous {@code maxStudents} (d'après son effectif) et, pour une offre académique,
+     * dans ses classes
+     * @param classrooms les classes de l'offre (vide si elle n'affecte pas les inscrits à une classe)
+     * @return le nombre de places, UNLIMITED si l'offre n'a ni maxStudents ni classes
+     */
+    private int countSeats(TrainingOffer offer, List<Classroom> classrooms) {
+        int seats = UNLIMITED;
+        if (offer.getMaxStudents() != null) {
+            seats = Math.max(0, offer.getMaxStudents() - offerSeatService.enrolledCount(offer.getId()));
+        }
+
+        if (!classrooms.isEmpty()) {
+            int free = classrooms.stream()
+                    .mapToInt(classroom -> Math.max(0, classroom.getCapacity() - classroom.getCurrentCount()))
+                    .sum();
+            seats = seats == UNLIMITED ? free : Math.min(seats, free);
+        }
+        return seats;
+    }
+
+    /**
+     * Ajoute un ticket à la file de son offre ; l'ajout a lieu sous le verrou de l'entrée,
+     * de sorte qu'une file vide ne puisse pas être retirée entre sa lecture et l'ajout
+     * @return faux si la file est saturée
+     */
+    private boolean enqueue(AdmissionTicket ticket) {
+        AtomicBoolean added = new AtomicBoolean();
+        queues.compute(ticket.getOfferId(), (offerId, current) -> {
+            OfferQueue queue = current != null ? current : openQueue(offerId);
+            added.set(queue.tickets.offer(ticket));
+            queue.lastSubmitAt = System.currentTimeMillis();
+            return queue;
+        });
+        return added.get();
+    }
+
+    private void complete(AdmissionTicket ticket, AdmissionStatus status, String enrollmentId, String classroomId,
+                          String errorMessage) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(ticket.getId()).and("owner").is(instanceId)),
+                new Update()
+                        .set("status", status)
+                        .set("enrollmentId", enrollmentId)
+                        .set("assignedClassroomId", classroomId)
+                        .set("errorMessage", errorMessage)
+                        .set("processedAt", LocalDateTime.now()),
+                AdmissionTicket.class);
+    }
+
+    private void releaseLease(Query query) {
+        mongoTemplate.updateMulti(query, new Update().set("leaseExpiresAt", LocalDateTime.now()), AdmissionTicket.class);
+    }
+
+    private LocalDateTime leaseDeadline() {
+        return LocalDateTime.now().plus(leaseDuration);
+    }
+
+    private int queuedCount() {
+        return queues.values().stream().mapToInt(queue -> queue.tickets.size()).sum();
+    }
+
+    private AdmissionTicketResponse toResponse(AdmissionTicket ticket) {
+        return new AdmissionTicketResponse(
+                ticket.getId(),
+                ticket.getStatus(),
+                ticket.getOfferId(),
+                ticket.getStudentId(),
+                ticket.getEnrollmentId(),
+                ticket.getAssignedClassroomId(),
+                ticket.getErrorMessage(),
+                ticket.getCreatedAt(),
+                ticket.getProcessedAt()
+        );
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * File d'admission d'une offre et son inventaire de places
+     */
+    private static final class OfferQueue {
+
+        private final TrainingOffer offer;
+        private final boolean hasClassrooms;
+        private final BlockingQueue<AdmissionTicket> tickets;
+        // Un seul thread traite la file à la fois
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        // Places restantes estimées, UNLIMITED si l'offre n'a ni maxStudents ni classes ; modifié par le seul thread
+        // de traitement. Sert au refus rapide : la réservation en base reste seule garante de la capacité
+        private volatile int remainingSeats;
+        private volatile long lastSubmitAt = System.currentTimeMillis();
+        // Places prises ou rendues hors de cette file : l'inventaire est relu avant la prochaine admission
+        private volatile boolean inventoryStale;
+
+        private OfferQueue(TrainingOffer offer, boolean hasClassrooms, int remainingSeats, int capacity) {
+            this.offer = offer;
+            this.hasClassrooms = hasClassrooms;
+            this.remainingSeats = remainingSeats;
+            this.tickets = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        }
+
+        private void consumeSeat() {
+            if (remainingSeats > 0) {
+                remainingSeats--;
+            }
+        }
+
+        private boolean isIdle() {
+            return tickets.isEmpty() && System.currentTimeMillis() - lastSubmitAt > IDLE_MILLIS;
+        }
+    }
+}
@@ -0,0 +1,734 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.classroom.model.Classroom;
+import com.payiskoul.institution.classroom.repository.ClassroomRepository;
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.program.model.OfferType;
+import com.payiskoul.institution.program.model.TrainingOffer;
+import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.program.service.OfferSeatService;
+import com.payiskoul.institution.student.dto.BulkEnrollmentResponse.Outcome;
+import com.payiskoul.institution.student.dto.BulkEnrollmentResponse.OutcomeStatus;
+import com.payiskoul.institution.student.dto.CohortJobResponse;
+import com.payiskoul.institution.student.dto.RebalanceJobRequest;
+import com.payiskoul.institution.student.dto.RolloverJobRequest;
+import com.payiskoul.institution.student.model.CohortJob;
+import com.payiskoul.institution.student.model.CohortJobStatus;
+import com.payiskoul.institution.student.model.CohortJobType;
+import com.payiskoul.institution.student.model.Enrollment;
+import com.payiskoul.institution.student.model.Enrollment.EnrollmentStatus;
+import com.payiskoul.institution.student.repository.CohortJobRepository;
+import com.payiskoul.institution.student.service.StudentBulkImporter.ImportSession;
+import com.payiskoul.institution.tuition.service.PaymentEntitlementCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Traitements de cohorte en arrière-plan : passage d'année et rééquilibrage des classes.
+ * <p>
+ * Un passage d'année inscrit les étudiants ENROLLED d'une offre académique à l'offre cible, par lots, avec le même
+ * chemin d'écriture que les inscriptions en masse (bulkWrite des inscriptions, des effectifs de classe et des statuts
+ * de paiement, affectation aux classes suivie en mémoire), puis clôture leurs inscriptions d'origine (COMPLETED)
+ * et libère leurs places. Les partitions partagent la session de l'offre cible : chaque lot y réserve ses places
+ * de façon atomique, sous {@code maxStudents} et dans les classes, si bien que leur parallélisme ne peut pas
+ * dépasser la capacité de l'offre.
+ * Un rééquilibrage calcule une répartition équilibrée des inscrits entre les classes d'une offre, dans la limite de
+ * leur capacité, puis déplace les inscriptions en excédent ; chaque déplacement réserve d'abord ses places de façon
+ * atomique dans la classe d'arrivée.
+ * <p>
+ * Les étudiants sont répartis en autant de partitions que de cœurs (ou {@code parallelism}), traitées en parallèle.
+ * Les compteurs du job sont mis à jour après chaque lot. Les deux traitements ne portent que sur l'état restant
+ * à traiter : un job interrompu par l'arrêt d'une instance est repris par une autre sans rien rejouer.
+ * <p>
+ * Un job appartient à une instance tant que son bail (lease-duration) n'a pas expiré : l'instance le renouvelle
+ * périodiquement et avant chaque lot, en vérifiant qu'elle en est toujours propriétaire. Seuls les jobs dont le bail
+ * a expiré (instance arrêtée ou bloquée) sont repris ; un arrêt normal rend le bail sans changer le statut du job.
+ */
+@Service
+@Slf4j
+public class CohortJobService {
+
+    private static final String METRIC_PREFIX = "payiskoul.student.cohort.jobs";
+    private static final List<CohortJobStatus> ACTIVE_STATUSES = List.of(CohortJobStatus.QUEUED, CohortJobStatus.RUNNING);
+    // Attente maximale de la fin des lots en cours lors de l'arrêt
+    private static final long SHUTDOWN_GRACE_SECONDS = 10;
+
+    private final CohortJobRepository cohortJobRepository;
+    private final TrainingOfferRepository trainingOfferRepository;
+    private final ClassroomRepository classroomRepository;
+    private final StudentBulkImporter studentBulkImporter;
+    private final OfferSeatService offerSeatService;
+    private final PaymentEntitlementCache paymentEntitlementCache;
+    private final MongoTemplate mongoTemplate;
+
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxQueued;
+    private final Duration leaseDuration;
+    // Exécution des jobs, puis de leurs partitions
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService partitionExecutor;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public CohortJobService(CohortJobRepository cohortJobRepository,
+                            TrainingOfferRepository trainingOfferRepository,
+                            ClassroomRepository classroomRepository,
+                            StudentBulkImporter studentBulkImporter,
+                            OfferSeatService offerSeatService,
+                            PaymentEntitlementCache paymentEntitlementCache,
+                            MongoTemplate mongoTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${payiskoul.student.cohort.jobs.workers:2}") int workers,
+                            @Value("${payiskoul.student.cohort.jobs.max-queued:50}") int maxQueued,
+                            @Value("${payiskoul.student.cohort.jobs.parallelism:0}") int parallelism,
+                            @Value("${payiskoul.student.cohort.jobs.chunk-size:500}") int chunkSize,
+                            @Value("${payiskoul.student.cohort.jobs.lease-duration:60000}") long leaseDuration) {
+        this.cohortJobRepository = cohortJobRepository;
+        this.trainingOfferRepository = trainingOfferRepository;
+        this.classroomRepository = classroomRepository;
+        this.studentBulkImporter = studentBulkImporter;
+        this.offerSeatService = offerSeatService;
+        this.paymentEntitlementCache = paymentEntitlementCache;
+        this.mongoTemplate = mongoTemplate;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxQueued = maxQueued;
+        this.leaseDuration = Duration.ofMillis(leaseDuration);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueued),
+                runnable -> new Thread(runnable, "cohort-job-" + threadCount.incrementAndGet()));
+        AtomicInteger partitionCount = new AtomicInteger();
+        this.partitionExecutor = Executors.newFixedThreadPool(this.parallelism,
+                runnable -> new Thread(runnable, "cohort-partition-" + partitionCount.incrementAndGet()));
+
+        Gauge.builder(METRIC_PREFIX + ".running", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Nombre de jobs de cohorte en cours d'exécution")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".waiting", executor, pool -> pool.getQueue().size())
+                .description("Nombre de jobs de cohorte en attente")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Planifie le passage des inscrits d'une offre académique à l'offre cible
+     * @param request offres d'origine et cible
+     * @return l'état initial du job
+     */
+    public CohortJobResponse submitRollover(RolloverJobRequest request) {
+        TrainingOffer source = findAcademicOffer(request.sourceOfferId(), request.institutionId());
+        TrainingOffer target = findAcademicOffer(request.targetOfferId(), request.institutionId());
+        if (source.getId().equals(target.getId())) {
+            throw new BusinessException(ErrorCode.INVALID_INPUT,
+                    "L'offre cible doit être différente de l'offre d'origine", Map.of("offerId", source.getId()));
+        }
+
+        return submit(CohortJob.builder()
+                .type(CohortJobType.ROLLOVER)
+                .institutionId(request.institutionId())
+                .sourceOfferId(source.getId())
+                .offerId(target.getId()));
+    }
+
+    /**
+     * Planifie le rééquilibrage des classes d'une offre académique
+     * @param request offre à rééquilibrer
+     * @return l'état initial du job
+     */
+    public CohortJobResponse submitRebalance(RebalanceJobRequest request) {
+        TrainingOffer offer = findAcademicOffer(request.offerId(), request.institutionId());
+        if (classroomRepository.findByProgramLevelId(offer.getId()).size() < 2) {
+            throw new BusinessException(ErrorCode.NO_CLASSROOM_AVAILABLE,
+                    "L'offre doit avoir au moins deux classes pour être rééquilibrée", Map.of("offerId", offer.getId()));
+        }
+
+        return submit(CohortJob.builder()
+                .type(CohortJobType.REBALANCE)
+                .institutionId(request.institutionId())
+                .offerId(offer.getId()));
+    }
+
+    /**
+     * Retourne l'état d'un job de cohorte
+     * @param jobId ID du job
+     * @return l'état du job, avec son avancement et son débit moyen
+     */
+    public CohortJobResponse getJob(String jobId) {
+        return cohortJobRepository.findById(jobId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new BusinessException(ErrorCode.COHORT_JOB_NOT_FOUND,
+                        "Le job spécifié n'existe pas", Map.of("jobId", jobId)));
+    }
+
+    /**
+     * Renouvelle le bail des jobs de l'instance, puis reprend les jobs dont le bail a expiré
+     */
+    @Scheduled(fixedDelayString = "${payiskoul.student.cohort.jobs.heartbeat-interval:15000}")
+    public void heartbeat() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("owner").is(instanceId).and("status").in(ACTIVE_STATUSES)),
+                    new Update().set("leaseExpiresAt", leaseDeadline()),
+                    CohortJob.class);
+            resumeInterruptedJobs();
+        } catch (Exception e) {
+            log.error("Erreur lors du renouvellement des baux des jobs de cohorte: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reprend les jobs dont le bail a expiré : leur instance s'est arrêtée sans le rendre, ou ne le renouvelle plus.
+     * Chaque job est réattribué de façon conditionnelle afin qu'une seule instance le reprenne.
+     */
+    private void resumeInterruptedJobs() {
+        Criteria expired = new Criteria().orOperator(
+                Criteria.where("leaseExpiresAt").lt(LocalDateTime.now()),
+                Criteria.where("leaseExpiresAt").is(null));
+        List<CohortJob> interrupted = mongoTemplate.find(
+                Query.query(Criteria.where("status").in(ACTIVE_STATUSES)).addCriteria(expired), CohortJob.class);
+
+        for (CohortJob job : interrupted) {
+            boolean claimed = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(job.getId())
+                                    .and("status").in(ACTIVE_STATUSES)
+                                    .and("owner").is(job.getOwner()))
+                            .addCriteria(expired),
+                    new Update()
+                            .set("owner", instanceId)
+                            .set("status", CohortJobStatus.QUEUED)
+                            .set("leaseExpiresAt", leaseDeadline()),
+                    CohortJob.class).getModifiedCount() == 1;
+            if (!claimed) {
+                continue;
+            }
+
+            try {
+                executor.execute(() -> run(job.getId()));
+                log.info("Reprise du job de cohorte {} ({}), bail expiré de l'instance {}",
+                        job.getId(), job.getType(), job.getOwner());
+            } catch (RejectedExecutionException e) {
+                log.error("Impossible de reprendre le job de cohorte {}: file saturée", job.getId());
+                releaseLease(Query.query(Criteria.where("_id").is(job.getId()).and("owner").is(instanceId)));
+            }
+        }
+    }
+
+    /**
+     * Arrête les pools. Les jobs interrompus gardent leur statut (RUNNING ou QUEUED) ; une fois les lots en cours
+     * terminés, leur bail est rendu pour qu'une autre instance les reprenne sans attendre son expiration
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        partitionExecutor.shutdownNow();
+        try {
+            boolean stopped = partitionExecutor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)
+                    && executor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+            if (stopped) {
+                releaseLease(Query.query(Criteria.where("owner").is(instanceId).and("status").in(ACTIVE_STATUSES)));
+            } else {
+                log.warn("Lots de cohorte toujours en cours à l'arrêt : les jobs seront repris à l'expiration de leur bail");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Impossible de rendre le bail des jobs de cohorte: {}", e.getMessage(), e);
+        }
+    }
+
+    // ============ PLANIFICATION ============
+
+    private CohortJobResponse submit(CohortJob.CohortJobBuilder builder) {
+        CohortJob job = builder
+                .id(new ObjectId().toHexString())
+                .status(CohortJobStatus.QUEUED)
+                .owner(instanceId)
+                .leaseExpiresAt(leaseDeadline())
+                .partitions(parallelism)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        // Un seul job à la fois sur une même offre
+        List<String> offerIds = job.getSourceOfferId() != null
+                ? List.of(job.getSourceOfferId(), job.getOfferId())
+                : List.of(job.getOfferId());
+        boolean active = mongoTemplate.exists(Query.query(new Criteria()
+                        .andOperator(Criteria.where("status").in(CohortJobStatus.QUEUED, CohortJobStatus.RUNNING),
+                                new Criteria().orOperator(Criteria.where("offerId").in(offerIds),
+                                        Criteria.where("sourceOfferId").in(offerIds)))),
+                CohortJob.class);
+        if (active) {
+            throw new BusinessException(ErrorCode.COHORT_JOB_ALREADY_RUNNING,
+                    "Un job est déjà en cours pour cette offre", Map.of("offerId", job.getOfferId()));
+        }
+
+        cohortJobRepository.save(job);
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (RejectedExecutionException e) {
+            finish(job.getId(), CohortJobStatus.FAILED, "Job rejeté: file d'attente saturée");
+            throw new BusinessException(ErrorCode.COHORT_JOB_QUEUE_FULL,
+                    "Trop de jobs en attente, veuillez réessayer plus tard", Map.of("maxQueued", maxQueued));
+        }
+
+        log.info("Job de cohorte {} ({}) planifié pour l'offre {}", job.getId(), job.getType(), job.getOfferId());
+        return toResponse(job);
+    }
+
+    // ============ EXÉCUTION ============
+
+    private void run(String jobId) {
+        CohortJob job = cohortJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            log.warn("Job de cohorte {} introuvable, ignoré", jobId);
+            return;
+        }
+        if (job.getStatus() == CohortJobStatus.COMPLETED || job.getStatus() == CohortJobStatus.FAILED) {
+            return;
+        }
+
+        Update running = new Update()
+                .set("status", CohortJobStatus.RUNNING)
+                .set("partitions", parallelism)
+                .set("leaseExpiresAt", leaseDeadline());
+        if (job.getStartedAt() == null) {
+            running.set("startedAt", LocalDateTime.now());
+        }
+        boolean owned = mongoTemplate.updateFirst(owned(jobId), running, CohortJob.class).getMatchedCount() == 1;
+        if (!owned) {
+            log.info("Job de cohorte {} repris par une autre instance, ignoré", jobId);
+            return;
+        }
+        log.info("Début du job de cohorte {} ({}) pour l'offre {}", jobId, job.getType(), job.getOfferId());
+
+        try {
+            if (job.getType() == CohortJobType.ROLLOVER) {
+                runRollover(job);
+            } else {
+                runRebalance(job);
+            }
+            finish(jobId, CohortJobStatus.COMPLETED, null);
+            log.info("Job de cohorte {} ({}) terminé", jobId, job.getType());
+        } catch (JobInterruptedException e) {
+            // Arrêt de l'instance ou bail perdu : le statut est conservé pour que le job soit repris
+            log.warn("Job de cohorte {} suspendu: {}", jobId, e.getMessage());
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                log.warn("Job de cohorte {} interrompu par l'arrêt de l'instance: {}", jobId, e.getMessage());
+                return;
+            }
+            log.error("Échec du job de cohorte {}: {}", jobId, e.getMessage(), e);
+            finish(jobId, CohortJobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Passage d'année : les étudiants encore inscrits à l'offre d'origine sont répartis par hachage
+     * entre les partitions, puis inscrits à l'offre cible lot par lot
+     */
+    private void runRollover(CohortJob job) {
+        ImportSession session = studentBulkImporter.open(job.getOfferId(), null);
+
+        List<List<String>> partitions = partitions();
+        Query query = Query.query(Criteria.where("programLevelId").is(job.getSourceOfferId())
+                        .and("status").is(EnrollmentStatus.ENROLLED))
+                .cursorBatchSize(5000);
+        query.fields().include("studentId");
+        Set<String> seen = new HashSet<>();
+        try (Stream<Enrollment> enrollments = mongoTemplate.stream(query, Enrollment.class)) {
+            enrollments.map(Enrollment::getStudentId)
+                    .filter(Objects::nonNull)
+                    .filter(seen::add)
+                    .forEach(studentId -> partitions.get(Math.floorMod(studentId.hashCode(), parallelism)).add(studentId));
+        }
+
+        startProgress(job, seen.size());
+        runPartitions(job.getId(), partitions, chunk -> promote(job, session, chunk));
+    }
+
+    /**
+     * Inscrit un lot d'étudiants à l'offre cible, puis clôture leurs inscriptions d'origine.
+     * Un étudiant déjà inscrit à l'offre cible (passage interrompu puis repris) est clôturé comme les autres.
+     */
+    private ChunkProgress promote(CohortJob job, ImportSession session, List<String> studentIds) {
+        List<Outcome> outcomes = studentBulkImporter.enrollStudents(session, studentIds);
+        List<String> promoted = outcomes.stream()
+                .filter(outcome -> outcome.status() == OutcomeStatus.ENROLLED
+                        || outcome.status() == OutcomeStatus.ALREADY_ENROLLED)
+                .map(Outcome::studentId)
+                .toList();
+
+        if (!promoted.isEmpty()) {
+            completeSourceEnrollments(job.getSourceOfferId(), promoted);
+        }
+        return new ChunkProgress(studentIds.size(), promoted.size(), studentIds.size() - promoted.size());
+    }
+
+    /**
+     * Clôture les inscriptions d'origine, classe par classe, et libère les places correspondantes dans les classes
+     * et sous maxStudents
+     */
+    private void completeSourceEnrollments(String sourceOfferId, List<String> studentIds) {
+        Query query = Query.query(Criteria.where("studentId").in(studentIds)
+                .and("programLevelId").is(sourceOfferId)
+                .and("status").is(EnrollmentStatus.ENROLLED));
+        query.fields().include("classroomId");
+        Map<String, List<String>> idsByClassroom = mongoTemplate.find(query, Enrollment.class).stream()
+                .collect(Collectors.groupingBy(enrollment -> Objects.toString(enrollment.getClassroomId(), ""),
+                        Collectors.mapping(Enrollment::getId, Collectors.toList())));
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> released = new HashMap<>();
+        long totalCompleted = 0;
+        for (Map.Entry<String, List<String>> entry : idsByClassroom.entrySet()) {
+            long completed = mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("_id").in(entry.getValue()).and("status").is(EnrollmentStatus.ENROLLED)),
+                    new Update()
+                            .set("status", EnrollmentStatus.COMPLETED)
+                            .set("completedAt", now)
+                            .set("updatedAt", now),
+                    Enrollment.class).getModifiedCount();
+            totalCompleted += completed;
+            if (!entry.getKey().isEmpty() && completed > 0) {
+                released.put(entry.getKey(), completed);
+            }
+        }
+
+        if (!released.isEmpty()) {
+            BulkOperations classroomOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Classroom.class);
+            released.forEach((classroomId, count) -> classroomOps.updateOne(
+                    Query.query(Criteria.where("_id").is(classroomId).and("currentCount").gte(count)),
+                    new Update().inc("currentCount", -count)));
+            classroomOps.execute();
+        }
+        offerSeatService.release(sourceOfferId, (int) totalCompleted);
+
+        studentIds.forEach(studentId -> paymentEntitlementCache.invalidate(studentId, sourceOfferId));
+    }
+
+    /**
+     * Rééquilibrage : calcule l'effectif cible de chaque classe à partir des inscriptions ENROLLED,
+     * puis répartit les déplacements nécessaires entre les partitions
+     */
+    private void runRebalance(CohortJob job) {
+        List<Classroom> classrooms = classroomRepository.findByProgramLevelId(job.getOfferId());
+
+        // Inscrits de chaque classe, les plus anciens en premier : les derniers inscrits sont déplacés
+        Map<String, List<String>> members = new LinkedHashMap<>();
+        classrooms.forEach(classroom -> members.put(classroom.getId(), new ArrayList<>()));
+        Query query = Query.query(Criteria.where("programLevelId").is(job.getOfferId())
+                        .and("status").is(EnrollmentStatus.ENROLLED)
+                        .and("classroomId").in(members.keySet()))
+                .with(Sort.by("enrolledAt", "_id"))
+                .cursorBatchSize(5000);
+        query.fields().include("classroomId");
+        try (Stream<Enrollment> enrollments = mongoTemplate.stream(query, Enrollment.class)) {
+            enrollments.forEach(enrollment -> members.get(enrollment.getClassroomId()).add(enrollment.getId()));
+        }
+
+        int[] targets = evenTargets(classrooms, members.values().stream().mapToInt(List::size).sum());
+
+        // Déplacements : l'excédent des classes au-dessus de leur cible comble le déficit des autres
+        Deque<String> surplus = new ArrayDeque<>();
+        Map<String, String> origins = new HashMap<>();
+        for (int i = 0; i < classrooms.size(); i++) {
+            List<String> ids = members.get(classrooms.get(i).getId());
+            for (int k = targets[i]; k < ids.size(); k++) {
+                surplus.add(ids.get(k));
+                origins.put(ids.get(k), classrooms.get(i).getId());
+            }
+        }
+        List<Move> moves = new ArrayList<>();
+        for (int i = 0; i < classrooms.size() && !surplus.isEmpty(); i++) {
+            int deficit = targets[i] - members.get(classrooms.get(i).getId()).size();
+            for (int k = 0; k < deficit && !surplus.isEmpty(); k++) {
+                String enrollmentId = surplus.poll();
+                moves.add(new Move(enrollmentId, origins.get(enrollmentId), classrooms.get(i).getId()));
+            }
+        }
+
+        List<List<Move>> partitions = partitions();
+        for (int i = 0; i < moves.size(); i++) {
+            partitions.get(i % parallelism).add(moves.get(i));
+        }
+
+        log.info("Rééquilibrage de l'offre {}: {} déplacements entre {} classes",
+                job.getOfferId(), moves.size(), classrooms.size());
+        startProgress(job, moves.size());
+        runPartitions(job.getId(), partitions, this::move);
+    }
+
+    /**
+     * Applique un lot de déplacements, regroupés par couple (classe de départ, classe d'arrivée).
+     * Les places sont réservées dans la classe d'arrivée avant de déplacer les inscriptions ; celles qui n'ont pas
+     * été déplacées (désinscription entre-temps) sont rendues, et la classe de départ libère les places déplacées.
+     */
+    private ChunkProgress move(List<Move> moves) {
+        Map<List<String>, List<String>> idsByRoute = moves.stream()
+                .collect(Collectors.groupingBy(move -> List.of(move.fromClassroomId(), move.toClassroomId()),
+                        LinkedHashMap::new, Collectors.mapping(Move::enrollmentId, Collectors.toList())));
+
+        int moved = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<List<String>, List<String>> route : idsByRoute.entrySet()) {
+            String from = route.getKey().get(0);
+            String to = route.getKey().get(1);
+            int requested = route.getValue().size();
+
+            Query reservation = Query.query(Criteria.where("_id").is(to));
+            reservation.addCriteria(Criteria.expr(
+                    ComparisonOperators.valueOf(ArithmeticOperators.valueOf("currentCount").add(requested))
+                            .lessThanEqualTo("capacity")));
+            boolean reserved = mongoTemplate.updateFirst(reservation, new Update().inc("currentCount", requested),
+                    Classroom.class).getModifiedCount() == 1;
+            if (!reserved) {
+                log.warn("Classe {} complète, {} déplacements depuis la classe {} ignorés", to, requested, from);
+                continue;
+            }
+
+            long modified = mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("_id").in(route.getValue())
+                            .and("classroomId").is(from)
+                            .and("status").is(EnrollmentStatus.ENROLLED)),
+                    new Update().set("classroomId", to).set("updatedAt", now),
+                    Enrollment.class).getModifiedCount();
+
+            // Places non utilisées rendues à la classe d'arrivée, places déplacées libérées dans la classe de départ
+            BulkOperations classroomOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Classroom.class);
+            if (modified < requested) {
+                classroomOps.updateOne(Query.query(Criteria.where("_id").is(to)),
+                        new Update().inc("currentCount", modified - requested));
+            }
+            if (modified > 0) {
+                classroomOps.updateOne(Query.query(Criteria.where("_id").is(from).and("currentCount").gte(modified)),
+                        new Update().inc("currentCount", -modified));
+            }
+            classroomOps.execute();
+            moved += (int) modified;
+        }
+        return new ChunkProgress(moves.size(), moved, moves.size() - moved);
+    }
+
+    /**
+     * Effectifs cibles : répartition aussi égale que possible des inscrits, dans la limite de la capacité de chaque
+     * classe ; les classes de plus faible capacité sont servies en premier, les autres absorbant le reste
+     * @return l'effectif cible de chaque classe, dans l'ordre de la liste
+     */
+    static int[] evenTargets(List<Classroom> classrooms, int total) {
+        Integer[] order = new Integer[classrooms.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> classrooms.get(i).getCapacity()));
+
+        int[] targets = new int[classrooms.size()];
+        int remaining = total;
+        for (int j = 0; j < order.length; j++) {
+            int index = order[j];
+            targets[index] = Math.max(0, Math.min(classrooms.get(index).getCapacity(), remaining / (order.length - j)));
+            remaining -= targets[index];
+        }
+        return targets;
+    }
+
+    // ============ PARTITIONS ET AVANCEMENT ============
+
+    private <T> List<List<T>> partitions() {
+        List<List<T>> partitions = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        return partitions;
+    }
+
+    /**
+     * Traite les partitions en parallèle, chacune par lots de chunkSize ; l'avancement est écrit après chaque lot.
+     * Avant chaque lot, le bail est renouvelé : une partition s'arrête si l'instance a perdu le job ou s'arrête
+     */
+    private <T> void runPartitions(String jobId, List<List<T>> partitions, Function<List<T>, ChunkProgress> processor) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<T> partition : partitions) {
+            if (partition.isEmpty()) {
+                continue;
+            }
+            futures.add(partitionExecutor.submit(() -> {
+                for (int i = 0; i < partition.size(); i += chunkSize) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new JobInterruptedException("arrêt de l'instance");
+                    }
+                    if (!renewLease(jobId)) {
+                        throw new JobInterruptedException("job repris par une autre instance");
+                    }
+                    ChunkProgress progress = processor.apply(partition.subList(i, Math.min(i + chunkSize, partition.size())));
+                    recordProgress(jobId, progress);
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JobInterruptedException("arrêt de l'instance");
+        } catch (ExecutionException e) {
+            // Une partition en échec arrête les autres : le job sera repris là où il s'est arrêté
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Fixe le nombre total d'étudiants : ceux déjà traités par une exécution précédente, plus ceux restant à traiter
+     */
+    private void startProgress(CohortJob job, long remaining) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(job.getId())),
+                new Update().set("totalStudents", job.getProcessed() + remaining),
+                CohortJob.class);
+    }
+
+    private void recordProgress(String jobId, ChunkProgress progress) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(jobId)),
+                new Update()
+                        .inc("processed", progress.processed())
+                        .inc("succeeded", progress.succeeded())
+                        .inc("failed", progress.failed()),
+                CohortJob.class);
+    }
+
+    /**
+     * Renouvelle le bail d'un job en cours d'exécution
+     * @return false si le job n'appartient plus à l'instance
+     */
+    private boolean renewLease(String jobId) {
+        return mongoTemplate.updateFirst(
+                owned(jobId).addCriteria(Criteria.where("status").is(CohortJobStatus.RUNNING)),
+                new Update().set("leaseExpiresAt", leaseDeadline()),
+                CohortJob.class).getMatchedCount() == 1;
+    }
+
+    private void releaseLease(Query query) {
+        mongoTemplate.updateMulti(query, new Update().set("leaseExpiresAt", LocalDateTime.now()), CohortJob.class);
+    }
+
+    private LocalDateTime leaseDeadline() {
+        return LocalDateTime.now().plus(leaseDuration);
+    }
+
+    private Query owned(String jobId) {
+        return Query.query(Criteria.where("_id").is(jobId).and("owner").is(instanceId));
+    }
+
+    private void finish(String jobId, CohortJobStatus status, String errorMessage) {
+        mongoTemplate.updateFirst(owned(jobId),
+                new Update()
+                        .set("status", status)
+                        .set("errorMessage", errorMessage)
+                        .set("finishedAt", LocalDateTime.now()),
+                CohortJob.class);
+    }
+
+    // ============ UTILITAIRES ============
+
+    private TrainingOffer findAcademicOffer(String offerId, String institutionId) {
+        TrainingOffer offer = trainingOfferRepository.findById(offerId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
+                        "Offre introuvable", Map.of("offerId", offerId)));
+
+        if (!offer.getInstitutionId().equals(institutionId)) {
+            throw new BusinessException(ErrorCode.INVALID_INSTITUTION_PROGRAM,
+                    "Cette offre n'appartient pas à cette institution",
+                    Map.of("institutionId", institutionId, "offerId", offerId));
+        }
+        if (offer.getOfferType() != OfferType.ACADEMIC) {
+            throw new BusinessException(ErrorCode.INVALID_INPUT,
+                    "Seules les offres académiques ont des classes et des passages d'année",
+                    Map.of("offerId", offerId));
+        }
+        return offer;
+    }
+
+    private CohortJobResponse toResponse(CohortJob job) {
+        double studentsPerSecond = 0.0;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            long elapsedMillis = Duration.between(job.getStartedAt(), end).toMillis();
+            if (elapsedMillis > 0) {
+                studentsPerSecond = job.getProcessed() * 1000.0 / elapsedMillis;
+            }
+        }
+        double progress = job.getTotalStudents() > 0
+                ? Math.min(100.0, job.getProcessed() * 100.0 / job.getTotalStudents())
+                : job.getStatus() == CohortJobStatus.COMPLETED ? 100.0 : 0.0;
+
+        return new CohortJobResponse(
+                job.getId(),
+                job.getType(),
+                job.getStatus(),
+                job.getSourceOfferId(),
+                job.getOfferId(),
+                job.getPartitions(),
+                job.getTotalStudents(),
+                job.getProcessed(),
+                job.getSucceeded(),
+                job.getFailed(),
+                progress,
+                studentsPerSecond,
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt()
+        );
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Résultat d'un lot
+     */
+    private record ChunkProgress(int processed, int succeeded, int failed) {}
+
+    /**
+     * Déplacement d'une inscription d'une classe à une autre
+     */
+    private record Move(String enrollmentId, String fromClassroomId, String toClassroomId) {}
+
+    /**
+     * Exécution suspendue sans échec : arrêt de l'instance ou job repris par une autre instance
+     */
+    private static class JobInterruptedException extends RuntimeException {
+        JobInterruptedException(String message) {
+            super(message);
+        }
+    }
+}
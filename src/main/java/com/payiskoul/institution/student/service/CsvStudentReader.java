@@ -0,0 +1,180 @@
+package com.payiskoul.institution.student.service;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lecture en flux d'un fichier CSV d'importation d'étudiants.
+ * <p>
+ * Les enregistrements sont lus un à un par OpenCSV et transmis au consommateur sous forme de lignes positionnelles,
+ * les positions des en-têtes étant résolues une seule fois : la mémoire utilisée ne dépend pas de la taille du fichier.
+ * <p>
+ * L'encodage peut être déclaré ; à défaut, il est détecté : marque d'ordre des octets (BOM) si présente,
+ * UTF-8 si le début du fichier est de l'UTF-8 valide, Windows-1252 sinon (export Excel sous Windows).
+ */
+@Component
+@Slf4j
+class CsvStudentReader {
+
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+    // Octets examinés pour détecter l'encodage
+    private static final int SNIFF_BYTES = 64 * 1024;
+
+    /**
+     * Lit le fichier et transmet chaque ligne de données complète au consommateur
+     * @param file fichier CSV
+     * @param declaredCharset encodage déclaré par l'appelant, null pour le détecter
+     * @param headerCleaner normalisation des noms d'en-têtes
+     * @param rowConsumer traitement d'une ligne
+     * @return le nombre de lignes de données lues
+     */
+    int read(InputStreamSource file, Charset declaredCharset, UnaryOperator<String> headerCleaner,
+             Consumer<StudentImportRow> rowConsumer) {
+        try (BufferedInputStream is = new BufferedInputStream(file.getInputStream(), SNIFF_BYTES);
+             CSVReader csvReader = new CSVReader(new InputStreamReader(is, charset(is, declaredCharset)))) {
+
+            // Lecture des en-têtes, nettoyés pour enlever les suffixes explicatifs
+            String[] headers = csvReader.readNext();
+            if (headers == null) {
+                throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                        "Le fichier CSV ne contient pas d'en-têtes", null);
+            }
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = headerCleaner.apply(headers[i].trim()).trim();
+            }
+            ImportColumns columns = new ImportColumns(headers);
+
+            // Lecture des données
+            int rowNumber = 1;
+            int dataRows = 0;
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                rowNumber++;
+                if (line.length < headers.length) {
+                    continue; // Ignorer les lignes incomplètes
+                }
+                for (int i = 0; i < line.length; i++) {
+                    line[i] = line[i].trim();
+                }
+                dataRows++;
+                rowConsumer.accept(new StudentImportRow(rowNumber, columns, line));
+            }
+            return dataRows;
+
+        } catch (IOException | CsvValidationException e) {
+            log.error("Erreur lors de la lecture du fichier CSV: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                    "Erreur lors de la lecture du fichier CSV: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Résout un nom d'encodage déclaré par l'appelant
+     * @param charsetName nom de l'encodage (UTF-8, ISO-8859-1, windows-1252...), null ou vide pour le détecter
+     * @return l'encodage, ou null s'il doit être détecté
+     */
+    static Charset declaredCharset(String charsetName) {
+        if (charsetName == null || charsetName.isBlank()) {
+            return null;
+        }
+        try {
+            return Charset.forName(charsetName.trim());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.INVALID_INPUT,
+                    "Encodage de fichier non supporté", Map.of("charset", charsetName));
+        }
+    }
+
+    // ============ DÉTECTION DE L'ENCODAGE ============
+
+    /**
+     * Détermine l'encodage du flux et consomme la marque d'ordre des octets éventuelle
+     */
+    private static Charset charset(BufferedInputStream is, Charset declaredCharset) throws IOException {
+        is.mark(SNIFF_BYTES);
+        byte[] head = is.readNBytes(SNIFF_BYTES);
+        is.reset();
+
+        Charset bomCharset = null;
+        int bomLength = 0;
+        if (startsWith(head, 0xEF, 0xBB, 0xBF)) {
+            bomCharset = StandardCharsets.UTF_8;
+            bomLength = 3;
+        } else if (startsWith(head, 0xFE, 0xFF)) {
+            bomCharset = StandardCharsets.UTF_16BE;
+            bomLength = 2;
+        } else if (startsWith(head, 0xFF, 0xFE)) {
+            bomCharset = StandardCharsets.UTF_16LE;
+            bomLength = 2;
+        }
+        is.skipNBytes(bomLength);
+
+        if (declaredCharset != null) {
+            return declaredCharset;
+        }
+        if (bomCharset != null) {
+            return bomCharset;
+        }
+
+        Charset detected = isUtf8(head, head.length == SNIFF_BYTES) ? StandardCharsets.UTF_8 : WINDOWS_1252;
+        log.debug("Encodage détecté pour le fichier CSV: {}", detected);
+        return detected;
+    }
+
+    /**
+     * Vérifie que les octets sont de l'UTF-8 valide ; si l'échantillon est tronqué,
+     * une séquence incomplète en fin d'échantillon est tolérée
+     */
+    private static boolean isUtf8(byte[] bytes, boolean truncated) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        int length = bytes.length;
+        if (truncated) {
+            // Retirer une éventuelle séquence multi-octets coupée (au plus 3 octets de continuation)
+            int back = 0;
+            while (back < 3 && length - back - 1 >= 0 && (bytes[length - back - 1] & 0xC0) == 0x80) {
+                back++;
+            }
+            if (length - back - 1 >= 0 && (bytes[length - back - 1] & 0xC0) == 0xC0) {
+                length = length - back - 1;
+            }
+        }
+        try {
+            decoder.decode(ByteBuffer.wrap(bytes, 0, length));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, int... prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
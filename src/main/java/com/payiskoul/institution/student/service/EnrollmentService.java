@@ -7,6 +7,7 @@ import com.payiskoul.institution.exception.ErrorCode;
 import com.payiskoul.institution.exception.StudentNotFoundException;
 import com.payiskoul.institution.program.model.TrainingOffer;
 import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.program.service.OfferSeatService;
 import com.payiskoul.institution.student.dto.CreateEnrollmentRequest;
 import com.payiskoul.institution.student.dto.EnrollmentResponse;
 import com.payiskoul.institution.student.model.Enrollment;
@@ -38,6 +39,7 @@ public class EnrollmentService {
     private final TrainingOfferRepository trainingOfferRepository; // Remplace ProgramLevelRepository
     private final TuitionService tuitionService;
     private final ClassroomService classroomService;
+    private final OfferSeatService offerSeatService;
 
     /**
      * Inscrit un étudiant à une offre de formation
@@ -101,7 +103,9 @@ public class EnrollmentService {
     }
 
     /**
-     * Inscrit un étudiant à une offre de formation
+     * Inscrit un étudiant à une offre de formation.
+     * Une place sous maxStudents est réservée de façon atomique avant l'écriture de l'inscription ; si l'inscription
+     * est refusée ou ne peut être enregistrée, cette place et la place de classe attribuée par l'appelant sont rendues.
      * @param studentId ID de l'étudiant
      * @param offerId ID de l'offre (remplace programLevelId)
      * @param institutionId ID de l'institution
@@ -128,8 +132,22 @@ public class EnrollmentService {
                 .enrolledAt(LocalDateTime.now())
                 .build();
 
-        // Sauvegarder l'inscription
-        Enrollment savedEnrollment = enrollmentRepository.save(enrollment);
+        // Réserver une place sous maxStudents, puis sauvegarder l'inscription
+        Enrollment savedEnrollment;
+        try {
+            offerSeatService.reserve(offerId);
+            try {
+                savedEnrollment = enrollmentRepository.save(enrollment);
+            } catch (RuntimeException e) {
+                offerSeatService.release(offerId, 1);
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            if (classroomId != null) {
+                classroomService.removeStudentFromClassroom(classroomId);
+            }
+            throw e;
+        }
         log.info("Inscription créée avec succès. ID: {}", savedEnrollment.getId());
 
         // Récupérer l'offre pour les frais de scolarité
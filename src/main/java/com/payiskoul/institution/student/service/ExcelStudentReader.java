@@ -0,0 +1,273 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lecture en flux de la première feuille d'un fichier Excel (.xlsx) d'importation d'étudiants.
+ * <p>
+ * S'appuie sur le modèle événementiel de POI (XSSFReader + handler SAX) : aucune représentation du classeur
+ * n'est construite en mémoire et chaque ligne est transmise au consommateur dès sa lecture.
+ * Le fichier est d'abord copié sur disque, OPCPackage lisant l'archive de façon aléatoire.
+ * <p>
+ * Seul le format .xlsx est lu : un classeur Excel 97-2003 (.xls) est refusé d'emblée avec FILE_PROCESSING_ERROR.
+ * <p>
+ * Coût mémoire : seule la table des chaînes partagées ({@link ReadOnlySharedStringsTable}) est chargée entièrement,
+ * soit tous les textes distincts du classeur (noms, e-mails...), de l'ordre de la taille décompressée de
+ * sharedStrings.xml. Elle reste bornée par la taille maximale de téléversement (spring.servlet.multipart.max-file-size).
+ * La variante de POI adossée à un fichier temporaire (TempFileSharedStringsTable) demanderait la dépendance H2 MVStore.
+ */
+@Component
+@Slf4j
+class ExcelStudentReader {
+
+    /**
+     * Lit le fichier et transmet chaque ligne de données non vide au consommateur
+     * @param file fichier Excel téléversé
+     * @param headerCleaner normalisation des noms d'en-têtes
+     * @param rowConsumer traitement d'une ligne
+     * @return le nombre de lignes de données lues
+     */
+    int read(MultipartFile file, UnaryOperator<String> headerCleaner, Consumer<StudentImportRow> rowConsumer) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("student-import-", ".xlsx");
+            try (InputStream is = file.getInputStream()) {
+                Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return read(tempFile, headerCleaner, rowConsumer);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Erreur lors de la copie du fichier Excel: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                    "Erreur lors de la lecture du fichier Excel: " + e.getMessage(), null);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Lit un fichier Excel déjà présent sur disque (fichier d'un job d'importation)
+     * @param file chemin du fichier Excel
+     * @param headerCleaner normalisation des noms d'en-têtes
+     * @param rowConsumer traitement d'une ligne
+     * @return le nombre de lignes de données lues
+     */
+    int read(Path file, UnaryOperator<String> headerCleaner, Consumer<StudentImportRow> rowConsumer) {
+        try {
+            return read(file.toFile(), headerCleaner, rowConsumer);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Erreur lors de la lecture du fichier Excel: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                    "Erreur lors de la lecture du fichier Excel: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Vérifie, d'après sa signature, que le fichier est un classeur .xlsx
+     * @param file chemin du fichier
+     * @param fileName nom du fichier rapporté dans l'erreur
+     * @throws BusinessException FILE_PROCESSING_ERROR pour un classeur .xls, INVALID_FILE_FORMAT pour un autre fichier
+     */
+    static void requireXlsx(Path file, String fileName) {
+        FileMagic magic;
+        try (InputStream is = FileMagic.prepareToCheckMagic(Files.newInputStream(file))) {
+            magic = FileMagic.valueOf(is);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.FILE_PROCESSING_ERROR,
+                    "Impossible de lire le fichier Excel: " + e.getMessage(), Map.of("fileName", fileName));
+        }
+        if (magic == FileMagic.OLE2) {
+            throw new BusinessException(ErrorCode.FILE_PROCESSING_ERROR,
+                    "Les classeurs Excel 97-2003 (.xls) ne sont pas pris en charge : enregistrez le fichier au format .xlsx",
+                    Map.of("fileName", fileName));
+        }
+        if (magic != FileMagic.OOXML) {
+            throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                    "Le fichier n'est pas un classeur Excel .xlsx", Map.of("fileName", fileName));
+        }
+    }
+
+    private int read(File file, UnaryOperator<String> headerCleaner, Consumer<StudentImportRow> rowConsumer)
+            throws Exception {
+        requireXlsx(file.toPath(), file.getName());
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                        "Le fichier Excel ne contient aucune feuille", null);
+            }
+
+            RowHandler rowHandler = new RowHandler(headerCleaner, rowConsumer);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(
+                    reader.getStylesTable(),
+                    new ReadOnlySharedStringsTable(pkg),
+                    rowHandler,
+                    new ImportDataFormatter(),
+                    false));
+
+            // Lecture de la première feuille
+            try (InputStream sheet = sheets.next()) {
+                parser.parse(new InputSource(sheet));
+            }
+
+            if (rowHandler.headers == null) {
+                throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                        "Le fichier Excel ne contient pas d'en-têtes valides", null);
+            }
+            return rowHandler.dataRows;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (Exception e) {
+            log.warn("Impossible de supprimer le fichier temporaire {}: {}", path, e.getMessage());
+        }
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Reçoit les cellules de la feuille ligne par ligne.
+     * La ligne d'en-tête est la première dont la cellule A est un libellé sans ':' (les lignes d'information
+     * sur l'offre et la classe du template sont ignorées), les lignes suivantes sont des données.
+     */
+    private static final class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final UnaryOperator<String> headerCleaner;
+        private final Consumer<StudentImportRow> rowConsumer;
+
+        // En-têtes détectés et colonne Excel de chacun
+        private ImportColumns headers;
+        private int[] sourceColumns;
+        private final Map<Integer, String> currentCells = new HashMap<>();
+        private int currentColumn;
+        private int dataRows;
+
+        private RowHandler(UnaryOperator<String> headerCleaner, Consumer<StudentImportRow> rowConsumer) {
+            this.headerCleaner = headerCleaner;
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            currentCells.clear();
+            currentColumn = -1;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            currentColumn = cellReference != null ? new CellReference(cellReference).getCol() : currentColumn + 1;
+            if (formattedValue != null) {
+                currentCells.put(currentColumn, formattedValue.trim());
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (headers == null) {
+                detectHeaders();
+                return;
+            }
+
+            // Ignorer les lignes vides
+            String[] cells = new String[sourceColumns.length];
+            boolean isEmpty = true;
+            for (int i = 0; i < sourceColumns.length; i++) {
+                cells[i] = currentCells.getOrDefault(sourceColumns[i], "");
+                isEmpty &= cells[i].isEmpty();
+            }
+            if (isEmpty) {
+                return;
+            }
+
+            dataRows++;
+            rowConsumer.accept(new StudentImportRow(rowNum + 1, headers, cells));
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            // sans objet pour l'importation
+        }
+
+        private void detectHeaders() {
+            String firstCell = currentCells.get(0);
+            if (firstCell == null || firstCell.isEmpty() || firstCell.contains(":") || isNumeric(firstCell)) {
+                return;
+            }
+
+            // Lecture des en-têtes et nettoyage des suffixes explicatifs
+            Map<Integer, String> detected = new TreeMap<>();
+            currentCells.forEach((column, value) -> {
+                if (!value.isEmpty()) {
+                    detected.put(column, headerCleaner.apply(value));
+                }
+            });
+            headers = new ImportColumns(detected.values().toArray(String[]::new));
+            sourceColumns = detected.keySet().stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static boolean isNumeric(String value) {
+            try {
+                Double.parseDouble(value);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Formatage des valeurs numériques identique à l'ancienne lecture DOM :
+     * dates au format ISO (YYYY-MM-DD), nombres entiers sans ".0", autres nombres bruts
+     */
+    private static final class ImportDataFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value).toLocalDate().toString();
+            }
+            if (value == (long) value) {
+                return String.valueOf((long) value);
+            }
+            return String.valueOf(value);
+        }
+    }
+}
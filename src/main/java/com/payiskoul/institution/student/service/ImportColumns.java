@@ -0,0 +1,37 @@
+package com.payiskoul.institution.student.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * En-têtes normalisés d'un fichier d'importation (matricule, fullName, gender...), résolus une fois par fichier
+ * et partagés par toutes ses lignes
+ */
+final class ImportColumns {
+
+    private final String[] names;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    ImportColumns(String[] names) {
+        this.names = names;
+        for (int i = 0; i < names.length; i++) {
+            positions.putIfAbsent(names[i], i);
+        }
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int position) {
+        return names[position];
+    }
+
+    /**
+     * Position d'un en-tête
+     * @return la position, ou -1 si l'en-tête est absent du fichier
+     */
+    int position(String name) {
+        return positions.getOrDefault(name, -1);
+    }
+}
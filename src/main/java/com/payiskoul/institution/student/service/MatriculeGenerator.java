@@ -1,12 +1,23 @@
 package com.payiskoul.institution.student.service;
 
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service de génération de matricules pour les étudiants
@@ -16,6 +27,11 @@ import java.util.Optional;
  * 25 : Année d'enregistrement (ex. 2025)
  * A : Lettre qui change lorsqu'on atteint la limite de combinaisons
  * 0123 : Numéro séquentiel sur 4 chiffres (avec zéros initiaux)
+ * <p>
+ * Allocation par blocs (hi-lo) : chaque instance réserve en base une plage de positions par séquence (année, pays)
+ * en une seule mise à jour atomique, puis distribue localement ces positions sans verrou. Les positions réservées
+ * mais non distribuées (arrêt de l'instance, changement d'année) sont perdues : la séquence peut donc présenter
+ * des trous, mais jamais de doublons.
  */
 @Component
 public class MatriculeGenerator {
@@ -23,12 +39,18 @@ public class MatriculeGenerator {
     private static final String PLATFORM_ID = "PI";
     private static final char[] LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
     private static final int MAX_SEQUENCE = 10000; // 0000-9999
+    private static final int MAX_POSITION = LETTERS.length * MAX_SEQUENCE;
 
     private final MongoTemplate mongoTemplate;
-    private final Object lock = new Object(); // Pour la synchronisation
+    private final int blockSize;
 
-    public MatriculeGenerator(MongoTemplate mongoTemplate) {
+    // Bloc de positions en cours de distribution, par séquence
+    private final ConcurrentMap<String, SequenceBlock> blocks = new ConcurrentHashMap<>();
+
+    public MatriculeGenerator(MongoTemplate mongoTemplate,
+                              @Value("${payiskoul.student.matricule.block-size:100}") int blockSize) {
         this.mongoTemplate = mongoTemplate;
+        this.blockSize = Math.max(1, blockSize);
     }
 
     /**
@@ -37,48 +59,105 @@ public class MatriculeGenerator {
      * @return un matricule unique au format PI-XX-25A0123
      */
     public String generateMatricule(String countryCode) {
+        return generateMatricules(countryCode, 1).get(0);
+    }
+
+    /**
+     * Génère plusieurs matricules en un seul appel.
+     * Les demandes d'au moins un bloc sont réservées directement en base (matricules consécutifs),
+     * les plus petites sont servies depuis le bloc local de l'instance.
+     *
+     * @param countryCode code du pays (ex: CI pour Côte d'Ivoire)
+     * @param count nombre de matricules à générer
+     * @return les matricules générés, dans l'ordre de la séquence
+     */
+    public List<String> generateMatricules(String countryCode, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+
         // S'assurer que le code pays est en majuscules et limité à 2 caractères
         String normalizedCountryCode = normalizeCountryCode(countryCode);
 
-        synchronized (lock) {
-            // Récupérer l'année courante (25 pour 2025)
-            String year = String.valueOf(LocalDateTime.now().getYear()).substring(2);
-
-            // Récupérer le dernier matricule généré pour cette année et ce pays
-            String sequenceId = year + "-" + normalizedCountryCode;
-            Optional<MatriculeSequence> currentSequence = findCurrentSequence(sequenceId);
-
-            if (currentSequence.isEmpty()) {
-                // Premier matricule de l'année pour ce pays, commencer par A0000
-                MatriculeSequence newSequence = new MatriculeSequence(sequenceId, 0, 0);
-                mongoTemplate.save(newSequence);
-                return formatMatricule(normalizedCountryCode, year, 0, 0);
-            } else {
-                MatriculeSequence sequence = currentSequence.get();
-                int letterIndex = sequence.getLetterIndex();
-                int numberSequence = sequence.getNumberSequence();
-
-                // Incrémenter la séquence
-                numberSequence++;
-
-                // Si on atteint la limite de la séquence numérique, passer à la lettre suivante
-                if (numberSequence >= MAX_SEQUENCE) {
-                    letterIndex++;
-                    numberSequence = 0;
-
-                    // Vérifier si on a épuisé toutes les lettres
-                    if (letterIndex >= LETTERS.length) {
-                        throw new RuntimeException("Toutes les combinaisons de matricules ont été épuisées pour cette année et ce pays.");
-                    }
-                }
+        // Récupérer l'année courante (25 pour 2025)
+        String year = String.valueOf(LocalDateTime.now().getYear()).substring(2);
+        String sequenceId = year + "-" + normalizedCountryCode;
 
-                // Mettre à jour la séquence en base de données
-                sequence.setLetterIndex(letterIndex);
-                sequence.setNumberSequence(numberSequence);
-                mongoTemplate.save(sequence);
+        List<String> matricules = new ArrayList<>(count);
+        if (count >= blockSize) {
+            SequenceBlock block = allocate(sequenceId, count);
+            for (int position = block.first; position < block.end; position++) {
+                matricules.add(formatMatricule(normalizedCountryCode, year, position));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                matricules.add(formatMatricule(normalizedCountryCode, year, nextPosition(sequenceId)));
+            }
+        }
+        return matricules;
+    }
 
-                return formatMatricule(normalizedCountryCode, year, letterIndex, numberSequence);
+    /**
+     * Position suivante du bloc local de la séquence ; un nouveau bloc est réservé en base lorsque le bloc courant
+     * est épuisé. Un seul thread effectue la réservation, les autres reprennent sur le nouveau bloc.
+     */
+    private int nextPosition(String sequenceId) {
+        while (true) {
+            SequenceBlock block = blocks.get(sequenceId);
+            if (block != null) {
+                int position = block.next.getAndIncrement();
+                if (position < block.end) {
+                    return position;
+                }
             }
+            blocks.compute(sequenceId, (id, current) -> current == block ? allocate(id, blockSize) : current);
+        }
+    }
+
+    /**
+     * Réserve en base un bloc de {@code size} positions consécutives
+     */
+    private SequenceBlock allocate(String sequenceId, int size) {
+        MatriculeSequence sequence = reserve(sequenceId, size);
+        int last = sequence.getLetterIndex() * MAX_SEQUENCE + sequence.getNumberSequence();
+        return new SequenceBlock(last - size + 1, last + 1);
+    }
+
+    /**
+     * Avance la séquence de {@code count} positions en une seule opération findAndModify, sûre entre plusieurs
+     * instances de l'application. Le passage à la lettre suivante (A9999 vers B0000) est calculé dans la même mise à
+     * jour : la séquence est traitée comme une position unique lettre * 10000 + numéro. Le document est créé s'il
+     * n'existe pas (premier matricule de l'année : A0000).
+     *
+     * @return la séquence après la mise à jour, positionnée sur le dernier matricule du bloc
+     */
+    private MatriculeSequence reserve(String sequenceId, int count) {
+        Query query = new Query(Criteria.where("sequenceId").is(sequenceId));
+
+        // Position suivante : -1 si la séquence vient d'être créée, de sorte que le premier matricule soit A0000
+        Document next = new Document("$add", List.of(
+                new Document("$ifNull", List.of(
+                        new Document("$add", List.of(
+                                new Document("$multiply", List.of("$letterIndex", MAX_SEQUENCE)),
+                                "$numberSequence")),
+                        -1)),
+                count));
+        Document letterIndex = new Document("$let", new Document("vars", new Document("next", next))
+                .append("in", new Document("$toInt", new Document("$floor",
+                        new Document("$divide", List.of("$$next", MAX_SEQUENCE))))));
+        Document numberSequence = new Document("$let", new Document("vars", new Document("next", next))
+                .append("in", new Document("$mod", List.of("$$next", MAX_SEQUENCE))));
+
+        AggregationOperation set = context -> new Document("$set",
+                new Document("letterIndex", letterIndex).append("numberSequence", numberSequence));
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
+        try {
+            return mongoTemplate.findAndModify(query, AggregationUpdate.from(List.of(set)), options, MatriculeSequence.class);
+        } catch (DuplicateKeyException e) {
+            // Deux instances ont créé la séquence en même temps : l'index unique a rejeté la seconde création,
+            // le document existe désormais et la mise à jour peut être rejouée
+            return mongoTemplate.findAndModify(query, AggregationUpdate.from(List.of(set)), options, MatriculeSequence.class);
         }
     }
 
@@ -106,27 +185,41 @@ public class MatriculeGenerator {
     }
 
     /**
-     * Formate le matricule avec les valeurs données
+     * Formate le matricule correspondant à une position de la séquence (lettre * 10000 + numéro)
      */
-    private String formatMatricule(String countryCode, String year, int letterIndex, int numberSequence) {
-        char letter = LETTERS[letterIndex];
+    private String formatMatricule(String countryCode, String year, int position) {
+        // Vérifier si on a épuisé toutes les lettres
+        if (position >= MAX_POSITION) {
+            throw new RuntimeException("Toutes les combinaisons de matricules ont été épuisées pour cette année et ce pays.");
+        }
+        char letter = LETTERS[position / MAX_SEQUENCE];
+        int numberSequence = position % MAX_SEQUENCE;
         String number = String.format("%04d", numberSequence);
         return String.format("%s-%s-%s%s%s", PLATFORM_ID, countryCode, year, letter, number);
     }
 
     /**
-     * Récupère la séquence actuelle pour l'année et le pays donnés
+     * Plage de positions réservée en base et distribuée localement
      */
-    private Optional<MatriculeSequence> findCurrentSequence(String sequenceId) {
-        Query query = new Query(Criteria.where("sequenceId").is(sequenceId));
-        return Optional.ofNullable(mongoTemplate.findOne(query, MatriculeSequence.class));
+    private static final class SequenceBlock {
+        private final int first;
+        private final int end; // exclusive
+        private final AtomicInteger next;
+
+        private SequenceBlock(int first, int end) {
+            this.first = first;
+            this.end = end;
+            this.next = new AtomicInteger(first);
+        }
     }
 
     /**
      * Classe interne pour stocker la séquence de génération des matricules en base de données
      */
-    private static class MatriculeSequence {
+    @org.springframework.data.mongodb.core.mapping.Document("matriculeSequence")
+    static class MatriculeSequence {
         private String id;
+        @Indexed(unique = true)
         private String sequenceId; // Format: "année-pays" (ex: "25-CI")
         private int letterIndex;
         private int numberSequence;
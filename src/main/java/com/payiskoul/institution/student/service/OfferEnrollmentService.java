@@ -8,14 +8,17 @@ import com.payiskoul.institution.exception.StudentNotFoundException;
 import com.payiskoul.institution.program.model.OfferType;
 import com.payiskoul.institution.program.model.TrainingOffer;
 import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.program.service.OfferSeatService;
 import com.payiskoul.institution.student.dto.*;
 import com.payiskoul.institution.student.model.Enrollment;
 import com.payiskoul.institution.student.model.Student;
 import com.payiskoul.institution.student.repository.EnrollmentRepository;
 import com.payiskoul.institution.student.repository.StudentRepository;
+import com.payiskoul.institution.student.service.RosterLoader.Roster;
+import com.payiskoul.institution.student.service.StudentBulkImporter.ImportSession;
 import com.payiskoul.institution.tuition.model.PaymentStatus;
 import com.payiskoul.institution.tuition.model.TuitionStatus;
-import com.payiskoul.institution.tuition.repository.TuitionStatusRepository;
+import com.payiskoul.institution.tuition.service.PaymentEntitlementCache;
 import com.payiskoul.institution.tuition.service.TuitionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,6 +33,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,15 +44,28 @@ public class OfferEnrollmentService {
     private final EnrollmentRepository enrollmentRepository;
     private final StudentRepository studentRepository;
     private final TrainingOfferRepository trainingOfferRepository;
-    private final TuitionStatusRepository tuitionStatusRepository;
     private final TuitionService tuitionService;
+    private final PaymentEntitlementCache paymentEntitlementCache;
     private final ClassroomService classroomService;
+    private final OfferSeatService offerSeatService;
+    private final StudentBulkImporter studentBulkImporter;
+    private final RosterLoader rosterLoader;
 
     /**
-     * Crée une inscription pour un étudiant à une offre
+     * Crée une inscription pour un étudiant à une offre.
+     * Une place sous {@code maxStudents} est réservée de façon atomique avant l'écriture de l'inscription.
      */
     @Transactional
     public EnrollmentResponse createEnrollment(OfferEnrollmentRequest request) {
+        return createEnrollment(request, false);
+    }
+
+    /**
+     * Crée une inscription pour un étudiant à une offre
+     * @param requireClassroom si vrai, une offre académique sans place en classe refuse l'inscription
+     *                         au lieu d'inscrire l'étudiant sans classe
+     */
+    EnrollmentResponse createEnrollment(OfferEnrollmentRequest request, boolean requireClassroom) {
         log.info("Création d'une inscription pour l'étudiant {} vers l'offre {}",
                 request.student().id(), request.offer().id());
 
@@ -79,39 +96,53 @@ public class OfferEnrollmentService {
                     ));
         }
 
-        // 4. Assigner à une classe si c'est une offre académique
+        // 4. Réserver une place sous maxStudents, rendue si l'inscription n'est pas enregistrée
+        offerSeatService.reserve(offer.getId());
+
+        // 5. Assigner à une classe si c'est une offre académique
         String assignedClassroomId = null;
-        if (offer.getOfferType() == OfferType.ACADEMIC) {
-            try {
-                assignedClassroomId = classroomService.addStudentToClassroom(
-                        offer.getId(), request.classroomId());
-                log.info("Étudiant assigné à la classe: {}", assignedClassroomId);
-            } catch (BusinessException e) {
-                if (e.getErrorCode() == ErrorCode.NO_CLASSROOM_AVAILABLE) {
-                    log.warn("Aucune classe disponible pour cette offre: {}", offer.getId());
-                } else if (e.getErrorCode() == ErrorCode.CLASSROOM_FULL) {
-                    log.warn("La classe spécifiée est complète: {}", request.classroomId());
-                } else {
-                    throw e;
+        Enrollment savedEnrollment;
+        try {
+            if (offer.getOfferType() == OfferType.ACADEMIC) {
+                try {
+                    assignedClassroomId = classroomService.addStudentToClassroom(
+                            offer.getId(), request.classroomId());
+                    log.info("Étudiant assigné à la classe: {}", assignedClassroomId);
+                } catch (BusinessException e) {
+                    if (requireClassroom) {
+                        throw e;
+                    } else if (e.getErrorCode() == ErrorCode.NO_CLASSROOM_AVAILABLE) {
+                        log.warn("Aucune classe disponible pour cette offre: {}", offer.getId());
+                    } else if (e.getErrorCode() == ErrorCode.CLASSROOM_FULL) {
+                        log.warn("La classe spécifiée est complète: {}", request.classroomId());
+                    } else {
+                        throw e;
+                    }
                 }
             }
-        }
 
-        // 5. Créer l'inscription
-        Enrollment enrollment = Enrollment.builder()
-                .studentId(student.getId())
-                .programLevelId(offer.getId())
-                .institutionId(request.institutionId())
-                .classroomId(assignedClassroomId)
-                .academicYear(offer.getAcademicYear())
-                .status(Enrollment.EnrollmentStatus.ENROLLED)
-                .enrolledAt(LocalDateTime.now())
-                .build();
-
-        Enrollment savedEnrollment = enrollmentRepository.save(enrollment);
+            // 6. Créer l'inscription
+            Enrollment enrollment = Enrollment.builder()
+                    .studentId(student.getId())
+                    .programLevelId(offer.getId())
+                    .institutionId(request.institutionId())
+                    .classroomId(assignedClassroomId)
+                    .academicYear(offer.getAcademicYear())
+                    .status(Enrollment.EnrollmentStatus.ENROLLED)
+                    .enrolledAt(LocalDateTime.now())
+                    .build();
+
+            savedEnrollment = enrollmentRepository.save(enrollment);
+        } catch (RuntimeException e) {
+            offerSeatService.release(offer.getId(), 1);
+            if (assignedClassroomId != null) {
+                classroomService.removeStudentFromClassroom(assignedClassroomId);
+            }
+            throw e;
+        }
         log.info("Inscription créée avec succès: {}", savedEnrollment.getId());
 
-        // 6. Créer le statut de paiement
+        // 7. Créer le statut de paiement
         if (offer.getTuitionAmount() != null && offer.getTuitionAmount().compareTo(BigDecimal.ZERO) > 0) {
             tuitionService.createTuitionStatus(
                     savedEnrollment.getId(),
@@ -126,6 +157,37 @@ public class OfferEnrollmentService {
         return mapToEnrollmentResponse(savedEnrollment, student, offer);
     }
 
+    /**
+     * Inscrit une cohorte d'étudiants existants à une offre.
+     * Contrairement à {@link #createEnrollment}, un étudiant introuvable ou déjà inscrit ne fait pas échouer
+     * la demande : le résultat est rapporté étudiant par étudiant.
+     */
+    public BulkEnrollmentResponse enrollStudents(BulkEnrollmentRequest request) {
+        log.info("Inscription en masse de {} étudiants à l'offre {}", request.studentIds().size(), request.offerId());
+
+        ImportSession session = studentBulkImporter.open(request.offerId(), request.classroomId());
+        TrainingOffer offer = session.offer();
+
+        // Vérifier que l'offre appartient à l'institution
+        if (!offer.getInstitutionId().equals(request.institutionId())) {
+            throw new BusinessException(ErrorCode.INVALID_INSTITUTION_PROGRAM,
+                    "Cette offre n'appartient pas à cette institution",
+                    Map.of("institutionId", request.institutionId(), "offerId", request.offerId()));
+        }
+
+        // Seules les offres académiques affectent les inscrits à une classe
+        if (offer.getOfferType() != OfferType.ACADEMIC) {
+            session.withoutClassrooms();
+        }
+
+        List<BulkEnrollmentResponse.Outcome> results = studentBulkImporter.enrollStudents(session, request.studentIds());
+        int enrolled = (int) results.stream()
+                .filter(outcome -> outcome.status() == BulkEnrollmentResponse.OutcomeStatus.ENROLLED)
+                .count();
+
+        return new BulkEnrollmentResponse(offer.getId(), enrolled, results.size() - enrolled, results);
+    }
+
     /**
      * Met à jour le statut d'une inscription
      */
@@ -138,6 +200,13 @@ public class OfferEnrollmentService {
                 .orElseThrow(() -> new BusinessException(ErrorCode.ENROLLMENT_ALREADY_EXISTS,
                         "Inscription introuvable", Map.of("enrollmentId", enrollmentId)));
 
+        // Une inscription qui redevient ENROLLED reprend une place sous maxStudents, une inscription qui le quitte la rend
+        boolean wasEnrolled = enrollment.getStatus() == Enrollment.EnrollmentStatus.ENROLLED;
+        boolean enrolled = request.status() == Enrollment.EnrollmentStatus.ENROLLED;
+        if (enrolled && !wasEnrolled) {
+            offerSeatService.reserve(enrollment.getProgramLevelId());
+        }
+
         // Mettre à jour le statut
         enrollment.setStatus(request.status());
         enrollment.setUpdatedAt(LocalDateTime.now());
@@ -147,8 +216,20 @@ public class OfferEnrollmentService {
             enrollment.setCompletedAt(LocalDateTime.now());
         }
 
-        Enrollment updatedEnrollment = enrollmentRepository.save(enrollment);
+        Enrollment updatedEnrollment;
+        try {
+            updatedEnrollment = enrollmentRepository.save(enrollment);
+        } catch (RuntimeException e) {
+            if (enrolled && !wasEnrolled) {
+                offerSeatService.release(enrollment.getProgramLevelId(), 1);
+            }
+            throw e;
+        }
+        if (wasEnrolled && !enrolled) {
+            offerSeatService.release(updatedEnrollment.getProgramLevelId(), 1);
+        }
         log.info("Statut de l'inscription mis à jour avec succès");
+        paymentEntitlementCache.invalidate(updatedEnrollment.getStudentId(), updatedEnrollment.getProgramLevelId());
 
         return new EnrollmentStatusUpdateResponse(
                 updatedEnrollment.getId(),
@@ -183,9 +264,12 @@ public class OfferEnrollmentService {
         // Récupérer les inscriptions paginées
         Page<Enrollment> enrollmentsPage = enrollmentRepository.findByProgramLevelId(offerId, pageable);
 
+        // Étudiants et statuts de paiement de la page : une requête $in par collection
+        Roster roster = rosterLoader.load(enrollmentsPage.getContent(), true, RosterLoader.STUDENT_SUMMARY_FIELDS);
+
         // Mapper vers les DTOs avec informations de paiement
         List<StudentOfferInfo> students = enrollmentsPage.getContent().stream()
-                .map(enrollment -> mapToStudentOfferInfo(enrollment, offer))
+                .map(enrollment -> mapToStudentOfferInfo(enrollment, offer, roster))
                 .collect(Collectors.toList());
 
         return new StudentListResponse(
@@ -235,11 +319,8 @@ public class OfferEnrollmentService {
     /**
      * Mappe une inscription vers les informations d'étudiant avec données de paiement
      */
-    private StudentOfferInfo mapToStudentOfferInfo(Enrollment enrollment, TrainingOffer offer) {
-        // Récupérer l'étudiant
-        Student student = studentRepository.findById(enrollment.getStudentId())
-                .orElseThrow(() -> new StudentNotFoundException("Étudiant introuvable",
-                        Map.of("studentId", enrollment.getStudentId())));
+    private StudentOfferInfo mapToStudentOfferInfo(Enrollment enrollment, TrainingOffer offer, Roster roster) {
+        Student student = roster.student(enrollment);
 
         // Récupérer les informations de classe si applicable
         ClassroomInfo classroomInfo = null;
@@ -247,18 +328,12 @@ public class OfferEnrollmentService {
             classroomInfo = new ClassroomInfo(enrollment.getClassroomId(), "Classe"); // Nom simplifié
         }
 
-        // Récupérer les informations de paiement
-        List<TuitionStatus> tuitionStatuses = tuitionStatusRepository.findByEnrollmentId(enrollment.getId());
-        PaymentStatus paymentStatus = PaymentStatus.UNPAID;
-        BigDecimal amountPaid = BigDecimal.ZERO;
-        BigDecimal amountRemaining = offer.getTuitionAmount() != null ? offer.getTuitionAmount() : BigDecimal.ZERO;
-
-        if (!tuitionStatuses.isEmpty()) {
-            TuitionStatus tuitionStatus = tuitionStatuses.get(0);
-            paymentStatus = tuitionStatus.getPaymentStatus();
-            amountPaid = tuitionStatus.getPaidAmount();
-            amountRemaining = tuitionStatus.getRemainingAmount();
-        }
+        // Informations de paiement
+        Optional<TuitionStatus> tuitionStatus = roster.tuitionStatus(enrollment);
+        PaymentStatus paymentStatus = tuitionStatus.map(TuitionStatus::getPaymentStatus).orElse(PaymentStatus.UNPAID);
+        BigDecimal amountPaid = tuitionStatus.map(TuitionStatus::getPaidAmount).orElse(BigDecimal.ZERO);
+        BigDecimal amountRemaining = tuitionStatus.map(TuitionStatus::getRemainingAmount)
+                .orElse(offer.getTuitionAmount() != null ? offer.getTuitionAmount() : BigDecimal.ZERO);
 
         return new StudentOfferInfo(
                 student.getId(),
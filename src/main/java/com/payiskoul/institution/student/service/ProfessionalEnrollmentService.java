@@ -6,12 +6,15 @@ import com.payiskoul.institution.exception.StudentNotFoundException;
 import com.payiskoul.institution.program.model.OfferType;
 import com.payiskoul.institution.program.model.TrainingOffer;
 import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.program.service.OfferSeatService;
 import com.payiskoul.institution.student.dto.*;
 import com.payiskoul.institution.student.model.Enrollment;
 import com.payiskoul.institution.student.model.Student;
 import com.payiskoul.institution.student.repository.EnrollmentRepository;
 import com.payiskoul.institution.student.repository.StudentRepository;
+import com.payiskoul.institution.student.service.RosterLoader.Roster;
 import com.payiskoul.institution.tuition.model.TuitionStatus;
+import com.payiskoul.institution.tuition.service.PaymentEntitlementCache;
 import com.payiskoul.institution.tuition.service.TuitionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -39,7 +42,10 @@ public class ProfessionalEnrollmentService {
     private final EnrollmentRepository enrollmentRepository;
     private final StudentRepository studentRepository;
     private final TrainingOfferRepository trainingOfferRepository;
+    private final OfferSeatService offerSeatService;
     private final TuitionService tuitionService;
+    private final PaymentEntitlementCache paymentEntitlementCache;
+    private final RosterLoader rosterLoader;
 
     /**
      * Inscrit un étudiant à une offre professionnelle
@@ -81,6 +87,9 @@ public class ProfessionalEnrollmentService {
                     Map.of("studentId", studentId, "offerId", offerId));
         }
 
+        // Réserver une place sous maxStudents, rendue si l'inscription n'est pas enregistrée
+        offerSeatService.reserve(offerId);
+
         // Créer l'inscription (sans classe pour les offres professionnelles)
         Enrollment enrollment = Enrollment.builder()
                 .studentId(studentId)
@@ -92,7 +101,13 @@ public class ProfessionalEnrollmentService {
                 .enrolledAt(LocalDateTime.now())
                 .build();
 
-        Enrollment savedEnrollment = enrollmentRepository.save(enrollment);
+        Enrollment savedEnrollment;
+        try {
+            savedEnrollment = enrollmentRepository.save(enrollment);
+        } catch (RuntimeException e) {
+            offerSeatService.release(offerId, 1);
+            throw e;
+        }
         log.info("Inscription créée avec succès: {}", savedEnrollment.getId());
 
         // Créer le statut de paiement si nécessaire
@@ -143,9 +158,12 @@ public class ProfessionalEnrollmentService {
         // Récupérer les inscriptions paginées
         Page<Enrollment> enrollmentsPage = enrollmentRepository.findByProgramLevelId(offerId, pageable);
 
+        // Étudiants et statuts de paiement de la page : une requête $in par collection
+        Roster roster = rosterLoader.load(enrollmentsPage.getContent(), true, RosterLoader.STUDENT_SUMMARY_FIELDS);
+
         // Mapper vers les DTOs avec informations de paiement
         List<StudentOfferInfo> students = enrollmentsPage.getContent().stream()
-                .map(enrollment -> mapToStudentOfferInfo(enrollment, offer))
+                .map(enrollment -> mapToStudentOfferInfo(enrollment, offer, roster))
                 .collect(Collectors.toList());
 
         return new StudentListResponse(
@@ -213,12 +231,18 @@ public class ProfessionalEnrollmentService {
                 .orElseThrow(() -> new BusinessException(ErrorCode.ENROLLMENT_ALREADY_EXISTS,
                         "Inscription introuvable", Map.of("enrollmentId", enrollmentId)));
 
+        boolean wasEnrolled = enrollment.getStatus() == Enrollment.EnrollmentStatus.ENROLLED;
         enrollment.setStatus(Enrollment.EnrollmentStatus.COMPLETED);
         enrollment.setCompletedAt(LocalDateTime.now());
         enrollment.setUpdatedAt(LocalDateTime.now());
 
         Enrollment updatedEnrollment = enrollmentRepository.save(enrollment);
+        // L'inscription terminée rend sa place sous maxStudents
+        if (wasEnrolled) {
+            offerSeatService.release(updatedEnrollment.getProgramLevelId(), 1);
+        }
         log.info("Inscription marquée comme terminée avec succès");
+        paymentEntitlementCache.invalidate(updatedEnrollment.getStudentId(), updatedEnrollment.getProgramLevelId());
 
         return new EnrollmentStatusUpdateResponse(
                 updatedEnrollment.getId(),
@@ -241,17 +265,14 @@ public class ProfessionalEnrollmentService {
         );
     }
 
-    private StudentOfferInfo mapToStudentOfferInfo(Enrollment enrollment, TrainingOffer offer) {
-        // Récupérer l'étudiant
-        Student student = studentRepository.findById(enrollment.getStudentId())
-                .orElseThrow(() -> new StudentNotFoundException("Étudiant introuvable",
-                        Map.of("studentId", enrollment.getStudentId())));
+    private StudentOfferInfo mapToStudentOfferInfo(Enrollment enrollment, TrainingOffer offer, Roster roster) {
+        Student student = roster.student(enrollment);
 
         // Pour les offres professionnelles, pas de classe
         //ClassroomInfo classroomInfo = null;
 
         // Récupérer les informations de paiement
-        var tuitionStatus = tuitionService.getTuitionStatusByEnrollment(enrollment.getId());
+        var tuitionStatus = roster.tuitionStatus(enrollment);
 
         return new StudentOfferInfo(
                 student.getId(),
@@ -0,0 +1,91 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.exception.StudentNotFoundException;
+import com.payiskoul.institution.student.model.Enrollment;
+import com.payiskoul.institution.student.model.Student;
+import com.payiskoul.institution.tuition.model.TuitionStatus;
+import com.payiskoul.institution.tuition.service.TuitionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Chargement groupé des données d'une page d'inscriptions (étudiants d'une classe ou d'une offre).
+ * <p>
+ * Les étudiants et les statuts de paiement de toute la page sont lus avec une requête $in par collection,
+ * en ne projetant que les champs utilisés par les réponses, au lieu de deux requêtes par inscription.
+ */
+@Component
+@RequiredArgsConstructor
+public class RosterLoader {
+
+    // Champs des étudiants utilisés par StudentOfferInfo
+    public static final String[] STUDENT_SUMMARY_FIELDS = {"matricule", "fullName", "email"};
+    // Champs des étudiants utilisés par StudentResponse
+    public static final String[] STUDENT_DETAIL_FIELDS = {"matricule", "fullName", "gender", "birthDate", "email",
+            "phone", "registeredAt"};
+
+    private final MongoTemplate mongoTemplate;
+    private final TuitionService tuitionService;
+
+    /**
+     * Charge les étudiants, et éventuellement les statuts de paiement, d'une page d'inscriptions
+     * @param enrollments inscriptions de la page
+     * @param withTuition charger aussi les statuts de paiement
+     * @param studentFields champs des étudiants à charger
+     * @return les données de la page
+     */
+    public Roster load(List<Enrollment> enrollments, boolean withTuition, String... studentFields) {
+        if (enrollments.isEmpty()) {
+            return new Roster(Map.of(), Map.of());
+        }
+
+        Set<String> studentIds = enrollments.stream()
+                .map(Enrollment::getStudentId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Query query = Query.query(Criteria.where("_id").in(studentIds));
+        query.fields().include(studentFields);
+        Map<String, Student> students = mongoTemplate.find(query, Student.class).stream()
+                .collect(Collectors.toMap(Student::getId, Function.identity()));
+
+        Map<String, TuitionStatus> tuitionStatuses = withTuition
+                ? tuitionService.getTuitionStatusesByEnrollments(enrollments.stream().map(Enrollment::getId).toList())
+                : Map.of();
+
+        return new Roster(students, tuitionStatuses);
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Étudiants et statuts de paiement d'une page d'inscriptions
+     * @param students étudiants, par ID
+     * @param tuitionStatuses statuts de paiement, par ID d'inscription
+     */
+    public record Roster(Map<String, Student> students, Map<String, TuitionStatus> tuitionStatuses) {
+
+        /**
+         * @return l'étudiant de l'inscription
+         * @throws StudentNotFoundException si l'étudiant n'existe plus
+         */
+        public Student student(Enrollment enrollment) {
+            Student student = students.get(enrollment.getStudentId());
+            if (student == null) {
+                throw new StudentNotFoundException("Étudiant introuvable",
+                        Map.of("studentId", String.valueOf(enrollment.getStudentId())));
+            }
+            return student;
+        }
+
+        public Optional<TuitionStatus> tuitionStatus(Enrollment enrollment) {
+            return Optional.ofNullable(tuitionStatuses.get(enrollment.getId()));
+        }
+    }
+}
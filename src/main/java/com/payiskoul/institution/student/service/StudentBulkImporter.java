@@ -0,0 +1,761 @@
+package com.payiskoul.institution.student.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.payiskoul.institution.classroom.model.Classroom;
+import com.payiskoul.institution.classroom.repository.ClassroomRepository;
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.organization.model.Institution;
+import com.payiskoul.institution.organization.repository.InstitutionRepository;
+import com.payiskoul.institution.program.model.TrainingOffer;
+import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.program.service.OfferSeatService;
+import com.payiskoul.institution.student.dto.BulkEnrollmentResponse.Outcome;
+import com.payiskoul.institution.student.dto.BulkEnrollmentResponse.OutcomeStatus;
+import com.payiskoul.institution.student.dto.CreateStudentRequest;
+import com.payiskoul.institution.student.dto.FailedImportRecord;
+import com.payiskoul.institution.student.dto.StudentImportResult;
+import com.payiskoul.institution.student.model.Enrollment;
+import com.payiskoul.institution.student.model.Enrollment.EnrollmentStatus;
+import com.payiskoul.institution.student.model.Student;
+import com.payiskoul.institution.student.repository.StudentRepository;
+import com.payiskoul.institution.student.service.StudentRowValidator.RowValidation;
+import com.payiskoul.institution.tuition.model.TuitionStatus;
+import com.payiskoul.institution.tuition.service.TuitionService;
+import com.payiskoul.institution.tuition.service.TuitionService.NewTuitionStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Moteur d'importation en masse des étudiants.
+ * <p>
+ * L'offre, l'institution et les classes sont chargées une seule fois à l'ouverture de l'import ({@link #open}).
+ * Chaque lot de lignes ({@link #importChunk}) est d'abord validé sans aucune écriture ({@link StudentRowValidator}),
+ * puis ses lignes valides sont traitées en quelques allers-retours :
+ * une requête $in pour les emails et une pour les matricules existants, une réservation de bloc de matricules,
+ * une réservation conditionnelle des places de l'offre et des places de classe par lot, puis un bulkWrite non ordonné par collection
+ * (étudiants, inscriptions, statuts de paiement).
+ * Les erreurs restent rapportées ligne par ligne dans {@link StudentImportResult}.
+ * Lorsque l'empreinte du fichier est connue, les lignes portent une clé d'idempotence : rejouer un lot
+ * ou un fichier déjà partiellement importé ne crée ni doublon ni faux rejet "email déjà existant".
+ * Les inscriptions en masse d'étudiants existants ({@link #enrollStudents}) suivent le même chemin d'écriture.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class StudentBulkImporter {
+
+    private static final String DEFAULT_COUNTRY_CODE = "CI";
+    // En deçà, la validation séquentielle coûte moins que la répartition sur plusieurs cœurs
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 256;
+
+    private final TrainingOfferRepository trainingOfferRepository;
+    private final InstitutionRepository institutionRepository;
+    private final ClassroomRepository classroomRepository;
+    private final StudentRepository studentRepository;
+    private final MatriculeGenerator matriculeGenerator;
+    private final OfferSeatService offerSeatService;
+    private final TuitionService tuitionService;
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Ouvre une importation : vérifie et charge l'offre, l'institution et les classes
+     * @param offerId ID de l'offre à laquelle inscrire les étudiants
+     * @param classroomId ID de la classe (optionnel)
+     * @return la session d'importation
+     */
+    ImportSession open(String offerId, String classroomId) {
+        // Vérifier que l'offre existe
+        TrainingOffer offer = trainingOfferRepository.findById(offerId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
+                        "L'offre spécifiée n'existe pas", Map.of("offerId", offerId)));
+
+        // Récupérer l'institution associée à l'offre
+        Institution institution = institutionRepository.findById(offer.getInstitutionId())
+                .orElseThrow(() -> new BusinessException(ErrorCode.INSTITUTION_NOT_FOUND,
+                        "Institution introuvable pour l'offre spécifiée",
+                        Map.of("institutionId", offer.getInstitutionId())));
+
+        String countryCode = institution.getAddress() != null ? institution.getAddress().getCountry() : null;
+        if (countryCode == null || countryCode.isEmpty()) {
+            countryCode = DEFAULT_COUNTRY_CODE;
+            log.warn("Code pays non trouvé pour l'institution {}, utilisation du code par défaut: {}",
+                    institution.getId(), countryCode);
+        }
+
+        // Vérifier que la classe existe et appartient à l'offre si spécifiée, sinon charger les classes de l'offre
+        List<Classroom> classrooms;
+        if (classroomId != null && !classroomId.isEmpty()) {
+            Classroom classroom = classroomRepository.findById(classroomId)
+                    .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
+                            "La classe spécifiée n'existe pas", Map.of("classroomId", classroomId)));
+            if (!offerId.equals(classroom.getProgramLevelId())) {
+                throw new BusinessException(ErrorCode.INVALID_CLASSROOM_PROGRAM,
+                        "La classe spécifiée n'appartient pas à cette offre",
+                        Map.of("classroomId", classroomId, "offerId", offerId));
+            }
+            classrooms = List.of(classroom);
+        } else {
+            classrooms = classroomRepository.findByProgramLevelId(offerId);
+        }
+
+        return new ImportSession(offer, countryCode, classrooms);
+    }
+
+    /**
+     * Importe un lot de lignes
+     * @param session la session d'importation
+     * @param rows les lignes du lot
+     * @return les lignes rejetées du lot
+     */
+    List<RowFailure> importChunk(ImportSession session, List<StudentImportRow> rows) {
+        String[] errors = new String[rows.size()];
+
+        // Étape de validation, sans écriture : seules les lignes valides passent à l'étape d'écriture
+        RowValidation[] validations = validateRows(session, rows);
+        boolean anyValid = false;
+        for (int i = 0; i < rows.size(); i++) {
+            errors[i] = validations[i].error();
+            anyValid |= errors[i] == null;
+        }
+
+        try {
+            if (anyValid) {
+                importRows(session, rows, validations, errors);
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors de l'importation d'un lot de {} étudiants: {}", rows.size(), e.getMessage(), e);
+            for (int i = 0; i < errors.length; i++) {
+                if (errors[i] == null) {
+                    errors[i] = e.getMessage();
+                }
+            }
+        }
+
+        List<RowFailure> failures = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors[i] == null) {
+                session.successCount++;
+            } else {
+                failures.add(new RowFailure(rows.get(i), errors[i]));
+                session.failedCount++;
+                if (session.retainFailures) {
+                    session.failedRecords.add(new FailedImportRecord(rows.get(i).values(), errors[i]));
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Inscrit une cohorte d'étudiants existants à l'offre de la session.
+     * Les étudiants sont chargés avec une requête $in, les inscriptions existantes vérifiées avec une autre,
+     * puis les inscriptions sont écrites comme pour une importation.
+     * @param session la session, ouverte sur l'offre cible
+     * @param studentIds IDs des étudiants, éventuellement répétés
+     * @return le résultat de chaque étudiant, dans l'ordre de la demande
+     */
+    List<Outcome> enrollStudents(ImportSession session, List<String> studentIds) {
+        Outcome[] outcomes = new Outcome[studentIds.size()];
+
+        // 1. Doublons dans la demande
+        Set<String> uniqueIds = new LinkedHashSet<>();
+        for (int i = 0; i < studentIds.size(); i++) {
+            String studentId = studentIds.get(i);
+            if (studentId == null || studentId.isBlank()) {
+                outcomes[i] = failure(studentId, OutcomeStatus.STUDENT_NOT_FOUND, "ID de l'étudiant manquant");
+            } else if (!uniqueIds.add(studentId)) {
+                outcomes[i] = failure(studentId, OutcomeStatus.DUPLICATE, "Étudiant présent plusieurs fois dans la demande");
+            }
+        }
+
+        // 2. Étudiants et inscriptions existantes (une requête $in chacun)
+        Map<String, Student> students = new HashMap<>();
+        studentRepository.findAllById(uniqueIds).forEach(student -> students.put(student.getId(), student));
+        Set<String> enrolledStudentIds = findEnrolledStudentIds(session.offer, students.keySet());
+
+        Map<Integer, Student> toEnroll = new LinkedHashMap<>();
+        for (int i = 0; i < studentIds.size(); i++) {
+            if (outcomes[i] != null) {
+                continue;
+            }
+            String studentId = studentIds.get(i);
+            Student student = students.get(studentId);
+            if (student == null) {
+                outcomes[i] = failure(studentId, OutcomeStatus.STUDENT_NOT_FOUND, "Étudiant introuvable");
+            } else if (enrolledStudentIds.contains(studentId) || session.enrolledStudentIds.contains(studentId)) {
+                outcomes[i] = failure(studentId, OutcomeStatus.ALREADY_ENROLLED,
+                        "L'étudiant est déjà inscrit à cette offre pour cette année académique");
+            } else {
+                toEnroll.put(i, student);
+            }
+        }
+
+        // 3. Inscriptions, effectifs des classes et statuts de paiement
+        String[] errors = new String[studentIds.size()];
+        Map<Integer, Enrollment> enrollments = toEnroll.isEmpty()
+                ? Map.of()
+                : enroll(session, toEnroll, index -> null, errors);
+        toEnroll.forEach((index, student) -> {
+            Enrollment enrollment = enrollments.get(index);
+            outcomes[index] = new Outcome(student.getId(),
+                    errors[index] == null ? OutcomeStatus.ENROLLED : OutcomeStatus.FAILED,
+                    enrollment != null ? enrollment.getId() : null,
+                    enrollment != null ? enrollment.getClassroomId() : null,
+                    errors[index]);
+        });
+        log.info("Inscription en masse à l'offre {}: {} inscrits sur {} demandés",
+                session.offer.getId(), enrollments.size(), studentIds.size());
+
+        return Arrays.asList(outcomes);
+    }
+
+    // ============ ÉTAPES DE L'IMPORTATION ============
+
+    /**
+     * Valide les lignes d'un lot, en parallèle sur le pool commun au-delà de PARALLEL_VALIDATION_THRESHOLD lignes
+     * @return le résultat de validation de chaque ligne, par indice
+     */
+    private RowValidation[] validateRows(ImportSession session, List<StudentImportRow> rows) {
+        RowValidation[] validations = new RowValidation[rows.size()];
+        if (rows.isEmpty()) {
+            return validations;
+        }
+
+        StudentRowValidator validator = session.validator(rows.get(0));
+        String offerId = session.offer.getId();
+        IntStream indexes = IntStream.range(0, rows.size());
+        if (rows.size() >= PARALLEL_VALIDATION_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> validations[i] = validator.validate(rows.get(i), offerId));
+        return validations;
+    }
+
+    private void importRows(ImportSession session, List<StudentImportRow> rows, RowValidation[] validations,
+                            String[] errors) {
+        TrainingOffer offer = session.offer;
+
+        // 0. Lignes déjà appliquées par une exécution précédente du même fichier
+        Map<Integer, Student> toEnroll = new LinkedHashMap<>();
+        Set<Integer> applied = resolveAppliedRows(session, rows, toEnroll);
+
+        // 1. Séparation des lignes valides : nouveaux étudiants / étudiants existants
+        Map<Integer, CreateStudentRequest> newRows = new LinkedHashMap<>();
+        Map<Integer, String> existingRows = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors[i] != null || applied.contains(i) || toEnroll.containsKey(i)) {
+                continue;
+            }
+            if (validations[i].matricule() != null) {
+                existingRows.put(i, validations[i].matricule());
+            } else {
+                newRows.put(i, validations[i].request());
+            }
+        }
+
+        // 2. Pré-chargement : emails déjà utilisés et étudiants existants (une requête $in chacun)
+        Set<String> knownEmails = findExistingEmails(newRows.values().stream().map(CreateStudentRequest::email).toList());
+        Map<String, Student> existingStudents = studentRepository.findByMatriculeIn(new HashSet<>(existingRows.values()))
+                .stream()
+                .collect(Collectors.toMap(Student::getMatricule, student -> student, (a, b) -> a));
+        Set<String> enrolledStudentIds = findEnrolledStudentIds(offer,
+                existingStudents.values().stream().map(Student::getId).toList());
+
+        // 3. Résolution des étudiants à inscrire
+        newRows.entrySet().removeIf(entry -> {
+            String email = entry.getValue().email();
+            if (knownEmails.contains(email) || !session.seenEmails.add(email)) {
+                errors[entry.getKey()] = "Un étudiant avec cet email existe déjà";
+                return true;
+            }
+            return false;
+        });
+        existingRows.forEach((index, matricule) -> {
+            Student student = existingStudents.get(matricule);
+            if (student == null) {
+                errors[index] = "Aucun étudiant trouvé avec ce matricule";
+            } else if (enrolledStudentIds.contains(student.getId()) || !session.enrolledStudentIds.add(student.getId())) {
+                log.warn("L'étudiant est déjà inscrit à cette offre: {}", matricule);
+                errors[index] = "L'étudiant est déjà inscrit à cette offre pour cette année académique";
+            } else {
+                toEnroll.put(index, student);
+            }
+        });
+
+        // 4. Création des nouveaux étudiants avec un bloc de matricules réservé en une fois
+        if (!newRows.isEmpty()) {
+            List<String> matricules = matriculeGenerator.generateMatricules(session.countryCode, newRows.size());
+            LocalDateTime now = LocalDateTime.now();
+            List<Integer> indexes = new ArrayList<>(newRows.keySet());
+            List<Student> students = new ArrayList<>(indexes.size());
+            for (int k = 0; k < indexes.size(); k++) {
+                CreateStudentRequest request = newRows.get(indexes.get(k));
+                students.add(Student.builder()
+                        .id(new ObjectId().toHexString())
+                        .matricule(matricules.get(k))
+                        .fullName(request.fullName())
+                        .gender(request.gender())
+                        .birthDate(request.birthDate())
+                        .email(request.email())
+                        .phone(request.phone())
+                        .importKey(session.importKey(rows.get(indexes.get(k))))
+                        .registeredAt(now)
+                        .build());
+            }
+
+            Map<Integer, String> failures = insertAll(Student.class, students);
+            for (int k = 0; k < indexes.size(); k++) {
+                if (failures.containsKey(k)) {
+                    errors[indexes.get(k)] = failures.get(k);
+                } else {
+                    toEnroll.put(indexes.get(k), students.get(k));
+                }
+            }
+            log.info("{} nouveaux étudiants créés", indexes.size() - failures.size());
+        }
+
+        if (toEnroll.isEmpty()) {
+            return;
+        }
+
+        enroll(session, toEnroll, index -> session.importKey(rows.get(index)), errors);
+    }
+
+    /**
+     * Inscrit des étudiants à l'offre de la session : places sous maxStudents et places de classe réservées en base
+     * pour tout le lot, puis un bulkWrite pour les inscriptions et un pour les statuts de paiement.
+     * Les places des inscriptions rejetées sont rendues.
+     * @param toEnroll étudiants à inscrire, par indice
+     * @param importKeys clé d'idempotence de l'inscription, par indice
+     * @param errors reçoit le message d'erreur des inscriptions en échec, par indice
+     * @return les inscriptions enregistrées, par indice
+     */
+    private Map<Integer, Enrollment> enroll(ImportSession session, Map<Integer, Student> toEnroll,
+                                            IntFunction<String> importKeys, String[] errors) {
+        TrainingOffer offer = session.offer;
+
+        // 5. Réservation des places sous maxStudents : les inscriptions au-delà sont refusées
+        List<Integer> indexes = new ArrayList<>(toEnroll.keySet());
+        int allowed = offerSeatService.reserve(offer.getId(), indexes.size());
+        if (allowed < indexes.size()) {
+            indexes.subList(allowed, indexes.size()).forEach(i -> errors[i] = "Plus de place disponible pour cette offre");
+            indexes = new ArrayList<>(indexes.subList(0, allowed));
+            log.warn("Offre {} complète: {} inscriptions refusées", offer.getId(), toEnroll.size() - allowed);
+        }
+        if (indexes.isEmpty()) {
+            return Map.of();
+        }
+
+        // 6. Réservation des places de classe, puis inscriptions
+        LocalDateTime now = LocalDateTime.now();
+        List<String> seats = reserveSeats(session, indexes.size());
+        List<Enrollment> enrollments = new ArrayList<>(indexes.size());
+        for (int k = 0; k < indexes.size(); k++) {
+            Integer index = indexes.get(k);
+            enrollments.add(Enrollment.builder()
+                    .id(new ObjectId().toHexString())
+                    .studentId(toEnroll.get(index).getId())
+                    .programLevelId(offer.getId())
+                    .institutionId(offer.getInstitutionId())
+                    .classroomId(seats.get(k))
+                    .academicYear(offer.getAcademicYear())
+                    .status(EnrollmentStatus.ENROLLED)
+                    .enrolledAt(now)
+                    .importKey(importKeys.apply(index))
+                    .build());
+        }
+
+        Map<Integer, String> enrollmentFailures;
+        try {
+            enrollmentFailures = insertAll(Enrollment.class, enrollments);
+        } catch (RuntimeException e) {
+            offerSeatService.release(offer.getId(), indexes.size());
+            releaseSeats(session, countSeats(seats));
+            throw e;
+        }
+
+        Map<Integer, Enrollment> saved = new LinkedHashMap<>();
+        List<String> releasedSeats = new ArrayList<>();
+        List<NewTuitionStatus> tuitionStatuses = new ArrayList<>();
+        List<Integer> tuitionIndexes = new ArrayList<>();
+        for (int k = 0; k < indexes.size(); k++) {
+            Enrollment enrollment = enrollments.get(k);
+            if (enrollmentFailures.containsKey(k)) {
+                errors[indexes.get(k)] = "Inscription impossible: " + enrollmentFailures.get(k);
+                releasedSeats.add(enrollment.getClassroomId());
+                continue;
+            }
+            saved.put(indexes.get(k), enrollment);
+            session.enrolledStudentIds.add(enrollment.getStudentId());
+            if (offer.getTuitionAmount() != null) {
+                tuitionStatuses.add(new NewTuitionStatus(enrollment.getId(), enrollment.getStudentId(),
+                        toEnroll.get(indexes.get(k)).getMatricule(), offer.getTuitionAmount(), offer.getCurrency()));
+                tuitionIndexes.add(indexes.get(k));
+            }
+        }
+
+        // 7. Places des inscriptions rejetées ; l'inventaire de la file d'admission de l'offre est à relire
+        offerSeatService.release(offer.getId(), indexes.size() - saved.size());
+        releaseSeats(session, countSeats(releasedSeats));
+        if (!saved.isEmpty()) {
+            eventPublisher.publishEvent(new EnrollmentsCreated(offer.getId(), saved.size()));
+        }
+
+        // 8. Statuts de paiement
+        for (Integer failed : tuitionService.createTuitionStatuses(tuitionStatuses)) {
+            errors[tuitionIndexes.get(failed)] = "Inscription créée mais statut de paiement impossible à créer";
+        }
+        return saved;
+    }
+
+    /**
+     * Réserve des places dans les classes de la session, en remplissant d'abord les moins chargées, comme
+     * {@link com.payiskoul.institution.classroom.service.ClassroomService#addStudentToClassroom} pour une inscription
+     * unitaire : les places sont réparties une à une sur la classe qui a le moins d'inscrits (puis le plus petit ID).
+     * Chaque classe reçoit sa part en une seule réservation, appliquée seulement si elle a encore ces places
+     * (currentCount + demandé <= capacity). Si une réservation est refusée, l'effectif de la classe est relu
+     * et les places manquantes sont réparties de nouveau.
+     * @param count nombre de places à réserver
+     * @return la classe attribuée à chaque place, null lorsqu'aucune classe n'a de place
+     */
+    private List<String> reserveSeats(ImportSession session, int count) {
+        List<String> seats = new ArrayList<>(count);
+        while (seats.size() < count) {
+            Map<String, Integer> allocation = session.allocateSeats(count - seats.size());
+            if (allocation.isEmpty()) {
+                break;
+            }
+            allocation.forEach((classroomId, requested) -> {
+                Query reservation = Query.query(Criteria.where("_id").is(classroomId));
+                reservation.addCriteria(Criteria.expr(ComparisonOperators.valueOf(
+                        ArithmeticOperators.valueOf("currentCount").add(requested)).lessThanEqualTo("capacity")));
+                if (mongoTemplate.updateFirst(reservation, new Update().inc("currentCount", requested),
+                        Classroom.class).getModifiedCount() == 1) {
+                    session.addSeats(classroomId, requested);
+                    seats.addAll(Collections.nCopies(requested, classroomId));
+                } else {
+                    // Places prises entre-temps par une autre inscription : relire l'effectif de la classe
+                    session.refreshSeats(classroomId, mongoTemplate.findById(classroomId, Classroom.class));
+                }
+            });
+        }
+
+        while (seats.size() < count) {
+            seats.add(null);
+        }
+        return seats;
+    }
+
+    /**
+     * Rend des places réservées : un décrément par classe, sans descendre sous zéro
+     * @param released nombre de places à rendre, par classe
+     */
+    private void releaseSeats(ImportSession session, Map<String, Integer> released) {
+        if (released.isEmpty()) {
+            return;
+        }
+        BulkOperations classroomOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Classroom.class);
+        released.forEach((classroomId, count) -> classroomOps.updateOne(
+                Query.query(Criteria.where("_id").is(classroomId).and("currentCount").gte(count)),
+                new Update().inc("currentCount", -count)));
+        classroomOps.execute();
+        released.forEach((classroomId, count) -> session.addSeats(classroomId, -count));
+    }
+
+    private static Map<String, Integer> countSeats(List<String> classroomIds) {
+        Map<String, Integer> counts = new HashMap<>();
+        classroomIds.stream().filter(Objects::nonNull).forEach(id -> counts.merge(id, 1, Integer::sum));
+        return counts;
+    }
+
+    /**
+     * Retrouve, grâce aux clés d'idempotence, les lignes du lot déjà appliquées lors d'une exécution interrompue.
+     * Les lignes déjà inscrites sont comptées comme importées ; celles dont seul l'étudiant a été créé
+     * sont reprises à l'étape d'inscription. Les statuts de paiement manquants des inscriptions déjà créées
+     * sont complétés.
+     * @param toEnroll reçoit les étudiants déjà créés restant à inscrire, par indice
+     * @return les indices des lignes déjà inscrites
+     */
+    private Set<Integer> resolveAppliedRows(ImportSession session, List<StudentImportRow> rows,
+                                            Map<Integer, Student> toEnroll) {
+        if (session.importKeyPrefix == null) {
+            return Set.of();
+        }
+
+        Map<String, Integer> indexByKey = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            indexByKey.put(session.importKey(rows.get(i)), i);
+        }
+
+        List<Enrollment> enrollments = mongoTemplate.find(
+                Query.query(Criteria.where("importKey").in(indexByKey.keySet())), Enrollment.class);
+        Set<Integer> applied = new HashSet<>();
+        enrollments.forEach(enrollment -> applied.add(indexByKey.get(enrollment.getImportKey())));
+
+        Query studentQuery = Query.query(Criteria.where("importKey").in(indexByKey.keySet()));
+        for (Student student : mongoTemplate.find(studentQuery, Student.class)) {
+            int index = indexByKey.get(student.getImportKey());
+            if (!applied.contains(index)) {
+                toEnroll.put(index, student);
+                session.seenEmails.add(student.getEmail());
+            }
+        }
+
+        if (!applied.isEmpty() || !toEnroll.isEmpty()) {
+            log.info("Reprise d'importation: {} lignes déjà inscrites, {} étudiants déjà créés à inscrire",
+                    applied.size(), toEnroll.size());
+        }
+        enrollments.forEach(enrollment -> session.enrolledStudentIds.add(enrollment.getStudentId()));
+        completeTuitionStatuses(session.offer, enrollments);
+        return applied;
+    }
+
+    /**
+     * Crée les statuts de paiement absents pour des inscriptions déjà enregistrées
+     */
+    private void completeTuitionStatuses(TrainingOffer offer, List<Enrollment> enrollments) {
+        if (enrollments.isEmpty() || offer.getTuitionAmount() == null) {
+            return;
+        }
+
+        Query query = Query.query(Criteria.where("enrollmentId")
+                .in(enrollments.stream().map(Enrollment::getId).toList()));
+        query.fields().include("enrollmentId");
+        Set<String> withStatus = mongoTemplate.find(query, TuitionStatus.class).stream()
+                .map(TuitionStatus::getEnrollmentId)
+                .collect(Collectors.toSet());
+
+        List<Enrollment> missing = enrollments.stream()
+                .filter(enrollment -> !withStatus.contains(enrollment.getId()))
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> matricules = new HashMap<>();
+        studentRepository.findAllById(missing.stream().map(Enrollment::getStudentId).toList())
+                .forEach(student -> matricules.put(student.getId(), student.getMatricule()));
+        tuitionService.createTuitionStatuses(missing.stream()
+                .map(enrollment -> new NewTuitionStatus(enrollment.getId(), enrollment.getStudentId(),
+                        matricules.get(enrollment.getStudentId()), offer.getTuitionAmount(), offer.getCurrency()))
+                .toList());
+        log.info("{} statuts de paiement manquants créés lors de la reprise", missing.size());
+    }
+
+    /**
+     * Insère des documents avec un bulkWrite non ordonné
+     * @return le message d'erreur des documents rejetés, par indice
+     */
+    private <T> Map<Integer, String> insertAll(Class<T> type, List<T> documents) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        operations.insert(documents);
+        try {
+            operations.execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            Map<Integer, String> failures = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(error.getIndex(), error.getMessage());
+            }
+            return failures;
+        }
+    }
+
+    private static Outcome failure(String studentId, OutcomeStatus status, String errorMessage) {
+        return new Outcome(studentId, status, null, null, errorMessage);
+    }
+
+    private Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        Query query = Query.query(Criteria.where("email").in(emails));
+        query.fields().include("email");
+        return mongoTemplate.find(query, Student.class).stream()
+                .map(Student::getEmail)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> findEnrolledStudentIds(TrainingOffer offer, Collection<String> studentIds) {
+        if (studentIds.isEmpty()) {
+            return Set.of();
+        }
+        Query query = Query.query(Criteria.where("studentId").in(studentIds)
+                .and("programLevelId").is(offer.getId())
+                .and("academicYear").is(offer.getAcademicYear()));
+        query.fields().include("studentId");
+        return mongoTemplate.find(query, Enrollment.class).stream()
+                .map(Enrollment::getStudentId)
+                .collect(Collectors.toSet());
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Ligne rejetée et cause du rejet
+     */
+    record RowFailure(StudentImportRow row, String errorMessage) {}
+
+    /**
+     * Inscriptions créées en masse pour une offre, hors file d'admission
+     */
+    record EnrollmentsCreated(String offerId, int count) {}
+
+    /**
+     * État d'une importation en cours : références chargées une fois, effectif estimé des classes,
+     * emails et inscriptions déjà traités (doublons entre lots) et résultat cumulé.
+     * Les places sont réservées en base, sous maxStudents et dans les classes, par des mises à jour conditionnelles :
+     * l'estimation ne sert qu'à choisir les classes et la taille des réservations, jamais à borner les inscriptions.
+     * L'estimation des places et le suivi des inscrits sont sûrs entre threads : une même session peut servir
+     * aux partitions parallèles d'un passage d'année ({@link #enrollStudents}) sans dépasser la capacité de l'offre.
+     * Les importations de fichiers ({@link #importChunk}) n'utilisent une session que depuis un seul thread.
+     */
+    static final class ImportSession {
+
+        private final TrainingOffer offer;
+        private final String countryCode;
+        // Capacité et effectif estimé par classe ; l'effectif est relu en base lorsqu'une réservation est refusée
+        private final Map<String, Integer> capacities = new HashMap<>();
+        private final Map<String, Integer> currentCounts = new HashMap<>();
+
+        private final Set<String> seenEmails = new HashSet<>();
+        private final Set<String> enrolledStudentIds = ConcurrentHashMap.newKeySet();
+
+        // Préfixe des clés d'idempotence des lignes : offre et empreinte du fichier
+        private String importKeyPrefix;
+        // Positions des champs, résolues à partir des en-têtes du fichier
+        private StudentRowValidator validator;
+
+        private int successCount;
+        private int failedCount;
+        // Détail des échecs conservé pour le résultat synchrone ; les jobs les persistent au fil des lots
+        private boolean retainFailures = true;
+        private final List<FailedImportRecord> failedRecords = new ArrayList<>();
+
+        private ImportSession(TrainingOffer offer, String countryCode, List<Classroom> classrooms) {
+            this.offer = offer;
+            this.countryCode = countryCode;
+            classrooms.forEach(classroom -> {
+                capacities.put(classroom.getId(), classroom.getCapacity());
+                currentCounts.put(classroom.getId(), classroom.getCurrentCount());
+            });
+        }
+
+        /**
+         * Répartit des places selon l'estimation : chaque place va à la classe la moins chargée qui a encore de la
+         * place (ordre currentCount puis ID, celui de {@code ClassroomService}), en tenant compte des places déjà
+         * attribuées dans la répartition
+         * @return le nombre de places attribuées par classe, vide si aucune classe n'a de place
+         */
+        private synchronized Map<String, Integer> allocateSeats(int count) {
+            Map<String, Integer> loads = new HashMap<>(currentCounts);
+            PriorityQueue<String> leastLoaded = new PriorityQueue<>(
+                    Comparator.comparing((String id) -> loads.get(id)).thenComparing(Comparator.naturalOrder()));
+            loads.forEach((classroomId, load) -> {
+                if (load < capacities.get(classroomId)) {
+                    leastLoaded.add(classroomId);
+                }
+            });
+
+            Map<String, Integer> allocation = new LinkedHashMap<>();
+            for (int seat = 0; seat < count && !leastLoaded.isEmpty(); seat++) {
+                String classroomId = leastLoaded.poll();
+                allocation.merge(classroomId, 1, Integer::sum);
+                int load = loads.merge(classroomId, 1, Integer::sum);
+                if (load < capacities.get(classroomId)) {
+                    leastLoaded.add(classroomId);
+                }
+            }
+            return allocation;
+        }
+
+        /**
+         * Ajoute à l'effectif estimé d'une classe des places réservées (ou en retire, si négatif)
+         */
+        private synchronized void addSeats(String classroomId, int count) {
+            currentCounts.computeIfPresent(classroomId, (id, current) -> Math.max(0, current + count));
+        }
+
+        /**
+         * Remplace l'estimation d'une classe par son état en base ; une classe supprimée n'a plus de place
+         */
+        private synchronized void refreshSeats(String classroomId, Classroom classroom) {
+            if (!capacities.containsKey(classroomId)) {
+                return;
+            }
+            capacities.put(classroomId, classroom != null ? classroom.getCapacity() : 0);
+            currentCounts.put(classroomId, classroom != null ? classroom.getCurrentCount() : 0);
+        }
+
+        /**
+         * Associe l'importation au contenu du fichier : chaque ligne reçoit une clé d'idempotence
+         * (offre, empreinte du fichier, numéro de ligne) enregistrée sur l'étudiant et l'inscription créés,
+         * de sorte qu'une ligne déjà appliquée ne le soit pas une seconde fois
+         * @param fileHash empreinte SHA-256 du fichier
+         */
+        ImportSession withFileHash(String fileHash) {
+            this.importKeyPrefix = fileHash != null ? offer.getId() + ":" + fileHash + ":" : null;
+            return this;
+        }
+
+        private StudentRowValidator validator(StudentImportRow firstRow) {
+            if (validator == null || !validator.supports(firstRow.columns())) {
+                validator = StudentRowValidator.forColumns(firstRow.columns());
+            }
+            return validator;
+        }
+
+        private String importKey(StudentImportRow row) {
+            return importKeyPrefix != null ? importKeyPrefix + row.rowNumber() : null;
+        }
+
+        /**
+         * Ne conserve plus le détail des lignes rejetées en mémoire, seulement leur nombre
+         */
+        ImportSession discardFailures() {
+            this.retainFailures = false;
+            return this;
+        }
+
+        String institutionId() {
+            return offer.getInstitutionId();
+        }
+
+        TrainingOffer offer() {
+            return offer;
+        }
+
+        /**
+         * N'affecte les inscrits à aucune classe
+         */
+        synchronized ImportSession withoutClassrooms() {
+            capacities.clear();
+            currentCounts.clear();
+            return this;
+        }
+
+        StudentImportResult result() {
+            return new StudentImportResult(successCount, failedCount, failedRecords);
+        }
+    }
+}
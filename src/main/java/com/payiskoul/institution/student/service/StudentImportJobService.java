@@ -0,0 +1,625 @@
+package com.payiskoul.institution.student.service;
+
+import com.opencsv.CSVWriter;
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.student.dto.ImportJobResponse;
+import com.payiskoul.institution.student.model.ImportFormat;
+import com.payiskoul.institution.student.model.ImportJob;
+import com.payiskoul.institution.student.model.ImportJobFailure;
+import com.payiskoul.institution.student.model.ImportJobStatus;
+import com.payiskoul.institution.student.repository.ImportJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Importations d'étudiants en arrière-plan.
+ * <p>
+ * Le fichier téléversé est copié sur le disque local et l'ID du job est retourné immédiatement.
+ * Les jobs s'exécutent sur un pool de threads borné ; une institution ne peut occuper plus de
+ * {@code per-institution} threads à la fois, ses jobs suivants attendant leur tour dans une file dédiée.
+ * Les compteurs du job sont mis à jour après chaque lot et les lignes rejetées sont conservées
+ * pour être téléchargées au format CSV une fois le job terminé.
+ * <p>
+ * Chaque lot validé écrit un point de reprise (dernière ligne validée et compteurs) dans le document du job.
+ * Les jobs interrompus reprennent après cette ligne ; les clés d'idempotence des lignes évitent de rejouer celles
+ * du lot en cours lors de l'arrêt. Un arrêt de l'instance suspend le job après le point de reprise de son lot
+ * en cours : son statut et son fichier sont conservés. Le fichier n'est supprimé qu'une fois le job terminé
+ * (COMPLETED) ou en échec (FAILED).
+ * <p>
+ * Comme pour les jobs de cohorte, un job appartient à une instance tant que son bail (lease-duration) n'a pas
+ * expiré : l'instance le renouvelle périodiquement et après chaque lot, en vérifiant qu'elle en est toujours
+ * propriétaire. Seuls les jobs dont le bail a expiré sont repris, par une instance qui voit leur fichier ; un job
+ * dont aucune instance n'a repris le fichier pendant un bail supplémentaire est marqué en échec (FAILED).
+ */
+@Service
+@Slf4j
+public class StudentImportJobService {
+
+    private static final String METRIC_PREFIX = "payiskoul.student.import.jobs";
+    private static final List<ImportJobStatus> ACTIVE_STATUSES = List.of(ImportJobStatus.QUEUED, ImportJobStatus.RUNNING);
+    private static final String[] FAILURE_COLUMNS = {"matricule", "fullName", "gender", "birthDate", "email", "phone"};
+    // Attente maximale de la fin du lot en cours lors de l'arrêt
+    private static final long SHUTDOWN_GRACE_SECONDS = 10;
+
+    private final ImportJobRepository importJobRepository;
+    private final StudentImportService studentImportService;
+    private final StudentBulkImporter studentBulkImporter;
+    private final MongoTemplate mongoTemplate;
+
+    private final Path spoolDirectory;
+    private final int maxPerInstitution;
+    private final int maxQueued;
+    private final Duration leaseDuration;
+    private final ThreadPoolExecutor executor;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Jobs de ce nœud en cours d'exécution et en attente, par institution (accès sous verrou)
+    private final Map<String, Integer> runningByInstitution = new HashMap<>();
+    private final Map<String, Deque<String>> waitingByInstitution = new HashMap<>();
+    private int waitingCount;
+
+    public StudentImportJobService(ImportJobRepository importJobRepository,
+                                   StudentImportService studentImportService,
+                                   StudentBulkImporter studentBulkImporter,
+                                   MongoTemplate mongoTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${payiskoul.student.import.jobs.workers:4}") int workers,
+                                   @Value("${payiskoul.student.import.jobs.per-institution:1}") int maxPerInstitution,
+                                   @Value("${payiskoul.student.import.jobs.max-queued:100}") int maxQueued,
+                                   @Value("${payiskoul.student.import.jobs.spool-dir:${java.io.tmpdir}/payiskoul-imports}") String spoolDirectory,
+                                   @Value("${payiskoul.student.import.jobs.lease-duration:60000}") long leaseDuration) {
+        this.importJobRepository = importJobRepository;
+        this.studentImportService = studentImportService;
+        this.studentBulkImporter = studentBulkImporter;
+        this.mongoTemplate = mongoTemplate;
+        this.spoolDirectory = Path.of(spoolDirectory);
+        this.maxPerInstitution = Math.max(1, maxPerInstitution);
+        this.maxQueued = maxQueued;
+        this.leaseDuration = Duration.ofMillis(leaseDuration);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueued),
+                runnable -> new Thread(runnable, "student-import-" + threadCount.incrementAndGet()));
+
+        Gauge.builder(METRIC_PREFIX + ".running", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Nombre de jobs d'importation en cours d'exécution")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".waiting", this, StudentImportJobService::pendingCount)
+                .description("Nombre de jobs d'importation en attente")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Crée un job d'importation : vérifie l'offre et la classe, copie le fichier sur disque et planifie le job
+     *
+     * @param file        Fichier téléversé
+     * @param format      Format du fichier
+     * @param offerId     ID de l'offre à laquelle inscrire les étudiants
+     * @param classroomId ID de la classe (optionnel)
+     * @param charset     Encodage d'un fichier CSV (optionnel, détecté si absent)
+     * @return l'état initial du job
+     */
+    public ImportJobResponse submit(MultipartFile file, ImportFormat format, String offerId, String classroomId,
+                                    String charset) {
+        if (file.isEmpty()) {
+            throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
+                    "Le fichier d'importation est vide", Map.of("fileName", String.valueOf(file.getOriginalFilename())));
+        }
+        if (pendingCount() >= maxQueued) {
+            throw new BusinessException(ErrorCode.IMPORT_QUEUE_FULL,
+                    "Trop d'importations en attente, veuillez réessayer plus tard", Map.of("maxQueued", maxQueued));
+        }
+
+        // Les erreurs de paramètres sont remontées immédiatement plutôt qu'à l'exécution du job
+        CsvStudentReader.declaredCharset(charset);
+        StudentBulkImporter.ImportSession session = studentBulkImporter.open(offerId, classroomId);
+
+        String jobId = new ObjectId().toHexString();
+        Path spoolPath = spoolDirectory.resolve(jobId + (format == ImportFormat.CSV ? ".csv" : ".xlsx"));
+        try {
+            Files.createDirectories(spoolDirectory);
+            file.transferTo(spoolPath);
+        } catch (IOException e) {
+            log.error("Impossible de copier le fichier d'importation sur disque: {}", e.getMessage());
+            throw new BusinessException(ErrorCode.FILE_PROCESSING_ERROR,
+                    "Impossible d'enregistrer le fichier d'importation", Map.of("fileName", String.valueOf(file.getOriginalFilename())));
+        }
+        if (format == ImportFormat.EXCEL) {
+            // Un classeur .xls est refusé à la soumission plutôt qu'à l'exécution du job
+            try {
+                ExcelStudentReader.requireXlsx(spoolPath, String.valueOf(file.getOriginalFilename()));
+            } catch (BusinessException e) {
+                deleteQuietly(spoolPath);
+                throw e;
+            }
+        }
+
+        ImportJob job = importJobRepository.save(ImportJob.builder()
+                .id(jobId)
+                .institutionId(session.institutionId())
+                .offerId(offerId)
+                .classroomId(classroomId)
+                .format(format)
+                .charset(charset)
+                .fileName(file.getOriginalFilename())
+                .spoolPath(spoolPath.toString())
+                .fileHash(StudentImportService.fileHash(new FileSystemResource(spoolPath)))
+                .status(ImportJobStatus.QUEUED)
+                .owner(instanceId)
+                .leaseExpiresAt(leaseDeadline())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        try {
+            enqueue(job.getInstitutionId(), jobId);
+        } catch (RuntimeException e) {
+            finish(jobId, ImportJobStatus.FAILED, "Job rejeté: " + e.getMessage());
+            deleteQuietly(spoolPath);
+            throw e;
+        }
+
+        log.info("Job d'importation {} planifié pour l'offre {} ({}, {} octets)",
+                jobId, offerId, format, file.getSize());
+        return toResponse(job);
+    }
+
+    /**
+     * Retourne l'état d'un job d'importation
+     * @param jobId ID du job
+     * @return l'état du job, avec son débit moyen
+     */
+    public ImportJobResponse getJob(String jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    /**
+     * Vérifie qu'un job est terminé avant le téléchargement de ses lignes en échec
+     * @param jobId ID du job
+     * @return l'état du job
+     */
+    public ImportJobResponse getFinishedJob(String jobId) {
+        ImportJob job = findJob(jobId);
+        if (job.getStatus() != ImportJobStatus.COMPLETED && job.getStatus() != ImportJobStatus.FAILED) {
+            throw new BusinessException(ErrorCode.IMPORT_JOB_NOT_FINISHED,
+                    "Le job d'importation n'est pas encore terminé",
+                    Map.of("jobId", jobId, "status", job.getStatus().name()));
+        }
+        return toResponse(job);
+    }
+
+    /**
+     * Écrit les lignes rejetées d'un job au format CSV, dans l'ordre du fichier
+     * @param jobId ID du job
+     * @param outputStream flux de sortie
+     */
+    public void writeFailures(String jobId, OutputStream outputStream) throws IOException {
+        Query query = Query.query(Criteria.where("jobId").is(jobId))
+                .with(Sort.by("rowNumber"))
+                .cursorBatchSize(1000);
+
+        CSVWriter writer = new CSVWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        String[] header = new String[FAILURE_COLUMNS.length + 2];
+        header[0] = "ligne";
+        System.arraycopy(FAILURE_COLUMNS, 0, header, 1, FAILURE_COLUMNS.length);
+        header[header.length - 1] = "erreur";
+        writer.writeNext(header);
+
+        try (Stream<ImportJobFailure> failures = mongoTemplate.stream(query, ImportJobFailure.class)) {
+            Iterator<ImportJobFailure> iterator = failures.iterator();
+            while (iterator.hasNext()) {
+                ImportJobFailure failure = iterator.next();
+                String[] line = new String[header.length];
+                line[0] = String.valueOf(failure.getRowNumber());
+                Map<String, String> data = failure.getStudentData() != null ? failure.getStudentData() : Map.of();
+                for (int i = 0; i < FAILURE_COLUMNS.length; i++) {
+                    line[i + 1] = data.getOrDefault(FAILURE_COLUMNS[i], "");
+                }
+                line[line.length - 1] = failure.getErrorMessage();
+                writer.writeNext(line);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Renouvelle le bail des jobs de l'instance (en cours ou en attente), puis reprend les jobs dont le bail a expiré
+     */
+    @Scheduled(fixedDelayString = "${payiskoul.student.import.jobs.heartbeat-interval:15000}")
+    public void heartbeat() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("owner").is(instanceId).and("status").in(ACTIVE_STATUSES)),
+                    new Update().set("leaseExpiresAt", leaseDeadline()),
+                    ImportJob.class);
+            resumeInterruptedJobs();
+        } catch (Exception e) {
+            log.error("Erreur lors du renouvellement des baux des jobs d'importation: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reprend les jobs dont le bail a expiré et dont le fichier est présent sur ce nœud.
+     * Chaque job est réattribué de façon conditionnelle afin qu'une seule instance le reprenne.
+     * Un job dont le bail a expiré depuis plus d'un bail sans qu'aucune instance ne l'ait repris n'a plus de fichier
+     * accessible (les instances qui le voient le reprennent au plus tard à leur battement suivant) : il est marqué
+     * en échec plutôt que de rester indéfiniment en attente.
+     */
+    private void resumeInterruptedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria expired = expiredBefore(now);
+        List<ImportJob> interrupted = mongoTemplate.find(
+                Query.query(Criteria.where("status").in(ACTIVE_STATUSES)).addCriteria(expired), ImportJob.class);
+
+        for (ImportJob job : interrupted) {
+            Query claimable = Query.query(Criteria.where("_id").is(job.getId())
+                    .and("status").in(ACTIVE_STATUSES)
+                    .and("owner").is(job.getOwner()));
+
+            if (job.getSpoolPath() == null || !Files.exists(Path.of(job.getSpoolPath()))) {
+                boolean abandoned = mongoTemplate.updateFirst(claimable.addCriteria(expiredBefore(now.minus(leaseDuration))),
+                        new Update()
+                                .set("owner", instanceId)
+                                .set("status", ImportJobStatus.FAILED)
+                                .set("errorMessage", "Fichier d'importation introuvable : le job ne peut pas être repris")
+                                .set("finishedAt", now),
+                        ImportJob.class).getModifiedCount() == 1;
+                if (abandoned) {
+                    log.error("Job d'importation {} en échec: fichier {} introuvable après l'expiration du bail de l'instance {}",
+                            job.getId(), job.getSpoolPath(), job.getOwner());
+                }
+                continue;
+            }
+
+            boolean claimed = mongoTemplate.updateFirst(claimable.addCriteria(expired),
+                    new Update()
+                            .set("owner", instanceId)
+                            .set("status", ImportJobStatus.QUEUED)
+                            .set("leaseExpiresAt", leaseDeadline()),
+                    ImportJob.class).getModifiedCount() == 1;
+            if (!claimed) {
+                continue;
+            }
+
+            try {
+                enqueue(job.getInstitutionId(), job.getId());
+                log.info("Reprise du job d'importation {} après la ligne {}, bail expiré de l'instance {}",
+                        job.getId(), job.getCheckpointRow(), job.getOwner());
+            } catch (RuntimeException e) {
+                log.error("Impossible de reprendre le job d'importation {}: {}", job.getId(), e.getMessage());
+                releaseLease(Query.query(Criteria.where("_id").is(job.getId()).and("owner").is(instanceId)));
+            }
+        }
+    }
+
+    /**
+     * Arrête le pool. Les jobs interrompus restent à l'état RUNNING (ou QUEUED) avec leur fichier ; une fois les lots
+     * en cours terminés, leur bail est rendu pour qu'une instance qui voit leur fichier les reprenne sans attendre
+     * son expiration
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (executor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                releaseLease(Query.query(Criteria.where("owner").is(instanceId).and("status").in(ACTIVE_STATUSES)));
+            } else {
+                log.warn("Importations toujours en cours à l'arrêt : elles reprendront au dernier point de reprise "
+                        + "à l'expiration de leur bail");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Impossible de rendre le bail des jobs d'importation: {}", e.getMessage(), e);
+        }
+    }
+
+    // ============ PLANIFICATION ============
+
+    private synchronized void enqueue(String institutionId, String jobId) {
+        if (runningByInstitution.getOrDefault(institutionId, 0) < maxPerInstitution) {
+            start(institutionId, jobId);
+        } else {
+            waitingByInstitution.computeIfAbsent(institutionId, key -> new ArrayDeque<>()).add(jobId);
+            waitingCount++;
+            log.info("Job d'importation {} en attente: {} job(s) déjà en cours pour l'institution {}",
+                    jobId, maxPerInstitution, institutionId);
+        }
+    }
+
+    /**
+     * Confie un job au pool (appelé sous verrou)
+     */
+    private void start(String institutionId, String jobId) {
+        try {
+            executor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    release(institutionId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new BusinessException(ErrorCode.IMPORT_QUEUE_FULL,
+                    "Trop d'importations en attente, veuillez réessayer plus tard", Map.of("maxQueued", maxQueued));
+        }
+        runningByInstitution.merge(institutionId, 1, Integer::sum);
+    }
+
+    /**
+     * Libère la place d'un job terminé et démarre le job suivant de la même institution
+     */
+    private synchronized void release(String institutionId) {
+        runningByInstitution.computeIfPresent(institutionId, (key, count) -> count > 1 ? count - 1 : null);
+
+        Deque<String> waiting = waitingByInstitution.get(institutionId);
+        if (waiting == null || executor.isShutdown()) {
+            return;
+        }
+        String next = waiting.poll();
+        waitingCount--;
+        if (waiting.isEmpty()) {
+            waitingByInstitution.remove(institutionId);
+        }
+        try {
+            start(institutionId, next);
+        } catch (BusinessException e) {
+            log.error("Impossible de démarrer le job d'importation {}: {}", next, e.getMessage());
+            finish(next, ImportJobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private synchronized int pendingCount() {
+        return waitingCount + executor.getQueue().size();
+    }
+
+    // ============ EXÉCUTION ============
+
+    private void run(String jobId) {
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            log.warn("Job d'importation {} introuvable, ignoré", jobId);
+            return;
+        }
+
+        if (job.getStatus() == ImportJobStatus.COMPLETED || job.getStatus() == ImportJobStatus.FAILED) {
+            return;
+        }
+
+        Path spoolPath = Path.of(job.getSpoolPath());
+        Update running = new Update()
+                .set("status", ImportJobStatus.RUNNING)
+                .set("leaseExpiresAt", leaseDeadline());
+        if (job.getStartedAt() == null) {
+            running.set("startedAt", LocalDateTime.now());
+        }
+        boolean owned = mongoTemplate.updateFirst(owned(jobId), running, ImportJob.class).getMatchedCount() == 1;
+        if (!owned) {
+            log.info("Job d'importation {} repris par une autre instance, ignoré", jobId);
+            return;
+        }
+        log.info("Début du job d'importation {} pour l'offre {} (après la ligne {})",
+                jobId, job.getOfferId(), job.getCheckpointRow());
+
+        try {
+            if (job.getCheckpointRow() > 0
+                    && !StudentImportService.fileHash(new FileSystemResource(spoolPath)).equals(job.getFileHash())) {
+                throw new BusinessException(ErrorCode.FILE_PROCESSING_ERROR,
+                        "Le fichier d'importation a été modifié depuis le dernier point de reprise",
+                        Map.of("jobId", jobId));
+            }
+
+            StudentBulkImporter.ImportSession session = studentBulkImporter
+                    .open(job.getOfferId(), job.getClassroomId())
+                    .withFileHash(job.getFileHash())
+                    .discardFailures();
+            studentImportService.importFile(spoolPath, job.getFormat(), job.getCharset(), session, job.getCheckpointRow(),
+                    (rows, failures) -> {
+                        if (!recordProgress(jobId, rows, failures)) {
+                            // Point de reprise non écrit : le lot sera rejoué par l'instance qui a repris le job
+                            throw new ImportInterruptedException(rows.get(0).rowNumber() - 1,
+                                    "job repris par une autre instance");
+                        }
+                        if (executor.isShutdown()) {
+                            throw new ImportInterruptedException(rows.get(rows.size() - 1).rowNumber(),
+                                    "arrêt de l'instance");
+                        }
+                    });
+            if (finish(jobId, ImportJobStatus.COMPLETED, null)) {
+                deleteQuietly(spoolPath);
+            }
+            log.info("Job d'importation {} terminé: {} étudiants importés, {} échecs",
+                    jobId, session.result().successCount(), session.result().failedCount());
+        } catch (ImportInterruptedException e) {
+            // Statut et fichier conservés : le job reprendra après ce point de reprise
+            log.warn("Job d'importation {} suspendu après la ligne {}: {}", jobId, e.getCheckpointRow(), e.getReason());
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                log.warn("Job d'importation {} interrompu par l'arrêt de l'instance: {}", jobId, e.getMessage());
+                return;
+            }
+            log.error("Échec du job d'importation {}: {}", jobId, e.getMessage(), e);
+            if (finish(jobId, ImportJobStatus.FAILED, e.getMessage())) {
+                deleteQuietly(spoolPath);
+            }
+        }
+    }
+
+    /**
+     * Enregistre les lignes rejetées d'un lot puis écrit le point de reprise avec les compteurs du job et renouvelle
+     * son bail, en une seule mise à jour. Les lignes rejetées ont un ID déterministe : un lot rejoué après un arrêt
+     * ne les duplique pas. La mise à jour n'a lieu que si le job appartient toujours à l'instance et que son bail
+     * n'a pas expiré : une instance dont le job a été repris n'avance ni le point de reprise ni les compteurs.
+     * @return false si le job n'appartient plus à l'instance (rien n'a été écrit sur le job)
+     */
+    private boolean recordProgress(String jobId, List<StudentImportRow> rows, List<StudentBulkImporter.RowFailure> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!failures.isEmpty()) {
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ImportJobFailure.class);
+            operations.insert(failures.stream()
+                    .map(failure -> ImportJobFailure.builder()
+                            .id(jobId + ":" + failure.row().rowNumber())
+                            .jobId(jobId)
+                            .rowNumber(failure.row().rowNumber())
+                            .studentData(failure.row().values())
+                            .errorMessage(failure.errorMessage())
+                            .createdAt(now)
+                            .build())
+                    .toList());
+            try {
+                operations.execute();
+            } catch (BulkOperationException e) {
+                log.debug("{} lignes en échec déjà enregistrées pour le job {}", e.getErrors().size(), jobId);
+            }
+        }
+
+        int lastRow = rows.get(rows.size() - 1).rowNumber();
+        return mongoTemplate.updateFirst(
+                owned(jobId).addCriteria(Criteria.where("status").is(ImportJobStatus.RUNNING)
+                        .and("leaseExpiresAt").gt(now)),
+                new Update()
+                        .max("checkpointRow", lastRow)
+                        .set("checkpointAt", now)
+                        .inc("rowsProcessed", rows.size())
+                        .inc("rowsSucceeded", rows.size() - failures.size())
+                        .inc("rowsFailed", failures.size())
+                        .set("leaseExpiresAt", leaseDeadline()),
+                ImportJob.class).getMatchedCount() == 1;
+    }
+
+    private void releaseLease(Query query) {
+        mongoTemplate.updateMulti(query, new Update().set("leaseExpiresAt", LocalDateTime.now()), ImportJob.class);
+    }
+
+    private LocalDateTime leaseDeadline() {
+        return LocalDateTime.now().plus(leaseDuration);
+    }
+
+    /**
+     * Bail expiré avant l'instant donné, ou absent (job antérieur aux baux)
+     */
+    private static Criteria expiredBefore(LocalDateTime instant) {
+        return new Criteria().orOperator(
+                Criteria.where("leaseExpiresAt").lt(instant),
+                Criteria.where("leaseExpiresAt").is(null));
+    }
+
+    private Query owned(String jobId) {
+        return Query.query(Criteria.where("_id").is(jobId).and("owner").is(instanceId));
+    }
+
+    /**
+     * Termine un job de l'instance
+     * @return false si le job appartient désormais à une autre instance (son fichier doit alors être conservé)
+     */
+    private boolean finish(String jobId, ImportJobStatus status, String errorMessage) {
+        return mongoTemplate.updateFirst(owned(jobId),
+                new Update()
+                        .set("status", status)
+                        .set("errorMessage", errorMessage)
+                        .set("finishedAt", LocalDateTime.now()),
+                ImportJob.class).getMatchedCount() == 1;
+    }
+
+    // ============ UTILITAIRES ============
+
+    private ImportJob findJob(String jobId) {
+        return importJobRepository.findById(jobId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.IMPORT_JOB_NOT_FOUND,
+                        "Le job d'importation spécifié n'existe pas", Map.of("jobId", jobId)));
+    }
+
+    private ImportJobResponse toResponse(ImportJob job) {
+        double rowsPerSecond = 0.0;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            long elapsedMillis = Duration.between(job.getStartedAt(), end).toMillis();
+            if (elapsedMillis > 0) {
+                rowsPerSecond = job.getRowsProcessed() * 1000.0 / elapsedMillis;
+            }
+        }
+
+        return new ImportJobResponse(
+                job.getId(),
+                job.getStatus(),
+                job.getFormat(),
+                job.getFileName(),
+                job.getOfferId(),
+                job.getRowsProcessed(),
+                job.getRowsSucceeded(),
+                job.getRowsFailed(),
+                rowsPerSecond,
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt()
+        );
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer le fichier d'importation {}: {}", path, e.getMessage());
+        }
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Job suspendu (arrêt de l'instance ou perte du bail), juste après l'écriture d'un point de reprise
+     */
+    private static class ImportInterruptedException extends RuntimeException {
+        private final int checkpointRow;
+        private final String reason;
+
+        ImportInterruptedException(int checkpointRow, String reason) {
+            super("Job suspendu après la ligne " + checkpointRow + ": " + reason);
+            this.checkpointRow = checkpointRow;
+            this.reason = reason;
+        }
+
+        int getCheckpointRow() {
+            return checkpointRow;
+        }
+
+        String getReason() {
+            return reason;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.payiskoul.institution.student.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ligne de données lue dans un fichier d'importation d'étudiants
+ * @param rowNumber numéro de la ligne dans le fichier (1 pour la première ligne)
+ * @param columns en-têtes du fichier
+ * @param cells valeurs de la ligne, par position d'en-tête
+ */
+record StudentImportRow(
+        int rowNumber,
+        ImportColumns columns,
+        String[] cells
+) {
+
+    /**
+     * Valeur d'une colonne
+     * @return la valeur, ou une chaîne vide si la position est absente
+     */
+    String cell(int position) {
+        if (position < 0 || position >= cells.length || cells[position] == null) {
+            return "";
+        }
+        return cells[position];
+    }
+
+    /**
+     * Valeurs indexées par nom d'en-tête, pour le rapport des lignes rejetées
+     */
+    Map<String, String> values() {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            values.putIfAbsent(columns.name(i), cell(i));
+        }
+        return values;
+    }
+}
@@ -3,20 +3,24 @@ package com.payiskoul.institution.student.service;
 import com.payiskoul.institution.classroom.model.Classroom;
 import com.payiskoul.institution.classroom.repository.ClassroomRepository;
 import com.payiskoul.institution.exception.BusinessException;
-import com.payiskoul.institution.exception.EnrollmentAlreadyExistsException;
 import com.payiskoul.institution.exception.ErrorCode;
 import com.payiskoul.institution.program.model.TrainingOffer;
 import com.payiskoul.institution.program.repository.TrainingOfferRepository;
-import com.payiskoul.institution.student.dto.CreateStudentRequest;
-import com.payiskoul.institution.student.dto.FailedImportRecord;
 import com.payiskoul.institution.student.dto.StudentImportResult;
-import com.payiskoul.institution.student.model.Gender;
+import com.payiskoul.institution.student.model.Enrollment;
+import com.payiskoul.institution.student.model.Enrollment.EnrollmentStatus;
+import com.payiskoul.institution.student.model.ImportFormat;
 import com.payiskoul.institution.student.model.Student;
 import com.payiskoul.institution.student.repository.StudentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,11 +28,15 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service d'importation d'étudiants mis à jour pour utiliser le modèle unifié TrainingOffer
@@ -38,11 +46,33 @@ import java.util.*;
 @Slf4j
 public class StudentImportService {
 
-    private final StudentRepository studentRepository;
     private final TrainingOfferRepository trainingOfferRepository; // Remplace ProgramLevelRepository
     private final ClassroomRepository classroomRepository;
-    private final StudentService studentService;
-    private final EnrollmentService enrollmentService;
+    private final ExcelStudentReader excelStudentReader;
+    private final CsvStudentReader csvStudentReader;
+    private final StudentBulkImporter studentBulkImporter;
+    private final StudentTemplateWriter studentTemplateWriter;
+    private final StudentRepository studentRepository;
+    private final MongoTemplate mongoTemplate;
+
+    // Changer la version invalide les templates en cache et les ETag déjà distribués
+    private static final String TEMPLATE_VERSION = "1";
+    private static final int ROSTER_BATCH_SIZE = 500;
+
+    @Value("${payiskoul.student.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${payiskoul.student.import.template-cache-size:200}")
+    private int templateCacheSize;
+
+    // Templates générés, par clé (version, offre, date de mise à jour de l'offre, classe, date de mise à jour de la classe)
+    private final Map<String, ExcelTemplate> templateCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, ExcelTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ExcelTemplate> eldest) {
+                    return size() > templateCacheSize;
+                }
+            });
 
     /**
      * Importe des étudiants depuis un fichier CSV
@@ -52,53 +82,37 @@ public class StudentImportService {
      * @param classroomId ID de la classe (optionnel)
      * @return Résultat de l'importation
      */
-    @Transactional
     public StudentImportResult importStudentsFromCsv(MultipartFile file, String offerId, String classroomId) {
+        return importStudentsFromCsv(file, offerId, classroomId, null);
+    }
+
+    /**
+     * Importe des étudiants depuis un fichier CSV, lu en flux
+     *
+     * @param file        Fichier CSV contenant les données des étudiants
+     * @param offerId     ID de l'offre à laquelle inscrire les étudiants (remplace programId)
+     * @param classroomId ID de la classe (optionnel)
+     * @param charset     Encodage du fichier (optionnel, détecté si absent)
+     * @return Résultat de l'importation
+     */
+    @Transactional
+    public StudentImportResult importStudentsFromCsv(MultipartFile file, String offerId, String classroomId,
+                                                     String charset) {
         log.info("Début de l'importation d'étudiants depuis un fichier CSV pour l'offre {}", offerId);
+        Charset declaredCharset = CsvStudentReader.declaredCharset(charset);
 
-        // Vérifier que l'offre existe (remplace la vérification de programme)
-        TrainingOffer trainingOffer = trainingOfferRepository.findById(offerId)
-                .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
-                        "L'offre spécifiée n'existe pas", Map.of("offerId", offerId)));
+        // Vérifier l'offre et la classe, charger les références une seule fois
+        StudentBulkImporter.ImportSession session = studentBulkImporter.open(offerId, classroomId)
+                .withFileHash(fileHash(file));
 
-        // Vérifier que la classe existe si spécifiée
-        if (classroomId != null && !classroomId.isEmpty()) {
-            classroomRepository.findById(classroomId)
-                    .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
-                            "La classe spécifiée n'existe pas", Map.of("classroomId", classroomId)));
-        }
-
-        List<Map<String, String>> records = parseCsvFile(file);
-        List<FailedImportRecord> failedRecords = new ArrayList<>();
-        int successCount = 0;
-
-        for (Map<String, String> studentRecord : records) {
-            try {
-                // Vérifier si un matricule est fourni
-                String matricule = studentRecord.getOrDefault("matricule", "").trim();
-
-                if (matricule.isEmpty() || matricule.isBlank()) {
-                    // Cas 1: Nouvel étudiant à créer
-                    processNewStudent(studentRecord, offerId, classroomId, failedRecords);
-                    successCount++;
-                } else {
-                    // Cas 2: Étudiant existant à inscrire
-                    processExistingStudent(matricule, offerId, classroomId, failedRecords);
-                    successCount++;
-                }
-            } catch (Exception e) {
-                log.error("Erreur lors de l'importation d'un étudiant: {}", e.getMessage());
-                failedRecords.add(new FailedImportRecord(
-                        studentRecord,
-                        e.getMessage()
-                ));
-            }
-        }
+        // Lecture en flux : les lignes sont importées par lots dès qu'elles sont lues
+        importRows(session, csvRows(file, declaredCharset), 0, (rows, failures) -> { });
 
+        StudentImportResult result = session.result();
         log.info("Importation terminée. {} étudiants importés avec succès, {} échecs",
-                successCount, failedRecords.size());
+                result.successCount(), result.failedCount());
 
-        return new StudentImportResult(successCount, failedRecords.size(), failedRecords);
+        return result;
     }
 
     /**
@@ -113,49 +127,59 @@ public class StudentImportService {
     public StudentImportResult importStudentsFromExcel(MultipartFile file, String offerId, String classroomId) {
         log.info("Début de l'importation d'étudiants depuis un fichier Excel pour l'offre {}", offerId);
 
-        // Vérifier que l'offre existe
-        TrainingOffer trainingOffer = trainingOfferRepository.findById(offerId)
-                .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
-                        "L'offre spécifiée n'existe pas", Map.of("offerId", offerId)));
+        // Vérifier l'offre et la classe, charger les références une seule fois
+        StudentBulkImporter.ImportSession session = studentBulkImporter.open(offerId, classroomId)
+                .withFileHash(fileHash(file));
+
+        // Lecture en flux : les lignes sont importées par lots dès qu'elles sont lues
+        importRows(session, consumer -> excelStudentReader.read(file, this::cleanHeaderName, consumer), 0,
+                (rows, failures) -> { });
+
+        StudentImportResult result = session.result();
+        log.info("Importation terminée. {} étudiants importés avec succès, {} échecs",
+                result.successCount(), result.failedCount());
+
+        return result;
+    }
 
-        // Vérifier que la classe existe si spécifiée
-        if (classroomId != null && !classroomId.isEmpty()) {
-            classroomRepository.findById(classroomId)
-                    .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
-                            "La classe spécifiée n'existe pas", Map.of("classroomId", classroomId)));
+    /**
+     * Importe un fichier déjà copié sur disque (job d'importation)
+     *
+     * @param file          Chemin du fichier
+     * @param format        Format du fichier
+     * @param charset       Encodage d'un fichier CSV (optionnel, détecté si absent)
+     * @param session       Session d'importation ouverte pour l'offre
+     * @param resumeAfterRow Dernière ligne validée lors d'une exécution précédente (0 pour tout importer)
+     * @param listener      Notifié après chaque lot importé
+     */
+    void importFile(Path file, ImportFormat format, String charset, StudentBulkImporter.ImportSession session,
+                    int resumeAfterRow, ChunkListener listener) {
+        switch (format) {
+            case CSV -> importRows(session,
+                    csvRows(new FileSystemResource(file), CsvStudentReader.declaredCharset(charset)), resumeAfterRow, listener);
+            case EXCEL -> importRows(session,
+                    consumer -> excelStudentReader.read(file, this::cleanHeaderName, consumer), resumeAfterRow, listener);
         }
+    }
 
-        List<Map<String, String>> records = parseExcelFile(file);
-        List<FailedImportRecord> failedRecords = new ArrayList<>();
-        int successCount = 0;
-
-        for (Map<String, String> studentRecord : records) {
-            try {
-                // Vérifier si un matricule est fourni
-                String matricule = studentRecord.getOrDefault("matricule", "").trim();
-
-                if (matricule.isEmpty() || matricule.isBlank()) {
-                    // Cas 1: Nouvel étudiant à créer
-                    processNewStudent(studentRecord, offerId, classroomId, failedRecords);
-                    successCount++;
-                } else {
-                    // Cas 2: Étudiant existant à inscrire
-                    processExistingStudent(matricule, offerId, classroomId, failedRecords);
-                    successCount++;
-                }
-            } catch (Exception e) {
-                log.error("Erreur lors de l'importation d'un étudiant: {}", e.getMessage());
-                failedRecords.add(new FailedImportRecord(
-                        studentRecord,
-                        e.getMessage()
-                ));
+    /**
+     * Calcule l'empreinte SHA-256 du contenu d'un fichier
+     * @param file Fichier téléversé ou copié sur disque
+     * @return l'empreinte en hexadécimal
+     */
+    static String fileHash(InputStreamSource file) {
+        try (InputStream is = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
             }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new BusinessException(ErrorCode.FILE_PROCESSING_ERROR,
+                    "Impossible de lire le fichier d'importation: " + e.getMessage(), null);
         }
-
-        log.info("Importation terminée. {} étudiants importés avec succès, {} échecs",
-                successCount, failedRecords.size());
-
-        return new StudentImportResult(successCount, failedRecords.size(), failedRecords);
     }
 
     /**
@@ -167,88 +191,73 @@ public class StudentImportService {
      * @throws IOException En cas d'erreur lors de la génération du fichier
      */
     public byte[] generateExcelTemplate(String offerId, String classroomId) throws IOException {
-        log.info("Génération d'un template Excel pour l'offre {}", offerId);
-
-        // Vérifier que l'offre existe
-        TrainingOffer trainingOffer = trainingOfferRepository.findById(offerId)
-                .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
-                        "L'offre spécifiée n'existe pas", Map.of("offerId", offerId)));
+        return getExcelTemplate(offerId, classroomId).content();
+    }
 
-        // Récupérer la classe si spécifiée
-        Classroom classroom = null;
-        if (classroomId != null && !classroomId.isEmpty()) {
-            classroom = classroomRepository.findById(classroomId)
-                    .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
-                            "La classe spécifiée n'existe pas", Map.of("classroomId", classroomId)));
+    /**
+     * Retourne le template Excel d'importation et son ETag.
+     * Le template est mis en cache par (offre, classe, dates de mise à jour) : une modification de l'offre
+     * ou de la classe produit une nouvelle clé, donc un nouveau template et un nouvel ETag.
+     *
+     * @param offerId     ID de l'offre
+     * @param classroomId ID de la classe (optionnel)
+     * @return le template et son ETag
+     * @throws IOException En cas d'erreur lors de la génération du fichier
+     */
+    public ExcelTemplate getExcelTemplate(String offerId, String classroomId) throws IOException {
+        TrainingOffer trainingOffer = findOffer(offerId);
+        Classroom classroom = findClassroom(classroomId);
+
+        String key = String.join("|", TEMPLATE_VERSION, trainingOffer.getId(), String.valueOf(trainingOffer.getUpdatedAt()),
+                classroom != null ? classroom.getId() : "", classroom != null ? String.valueOf(classroom.getUpdatedAt()) : "");
+        ExcelTemplate cached = templateCache.get(key);
+        if (cached != null) {
+            return cached;
         }
 
-        // Création du classeur Excel
-        try (Workbook workbook = new XSSFWorkbook()) {
-            // Création de la feuille de données
-            Sheet sheet = workbook.createSheet("Importation Étudiants");
-
-            // Styles
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-            // Entête avec informations sur l'offre (remplace programme)
-            Row offerRow = sheet.createRow(0);
-            Cell offerLabelCell = offerRow.createCell(0);
-            offerLabelCell.setCellValue("Offre:");
-            offerLabelCell.setCellStyle(headerStyle);
-
-            Cell offerValueCell = offerRow.createCell(1);
-            offerValueCell.setCellValue(trainingOffer.getLabel() + " (" + trainingOffer.getCode() + ")");
-
-            // Classe si spécifiée
-            if (classroom != null) {
-                Row classroomRow = sheet.createRow(1);
-                Cell classroomLabelCell = classroomRow.createCell(0);
-                classroomLabelCell.setCellValue("Classe:");
-                classroomLabelCell.setCellStyle(headerStyle);
-
-                Cell classroomValueCell = classroomRow.createCell(1);
-                classroomValueCell.setCellValue(classroom.getName());
-            }
+        log.info("Génération d'un template Excel pour l'offre {}", offerId);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        studentTemplateWriter.write(trainingOffer, classroom, null, outputStream);
 
-            // En-têtes des colonnes
-            String[] columns = {"Matricule (optionnel)", "Nom complet", "Genre (MALE/FEMALE)",
-                    "Date de naissance (YYYY-MM-DD)", "Email", "Téléphone"};
-            Row headerRow = sheet.createRow(classroom != null ? 3 : 2);
+        ExcelTemplate template = new ExcelTemplate(sha256(key).substring(0, 32), outputStream.toByteArray());
+        templateCache.put(key, template);
+        return template;
+    }
 
-            for (int i = 0; i < columns.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(columns[i]);
-                cell.setCellStyle(headerStyle);
-                sheet.setColumnWidth(i, 6000);
-            }
+    /**
+     * Vérifie les paramètres d'un template pré-rempli avant le début de son écriture
+     *
+     * @param offerId       ID de l'offre cible de la réinscription
+     * @param classroomId   ID de la classe cible (optionnel)
+     * @param rosterOfferId ID de l'offre dont les étudiants sont pré-remplis
+     * @return les références du template
+     */
+    public RosterTemplate prepareRosterTemplate(String offerId, String classroomId, String rosterOfferId) {
+        return new RosterTemplate(findOffer(offerId), findClassroom(classroomId), findOffer(rosterOfferId));
+    }
 
-            // Ajout d'une ligne d'exemple pour un nouvel étudiant
-            Row exampleRow = sheet.createRow(classroom != null ? 4 : 3);
-            exampleRow.createCell(0).setCellValue(""); // Matricule vide pour nouvel étudiant
-            exampleRow.createCell(1).setCellValue("Seka Alexandre");
-            exampleRow.createCell(2).setCellValue("MALE");
-            exampleRow.createCell(3).setCellValue("2001-05-14");
-            exampleRow.createCell(4).setCellValue("seka.alex@example.com");
-            exampleRow.createCell(5).setCellValue("+2250701020304");
-
-            // Ajout d'une ligne d'exemple pour un étudiant existant
-            Row existingStudentRow = sheet.createRow(classroom != null ? 5 : 4);
-            existingStudentRow.createCell(0).setCellValue("PI-CI-25A0001"); // Exemple de matricule existant
-            existingStudentRow.createCell(1).setCellValue("Koné Aminata");
-            existingStudentRow.createCell(2).setCellValue("FEMALE");
-            existingStudentRow.createCell(3).setCellValue("2002-08-22");
-            existingStudentRow.createCell(4).setCellValue("kone.aminata@example.com");
-            existingStudentRow.createCell(5).setCellValue("+2250708090102");
-
-            // Conversion en tableau d'octets
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
+    /**
+     * Écrit un template Excel pré-rempli avec les étudiants inscrits (ou ayant terminé) à une offre,
+     * pour les réinscrire dans une autre offre. Les inscriptions sont lues par curseur et les étudiants
+     * chargés par lots : ni la liste ni le classeur ne sont entièrement construits en mémoire.
+     *
+     * @param template     références du template
+     * @param outputStream flux de sortie
+     * @throws IOException En cas d'erreur lors de l'écriture du fichier
+     */
+    public void writeRosterTemplate(RosterTemplate template, OutputStream outputStream) throws IOException {
+        log.info("Génération d'un template Excel pour l'offre {} pré-rempli avec les étudiants de l'offre {}",
+                template.offer().getId(), template.rosterOffer().getId());
+
+        Query query = Query.query(Criteria.where("programLevelId").is(template.rosterOffer().getId())
+                        .and("status").in(EnrollmentStatus.ENROLLED, EnrollmentStatus.COMPLETED))
+                .with(Sort.by("enrolledAt"))
+                .cursorBatchSize(ROSTER_BATCH_SIZE);
+        query.fields().include("studentId");
+
+        try (Stream<Enrollment> enrollments = mongoTemplate.stream(query, Enrollment.class)) {
+            studentTemplateWriter.write(template.offer(), template.classroom(),
+                    new RosterIterator(enrollments.iterator()), outputStream);
         }
     }
 
@@ -287,333 +296,64 @@ public class StudentImportService {
     // ============ MÉTHODES PRIVÉES ============
 
     /**
-     * Parse un fichier CSV et retourne les enregistrements sous forme de liste de maps
-     * @param file Fichier CSV à parser
-     * @return Liste des enregistrements
-     */
-    private List<Map<String, String>> parseCsvFile(MultipartFile file) {
-        List<Map<String, String>> records = new ArrayList<>();
-
-        try (InputStream is = file.getInputStream();
-             InputStreamReader reader = new InputStreamReader(is);
-             com.opencsv.CSVReader csvReader = new com.opencsv.CSVReader(reader)) {
-
-            // Lecture des en-têtes
-            String[] headers = csvReader.readNext();
-            if (headers == null) {
-                throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
-                        "Le fichier CSV ne contient pas d'en-têtes", null);
-            }
-
-            // Nettoyer les en-têtes pour enlever les suffixes explicatifs
-            for (int i = 0; i < headers.length; i++) {
-                headers[i] = cleanHeaderName(headers[i]);
-            }
-
-            // Lecture des données
-            String[] line;
-
-            while ((line = csvReader.readNext()) != null) {
-                if (line.length < headers.length) {
-                    continue; // Ignorer les lignes incomplètes
-                }
-
-                Map<String, String> entry = new HashMap<>();
-                for (int i = 0; i < headers.length; i++) {
-                    entry.put(headers[i].trim(), i < line.length ? line[i].trim() : "");
-                }
-
-                records.add(entry);
-            }
-
-        } catch (Exception e) {
-            log.error("Erreur lors de la lecture du fichier CSV: {}", e.getMessage());
-            throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
-                    "Erreur lors de la lecture du fichier CSV: " + e.getMessage(), null);
-        }
-
-        return records;
-    }
-
-    /**
-     * Parse un fichier Excel et retourne les enregistrements sous forme de liste de maps
-     * @param file Fichier Excel à parser
-     * @return Liste des enregistrements
+     * Découpe les lignes lues en lots de chunkSize et les transmet à l'importateur
+     * @param session Session d'importation
+     * @param source  Lecture du fichier, ligne par ligne
+     * @param resumeAfterRow Les lignes jusqu'à ce numéro inclus sont ignorées
+     * @param listener Notifié après chaque lot importé
      */
-    private List<Map<String, String>> parseExcelFile(MultipartFile file) {
-        List<Map<String, String>> lines = new ArrayList<>();
-
-        try (InputStream is = file.getInputStream();
-             Workbook workbook = WorkbookFactory.create(is)) {
-
-            // Lecture de la première feuille
-            Sheet sheet = workbook.getSheetAt(0);
-            Iterator<Row> rowIterator = sheet.iterator();
-
-            // Déterminer la ligne d'en-tête (ignorer les lignes d'information sur l'offre)
-            Row headerRow = null;
-            while (rowIterator.hasNext()) {
-                Row row = rowIterator.next();
-                Cell firstCell = row.getCell(0);
-                if (firstCell != null && firstCell.getCellType() == CellType.STRING) {
-                    String value = firstCell.getStringCellValue();
-                    if (!value.contains(":") && !value.isEmpty()) {
-                        headerRow = row;
-                        break;
-                    }
-                }
+    private void importRows(StudentBulkImporter.ImportSession session,
+                            Consumer<Consumer<StudentImportRow>> source,
+                            int resumeAfterRow,
+                            ChunkListener listener) {
+        List<StudentImportRow> chunk = new ArrayList<>(chunkSize);
+        source.accept(row -> {
+            if (row.rowNumber() <= resumeAfterRow) {
+                return;
             }
-
-            if (headerRow == null) {
-                throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
-                        "Le fichier Excel ne contient pas d'en-têtes valides", null);
-            }
-
-            // Lecture des en-têtes et nettoyage des suffixes explicatifs
-            List<String> headers = new ArrayList<>();
-            for (Cell cell : headerRow) {
-                if (cell.getCellType() == CellType.STRING && !cell.getStringCellValue().isEmpty()) {
-                    String headerName = cleanHeaderName(cell.getStringCellValue().trim());
-                    headers.add(headerName);
-                }
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                importChunk(session, chunk, listener);
             }
-
-            // Lecture des données
-            readData(headers, rowIterator, lines);
-
-        } catch (Exception e) {
-            log.error("Erreur lors de la lecture du fichier Excel: {}", e.getMessage());
-            throw new BusinessException(ErrorCode.INVALID_FILE_FORMAT,
-                    "Erreur lors de la lecture du fichier Excel: " + e.getMessage(), null);
+        });
+        if (!chunk.isEmpty()) {
+            importChunk(session, chunk, listener);
         }
-
-        return lines;
     }
 
-    /**
-     * Crée une requête de création d'étudiant à partir d'un enregistrement
-     *
-     * @param studentRecord Enregistrement contenant les données de l'étudiant
-     * @param offerId       ID de l'offre (remplace programId)
-     * @param classroomId   ID de la classe (optionnel)
-     * @return Requête de création d'étudiant
-     */
-    private CreateStudentRequest createRequestFromRecord(Map<String, String> studentRecord, String offerId, String classroomId) {
-        // Récupération des données avec validation
-        String fullName = getRequiredField(studentRecord, "fullName", "Nom complet");
-
-        // Parsing du genre
-        String genderStr = getRequiredField(studentRecord, "gender", "Genre");
-        Gender gender;
-        try {
-            gender = Gender.valueOf(genderStr);
-        } catch (IllegalArgumentException e) {
-            throw new BusinessException(ErrorCode.INVALID_INPUT,
-                    "Genre invalide. Doit être MALE ou FEMALE", Map.of("gender", genderStr));
-        }
-
-        // Parsing de la date de naissance
-        String birthDateStr = getRequiredField(studentRecord, "birthDate", "Date de naissance");
-        LocalDate birthDate;
-        try {
-            birthDate = LocalDate.parse(birthDateStr, DateTimeFormatter.ISO_LOCAL_DATE);
-        } catch (DateTimeParseException e) {
-            throw new BusinessException(ErrorCode.INVALID_INPUT,
-                    "Format de date invalide. Utilisez YYYY-MM-DD", Map.of("birthDate", birthDateStr));
-        }
-
-        // Validation de l'email
-        String email = getRequiredField(studentRecord, "email", "Email");
-        if (!email.contains("@") || !email.contains(".")) {
-            throw new BusinessException(ErrorCode.INVALID_INPUT,
-                    "Email manquant ou invalide", Map.of("email", email));
-        }
-
-        // Récupération du téléphone
-        String phone = getRequiredField(studentRecord, "phone", "Téléphone");
-
-        // Création de la requête (programId devient offerId)
-        return new CreateStudentRequest(
-                fullName,
-                gender,
-                birthDate,
-                email,
-                phone,
-                offerId, // Changement: utilise offerId au lieu de programId
-                classroomId
-        );
+    private void importChunk(StudentBulkImporter.ImportSession session, List<StudentImportRow> chunk,
+                             ChunkListener listener) {
+        List<StudentImportRow> rows = List.copyOf(chunk);
+        chunk.clear();
+        listener.onChunk(rows, studentBulkImporter.importChunk(session, rows));
     }
 
-    /**
-     * Traite un nouvel étudiant (création + inscription)
-     */
-    private void processNewStudent(Map<String, String> studentRecord, String offerId, String classroomId,
-                                   List<FailedImportRecord> failedRecords) {
-        // Créer la requête
-        CreateStudentRequest request = createRequestFromRecord(studentRecord, offerId, classroomId);
-
-        // Vérifier si l'email existe déjà
-        if (studentRepository.existsByEmail(request.email())) {
-            failedRecords.add(new FailedImportRecord(
-                    studentRecord,
-                    "Un étudiant avec cet email existe déjà"
-            ));
-            return;
-        }
-
-        // Créer l'étudiant (avec son inscription)
-        studentService.createStudent(request);
-        log.info("Nouvel étudiant créé et inscrit à l'offre: {}", request.email());
+    private Consumer<Consumer<StudentImportRow>> csvRows(InputStreamSource file, Charset charset) {
+        return consumer -> csvStudentReader.read(file, charset, this::cleanHeaderName, consumer);
     }
 
-    /**
-     * Traite un étudiant existant (inscription seulement)
-     */
-    private void processExistingStudent(String matricule, String offerId, String classroomId,
-                                        List<FailedImportRecord> failedRecords) {
-        // Vérifier si l'étudiant existe avec ce matricule
-        Optional<Student> studentOpt = studentRepository.findByMatricule(matricule);
-
-        if (studentOpt.isEmpty()) {
-            throw new BusinessException(ErrorCode.STUDENT_NOT_FOUND,
-                    "Aucun étudiant trouvé avec ce matricule", Map.of("matricule", matricule));
-        }
-
-        Student student = studentOpt.get();
-
-        // Vérifier si l'étudiant est déjà inscrit à cette offre
-        TrainingOffer trainingOffer = trainingOfferRepository.findById(offerId)
+    private TrainingOffer findOffer(String offerId) {
+        return trainingOfferRepository.findById(offerId)
                 .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
-                        "Offre introuvable", Map.of("offerId", offerId)));
-
-        // Construire l'année académique actuelle
-        String academicYear = trainingOffer.getAcademicYear();
-
-        // Créer une inscription pour l'étudiant existant
-        try {
-            enrollmentService.enrollStudentToOffer(
-                    student.getId(),
-                    offerId,
-                    trainingOffer.getInstitutionId(),
-                    academicYear,
-                    classroomId
-            );
-            log.info("Étudiant existant inscrit à l'offre: {}", matricule);
-        } catch (EnrollmentAlreadyExistsException e) {
-            // L'étudiant est déjà inscrit à cette offre pour cette année
-            log.warn("L'étudiant est déjà inscrit à cette offre: {}", matricule);
-            throw e;
-        }
-    }
-
-    /**
-     * Récupère un champ obligatoire d'un enregistrement
-     * @param entry Enregistrement
-     * @param key Clé du champ
-     * @param fieldName Nom du champ pour les messages d'erreur
-     * @return Valeur du champ
-     */
-    private String getRequiredField(Map<String, String> entry, String key, String fieldName) {
-        // Liste des variantes possibles pour les clés
-        List<String> possibleKeys = new ArrayList<>();
-        possibleKeys.add(key); // Clé originale (ex: "fullName")
-        possibleKeys.add(key.substring(0, 1).toUpperCase() + key.substring(1)); // PremièreLettreMajuscule (ex: "FullName")
-        possibleKeys.add(fieldName); // Nom du champ (ex: "Nom complet")
-        possibleKeys.add(fieldName.toLowerCase()); // Nom du champ en minuscules (ex: "nom complet")
-
-        // Gérer les suffixes des en-têtes générés dans le template
-        possibleKeys.add(fieldName + " (optionnel)");
-        possibleKeys.add(fieldName + " (MALE/FEMALE)");
-        possibleKeys.add(fieldName + " (YYYY-MM-DD)");
-
-        // Check si c'est le matricule
-        boolean isMatriculeField = key.equals("matricule") || fieldName.equals("Matricule");
-
-        // Chercher la valeur parmi toutes les variantes possibles
-        String value = null;
-        for (String possibleKey : possibleKeys) {
-            if (entry.containsKey(possibleKey) && !entry.get(possibleKey).isEmpty()) {
-                value = entry.get(possibleKey).trim();
-                break;
-            }
-        }
-
-        // Si aucune valeur trouvée
-        if (value == null || value.isEmpty()) {
-            // Exception pour le matricule qui est optionnel
-            if (isMatriculeField) {
-                return "";
-            }
-            throw new BusinessException(ErrorCode.INVALID_INPUT,
-                    fieldName + " manquant ou vide", Map.of("field", key));
-        }
-
-        return value;
+                        "L'offre spécifiée n'existe pas", Map.of("offerId", offerId)));
     }
 
-    /**
-     * Lit les données des lignes Excel
-     */
-    private void readData(List<String> headers, Iterator<Row> rowIterator, List<Map<String, String>> entries) {
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-
-            // Vérifier si la ligne n'est pas vide
-            boolean isEmpty = true;
-            for (int i = 0; i < headers.size(); i++) {
-                Cell cell = row.getCell(i);
-                if (cell != null && cell.getCellType() != CellType.BLANK) {
-                    isEmpty = false;
-                    break;
-                }
-            }
-
-            if (isEmpty) {
-                continue;
-            }
-
-            var line = writeLines(headers, row);
-            entries.add(line);
+    private Classroom findClassroom(String classroomId) {
+        if (classroomId == null || classroomId.isEmpty()) {
+            return null;
         }
+        return classroomRepository.findById(classroomId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.CLASSROOM_NOT_FOUND,
+                        "La classe spécifiée n'existe pas", Map.of("classroomId", classroomId)));
     }
 
-    /**
-     * Écrit les lignes de données
-     */
-    private Map<String, String> writeLines(List<String> headers, Row row) {
-        Map<String, String> line = new HashMap<>();
-        for (int i = 0; i < headers.size(); i++) {
-            Cell cell = row.getCell(i);
-            String value = "";
-
-            if (cell != null) {
-                switch (cell.getCellType()) {
-                    case STRING:
-                        value = cell.getStringCellValue().trim();
-                        break;
-                    case NUMERIC:
-                        if (DateUtil.isCellDateFormatted(cell)) {
-                            value = cell.getLocalDateTimeCellValue().toLocalDate().toString();
-                        } else {
-                            // Gérer les nombres entiers pour éviter les .0
-                            double numericValue = cell.getNumericCellValue();
-                            if (numericValue == (long) numericValue) {
-                                value = String.valueOf((long) numericValue);
-                            } else {
-                                value = String.valueOf(numericValue);
-                            }
-                        }
-                        break;
-                    case BOOLEAN:
-                        value = String.valueOf(cell.getBooleanCellValue());
-                        break;
-                    default:
-                        value = "";
-                }
-            }
-            line.put(headers.get(i), value);
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        return line;
     }
 
     /**
@@ -646,4 +386,70 @@ public class StudentImportService {
 
         return cleaned;
     }
-}
\ No newline at end of file
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Template Excel généré
+     * @param etag identifiant de version du template
+     * @param content contenu du fichier
+     */
+    public record ExcelTemplate(String etag, byte[] content) {}
+
+    /**
+     * Références d'un template pré-rempli
+     * @param offer offre cible
+     * @param classroom classe cible (optionnelle)
+     * @param rosterOffer offre dont les étudiants sont pré-remplis
+     */
+    public record RosterTemplate(TrainingOffer offer, Classroom classroom, TrainingOffer rosterOffer) {}
+
+    /**
+     * Parcourt les étudiants d'une liste d'inscriptions en les chargeant par lots de ROSTER_BATCH_SIZE,
+     * dans l'ordre des inscriptions et sans doublon
+     */
+    private final class RosterIterator implements Iterator<Student> {
+
+        private final Iterator<Enrollment> enrollments;
+        private final Set<String> seenStudentIds = new HashSet<>();
+        private Iterator<Student> batch = Collections.emptyIterator();
+
+        private RosterIterator(Iterator<Enrollment> enrollments) {
+            this.enrollments = enrollments;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext() && enrollments.hasNext()) {
+                List<String> studentIds = new ArrayList<>(ROSTER_BATCH_SIZE);
+                while (studentIds.size() < ROSTER_BATCH_SIZE && enrollments.hasNext()) {
+                    String studentId = enrollments.next().getStudentId();
+                    if (studentId != null && seenStudentIds.add(studentId)) {
+                        studentIds.add(studentId);
+                    }
+                }
+
+                Map<String, Student> students = new HashMap<>();
+                studentRepository.findAllById(studentIds).forEach(student -> students.put(student.getId(), student));
+                batch = studentIds.stream().map(students::get).filter(Objects::nonNull).iterator();
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public Student next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+    }
+
+    /**
+     * Notification de fin de lot : lignes du lot et lignes rejetées
+     */
+    @FunctionalInterface
+    interface ChunkListener {
+        void onChunk(List<StudentImportRow> rows, List<StudentBulkImporter.RowFailure> failures);
+    }
+}
@@ -0,0 +1,202 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.student.dto.CreateStudentRequest;
+import com.payiskoul.institution.student.model.Gender;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Validation des lignes d'importation d'étudiants.
+ * <p>
+ * Les en-têtes du fichier sont résolus une seule fois par importation : pour chaque champ, on retient les positions
+ * des variantes d'en-tête effectivement présentes. La validation d'une ligne se limite ensuite à quelques lectures
+ * de tableau et ne lève pas d'exception : l'erreur éventuelle est retournée comme valeur dans {@link RowValidation}.
+ * Une instance est immuable et peut valider des lignes depuis plusieurs threads.
+ */
+final class StudentRowValidator {
+
+    private static final Map<String, Gender> GENDERS = new HashMap<>();
+
+    static {
+        for (Gender gender : Gender.values()) {
+            GENDERS.put(gender.name(), gender);
+        }
+    }
+
+    private final ImportColumns columns;
+    private final int matriculePosition;
+    private final int[] fullNamePositions;
+    private final int[] genderPositions;
+    private final int[] birthDatePositions;
+    private final int[] emailPositions;
+    private final int[] phonePositions;
+
+    private StudentRowValidator(ImportColumns columns) {
+        this.columns = columns;
+        this.matriculePosition = columns.position("matricule");
+        this.fullNamePositions = resolve(columns, "fullName", "Nom complet");
+        this.genderPositions = resolve(columns, "gender", "Genre");
+        this.birthDatePositions = resolve(columns, "birthDate", "Date de naissance");
+        this.emailPositions = resolve(columns, "email", "Email");
+        this.phonePositions = resolve(columns, "phone", "Téléphone");
+    }
+
+    /**
+     * Prépare la validation pour les en-têtes d'un fichier
+     * @param columns en-têtes normalisés du fichier
+     * @return le validateur
+     */
+    static StudentRowValidator forColumns(ImportColumns columns) {
+        return new StudentRowValidator(columns);
+    }
+
+    /**
+     * Indique si le validateur a été préparé pour ces en-têtes
+     */
+    boolean supports(ImportColumns columns) {
+        return this.columns == columns;
+    }
+
+    /**
+     * Valide une ligne
+     * @param row ligne à valider
+     * @param offerId ID de l'offre
+     * @return la requête de création, le matricule d'un étudiant existant ou le message d'erreur
+     */
+    RowValidation validate(StudentImportRow row, String offerId) {
+        String matricule = row.cell(matriculePosition).trim();
+        if (!matricule.isEmpty()) {
+            return RowValidation.existing(matricule);
+        }
+
+        String fullName = value(row, fullNamePositions);
+        if (fullName == null) {
+            return RowValidation.invalid("Nom complet manquant ou vide");
+        }
+
+        String genderStr = value(row, genderPositions);
+        if (genderStr == null) {
+            return RowValidation.invalid("Genre manquant ou vide");
+        }
+        Gender gender = GENDERS.get(genderStr);
+        if (gender == null) {
+            return RowValidation.invalid("Genre invalide. Doit être MALE ou FEMALE");
+        }
+
+        String birthDateStr = value(row, birthDatePositions);
+        if (birthDateStr == null) {
+            return RowValidation.invalid("Date de naissance manquant ou vide");
+        }
+        LocalDate birthDate = parseIsoDate(birthDateStr);
+        if (birthDate == null) {
+            return RowValidation.invalid("Format de date invalide. Utilisez YYYY-MM-DD");
+        }
+
+        String email = value(row, emailPositions);
+        if (email == null) {
+            return RowValidation.invalid("Email manquant ou vide");
+        }
+        if (email.indexOf('@') < 0 || email.indexOf('.') < 0) {
+            return RowValidation.invalid("Email manquant ou invalide");
+        }
+
+        String phone = value(row, phonePositions);
+        if (phone == null) {
+            return RowValidation.invalid("Téléphone manquant ou vide");
+        }
+
+        return RowValidation.valid(new CreateStudentRequest(fullName, gender, birthDate, email, phone, offerId, null));
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
+
+    /**
+     * Positions des variantes d'en-tête acceptées pour un champ, dans l'ordre de priorité,
+     * réduites à celles présentes dans le fichier
+     */
+    private static int[] resolve(ImportColumns columns, String key, String fieldName) {
+        List<String> possibleKeys = List.of(
+                key, // Clé originale (ex: "fullName")
+                key.substring(0, 1).toUpperCase() + key.substring(1), // PremièreLettreMajuscule (ex: "FullName")
+                fieldName, // Nom du champ (ex: "Nom complet")
+                fieldName.toLowerCase(), // Nom du champ en minuscules (ex: "nom complet")
+                // Suffixes des en-têtes générés dans le template
+                fieldName + " (optionnel)",
+                fieldName + " (MALE/FEMALE)",
+                fieldName + " (YYYY-MM-DD)");
+
+        return possibleKeys.stream()
+                .distinct()
+                .mapToInt(columns::position)
+                .filter(position -> position >= 0)
+                .toArray();
+    }
+
+    /**
+     * Première valeur non vide parmi les colonnes retenues pour le champ
+     */
+    private static String value(StudentImportRow row, int[] positions) {
+        for (int position : positions) {
+            String value = row.cell(position);
+            if (!value.isEmpty()) {
+                String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : trimmed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lecture d'une date au format YYYY-MM-DD sans passer par DateTimeFormatter
+     * @return la date, ou null si le format ou la date sont invalides
+     */
+    private static LocalDate parseIsoDate(String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Résultat de la validation d'une ligne : exactement un des trois champs est renseigné
+     * @param request requête de création d'un nouvel étudiant
+     * @param matricule matricule d'un étudiant existant à inscrire
+     * @param error message d'erreur de la ligne
+     */
+    record RowValidation(CreateStudentRequest request, String matricule, String error) {
+
+        static RowValidation valid(CreateStudentRequest request) {
+            return new RowValidation(request, null, null);
+        }
+
+        static RowValidation existing(String matricule) {
+            return new RowValidation(null, matricule, null);
+        }
+
+        static RowValidation invalid(String error) {
+            return new RowValidation(null, null, error);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.classroom.model.Classroom;
+import com.payiskoul.institution.program.model.TrainingOffer;
+import com.payiskoul.institution.student.model.Student;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Écriture en flux du template Excel d'importation d'étudiants.
+ * <p>
+ * S'appuie sur SXSSF : seule une fenêtre de lignes est gardée en mémoire, les autres étant écrites sur disque
+ * au fil de l'eau. Le même écrivain produit le template vierge (avec deux lignes d'exemple) et le template
+ * pré-rempli avec la liste des étudiants d'une offre, pour une réinscription.
+ */
+@Component
+class StudentTemplateWriter {
+
+    // Lignes gardées en mémoire avant d'être écrites sur disque
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    static final String[] COLUMNS = {"Matricule (optionnel)", "Nom complet", "Genre (MALE/FEMALE)",
+            "Date de naissance (YYYY-MM-DD)", "Email", "Téléphone"};
+
+    /**
+     * Écrit le template
+     * @param offer offre cible de l'importation
+     * @param classroom classe cible (optionnelle)
+     * @param roster étudiants à pré-remplir, ou null pour les lignes d'exemple
+     * @param outputStream flux de sortie
+     */
+    void write(TrainingOffer offer, Classroom classroom, Iterator<Student> roster, OutputStream outputStream)
+            throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        try {
+            // Création de la feuille de données
+            Sheet sheet = workbook.createSheet("Importation Étudiants");
+
+            // Styles
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            // Entête avec informations sur l'offre
+            Row offerRow = sheet.createRow(0);
+            Cell offerLabelCell = offerRow.createCell(0);
+            offerLabelCell.setCellValue("Offre:");
+            offerLabelCell.setCellStyle(headerStyle);
+            offerRow.createCell(1).setCellValue(offer.getLabel() + " (" + offer.getCode() + ")");
+
+            // Classe si spécifiée
+            if (classroom != null) {
+                Row classroomRow = sheet.createRow(1);
+                Cell classroomLabelCell = classroomRow.createCell(0);
+                classroomLabelCell.setCellValue("Classe:");
+                classroomLabelCell.setCellStyle(headerStyle);
+                classroomRow.createCell(1).setCellValue(classroom.getName());
+            }
+
+            // En-têtes des colonnes
+            int rowIndex = classroom != null ? 3 : 2;
+            Row headerRow = sheet.createRow(rowIndex++);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(COLUMNS[i]);
+                cell.setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, 6000);
+            }
+
+            if (roster == null) {
+                // Ligne d'exemple pour un nouvel étudiant (matricule vide)
+                writeRow(sheet.createRow(rowIndex++), "", "Seka Alexandre", "MALE",
+                        "2001-05-14", "seka.alex@example.com", "+2250701020304");
+                // Ligne d'exemple pour un étudiant existant
+                writeRow(sheet.createRow(rowIndex), "PI-CI-25A0001", "Koné Aminata", "FEMALE",
+                        "2002-08-22", "kone.aminata@example.com", "+2250708090102");
+            } else {
+                while (roster.hasNext()) {
+                    Student student = roster.next();
+                    writeRow(sheet.createRow(rowIndex++),
+                            student.getMatricule(),
+                            student.getFullName(),
+                            student.getGender() != null ? student.getGender().name() : "",
+                            student.getBirthDate() != null ? student.getBirthDate().toString() : "",
+                            student.getEmail(),
+                            student.getPhone());
+                }
+            }
+
+            workbook.write(outputStream);
+        } finally {
+            // Suppression des fichiers temporaires de SXSSF
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeRow(Row row, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i] != null ? values[i] : "");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.payiskoul.institution.training.controller;
 
 import com.payiskoul.institution.exception.ErrorResponse;
+import com.payiskoul.institution.reports.service.ReportService;
 import com.payiskoul.institution.training.dto.*;
 import com.payiskoul.institution.training.model.TrainingQuiz;
 import com.payiskoul.institution.training.service.QuizService;
@@ -16,12 +17,18 @@ import jakarta.annotation.Resource;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/v1/training")
@@ -32,6 +39,7 @@ public class TrainingContentController {
 
     private final TrainingContentService trainingContentService;
     private final QuizService quizService;
+    private final ReportService reportService;
 
     // ============ GESTION DES SECTIONS ============
 
@@ -311,20 +319,81 @@ public class TrainingContentController {
     @GetMapping("/institutions/{institutionId}/reports/students")
     @Operation(
             summary = "Rapport CSV des étudiants",
-            description = "Équivalent de generate_student_report de Django"
+            description = "Équivalent de generate_student_report de Django. Le fichier est écrit en flux, " +
+                    "éventuellement compressé en gzip"
     )
-    public ResponseEntity<Resource> generateStudentReport(@PathVariable String institutionId) {
-        return trainingContentService.generateStudentReport(institutionId);
+    public ResponseEntity<StreamingResponseBody> generateStudentReport(
+            @PathVariable String institutionId,
+            @Parameter(description = "Compresser le fichier en gzip")
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        return csvReport("students_report", gzip,
+                outputStream -> reportService.writeStudentReport(institutionId, outputStream));
+    }
+
+    @GetMapping("/offers/{offerId}/reports/students")
+    @Operation(
+            summary = "Rapport CSV des inscrits d'une offre",
+            description = "Équivalent de generate_course_report de Django. Le fichier est écrit en flux, " +
+                    "éventuellement compressé en gzip"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rapport généré"),
+            @ApiResponse(responseCode = "404", description = "Offre introuvable",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> generateOfferReport(
+            @PathVariable String offerId,
+            @Parameter(description = "Compresser le fichier en gzip")
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        reportService.findOffer(offerId);
+        return csvReport("offer_report_" + offerId, gzip,
+                outputStream -> reportService.writeOfferReport(offerId, outputStream));
     }
 
     @GetMapping("/offers/{offerId}/reports/progress")
     @Operation(
             summary = "Rapport de progression pour une offre",
-            description = "Équivalent de generate_course_report de Django"
+            description = "Détail de la progression par leçon. Le fichier est écrit en flux, " +
+                    "éventuellement compressé en gzip"
     )
-    public ResponseEntity<Resource> generateProgressReport(@PathVariable String offerId) {
-        return trainingContentService.generateProgressReport(offerId);
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rapport généré"),
+            @ApiResponse(responseCode = "404", description = "Offre introuvable",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> generateProgressReport(
+            @PathVariable String offerId,
+            @Parameter(description = "Compresser le fichier en gzip")
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        reportService.findOffer(offerId);
+        return csvReport("progress_report_" + offerId, gzip,
+                outputStream -> reportService.writeProgressReport(offerId, outputStream));
     }
+
+    /**
+     * Réponse CSV écrite en flux. En gzip, le flux compressé est vidé à chaque flush de l'écrivain (syncFlush),
+     * pour que les lots de lignes partent au fil de l'eau
+     */
+    private ResponseEntity<StreamingResponseBody> csvReport(String fileName, boolean gzip, StreamingResponseBody report) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=" + fileName + (gzip ? ".csv.gz" : ".csv"));
+
+        StreamingResponseBody body = gzip ? outputStream -> writeGzip(report, outputStream) : report;
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : "text/csv; charset=UTF-8"))
+                .body(body);
+    }
+
+    private static void writeGzip(StreamingResponseBody report, OutputStream outputStream) throws IOException {
+        GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, true);
+        report.writeTo(gzipStream);
+        gzipStream.finish();
+    }
+
     // ============ GESTION DES QUIZ ============
 
     @PostMapping("/sections/{sectionId}/quizzes")
@@ -0,0 +1,75 @@
+package com.payiskoul.institution.training.service;
+
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.student.model.Enrollment;
+import com.payiskoul.institution.student.repository.EnrollmentRepository;
+import com.payiskoul.institution.tuition.model.EntitlementStatus;
+import com.payiskoul.institution.tuition.service.TuitionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Contrôle d'accès au contenu des offres (leçons, progression, quiz).
+ * <p>
+ * Un étudiant a accès au contenu d'une offre lorsqu'il en a réglé les frais, ou lorsqu'il est inscrit à une offre
+ * sans frais. Le droit est lu dans le cache des droits d'accès ({@link TuitionService#getEntitlement}) : pour un
+ * étudiant qui a réglé ses frais, la vérification ne lit pas MongoDB. L'offre n'est relue que pour les autres.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+class ContentAccessService {
+
+    private final TuitionService tuitionService;
+    private final TrainingOfferRepository trainingOfferRepository;
+    private final EnrollmentRepository enrollmentRepository;
+
+    /**
+     * Vérifie si un étudiant a accès au contenu d'une offre
+     * @param studentId ID de l'étudiant
+     * @param offerId ID de l'offre
+     * @return vrai si les frais sont réglés, ou si l'offre est sans frais et l'étudiant y est inscrit
+     */
+    boolean hasAccess(String studentId, String offerId) {
+        EntitlementStatus entitlement = tuitionService.getEntitlement(studentId, offerId);
+        if (entitlement == EntitlementStatus.PAID) {
+            return true;
+        }
+        if (entitlement == EntitlementStatus.NONE) {
+            return false;
+        }
+        return trainingOfferRepository.findById(offerId)
+                .map(offer -> offer.getTuitionAmount() == null || offer.getTuitionAmount().compareTo(BigDecimal.ZERO) <= 0)
+                .orElse(false);
+    }
+
+    /**
+     * Retourne l'inscription si son étudiant a accès au contenu de l'offre
+     * @param enrollmentId ID de l'inscription
+     * @param freePreview indique si le contenu demandé est en aperçu gratuit, ouvert à tous les inscrits ;
+     *                    évalué seulement pour un étudiant qui n'a pas accès à l'offre
+     * @return l'inscription
+     * @throws BusinessException CONTENT_ACCESS_DENIED si les frais de l'offre ne sont pas réglés
+     */
+    Enrollment requireAccess(String enrollmentId, BooleanSupplier freePreview) {
+        Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
+                .orElseThrow(() -> new BusinessException(ErrorCode.ENROLLMENT_ALREADY_EXISTS,
+                        "Inscription introuvable", Map.of("enrollmentId", enrollmentId)));
+
+        if (!hasAccess(enrollment.getStudentId(), enrollment.getProgramLevelId()) && !freePreview.getAsBoolean()) {
+            log.info("Accès au contenu de l'offre {} refusé à l'étudiant {}: frais non réglés",
+                    enrollment.getProgramLevelId(), enrollment.getStudentId());
+            throw new BusinessException(ErrorCode.CONTENT_ACCESS_DENIED,
+                    "Les frais de formation doivent être réglés pour accéder à ce contenu",
+                    Map.of("enrollmentId", enrollmentId, "offerId", enrollment.getProgramLevelId()));
+        }
+        return enrollment;
+    }
+}
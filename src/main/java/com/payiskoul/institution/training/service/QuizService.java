@@ -23,6 +23,7 @@ public class QuizService {
     private final QuizAttemptRepository quizAttemptRepository;
     private final TrainingSectionRepository trainingSectionRepository;
     private final TrainingLectureRepository trainingLectureRepository;
+    private final ContentAccessService contentAccessService;
 
     /**
      * Crée un quiz pour une section ou une lecture
@@ -82,6 +83,9 @@ public class QuizService {
                 .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
                         "Quiz introuvable", Map.of("quizId", request.quizId())));
 
+        // Vérifier que les frais de l'offre sont réglés
+        contentAccessService.requireAccess(request.enrollmentId(), () -> false);
+
         // Vérifier le nombre de tentatives
         long attemptCount = quizAttemptRepository.countByEnrollmentIdAndQuizId(
                 request.enrollmentId(), request.quizId());
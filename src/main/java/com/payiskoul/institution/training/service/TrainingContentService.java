@@ -22,9 +22,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -50,6 +47,7 @@ public class TrainingContentService {
     private final LectureProgressRepository lectureProgressRepository;
     private final EnrollmentRepository enrollmentRepository;
     private final ReviewRepository reviewRepository;
+    private final ContentAccessService contentAccessService;
 
     // ============ GESTION DES SECTIONS ============
 
@@ -267,6 +265,11 @@ public class TrainingContentService {
         log.info("Mise à jour de la progression pour l'inscription {} et la leçon {}",
                 enrollmentId, lectureId);
 
+        // Vérifier que les frais de l'offre sont réglés, sauf pour une leçon en aperçu gratuit
+        contentAccessService.requireAccess(enrollmentId, () -> trainingLectureRepository.findById(lectureId)
+                .map(lecture -> Boolean.TRUE.equals(lecture.getIsFreePreview()))
+                .orElse(false));
+
         // Récupérer ou créer la progression
         LectureProgress progress = lectureProgressRepository
                 .findByEnrollmentIdAndLectureId(enrollmentId, lectureId)
@@ -357,6 +360,26 @@ public class TrainingContentService {
         );
     }
 
+    /**
+     * Leçon réduite à son plan, sans contenu, vidéo ni pièces jointes
+     */
+    private TrainingLectureResponse mapToLockedLectureResponse(TrainingLecture lecture) {
+        return new TrainingLectureResponse(
+                lecture.getId(),
+                lecture.getTitle(),
+                null,
+                lecture.getType(),
+                null,
+                null,
+                null,
+                lecture.getDurationMinutes(),
+                lecture.getOrder(),
+                lecture.getIsFreePreview(),
+                null,
+                lecture.getCreatedAt()
+        );
+    }
+
     private LectureProgressResponse mapToProgressResponse(LectureProgress progress) {
         return new LectureProgressResponse(
                 progress.getId(),
@@ -373,7 +396,9 @@ public class TrainingContentService {
     // Extension du TrainingContentService.java avec les méthodes manquantes
 
     /**
-     * Récupère le contenu complet d'une offre avec progression optionnelle
+     * Récupère le contenu complet d'une offre avec progression optionnelle.
+     * Pour un étudiant qui n'a pas accès au contenu (frais non réglés), seules les leçons en aperçu gratuit
+     * sont retournées avec leur contenu ; les autres ne gardent que leur plan.
      */
     public TrainingOfferContentResponse getOfferContent(String offerId, String studentId) {
         log.info("Récupération du contenu complet pour l'offre {} et l'étudiant {}", offerId, studentId);
@@ -383,13 +408,18 @@ public class TrainingContentService {
                 .orElseThrow(() -> new BusinessException(ErrorCode.PROGRAM_LEVEL_NOT_FOUND,
                         "Offre introuvable", Map.of("offerId", offerId)));
 
+        boolean locked = studentId != null && !contentAccessService.hasAccess(studentId, offerId);
+
         // Récupérer les sections avec leçons
         List<TrainingSection> sections = trainingSectionRepository.findByTrainingOfferIdOrderByOrder(offerId);
         List<TrainingSectionWithLectures> sectionsWithLectures = sections.stream()
                 .map(section -> {
                     List<TrainingLecture> lectures = trainingLectureRepository.findBySectionIdOrderByOrder(section.getId());
                     List<TrainingLectureResponse> lectureResponses = lectures.stream()
-                            .map(this::mapToLectureResponse)
+                            .map(lecture -> locked && !Boolean.TRUE.equals(lecture.getIsFreePreview())
+                                    && !Boolean.TRUE.equals(section.getIsFreePreview())
+                                    ? mapToLockedLectureResponse(lecture)
+                                    : mapToLectureResponse(lecture))
                             .collect(Collectors.toList());
                     return new TrainingSectionWithLectures(
                             mapToSectionResponse(section),
@@ -668,46 +698,6 @@ public class TrainingContentService {
         );
     }
 
-    /**
-     * Génère un rapport CSV des étudiants
-     */
-    public ResponseEntity<Resource> generateStudentReport(String institutionId) {
-        log.info("Génération du rapport des étudiants pour l'institution {}", institutionId);
-
-        // Récupérer les données
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(""); // À adapter
-
-        // Générer le CSV
-        String csvContent = generateStudentCSV(enrollments);
-
-        ByteArrayResource resource = new ByteArrayResource(csvContent.getBytes());
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=students_report.csv")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body((Resource) resource);
-    }
-
-    /**
-     * Génère un rapport de progression pour une offre
-     */
-    public ResponseEntity<Resource> generateProgressReport(String offerId) {
-        log.info("Génération du rapport de progression pour l'offre {}", offerId);
-
-        // Récupérer les données de progression
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(""); // À adapter
-
-        // Générer le CSV
-        String csvContent = generateProgressCSV(enrollments, offerId);
-
-        ByteArrayResource resource = new ByteArrayResource(csvContent.getBytes());
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=progress_report.csv")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body((Resource) resource);
-    }
-
     private int getTotalLecturesForOffer(String offerId) {
         List<TrainingSection> sections = trainingSectionRepository.findByTrainingOfferIdOrderByOrder(offerId);
         return sections.stream()
@@ -793,14 +783,4 @@ public class TrainingContentService {
         // Logique pour récupérer les certificats d'un étudiant
         return new ArrayList<>();
     }
-
-    private String generateStudentCSV(List<Enrollment> enrollments) {
-        // Logique de génération du CSV des étudiants
-        return "CSV Content";
-    }
-
-    private String generateProgressCSV(List<Enrollment> enrollments, String offerId) {
-        // Logique de génération du CSV de progression
-        return "CSV Content";
-    }
 }
\ No newline at end of file
@@ -1,8 +1,13 @@
 package com.payiskoul.institution.tuition.controller;
 
+import com.payiskoul.institution.reports.service.TuitionReportService;
+import com.payiskoul.institution.reports.service.TuitionReportService.ReportFilter;
+import com.payiskoul.institution.reports.service.TuitionReportService.ReportGrouping;
+import com.payiskoul.institution.reports.service.TuitionReportService.TuitionReportRow;
 import com.payiskoul.institution.tuition.dto.TuitionResponse;
 import com.payiskoul.institution.tuition.service.TuitionService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,8 +19,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/v1/tuitions")
 @RequiredArgsConstructor
@@ -24,6 +32,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class TuitionController {
 
     private final TuitionService tuitionService;
+    private final TuitionReportService tuitionReportService;
 
     @GetMapping("/{matricule}")
     @Operation(summary = "Récupérer les frais de scolarité", description = "Récupère les informations de paiement des frais de scolarité pour un étudiant par son matricule")
@@ -37,4 +46,21 @@ public class TuitionController {
         TuitionResponse response = tuitionService.getTuitionsByMatricule(matricule.toUpperCase());
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/reports")
+    @Operation(summary = "Rapport de paiement regroupé",
+            description = "Compte les statuts de paiement et somme les montants des inscriptions, regroupés par offre, " +
+                    "institution ou année académique. Calcul entièrement côté MongoDB")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rapport généré avec succès")
+    })
+    public ResponseEntity<List<TuitionReportRow>> getTuitionReport(
+            @Parameter(description = "Critère de regroupement") @RequestParam(defaultValue = "OFFER") ReportGrouping groupBy,
+            @Parameter(description = "ID de l'offre") @RequestParam(required = false) String offerId,
+            @Parameter(description = "ID de l'institution") @RequestParam(required = false) String institutionId,
+            @Parameter(description = "Année académique", example = "2024-2025") @RequestParam(required = false) String academicYear) {
+        log.info("Génération du rapport de paiement par {}", groupBy);
+        return ResponseEntity.ok(tuitionReportService.report(groupBy,
+                new ReportFilter(offerId, institutionId, academicYear)));
+    }
+}
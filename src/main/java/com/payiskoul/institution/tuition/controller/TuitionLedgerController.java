@@ -0,0 +1,38 @@
+package com.payiskoul.institution.tuition.controller;
+
+import com.payiskoul.institution.tuition.service.TuitionLedgerService;
+import com.payiskoul.institution.tuition.service.TuitionLedgerService.RebuildResult;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Administration du grand livre.
+ * L'application n'applique aucune authentification (la sécurité web est désactivée) : la reconstruction, qui réécrit
+ * toutes les projections tuition_status, n'est exposée que si payiskoul.tuition.ledger.admin-api.enabled vaut true,
+ * sur une instance dont le port n'est joignable que par l'exploitation.
+ */
+@RestController
+@ConditionalOnProperty(name = "payiskoul.tuition.ledger.admin-api.enabled", havingValue = "true")
+@RequestMapping("/v1/admin/tuition-ledger")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Grand livre", description = "API d'administration du grand livre des frais de scolarité")
+public class TuitionLedgerController {
+
+    private final TuitionLedgerService tuitionLedgerService;
+
+    @PostMapping("/rebuild")
+    @Operation(summary = "Reconstruire les statuts de paiement",
+            description = "Recalcule toutes les projections tuition_status à partir du grand livre")
+    public ResponseEntity<RebuildResult> rebuild() {
+        log.info("Reconstruction des statuts de paiement à partir du grand livre");
+        return ResponseEntity.ok(tuitionLedgerService.rebuild());
+    }
+}
@@ -0,0 +1,34 @@
+package com.payiskoul.institution.tuition.listener;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+
+/**
+ * Acquittement manuel des messages, utilisable depuis un autre thread que le consommateur
+ * (les acquittements d'un même canal sont sérialisés)
+ */
+@Slf4j
+class ManualAcknowledger {
+
+    void ack(Channel channel, long deliveryTag) {
+        try {
+            synchronized (channel) {
+                channel.basicAck(deliveryTag, false);
+            }
+        } catch (IOException e) {
+            log.error("Impossible d'acquitter le message {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    void requeue(Channel channel, long deliveryTag) {
+        try {
+            synchronized (channel) {
+                channel.basicNack(deliveryTag, false, true);
+            }
+        } catch (IOException e) {
+            log.error("Impossible de remettre en file le message {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+}
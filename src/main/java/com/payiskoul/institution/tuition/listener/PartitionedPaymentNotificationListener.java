@@ -0,0 +1,92 @@
+package com.payiskoul.institution.tuition.listener;
+
+import com.payiskoul.institution.config.RabbitMQConfig;
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.messaging.service.MessageRetryService;
+import com.payiskoul.institution.tuition.dto.PaymentNotificationDTO;
+import com.payiskoul.institution.tuition.dto.TuitionPaymentEvent;
+import com.payiskoul.institution.tuition.service.PaymentEventService;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consommation partitionnée des notifications de paiement : les notifications d'un même matricule
+ * sont appliquées dans l'ordre, celles d'étudiants différents en parallèle. Une notification en échec est retentée
+ * sur sa lane, puis déposée dans le parking lot : elle n'est jamais dépassée par une notification suivante
+ * du même étudiant renvoyée en file d'attente différée.
+ * Remplace {@link PaymentNotificationListener} lorsque payiskoul.tuition.lanes.enabled=true
+ */
+@Component
+@ConditionalOnProperty(name = "payiskoul.tuition.lanes.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionedPaymentNotificationListener {
+
+    private final PaymentLaneDispatcher paymentLaneDispatcher;
+    private final PaymentEventService paymentEventService;
+    private final MessageRetryService messageRetryService;
+    private final ManualAcknowledger acknowledger = new ManualAcknowledger();
+
+    /**
+     * Écoute les notifications de paiement et les répartit par matricule
+     */
+    @RabbitListener(queues = RabbitMQConfig.TUITION_PAYMENT_QUEUE,
+            containerFactory = RabbitMQConfig.PARTITIONED_CONTAINER_FACTORY)
+    public void handlePaymentNotification(PaymentNotificationDTO notification,
+                                          Channel channel,
+                                          @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                          @Header(name = RabbitMQConfig.RETRY_COUNT_HEADER, required = false) Integer retryCount) {
+        log.info("Notification de paiement reçue: matricule={}, montant={}, référence={}",
+                notification.matricule(), notification.amount(), notification.reference());
+
+        paymentLaneDispatcher.dispatch(notification.matricule(), () -> {
+            Exception failure = paymentLaneDispatcher.retryInPlace(notification.reference(), () -> {
+                try {
+                    TuitionPaymentEvent event = paymentEventService.processPaymentNotification(notification);
+                    log.info("Notification traitée avec succès: {}, nouveau statut: {}",
+                            notification.reference(), event.paymentStatus());
+                } catch (BusinessException e) {
+                    if (e.getErrorCode() != ErrorCode.DUPLICATE_REFERENCE) {
+                        throw e;
+                    }
+                    log.warn("Notification dupliquée ignorée: {}", notification.reference());
+                }
+            });
+
+            if (failure == null) {
+                acknowledger.ack(channel, deliveryTag);
+            } else {
+                log.error("Échec du traitement de la notification {}: {}", notification.reference(), failure.getMessage(), failure);
+                park(notification, retryCount, failure, channel, deliveryTag);
+            }
+        });
+    }
+
+    /**
+     * Dépose la notification dans le parking lot puis l'acquitte ; pendant l'arrêt, ou si elle ne peut pas
+     * être déposée, elle est remise en file
+     */
+    private void park(PaymentNotificationDTO notification, Integer retryCount, Exception error,
+                      Channel channel, long deliveryTag) {
+        if (!paymentLaneDispatcher.isRunning()) {
+            acknowledger.requeue(channel, deliveryTag);
+            return;
+        }
+        try {
+            int attempts = (retryCount == null ? 0 : retryCount) + paymentLaneDispatcher.maxAttempts();
+            messageRetryService.park(RabbitMQConfig.TUITION_PAYMENT_QUEUE, notification, attempts, error);
+            acknowledger.ack(channel, deliveryTag);
+        } catch (Exception e) {
+            log.error("Impossible de déposer la notification {} dans le parking lot: {}",
+                    notification.reference(), e.getMessage());
+            acknowledger.requeue(channel, deliveryTag);
+        }
+    }
+}
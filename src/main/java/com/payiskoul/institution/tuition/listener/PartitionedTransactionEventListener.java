@@ -0,0 +1,84 @@
+package com.payiskoul.institution.tuition.listener;
+
+import com.payiskoul.institution.config.RabbitMQConfig;
+import com.payiskoul.institution.messaging.service.MessageRetryService;
+import com.payiskoul.institution.tuition.dto.TransactionCreatedEvent;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consommation partitionnée des événements de transaction : chaque paiement est traité sur la lane
+ * de son matricule, puis acquitté. Un paiement en échec technique est retenté sur sa lane, puis déposé
+ * dans le parking lot, sans être dépassé par un paiement suivant du même étudiant.
+ * Activé avec payiskoul.tuition.lanes.enabled=true (hors mode par lot)
+ */
+@Component
+@ConditionalOnExpression("${payiskoul.tuition.lanes.enabled:false} and !${payiskoul.tuition.batch.enabled:false}")
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionedTransactionEventListener {
+
+    private final PaymentLaneDispatcher paymentLaneDispatcher;
+    private final TransactionEventSupport transactionEventSupport;
+    private final MessageRetryService messageRetryService;
+    private final ManualAcknowledger acknowledger = new ManualAcknowledger();
+
+    /**
+     * Écoute les événements de transaction et les répartit par matricule
+     */
+    @RabbitListener(queues = RabbitMQConfig.TRANSACTION_QUEUE,
+            containerFactory = RabbitMQConfig.PARTITIONED_CONTAINER_FACTORY)
+    public void handleTransactionCreated(TransactionCreatedEvent event,
+                                         Channel channel,
+                                         @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                         @Header(name = RabbitMQConfig.RETRY_COUNT_HEADER, required = false) Integer retryCount) {
+        log.info("Réception d'un événement TransactionCreated: {}", event.getEventId());
+
+        // Vérifier si c'est un paiement de scolarité
+        if (!transactionEventSupport.isTuitionPayment(event)) {
+            log.debug("Événement ignoré, ce n'est pas un paiement de scolarité");
+            acknowledger.ack(channel, deliveryTag);
+            return;
+        }
+
+        String matricule = event.getPayload().getPhoneNumber(); // le matricule est stocké dans phoneNumber
+        paymentLaneDispatcher.dispatch(matricule, () -> {
+            Exception failure = paymentLaneDispatcher.retryInPlace(event.getEventId(),
+                    () -> transactionEventSupport.processTuitionPayment(event));
+
+            if (failure == null) {
+                acknowledger.ack(channel, deliveryTag);
+            } else {
+                log.error("Erreur technique lors du traitement de l'événement {}: {}", event.getEventId(), failure.getMessage(), failure);
+                park(event, retryCount, failure, channel, deliveryTag);
+            }
+        });
+    }
+
+    /**
+     * Dépose le message dans le parking lot, publie l'événement d'échec puis l'acquitte ;
+     * pendant l'arrêt, ou s'il ne peut pas être déposé, il est remis en file
+     */
+    private void park(TransactionCreatedEvent event, Integer retryCount, Exception error,
+                      Channel channel, long deliveryTag) {
+        if (!paymentLaneDispatcher.isRunning()) {
+            acknowledger.requeue(channel, deliveryTag);
+            return;
+        }
+        try {
+            int attempts = (retryCount == null ? 0 : retryCount) + paymentLaneDispatcher.maxAttempts();
+            messageRetryService.park(RabbitMQConfig.TRANSACTION_QUEUE, event, attempts, error);
+            transactionEventSupport.publishFailedEvent(event, "Erreur technique: " + error.getMessage());
+            acknowledger.ack(channel, deliveryTag);
+        } catch (Exception e) {
+            log.error("Impossible de déposer l'événement {} dans le parking lot: {}", event.getEventId(), e.getMessage());
+            acknowledger.requeue(channel, deliveryTag);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.payiskoul.institution.tuition.listener;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Répartition des paiements sur K files mono-thread ("lanes") selon le matricule.
+ * <p>
+ * Deux paiements d'un même étudiant tombent toujours sur la même lane et sont donc appliqués dans leur ordre
+ * d'arrivée, tandis que les paiements d'étudiants différents sont traités en parallèle. Chaque lane est bornée :
+ * lorsqu'elle est pleine, le thread consommateur RabbitMQ est bloqué, ce qui limite la prélecture au prefetch.
+ * <p>
+ * Un paiement en échec est retenté sur place ({@link #retryInPlace}) plutôt que replanifié dans une file différée :
+ * la lane reste bloquée pendant les tentatives, de sorte qu'aucun paiement suivant du même étudiant ne le dépasse.
+ * Cette attente est voulue : elle immobilise aussi les étudiants qui partagent la lane, et c'est pourquoi son total
+ * est borné par max-retry-wait. Au-delà, le listener retire le paiement de la lane (parking lot).
+ * <p>
+ * L'ordre n'est garanti que si les messages arrivent sur les lanes dans l'ordre de la file : la file partitionnée
+ * doit être consommée par un seul thread ({@code payiskoul.tuition.lanes.consumers: 1}).
+ */
+@Component
+@ConditionalOnProperty(name = "payiskoul.tuition.lanes.enabled", havingValue = "true")
+@Slf4j
+public class PaymentLaneDispatcher {
+
+    private static final String METRIC_PREFIX = "payiskoul.payment.lane";
+
+    private final List<Lane> lanes;
+    private final long[] retryDelays;
+    private volatile boolean running = true;
+
+    public PaymentLaneDispatcher(MeterRegistry meterRegistry,
+                                 @Value("${payiskoul.tuition.lanes.count:8}") int laneCount,
+                                 @Value("${payiskoul.tuition.lanes.capacity:500}") int capacity,
+                                 @Value("${payiskoul.tuition.lanes.retry-delays:500,2000,10000}") long[] retryDelays,
+                                 @Value("${payiskoul.tuition.lanes.max-retry-wait:15000}") long maxRetryWait) {
+        this.retryDelays = boundRetryDelays(retryDelays, maxRetryWait);
+        this.lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(i, new ArrayBlockingQueue<>(capacity),
+                    Timer.builder(METRIC_PREFIX + ".latency")
+                            .description("Durée de traitement d'un paiement dans la lane")
+                            .tag("lane", String.valueOf(i))
+                            .register(meterRegistry),
+                    Timer.builder(METRIC_PREFIX + ".wait")
+                            .description("Temps d'attente d'un paiement avant son traitement")
+                            .tag("lane", String.valueOf(i))
+                            .register(meterRegistry));
+            Gauge.builder(METRIC_PREFIX + ".depth", lane.queue, BlockingQueue::size)
+                    .description("Nombre de paiements en attente dans la lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            lane.start();
+            lanes.add(lane);
+        }
+        log.info("Traitement partitionné des paiements activé: {} lanes de capacité {}", laneCount, capacity);
+    }
+
+    /**
+     * Conserve les premiers délais de nouvelle tentative dont la somme reste sous maxRetryWait :
+     * c'est la durée maximale pendant laquelle un paiement en échec peut bloquer sa lane
+     */
+    private static long[] boundRetryDelays(long[] retryDelays, long maxRetryWait) {
+        int count = 0;
+        long total = 0;
+        while (count < retryDelays.length && total + retryDelays[count] <= maxRetryWait) {
+            total += retryDelays[count++];
+        }
+        if (count < retryDelays.length) {
+            log.warn("retry-delays dépasse max-retry-wait ({} ms): {} nouvelle(s) tentative(s) sur place conservée(s) sur {}",
+                    maxRetryWait, count, retryDelays.length);
+        }
+        return Arrays.copyOf(retryDelays, count);
+    }
+
+    /**
+     * Soumet un traitement sur la lane associée à la clé, en bloquant tant que la lane est pleine
+     * @param key la clé de partition (matricule ou ID d'inscription)
+     * @param task le traitement à exécuter
+     */
+    public void dispatch(String key, Runnable task) {
+        Lane lane = lanes.get(key == null ? 0 : Math.floorMod(key.hashCode(), lanes.size()));
+        try {
+            lane.queue.put(new LaneTask(task, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interruption lors de la soumission sur la lane " + lane.index, e);
+        }
+    }
+
+    /**
+     * Exécute un traitement depuis sa lane, en le retentant sur place après chaque échec selon retry-delays.
+     * La lane reste volontairement bloquée pendant l'attente, au plus max-retry-wait au total : les paiements
+     * suivants du même étudiant restent derrière celui-ci.
+     * @param description identification du paiement, pour les journaux
+     * @param attempt le traitement
+     * @return l'erreur de la dernière tentative, null si le traitement a réussi
+     */
+    public Exception retryInPlace(String description, LaneAttempt attempt) {
+        for (int retry = 0; ; retry++) {
+            try {
+                attempt.run();
+                return null;
+            } catch (Exception e) {
+                if (retry >= retryDelays.length || !running) {
+                    return e;
+                }
+                log.warn("Paiement {} en échec, nouvelle tentative sur la lane dans {} ms ({}/{}): {}",
+                        description, retryDelays[retry], retry + 1, retryDelays.length, e.getMessage());
+                try {
+                    // Attente bloquante voulue : rien ne doit passer devant ce paiement sur la lane
+                    Thread.sleep(retryDelays[retry]);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Nombre de tentatives effectuées par {@link #retryInPlace} avant d'abandonner
+     */
+    public int maxAttempts() {
+        return retryDelays.length + 1;
+    }
+
+    /**
+     * Faux une fois l'arrêt des lanes commencé : un paiement en échec doit alors être remis en file, pas écarté
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Arrête les lanes : les messages non traités n'étant pas acquittés, RabbitMQ les redélivrera
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (lane.thread.isAlive()) {
+                lane.thread.interrupt();
+            }
+        }
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Tentative de traitement d'un paiement
+     */
+    @FunctionalInterface
+    public interface LaneAttempt {
+        void run() throws Exception;
+    }
+
+    private record LaneTask(Runnable runnable, long enqueuedAt) {}
+
+    private final class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<LaneTask> queue;
+        private final Timer latency;
+        private final Timer wait;
+        private final Thread thread;
+
+        private Lane(int index, BlockingQueue<LaneTask> queue, Timer latency, Timer wait) {
+            this.index = index;
+            this.queue = queue;
+            this.latency = latency;
+            this.wait = wait;
+            this.thread = new Thread(this, "payment-lane-" + index);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                LaneTask task;
+                try {
+                    task = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (task == null) {
+                    continue;
+                }
+
+                wait.record(System.nanoTime() - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+                try {
+                    latency.record(task.runnable());
+                } catch (Exception e) {
+                    log.error("Erreur non gérée dans la lane {}: {}", index, e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
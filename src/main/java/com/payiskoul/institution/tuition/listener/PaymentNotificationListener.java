@@ -1,33 +1,43 @@
 package com.payiskoul.institution.tuition.listener;
 
+import com.payiskoul.institution.config.RabbitMQConfig;
 import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.messaging.service.MessageRetryService;
 import com.payiskoul.institution.tuition.dto.PaymentNotificationDTO;
 import com.payiskoul.institution.tuition.dto.TuitionPaymentEvent;
 import com.payiskoul.institution.tuition.service.PaymentEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+/**
+ * Consommation des notifications de paiement.
+ * Remplacé par {@link PartitionedPaymentNotificationListener} lorsque payiskoul.tuition.lanes.enabled=true
+ */
 @Component
+@ConditionalOnProperty(name = "payiskoul.tuition.lanes.enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentNotificationListener {
 
     private final PaymentEventService paymentEventService;
+    private final MessageRetryService messageRetryService;
 
     /**
-     * Écoute les notifications de paiement et les traite
-     * Utilise un mécanisme de retry en cas d'erreur
+     * Écoute les notifications de paiement et les traite.
+     * En cas d'erreur, la notification est renvoyée dans une file de réessai différé (sans bloquer le thread),
+     * puis déposée dans le parking lot une fois les tentatives épuisées.
+     * Les mises à jour de solde étant atomiques, plusieurs consommateurs peuvent traiter la file en parallèle
      * @param notification la notification de paiement
+     * @param retryCount le nombre de réessais déjà effectués
      */
-    @RabbitListener(queues = "payiskoul.tuitions.queue")
-    @Retryable(value = Exception.class,
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2))
-    public void handlePaymentNotification(PaymentNotificationDTO notification) {
+    @RabbitListener(queues = RabbitMQConfig.TUITION_PAYMENT_QUEUE,
+            concurrency = "${payiskoul.tuition.listener.concurrency:1}")
+    public void handlePaymentNotification(PaymentNotificationDTO notification,
+                                          @Header(name = RabbitMQConfig.RETRY_COUNT_HEADER, required = false) Integer retryCount) {
         log.info("Notification de paiement reçue: matricule={}, montant={}, référence={}",
                 notification.matricule(), notification.amount(), notification.reference());
 
@@ -41,12 +51,11 @@ public class PaymentNotificationListener {
                 log.warn("Notification dupliquée ignorée: {}", notification.reference());
                 return;
             }
-            // Sinon, on relance l'exception pour activer le retry
             log.error("Erreur lors du traitement de la notification: {}", e.getMessage());
-            throw e;
+            messageRetryService.retryOrPark(RabbitMQConfig.TUITION_PAYMENT_QUEUE, notification, retryCount, e);
         } catch (Exception e) {
             log.error("Erreur inattendue lors du traitement de la notification: {}", e.getMessage(), e);
-            throw e;
+            messageRetryService.retryOrPark(RabbitMQConfig.TUITION_PAYMENT_QUEUE, notification, retryCount, e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.payiskoul.institution.tuition.listener;
+
+import com.payiskoul.institution.config.RabbitMQConfig;
+import com.payiskoul.institution.messaging.service.MessageRetryService;
+import com.payiskoul.institution.tuition.dto.TransactionCreatedEvent;
+import com.payiskoul.institution.tuition.service.PaymentBatchService;
+import com.payiskoul.institution.tuition.service.PaymentBatchService.BatchItem;
+import com.payiskoul.institution.tuition.service.PaymentBatchService.BatchResult;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Consommation par lot des événements de transaction.
+ * Activé avec payiskoul.tuition.batch.enabled=true ; chaque message reste acquitté individuellement
+ * et produit le même événement TuitionPaymentConfirmed / TuitionPaymentFailed que le traitement unitaire.
+ */
+@Component
+@ConditionalOnProperty(name = "payiskoul.tuition.batch.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionBatchEventListener {
+
+    private final PaymentBatchService paymentBatchService;
+    private final TransactionEventSupport transactionEventSupport;
+    private final MessageRetryService messageRetryService;
+    private final ManualAcknowledger acknowledger = new ManualAcknowledger();
+
+    /**
+     * Écoute les événements de transaction par lots
+     */
+    @RabbitListener(queues = RabbitMQConfig.TRANSACTION_QUEUE,
+            containerFactory = RabbitMQConfig.TRANSACTION_BATCH_CONTAINER_FACTORY)
+    public void handleTransactionBatch(List<Message<TransactionCreatedEvent>> messages, Channel channel) {
+        log.info("Réception d'un lot de {} événements TransactionCreated", messages.size());
+
+        List<TransactionCreatedEvent> events = new ArrayList<>();
+        List<Long> deliveryTags = new ArrayList<>();
+        List<Integer> retryCounts = new ArrayList<>();
+        List<BatchItem> items = new ArrayList<>();
+
+        for (Message<TransactionCreatedEvent> message : messages) {
+            TransactionCreatedEvent event = message.getPayload();
+            long deliveryTag = deliveryTag(message);
+
+            // Vérifier si c'est un paiement de scolarité
+            if (!transactionEventSupport.isTuitionPayment(event)) {
+                log.debug("Événement ignoré, ce n'est pas un paiement de scolarité: {}", event.getEventId());
+                acknowledger.ack(channel, deliveryTag);
+                continue;
+            }
+
+            try {
+                items.add(new BatchItem(
+                        event.getPayload().getPhoneNumber(), // le matricule est stocké dans phoneNumber
+                        transactionEventSupport.extractEnrollmentId(event),
+                        transactionEventSupport.extractInstitutionId(event),
+                        event.getPayload().getAmountReceived(),
+                        event.getPayload().getCurrencyCode(),
+                        event.getPayload().getReference()
+                ));
+                events.add(event);
+                deliveryTags.add(deliveryTag);
+                retryCounts.add(message.getHeaders().get(RabbitMQConfig.RETRY_COUNT_HEADER, Integer.class));
+            } catch (Exception e) {
+                log.error("Erreur métier lors du traitement du paiement: {}", e.getMessage());
+                publishFailed(event, e.getMessage());
+                acknowledger.ack(channel, deliveryTag);
+            }
+        }
+
+        List<BatchResult> results = paymentBatchService.processBatch(items);
+
+        for (int i = 0; i < results.size(); i++) {
+            TransactionCreatedEvent event = events.get(i);
+            BatchResult result = results.get(i);
+            if (result.technical()) {
+                retryOrPark(event, retryCounts.get(i), result.failureReason(), channel, deliveryTags.get(i));
+                continue;
+            }
+
+            try {
+                if (result.isConfirmed()) {
+                    event.getPayload().setReceiverAccountId(UUID.fromString(result.accountId()));
+                    transactionEventSupport.publishConfirmedEvent(event, result.payment());
+                    log.info("Paiement de scolarité traité avec succès pour l'étudiant: {}",
+                            event.getPayload().getPhoneNumber());
+                } else {
+                    log.error("Échec du traitement du paiement {}: {}",
+                            event.getPayload().getReference(), result.failureReason());
+                    transactionEventSupport.publishFailedEvent(event, result.failureReason());
+                }
+            } catch (Exception e) {
+                log.error("Erreur lors de la publication du résultat du paiement: {}", e.getMessage(), e);
+            }
+
+            acknowledger.ack(channel, deliveryTags.get(i));
+        }
+    }
+
+    /**
+     * Replanifie un paiement en échec technique dans une file de réessai différé puis l'acquitte ;
+     * l'événement d'échec n'est publié qu'une fois les tentatives épuisées
+     */
+    private void retryOrPark(TransactionCreatedEvent event, Integer retryCount, String reason,
+                             Channel channel, long deliveryTag) {
+        try {
+            if (messageRetryService.retryOrPark(RabbitMQConfig.TRANSACTION_QUEUE, event, retryCount,
+                    new IllegalStateException(reason))) {
+                publishFailed(event, reason);
+            }
+            acknowledger.ack(channel, deliveryTag);
+        } catch (Exception e) {
+            log.error("Impossible de replanifier l'événement {}: {}", event.getEventId(), e.getMessage());
+            acknowledger.requeue(channel, deliveryTag);
+        }
+    }
+
+    private void publishFailed(TransactionCreatedEvent event, String reason) {
+        try {
+            transactionEventSupport.publishFailedEvent(event, reason);
+        } catch (Exception e) {
+            log.error("Impossible de publier l'événement d'échec pour {}: {}", event.getEventId(), e.getMessage());
+        }
+    }
+
+    private long deliveryTag(Message<?> message) {
+        Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        return deliveryTag != null ? deliveryTag : 0L;
+    }
+}
@@ -0,0 +1,183 @@
+package com.payiskoul.institution.tuition.listener;
+
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.messaging.service.OutboxService;
+import com.payiskoul.institution.organization.model.InstitutionStatus;
+import com.payiskoul.institution.organization.repository.InstitutionRepository;
+import com.payiskoul.institution.student.repository.StudentRepository;
+import com.payiskoul.institution.tuition.dto.*;
+import com.payiskoul.institution.tuition.service.PaymentEventService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Opérations communes aux listeners de transactions (unitaire, partitionné et par lot) :
+ * extraction des identifiants de la description, traitement unitaire d'un paiement
+ * et publication des événements de résultat via l'outbox
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionEventSupport {
+
+    static final String TUITION_PAYMENT_CATEGORY = "TUITION_PAYMENT";
+
+    private static final String TUITION_EXCHANGE = "payiskoul.tuition.exchange";
+    private static final String TUITION_PAYMENT_CONFIRMED_ROUTING_KEY = "tuition.payment.confirmed";
+    private static final String TUITION_PAYMENT_FAILED_ROUTING_KEY = "tuition.payment.failed";
+
+    private static final Pattern ENROLLMENT_ID_PATTERN = Pattern.compile("enrollmentId=([^,\\s]+)");
+    private static final Pattern INSTITUTION_ID_PATTERN = Pattern.compile("institutionId=([^,\\s]+)");
+
+    private final OutboxService outboxService;
+    private final PaymentEventService paymentEventService;
+    private final StudentRepository studentRepository;
+    private final InstitutionRepository institutionRepository;
+
+    /**
+     * Indique si l'événement concerne un paiement de scolarité
+     */
+    public boolean isTuitionPayment(TransactionCreatedEvent event) {
+        return TUITION_PAYMENT_CATEGORY.equals(event.getPayload().getCategory());
+    }
+
+    /**
+     * Extrait l'ID d'inscription à partir de la description ou des données additionnelles
+     */
+    public String extractEnrollmentId(TransactionCreatedEvent event) {
+        String description = event.getPayload().getDescription();
+        log.info("Event description: {}", description);
+
+        if (description != null) {
+            Matcher matcher = ENROLLMENT_ID_PATTERN.matcher(description);
+            if (matcher.find()) {
+                return matcher.group(1); // extrait la valeur entre enrollmentId= et la virgule
+            }
+        }
+
+        throw new BusinessException(ErrorCode.INVALID_PAYMENT_DATA,
+                "ID d'inscription manquant dans les données de paiement");
+    }
+
+    /**
+     * Extrait l'ID d'institution à partir des données additionnelles
+     */
+    public String extractInstitutionId(TransactionCreatedEvent event) {
+        String description = event.getPayload().getDescription();
+        log.info("Event description: {}", description);
+
+        if (description != null) {
+            Matcher matcher = INSTITUTION_ID_PATTERN.matcher(description);
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+
+        throw new BusinessException(ErrorCode.INVALID_PAYMENT_DATA,
+                "ID d'institution manquant dans les données de paiement");
+    }
+
+    /**
+     * Traite un paiement de scolarité : vérifie l'étudiant et l'institution, applique le paiement
+     * puis publie l'événement de confirmation ou d'échec.
+     * Les erreurs techniques sont propagées pour que le message soit réessayé
+     */
+    public void processTuitionPayment(TransactionCreatedEvent event) {
+        try {
+            // Extraire les informations nécessaires
+            String matricule = event.getPayload().getPhoneNumber(); // le matricule est stocké dans phoneNumber
+            String enrollmentId = extractEnrollmentId(event);
+            String institutionId = extractInstitutionId(event);
+
+            String accountId = "";
+
+            // Vérifier que l'étudiant existe
+            if (!studentRepository.existsByMatricule(matricule)) {
+                publishFailedEvent(event, "Étudiant introuvable: " + matricule);
+                return;
+            }
+            var institution = institutionRepository.findById(institutionId);
+            if(institution.isEmpty()) {
+                publishFailedEvent(event, "Institution introuvable: " + institutionId);
+                return;
+            }else if(institution.get().getStatus().equals(InstitutionStatus.INACTIVE)
+                    || institution.get().getAccountId() == null || institution.get().getAccountId().isBlank()){
+                publishFailedEvent(event, "Institution désactivé ou n'a pas de compte: " + institutionId);
+                return;
+            }else {
+                accountId = institution.get().getAccountId();
+            }
+
+            PaymentNotificationDTO notification = PaymentNotificationDTO.builder()
+                    .enrollmentId(enrollmentId)
+                    .institutionAccountId(accountId)
+                    .matricule(matricule)
+                    .amount(event.getPayload().getAmountReceived())
+                    .currency(event.getPayload().getCurrencyCode())
+                    .reference(event.getPayload().getReference())
+                    .build();
+
+
+            // Traiter la notification de paiement
+            TuitionPaymentEvent tuitionPayment = paymentEventService.processPaymentNotification(notification);
+
+            // Publier l'événement de confirmation
+            event.getPayload().setReceiverAccountId(UUID.fromString(accountId));
+            publishConfirmedEvent(event, tuitionPayment);
+
+            log.info("Paiement de scolarité traité avec succès pour l'étudiant: {}", matricule);
+
+        } catch (BusinessException be) {
+            log.error("Erreur métier lors du traitement du paiement: {}", be.getMessage());
+            publishFailedEvent(event, be.getMessage());
+        }
+    }
+
+    /**
+     * Publie (via l'outbox) un événement de confirmation de paiement
+     */
+    public void publishConfirmedEvent(TransactionCreatedEvent sourceEvent, TuitionPaymentEvent tuitionPayment) {
+        TuitionPaymentConfirmedEvent event = TuitionPaymentConfirmedEvent.builder()
+                .eventType("TuitionPaymentConfirmed")
+                .eventId(UUID.randomUUID().toString().replace("-", ""))
+                .transactionId(sourceEvent.getPayload().getTransactionId())
+                .studentMatricule(sourceEvent.getPayload().getPhoneNumber())
+                .amountPaid(sourceEvent.getPayload().getAmountReceived())
+                .newStatus(tuitionPayment.paymentStatus().name())
+                .remainingAmount(tuitionPayment.remainingAmount())
+                .institutionId(extractInstitutionId(sourceEvent))
+                .accountId(sourceEvent.getPayload().getReceiverAccountId())
+                .timestamp(OffsetDateTime.now())
+                .build();
+
+        outboxService.enqueue(TUITION_EXCHANGE, TUITION_PAYMENT_CONFIRMED_ROUTING_KEY, event);
+
+        log.info("Événement TuitionPaymentConfirmed enregistré pour publication: {}", event.getEventId());
+    }
+
+    /**
+     * Publie (via l'outbox) un événement d'échec de paiement
+     */
+    public void publishFailedEvent(TransactionCreatedEvent sourceEvent, String reason) {
+        TuitionPaymentFailedEvent event = TuitionPaymentFailedEvent.builder()
+                .eventType("TuitionPaymentFailed")
+                .eventId(UUID.randomUUID().toString().replace("-", ""))
+                .transactionId(sourceEvent.getPayload().getTransactionId())
+                .studentMatricule(sourceEvent.getPayload().getPhoneNumber())
+                .institutionId(extractInstitutionId(sourceEvent))
+                .reason(reason)
+                .timestamp(OffsetDateTime.now())
+                .build();
+
+        outboxService.enqueue(TUITION_EXCHANGE, TUITION_PAYMENT_FAILED_ROUTING_KEY, event);
+
+        log.info("Événement TuitionPaymentFailed enregistré pour publication: {}", event.getEventId());
+    }
+}
@@ -0,0 +1,11 @@
+package com.payiskoul.institution.tuition.model;
+
+/**
+ * Droit d'accès d'un étudiant au contenu d'une offre, déduit de son inscription et de ses paiements
+ */
+public enum EntitlementStatus {
+    NONE,       // aucune inscription active
+    ENROLLED,   // inscrit, rien de payé
+    PARTIAL,    // inscrit, paiement partiel
+    PAID        // inscrit, frais réglés
+}
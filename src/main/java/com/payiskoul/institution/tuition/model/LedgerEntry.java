@@ -0,0 +1,54 @@
+package com.payiskoul.institution.tuition.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Écriture (immuable) du grand livre des frais de scolarité.
+ * L'ordre des écritures est celui de leur séquence, attribuée par le serveur ; {@link TuitionStatus} en est
+ * une projection. Les écritures d'ouverture des soldes antérieurs au grand livre n'ont pas de séquence
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "tuition_ledger")
+@CompoundIndex(name = "enrollment_sequence_idx", def = "{'enrollmentId': 1, 'sequence': 1}")
+public class LedgerEntry implements Serializable {
+    public static final String SEQUENCE_INDEX = "sequence_idx";
+
+    @Id
+    private String id;
+
+    // Position dans le grand livre, unique : une séquence neutralisée (VOID) ne peut plus être écrite
+    @Indexed(name = SEQUENCE_INDEX, unique = true, sparse = true)
+    private Long sequence;
+
+    private String enrollmentId;
+    private String matricule;
+
+    private LedgerEntryType type;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal amount;
+    private String currency;
+
+    // Statut positionné par une écriture STATUS
+    private PaymentStatus paymentStatus;
+
+    // Référence de paiement, unique lorsqu'elle est renseignée
+    @Indexed(unique = true, sparse = true)
+    private String reference;
+
+    private LocalDateTime recordedAt;
+}
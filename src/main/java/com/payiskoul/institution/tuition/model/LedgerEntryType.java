@@ -0,0 +1,13 @@
+package com.payiskoul.institution.tuition.model;
+
+/**
+ * Type d'écriture du grand livre des frais de scolarité
+ */
+public enum LedgerEntryType {
+    CHARGE,     // montant dû (augmente totalAmount)
+    PAYMENT,    // paiement reçu (augmente paidAmount)
+    REFUND,     // remboursement (diminue paidAmount)
+    ADJUSTMENT, // régularisation signée de paidAmount
+    STATUS,     // changement manuel du statut de paiement (sans montant), porté par paymentStatus
+    VOID        // séquence réservée mais jamais écrite, neutralisée par la projection (sans montant)
+}
@@ -2,7 +2,10 @@ package com.payiskoul.institution.tuition.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -18,12 +21,18 @@ public class TuitionStatus implements Serializable {
     @Id
     private String id;
 
+    @Indexed
     private String enrollmentId;
     private String studentId;
+    @Indexed
     private String matricule;
 
+    // Montants stockés en Decimal128 pour permettre les mises à jour atomiques côté serveur
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal totalAmount;
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal paidAmount;
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal remainingAmount;
     private String currency;
 
@@ -31,4 +40,7 @@ public class TuitionStatus implements Serializable {
 
     private LocalDateTime lastUpdatedAt;
 
+    // Séquence de tuition_ledger jusqu'à laquelle (incluse) les montants ont été projetés
+    private Long ledgerSequence;
+
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.payiskoul.institution.tuition.repository;
+
+import com.payiskoul.institution.tuition.model.LedgerEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface LedgerEntryRepository extends MongoRepository<LedgerEntry, String> {
+    Optional<LedgerEntry> findByReference(String reference);
+}
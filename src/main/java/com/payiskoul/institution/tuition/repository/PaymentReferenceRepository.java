@@ -4,10 +4,13 @@ import com.payiskoul.institution.tuition.model.PaymentReference;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PaymentReferenceRepository extends MongoRepository<PaymentReference, String> {
     Optional<PaymentReference> findByReference(String reference);
     boolean existsByReference(String reference);
+    List<PaymentReference> findByReferenceIn(Collection<String> references);
 }
\ No newline at end of file
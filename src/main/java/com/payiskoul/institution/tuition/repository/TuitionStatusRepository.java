@@ -4,10 +4,12 @@ import com.payiskoul.institution.tuition.model.TuitionStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TuitionStatusRepository extends MongoRepository<TuitionStatus, String> {
     List<TuitionStatus> findByMatricule(String matricule);
     List<TuitionStatus> findByEnrollmentId(String enrollmentId);
+    List<TuitionStatus> findByEnrollmentIdIn(Collection<String> enrollmentIds);
 }
\ No newline at end of file
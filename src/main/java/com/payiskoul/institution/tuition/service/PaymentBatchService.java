@@ -0,0 +1,354 @@
+package com.payiskoul.institution.tuition.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.payiskoul.institution.organization.model.Institution;
+import com.payiskoul.institution.organization.model.InstitutionStatus;
+import com.payiskoul.institution.organization.repository.InstitutionRepository;
+import com.payiskoul.institution.student.model.Student;
+import com.payiskoul.institution.student.repository.StudentRepository;
+import com.payiskoul.institution.tuition.dto.TuitionPaymentEvent;
+import com.payiskoul.institution.tuition.model.LedgerEntry;
+import com.payiskoul.institution.tuition.model.LedgerEntryType;
+import com.payiskoul.institution.tuition.model.PaymentReference;
+import com.payiskoul.institution.tuition.model.PaymentStatus;
+import com.payiskoul.institution.tuition.model.TuitionStatus;
+import com.payiskoul.institution.tuition.repository.TuitionStatusRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Traitement par lot des paiements de scolarité.
+ * Les étudiants, institutions, références et statuts sont chargés avec une requête $in par collection,
+ * puis les écritures du grand livre, les événements de l'outbox et enfin les références sont insérés chacun avec
+ * un seul bulkWrite non ordonné. Les écritures et les événements sont identifiés par la référence du paiement :
+ * un lot interrompu entre deux insertions est rejoué sans rien doubler, et une référence présente signifie que
+ * le paiement et son événement sont enregistrés.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentBatchService {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final StudentRepository studentRepository;
+    private final InstitutionRepository institutionRepository;
+    private final PaymentIdempotencyFilter paymentIdempotencyFilter;
+    private final TuitionStatusRepository tuitionStatusRepository;
+    private final TuitionLedgerService tuitionLedgerService;
+    private final PaymentEntitlementCache paymentEntitlementCache;
+    private final PaymentEventService paymentEventService;
+    private final MongoTemplate mongoTemplate;
+    private final CacheManager cacheManager;
+
+    /**
+     * Traite un lot de paiements
+     * @param items les paiements à appliquer, dans l'ordre de réception
+     * @return un résultat par paiement, dans le même ordre que les entrées
+     */
+    public List<BatchResult> processBatch(List<BatchItem> items) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        log.info("Traitement d'un lot de {} paiements de scolarité", items.size());
+
+        BatchResult[] results = new BatchResult[items.size()];
+        List<Integer> accepted;
+        Map<String, Student> students;
+        Map<String, Institution> institutions;
+        Map<String, TuitionStatus> statuses;
+
+        try {
+            students = studentRepository.findByMatriculeIn(collect(items, BatchItem::matricule)).stream()
+                    .collect(Collectors.toMap(Student::getMatricule, Function.identity(), (a, b) -> a));
+            institutions = institutionRepository.findAllById(collect(items, BatchItem::institutionId)).stream()
+                    .collect(Collectors.toMap(Institution::getId, Function.identity()));
+            statuses = tuitionStatusRepository.findByEnrollmentIdIn(collect(items, BatchItem::enrollmentId)).stream()
+                    .collect(Collectors.toMap(TuitionStatus::getEnrollmentId, Function.identity(), (a, b) -> a));
+            Set<String> knownReferences = paymentIdempotencyFilter.findAlreadyProcessed(collect(items, BatchItem::reference));
+
+            accepted = validate(items, students, institutions, statuses, knownReferences, results);
+        } catch (Exception e) {
+            log.error("Erreur technique lors du chargement du lot de paiements: {}", e.getMessage(), e);
+            return technicalFailures(items.size(), e);
+        }
+
+        if (accepted.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        // 1. Enregistrer les paiements dans le grand livre : une insertion par paiement, aucun document modifié.
+        // L'index unique sur la référence fait foi : une écriture déjà présente (tentative précédente) n'est pas doublée
+        List<Integer> applied = accepted;
+        List<LedgerEntry> entries = applied.stream()
+                .map(i -> {
+                    BatchItem item = items.get(i);
+                    return TuitionLedgerService.entry(item.enrollmentId(), item.matricule(), LedgerEntryType.PAYMENT,
+                            item.amount(), statuses.get(item.enrollmentId()).getCurrency(), item.reference());
+                })
+                .toList();
+
+        Map<Integer, TuitionStatus> snapshots;
+        try {
+            Set<Integer> failedEntries = tuitionLedgerService.appendAll(entries);
+            if (!failedEntries.isEmpty()) {
+                List<Integer> failed = failedEntries.stream().map(applied::get).toList();
+                failed.forEach(i -> results[i] = BatchResult.technicalFailure(
+                        "Erreur technique: écriture du paiement dans le grand livre impossible"));
+                applied = applied.stream().filter(i -> !failed.contains(i)).toList();
+            }
+            snapshots = snapshots(items, applied, statuses);
+        } catch (Exception e) {
+            log.error("Erreur technique lors de l'enregistrement des paiements: {}", e.getMessage(), e);
+            applied.forEach(i -> results[i] = BatchResult.technicalFailure("Erreur technique: " + e.getMessage()));
+            return Arrays.asList(results);
+        }
+        if (applied.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        // 2. Construire et enregistrer les événements de paiement, sous un identifiant dérivé de leur référence
+        List<TuitionPaymentEvent> events = new ArrayList<>(applied.size());
+        for (Integer index : applied) {
+            BatchItem item = items.get(index);
+            TuitionStatus snapshot = snapshots.get(index);
+            String accountId = institutions.get(item.institutionId()).getAccountId();
+
+            TuitionPaymentEvent event = new TuitionPaymentEvent(
+                    PaymentEventService.eventId(item.reference()),
+                    item.matricule(),
+                    students.get(item.matricule()).getFullName(),
+                    item.enrollmentId(),
+                    accountId,
+                    item.amount(),
+                    snapshot.getTotalAmount(),
+                    snapshot.getPaidAmount(),
+                    snapshot.getRemainingAmount(),
+                    snapshot.getCurrency(),
+                    snapshot.getPaymentStatus(),
+                    item.reference(),
+                    null,
+                    LocalDateTime.now()
+            );
+            events.add(event);
+            results[index] = BatchResult.confirmed(event, accountId);
+        }
+        try {
+            paymentEventService.publishPaymentEvents(events);
+        } catch (Exception e) {
+            // Sans événement enregistré, les paiements sont rejoués : les écritures du grand livre et les événements
+            // déjà présents sont retrouvés par leur référence au réessai
+            log.error("Erreur lors de l'enregistrement des événements de paiement du lot: {}", e.getMessage(), e);
+            applied.forEach(i -> results[i] = BatchResult.technicalFailure("Erreur technique: " + e.getMessage()));
+            return Arrays.asList(results);
+        }
+
+        Cache tuitionsCache = cacheManager.getCache("tuitions");
+        for (Integer index : applied) {
+            if (tuitionsCache != null) {
+                tuitionsCache.evict(items.get(index).matricule());
+            }
+            paymentEntitlementCache.invalidateStudent(snapshots.get(index).getStudentId());
+        }
+
+        // 3. Enregistrer les références en dernier : une référence présente signifie paiement et événement enregistrés
+        applied = insertReferences(items, applied, institutions, results);
+        applied.forEach(i -> paymentIdempotencyFilter.markProcessed(items.get(i).reference()));
+
+        log.info("Lot traité: {} paiements appliqués sur {}", applied.size(), items.size());
+        return Arrays.asList(results);
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
+
+    /**
+     * Applique les règles métier du traitement unitaire et retourne les indices des paiements recevables
+     */
+    private List<Integer> validate(List<BatchItem> items,
+                                   Map<String, Student> students,
+                                   Map<String, Institution> institutions,
+                                   Map<String, TuitionStatus> statuses,
+                                   Set<String> knownReferences,
+                                   BatchResult[] results) {
+        List<Integer> accepted = new ArrayList<>();
+        Set<String> batchReferences = new HashSet<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            Institution institution = institutions.get(item.institutionId());
+
+            if (!students.containsKey(item.matricule())) {
+                results[i] = BatchResult.failed("Étudiant introuvable: " + item.matricule());
+            } else if (institution == null) {
+                results[i] = BatchResult.failed("Institution introuvable: " + item.institutionId());
+            } else if (institution.getStatus() == InstitutionStatus.INACTIVE
+                    || institution.getAccountId() == null || institution.getAccountId().isBlank()) {
+                results[i] = BatchResult.failed("Institution désactivé ou n'a pas de compte: " + item.institutionId());
+            } else if (knownReferences.contains(item.reference()) || !batchReferences.add(item.reference())) {
+                log.warn("Référence de paiement déjà traitée: {}", item.reference());
+                results[i] = BatchResult.failed("Cette référence de paiement a déjà été traitée");
+            } else if (!statuses.containsKey(item.enrollmentId())) {
+                results[i] = BatchResult.failed(
+                        "Aucun statut de paiement trouvé pour cette inscription: " + item.enrollmentId());
+            } else {
+                accepted.add(i);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Insère les références en un seul bulkWrite non ordonné, une fois les paiements et leurs événements enregistrés.
+     * Une erreur de clé dupliquée signifie que la même notification a été traitée en parallèle ; toute autre erreur
+     * laisse le paiement être rejoué, sans effet de bord puisque ses écritures sont retrouvées par leur référence.
+     * @return les indices des paiements dont la référence a bien été enregistrée
+     */
+    private List<Integer> insertReferences(List<BatchItem> items, List<Integer> accepted,
+                                           Map<String, Institution> institutions, BatchResult[] results) {
+        BulkOperations referenceOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PaymentReference.class);
+        LocalDateTime now = LocalDateTime.now();
+        for (Integer index : accepted) {
+            BatchItem item = items.get(index);
+            referenceOps.insert(PaymentReference.builder()
+                    .reference(item.reference())
+                    .matricule(item.matricule())
+                    .enrollmentId(item.enrollmentId())
+                    .accountId(institutions.get(item.institutionId()).getAccountId())
+                    .amount(item.amount())
+                    .currency(item.currency())
+                    .processedAt(now)
+                    .build());
+        }
+
+        Set<Integer> rejected = new HashSet<>();
+        try {
+            referenceOps.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                int index = accepted.get(error.getIndex());
+                rejected.add(index);
+                if (error.getCode() == DUPLICATE_KEY_ERROR) {
+                    log.warn("Référence de paiement déjà traitée: {}", items.get(index).reference());
+                    paymentIdempotencyFilter.markProcessed(items.get(index).reference());
+                    results[index] = BatchResult.failed("Cette référence de paiement a déjà été traitée");
+                } else {
+                    results[index] = BatchResult.technicalFailure("Erreur technique: " + error.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erreur technique lors de l'enregistrement des références: {}", e.getMessage(), e);
+            accepted.forEach(i -> results[i] = BatchResult.technicalFailure("Erreur technique: " + e.getMessage()));
+            return List.of();
+        }
+
+        return accepted.stream().filter(i -> !rejected.contains(i)).toList();
+    }
+
+    /**
+     * Calcule les soldes courants des inscriptions du lot (une lecture du grand livre) et reconstitue,
+     * pour chaque paiement, le solde tel qu'il était juste après son application
+     */
+    private Map<Integer, TuitionStatus> snapshots(List<BatchItem> items, List<Integer> applied,
+                                                  Map<String, TuitionStatus> statuses) {
+        Map<String, List<Integer>> byEnrollment = applied.stream()
+                .collect(Collectors.groupingBy(i -> items.get(i).enrollmentId(), LinkedHashMap::new, Collectors.toList()));
+        Map<String, TuitionStatus> balances = tuitionLedgerService.balances(
+                        byEnrollment.keySet().stream().map(statuses::get).toList()).stream()
+                .collect(Collectors.toMap(TuitionStatus::getEnrollmentId, Function.identity(), (a, b) -> a));
+
+        Map<Integer, TuitionStatus> snapshots = new HashMap<>();
+        byEnrollment.forEach((enrollmentId, indexes) -> {
+            TuitionStatus balance = balances.get(enrollmentId);
+            BigDecimal paidAmount = balance.getPaidAmount();
+            for (int k = indexes.size() - 1; k >= 0; k--) {
+                snapshots.put(indexes.get(k), snapshot(balance, paidAmount));
+                paidAmount = paidAmount.subtract(items.get(indexes.get(k)).amount());
+            }
+        });
+        return snapshots;
+    }
+
+    private TuitionStatus snapshot(TuitionStatus status, BigDecimal paidAmount) {
+        PaymentStatus paymentStatus = TuitionService.determinePaymentStatus(status.getTotalAmount(), paidAmount);
+        return TuitionStatus.builder()
+                .id(status.getId())
+                .enrollmentId(status.getEnrollmentId())
+                .studentId(status.getStudentId())
+                .matricule(status.getMatricule())
+                .totalAmount(status.getTotalAmount())
+                .paidAmount(paidAmount)
+                .remainingAmount(status.getTotalAmount().subtract(paidAmount))
+                .currency(status.getCurrency())
+                .paymentStatus(paymentStatus)
+                .lastUpdatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static Set<String> collect(List<BatchItem> items, Function<BatchItem, String> field) {
+        return items.stream().map(field).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    private static List<BatchResult> technicalFailures(int size, Exception e) {
+        List<BatchResult> failures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            failures.add(BatchResult.technicalFailure("Erreur technique: " + e.getMessage()));
+        }
+        return failures;
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Paiement à appliquer dans un lot
+     */
+    public record BatchItem(
+            String matricule,
+            String enrollmentId,
+            String institutionId,
+            BigDecimal amount,
+            String currency,
+            String reference
+    ) {}
+
+    /**
+     * Résultat du traitement d'un paiement du lot
+     * @param payment l'événement de paiement si le paiement a été appliqué
+     * @param accountId le compte de l'institution bénéficiaire si le paiement a été appliqué
+     * @param failureReason la raison de l'échec sinon
+     * @param technical true si l'échec est technique (le message est réessayé)
+     */
+    public record BatchResult(
+            TuitionPaymentEvent payment,
+            String accountId,
+            String failureReason,
+            boolean technical
+    ) {
+        static BatchResult confirmed(TuitionPaymentEvent payment, String accountId) {
+            return new BatchResult(payment, accountId, null, false);
+        }
+
+        static BatchResult failed(String reason) {
+            return new BatchResult(null, null, reason, false);
+        }
+
+        static BatchResult technicalFailure(String reason) {
+            return new BatchResult(null, null, reason, true);
+        }
+
+        public boolean isConfirmed() {
+            return payment != null;
+        }
+    }
+}
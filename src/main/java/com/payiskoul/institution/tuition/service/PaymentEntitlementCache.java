@@ -0,0 +1,291 @@
+package com.payiskoul.institution.tuition.service;
+
+import com.payiskoul.institution.tuition.model.EntitlementStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Cache des droits d'accès (étudiant, offre) -> {@link EntitlementStatus}.
+ * <p>
+ * Deux niveaux : un near-cache local borné (LRU par étudiant) devant un hash Redis par étudiant
+ * (payiskoul:entitlements:{&lt;studentId&gt;}, un champ par offre). Les invalidations suppriment l'entrée Redis
+ * puis sont diffusées aux autres instances par pub/sub pour purger leur near-cache.
+ * <p>
+ * Chaque étudiant a aussi une version dans Redis, incrémentée à chaque invalidation, quelle que soit l'instance.
+ * Un droit calculé depuis MongoDB n'est écrit dans Redis que si la version n'a pas changé depuis le début du calcul
+ * (vérification et écriture dans un même script Lua) : un calcul commencé avant une invalidation faite sur un autre
+ * nœud ne remet pas en cache un droit périmé.
+ * Redis n'est qu'une optimisation : en cas d'indisponibilité, le droit est recalculé depuis MongoDB.
+ */
+@Component
+@Slf4j
+public class PaymentEntitlementCache {
+
+    private static final String KEY_PREFIX = "payiskoul:entitlements:";
+    private static final String VERSION_SUFFIX = ":version";
+    private static final String INVALIDATION_CHANNEL = "payiskoul:entitlements:invalidate";
+    private static final String ALL_OFFERS = "*";
+    private static final String METRIC_PREFIX = "payiskoul.entitlements";
+    private static final int GENERATION_STRIPES = 1024;
+
+    // Écrit le droit si la version de l'étudiant est celle lue avant le calcul (ARGV[1] vide : version absente)
+    private static final RedisScript<Long> WRITE_SCRIPT = new DefaultRedisScript<>("""
+            local expected = ARGV[1] ~= '' and ARGV[1] or false
+            if redis.call('GET', KEYS[2]) ~= expected then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[2], ARGV[3])
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            return 1
+            """, Long.class);
+
+    // Incrémente la version de l'étudiant puis supprime le droit d'une offre, ou tous ses droits (ARGV[1] = '*')
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[2])
+            if ARGV[1] == '*' then
+                redis.call('DEL', KEYS[1])
+            else
+                redis.call('HDEL', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final Duration redisTtl;
+    private final long localTtlMillis;
+
+    private final Map<String, Map<String, LocalEntry>> localEntries;
+    // Générations réparties par hachage de l'étudiant : un calcul commencé avant une invalidation n'est pas mis en cache
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    public PaymentEntitlementCache(StringRedisTemplate redisTemplate,
+                                   RedisConnectionFactory connectionFactory,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${payiskoul.tuition.entitlements.local-capacity:20000}") int localCapacity,
+                                   @Value("${payiskoul.tuition.entitlements.local-ttl:60}") long localTtlSeconds,
+                                   @Value("${payiskoul.tuition.entitlements.redis-ttl:600}") long redisTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        this.redisTtl = Duration.ofSeconds(redisTtlSeconds);
+        this.localTtlMillis = localTtlSeconds * 1000;
+
+        this.localEntries = Collections.synchronizedMap(new LinkedHashMap<String, Map<String, LocalEntry>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, LocalEntry>> eldest) {
+                return size() > localCapacity;
+            }
+        });
+
+        this.localHits = meterRegistry.counter(METRIC_PREFIX + ".lookups", "result", "local");
+        this.redisHits = meterRegistry.counter(METRIC_PREFIX + ".lookups", "result", "redis");
+        this.misses = meterRegistry.counter(METRIC_PREFIX + ".lookups", "result", "miss");
+        Gauge.builder(METRIC_PREFIX + ".local.size", localEntries, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abonne l'instance aux invalidations diffusées par les autres nœuds
+     */
+    @PostConstruct
+    void subscribe() {
+        try {
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(connectionFactory);
+            listenerContainer.addMessageListener(
+                    (message, pattern) -> onInvalidation(new String(message.getBody())),
+                    new ChannelTopic(INVALIDATION_CHANNEL));
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        } catch (Exception e) {
+            log.warn("Abonnement aux invalidations des droits d'accès impossible, near-cache limité à {} ms: {}",
+                    localTtlMillis, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void unsubscribe() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    /**
+     * Retourne le droit d'accès d'un étudiant à une offre, calculé par le loader en cas d'absence
+     * @param studentId ID de l'étudiant
+     * @param offerId ID de l'offre
+     * @param loader calcul du droit à partir de MongoDB
+     * @return le droit d'accès
+     */
+    public EntitlementStatus get(String studentId, String offerId, Supplier<EntitlementStatus> loader) {
+        Map<String, LocalEntry> offers = localEntries.get(studentId);
+        LocalEntry local = offers != null ? offers.get(offerId) : null;
+        if (local != null && local.expiresAt() > System.currentTimeMillis()) {
+            localHits.increment();
+            return local.status();
+        }
+
+        long generation = generation(studentId);
+
+        EntitlementStatus status = readRedis(studentId, offerId);
+        if (status != null) {
+            redisHits.increment();
+        } else {
+            misses.increment();
+            // Version lue avant le calcul : une invalidation pendant le calcul empêche l'écriture
+            String version = readVersion(studentId);
+            status = loader.get();
+            if (version != null) {
+                writeRedis(studentId, offerId, status, version);
+            }
+        }
+
+        if (generation(studentId) == generation) {
+            localEntries.computeIfAbsent(studentId, id -> new ConcurrentHashMap<>())
+                    .put(offerId, new LocalEntry(status, System.currentTimeMillis() + localTtlMillis));
+        }
+        return status;
+    }
+
+    /**
+     * Invalide le droit d'un étudiant pour une offre (changement de statut d'inscription)
+     */
+    public void invalidate(String studentId, String offerId) {
+        if (studentId == null) {
+            return;
+        }
+        evictLocal(studentId, offerId);
+        try {
+            invalidateRedis(studentId, offerId);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message(studentId, offerId));
+        } catch (Exception e) {
+            log.warn("Invalidation Redis du droit {}/{} impossible: {}", studentId, offerId, e.getMessage());
+        }
+    }
+
+    /**
+     * Invalide tous les droits d'un étudiant (paiement, création ou modification d'un statut de paiement)
+     */
+    public void invalidateStudent(String studentId) {
+        if (studentId == null) {
+            return;
+        }
+        evictLocal(studentId, ALL_OFFERS);
+        try {
+            invalidateRedis(studentId, ALL_OFFERS);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message(studentId, ALL_OFFERS));
+        } catch (Exception e) {
+            log.warn("Invalidation Redis des droits de l'étudiant {} impossible: {}", studentId, e.getMessage());
+        }
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
+
+    private EntitlementStatus readRedis(String studentId, String offerId) {
+        try {
+            Object value = redisTemplate.opsForHash().get(key(studentId), offerId);
+            return value != null ? EntitlementStatus.valueOf(value.toString()) : null;
+        } catch (Exception e) {
+            log.debug("Lecture Redis du droit {}/{} impossible: {}", studentId, offerId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return la version courante de l'étudiant ("" si absente), null si Redis est indisponible
+     */
+    private String readVersion(String studentId) {
+        try {
+            return Objects.requireNonNullElse(redisTemplate.opsForValue().get(versionKey(studentId)), "");
+        } catch (Exception e) {
+            log.debug("Lecture Redis de la version des droits de {} impossible: {}", studentId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String studentId, String offerId, EntitlementStatus status, String version) {
+        try {
+            Long written = redisTemplate.execute(WRITE_SCRIPT, List.of(key(studentId), versionKey(studentId)),
+                    version, offerId, status.name(), String.valueOf(redisTtl.toMillis()));
+            if (written == null || written == 0) {
+                log.debug("Droit {}/{} non mis en cache: invalidé pendant son calcul", studentId, offerId);
+            }
+        } catch (Exception e) {
+            log.debug("Écriture Redis du droit {}/{} impossible: {}", studentId, offerId, e.getMessage());
+        }
+    }
+
+    private void invalidateRedis(String studentId, String offerId) {
+        redisTemplate.execute(INVALIDATE_SCRIPT, List.of(key(studentId), versionKey(studentId)),
+                offerId, String.valueOf(redisTtl.toMillis()));
+    }
+
+    // Clés d'un même étudiant dans le même slot (hash tag), pour les scripts en Redis Cluster
+    private static String key(String studentId) {
+        return KEY_PREFIX + "{" + studentId + "}";
+    }
+
+    private static String versionKey(String studentId) {
+        return key(studentId) + VERSION_SUFFIX;
+    }
+
+    private void onInvalidation(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length < 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        evictLocal(parts[1], parts[2]);
+    }
+
+    private void evictLocal(String studentId, String offerId) {
+        generations.incrementAndGet(stripe(studentId));
+        if (ALL_OFFERS.equals(offerId)) {
+            localEntries.remove(studentId);
+        } else {
+            Map<String, LocalEntry> offers = localEntries.get(studentId);
+            if (offers != null) {
+                offers.remove(offerId);
+            }
+        }
+    }
+
+    private long generation(String studentId) {
+        return generations.get(stripe(studentId));
+    }
+
+    private static int stripe(String studentId) {
+        return Math.floorMod(studentId.hashCode(), GENERATION_STRIPES);
+    }
+
+    private String message(String studentId, String offerId) {
+        return instanceId + "|" + studentId + "|" + offerId;
+    }
+
+    private record LocalEntry(EntitlementStatus status, long expiresAt) {}
+}
@@ -2,6 +2,7 @@ package com.payiskoul.institution.tuition.service;
 
 import com.payiskoul.institution.exception.BusinessException;
 import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.messaging.service.OutboxService;
 import com.payiskoul.institution.organization.repository.InstitutionRepository;
 import com.payiskoul.institution.organization.service.InstitutionService;
 import com.payiskoul.institution.student.model.Student;
@@ -13,13 +14,13 @@ import com.payiskoul.institution.tuition.model.TuitionStatus;
 import com.payiskoul.institution.tuition.repository.PaymentReferenceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -28,61 +29,52 @@ public class PaymentEventService {
 
     private final TuitionService tuitionService;
     private final PaymentReferenceRepository paymentReferenceRepository;
+    private final PaymentIdempotencyFilter paymentIdempotencyFilter;
     private final StudentRepository studentRepository;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
 
     private static final String PAYMENT_UPDATED_ROUTING_KEY = "tuition.payment.updated";
     private static final String EXCHANGE_NAME = "payiskoul.events";
 
     /**
-     * Traite une notification de paiement de manière idempotente
+     * Traite une notification de paiement de manière idempotente.
+     * Le montant est d'abord inscrit au grand livre, dont l'index unique sur la référence garantit qu'une
+     * notification livrée plusieurs fois, ou en parallèle à plusieurs consommateurs, n'est appliquée qu'une fois.
+     * L'événement est ensuite enregistré dans l'outbox sous un identifiant dérivé de la référence, et la référence
+     * n'est enregistrée comme traitée qu'en dernier : aucun gestionnaire de transactions MongoDB ne lie ces écritures,
+     * mais une notification interrompue entre deux d'entre elles est rejouée jusqu'au bout, sans doubler ni le
+     * paiement ni son événement, au lieu d'être rejetée comme doublon.
      * @param notification la notification de paiement
      * @return les informations sur l'événement de paiement
      */
-    @Transactional
     public TuitionPaymentEvent processPaymentNotification(PaymentNotificationDTO notification) {
         log.info("Traitement de la notification de paiement pour le matricule: {}, référence: {}",
                 notification.matricule(), notification.reference());
 
-        // Vérifier si la référence a déjà été traitée (idempotence)
-        if (paymentReferenceRepository.existsByReference(notification.reference())) {
+        // Vérifier si la référence a déjà été traitée (idempotence, MongoDB interrogé uniquement si "peut-être vue")
+        if (paymentIdempotencyFilter.isAlreadyProcessed(notification.reference())) {
             log.warn("Référence de paiement déjà traitée: {}", notification.reference());
             throw new BusinessException(ErrorCode.DUPLICATE_REFERENCE,
                     "Cette référence de paiement a déjà été traitée",
                     Map.of("reference", notification.reference()));
         }
 
-        // Mettre à jour le statut de paiement
+        // Enregistrer le paiement dans le grand livre (une écriture déjà présente est retrouvée par sa référence)
         TuitionStatus updatedStatus = tuitionService.updateTuitionStatus(
                 notification.matricule(),
                 notification.enrollmentId(),
-                notification.amount()
+                notification.amount(),
+                notification.reference()
         );
 
-        // Enregistrer la référence comme traitée
-        PaymentReference paymentReference = PaymentReference.builder()
-                .reference(notification.reference())
-                .matricule(notification.matricule())
-                .enrollmentId(notification.enrollmentId())
-                .accountId(notification.institutionAccountId())
-                .amount(notification.amount())
-                .currency(notification.currency())
-                .paymentDate(notification.paymentDate())
-                .processedAt(LocalDateTime.now())
-                .build();
-
-        paymentReferenceRepository.save(paymentReference);
-        log.info("Référence de paiement enregistrée: {}", notification.reference());
-
         // Récupérer les informations de l'étudiant
         Student student = studentRepository.findByMatricule(notification.matricule())
                 .orElseThrow(() -> new BusinessException(ErrorCode.STUDENT_NOT_FOUND,
                         "Étudiant introuvable", Map.of("matricule", notification.matricule())));
 
-
         // Créer l'événement de paiement
         TuitionPaymentEvent event = new TuitionPaymentEvent(
-                UUID.randomUUID().toString(),
+                eventId(notification.reference()),
                 notification.matricule(),
                 student.getFullName(),
                 notification.enrollmentId(),
@@ -98,23 +90,64 @@ public class PaymentEventService {
                 LocalDateTime.now()
         );
 
-        // Publier l'événement
+        // Enregistrer l'événement dans l'outbox (publication asynchrone par le relais, un rejeu ne le duplique pas)
         publishPaymentEvent(event);
 
+        // Enregistrer la référence comme traitée, en dernier (l'index unique fait foi en cas de concurrence)
+        PaymentReference paymentReference = PaymentReference.builder()
+                .reference(notification.reference())
+                .matricule(notification.matricule())
+                .enrollmentId(notification.enrollmentId())
+                .accountId(notification.institutionAccountId())
+                .amount(notification.amount())
+                .currency(notification.currency())
+                .paymentDate(notification.paymentDate())
+                .processedAt(LocalDateTime.now())
+                .build();
+
+        try {
+            paymentReferenceRepository.insert(paymentReference);
+        } catch (DuplicateKeyException e) {
+            log.warn("Référence de paiement déjà traitée: {}", notification.reference());
+            paymentIdempotencyFilter.markProcessed(notification.reference());
+            throw new BusinessException(ErrorCode.DUPLICATE_REFERENCE,
+                    "Cette référence de paiement a déjà été traitée",
+                    Map.of("reference", notification.reference()));
+        }
+        log.info("Référence de paiement enregistrée: {}", notification.reference());
+        paymentIdempotencyFilter.markProcessed(notification.reference());
+
         return event;
     }
 
     /**
-     * Publie un événement de paiement mis à jour
+     * Identifiant de l'événement de paiement d'une référence, repris comme identifiant du message dans l'outbox
+     * @param reference la référence du paiement
+     * @return l'identifiant de l'événement
+     */
+    static String eventId(String reference) {
+        return PAYMENT_UPDATED_ROUTING_KEY + ":" + reference;
+    }
+
+    /**
+     * Enregistre dans l'outbox un événement de paiement mis à jour, publié ensuite par le relais.
+     * Un événement déjà enregistré sous le même identifiant n'est pas dupliqué
      * @param event l'événement à publier
      */
-    private void publishPaymentEvent(TuitionPaymentEvent event) {
-        try {
-            rabbitTemplate.convertAndSend(EXCHANGE_NAME, PAYMENT_UPDATED_ROUTING_KEY, event);
-            log.info("Événement de paiement publié avec succès: {}", event.reference());
-        } catch (Exception e) {
-            log.error("Erreur lors de la publication de l'événement de paiement: {}", e.getMessage(), e);
-            // L'événement sera tout de même traité, mais nous logguons l'erreur
-        }
+    void publishPaymentEvent(TuitionPaymentEvent event) {
+        outboxService.enqueue(event.id(), EXCHANGE_NAME, PAYMENT_UPDATED_ROUTING_KEY, event);
+        log.info("Événement de paiement enregistré pour publication: {}", event.reference());
+    }
+
+    /**
+     * Enregistre dans l'outbox, en une seule insertion, les événements de paiement d'un lot.
+     * Les événements déjà enregistrés sous le même identifiant ne sont pas dupliqués
+     * @param events les événements à publier
+     */
+    void publishPaymentEvents(List<TuitionPaymentEvent> events) {
+        Map<String, TuitionPaymentEvent> eventsById = new LinkedHashMap<>();
+        events.forEach(event -> eventsById.put(event.id(), event));
+        outboxService.enqueueAll(EXCHANGE_NAME, PAYMENT_UPDATED_ROUTING_KEY, eventsById);
+        log.info("{} événements de paiement enregistrés pour publication", events.size());
     }
 }
@@ -0,0 +1,258 @@
+package com.payiskoul.institution.tuition.service;
+
+import com.payiskoul.institution.tuition.model.PaymentReference;
+import com.payiskoul.institution.tuition.repository.PaymentReferenceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Filtre d'idempotence placé devant la collection payment_references.
+ * <p>
+ * Un filtre de Bloom indique si une référence a <i>peut-être</i> déjà été traitée ; un cache LRU borné
+ * retient les références traitées récemment par ce nœud. Seules les références "peut-être vues" donnent
+ * lieu à une requête MongoDB. Le filtre n'est qu'une optimisation : l'index unique sur
+ * {@link PaymentReference#getReference()} reste la source de vérité, une erreur de clé dupliquée
+ * à l'insertion signifiant que la référence est déjà traitée.
+ */
+@Component
+@Slf4j
+public class PaymentIdempotencyFilter {
+
+    private static final String METRIC_PREFIX = "payiskoul.payment.idempotency";
+    // Estimation de l'empreinte d'une entrée du LRU (nœud de LinkedHashMap + String de ~20 caractères)
+    private static final long LRU_ENTRY_BYTES = 120;
+
+    private final PaymentReferenceRepository paymentReferenceRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final Map<String, Boolean> recentReferences;
+
+    private final AtomicLong maybeSeenLookups = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final Counter skippedLookups;
+    private final Counter recentHits;
+
+    private volatile boolean warmedUp = false;
+
+    public PaymentIdempotencyFilter(PaymentReferenceRepository paymentReferenceRepository,
+                                    MongoTemplate mongoTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${payiskoul.tuition.idempotency.expected-references:2000000}") long expectedReferences,
+                                    @Value("${payiskoul.tuition.idempotency.false-positive-probability:0.01}") double falsePositiveProbability,
+                                    @Value("${payiskoul.tuition.idempotency.recent-capacity:10000}") int recentCapacity) {
+        this.paymentReferenceRepository = paymentReferenceRepository;
+        this.mongoTemplate = mongoTemplate;
+
+        // Dimensionnement classique : m = -n ln(p) / ln(2)², k = m/n ln(2)
+        long words = (long) Math.ceil(-expectedReferences * Math.log(falsePositiveProbability)
+                / (Math.log(2) * Math.log(2)) / Long.SIZE);
+        this.bits = new AtomicLongArray((int) Math.max(1, words));
+        this.bitCount = (long) bits.length() * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedReferences * Math.log(2)));
+
+        this.recentReferences = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentCapacity;
+            }
+        });
+
+        this.skippedLookups = meterRegistry.counter(METRIC_PREFIX + ".lookups", "result", "skipped");
+        this.recentHits = meterRegistry.counter(METRIC_PREFIX + ".lookups", "result", "recent");
+        Gauge.builder(METRIC_PREFIX + ".false_positive_rate", this, PaymentIdempotencyFilter::falsePositiveRate)
+                .description("Part des références 'peut-être vues' absentes de MongoDB")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".memory", this, PaymentIdempotencyFilter::memoryBytes)
+                .description("Mémoire occupée par le filtre de Bloom et le cache LRU")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".mongo_lookups", maybeSeenLookups, AtomicLong::get)
+                .register(meterRegistry);
+
+        log.info("Filtre d'idempotence initialisé: {} bits, {} fonctions de hachage, LRU de {} références",
+                bitCount, hashCount, recentCapacity);
+    }
+
+    /**
+     * Pré-charge le filtre de Bloom en parcourant la collection payment_references.
+     * Tant que le chargement n'est pas terminé, toutes les vérifications sont déléguées à MongoDB.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        long count = 0;
+
+        Query query = new Query().cursorBatchSize(5000);
+        query.fields().include("reference");
+
+        try (Stream<PaymentReference> references = mongoTemplate.stream(query, PaymentReference.class)) {
+            Iterator<PaymentReference> iterator = references.iterator();
+            while (iterator.hasNext()) {
+                String reference = iterator.next().getReference();
+                if (reference != null) {
+                    addToBloom(reference);
+                    count++;
+                }
+            }
+            warmedUp = true;
+            log.info("Filtre d'idempotence pré-chargé avec {} références en {} ms",
+                    count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Échec du pré-chargement du filtre d'idempotence, vérifications déléguées à MongoDB: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Vérifie si une référence a déjà été traitée
+     * @param reference la référence de paiement
+     * @return true si la référence est connue
+     */
+    public boolean isAlreadyProcessed(String reference) {
+        if (recentReferences.containsKey(reference)) {
+            recentHits.increment();
+            return true;
+        }
+        if (warmedUp && !mightContain(reference)) {
+            skippedLookups.increment();
+            return false;
+        }
+
+        maybeSeenLookups.incrementAndGet();
+        boolean exists = paymentReferenceRepository.existsByReference(reference);
+        if (!exists && warmedUp) {
+            falsePositives.incrementAndGet();
+        }
+        return exists;
+    }
+
+    /**
+     * Retourne, parmi les références données, celles qui ont déjà été traitées.
+     * Une seule requête $in est émise, limitée aux références "peut-être vues".
+     * @param references les références à vérifier
+     * @return les références déjà traitées
+     */
+    public Set<String> findAlreadyProcessed(Collection<String> references) {
+        Set<String> processed = new HashSet<>();
+        List<String> candidates = new ArrayList<>();
+
+        for (String reference : references) {
+            if (recentReferences.containsKey(reference)) {
+                recentHits.increment();
+                processed.add(reference);
+            } else if (warmedUp && !mightContain(reference)) {
+                skippedLookups.increment();
+            } else {
+                candidates.add(reference);
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            maybeSeenLookups.addAndGet(candidates.size());
+            Set<String> found = paymentReferenceRepository.findByReferenceIn(candidates).stream()
+                    .map(PaymentReference::getReference)
+                    .collect(Collectors.toSet());
+            if (warmedUp) {
+                falsePositives.addAndGet(candidates.size() - found.size());
+            }
+            processed.addAll(found);
+        }
+        return processed;
+    }
+
+    /**
+     * Enregistre une référence comme traitée (après insertion réussie ou clé dupliquée)
+     */
+    public void markProcessed(String reference) {
+        addToBloom(reference);
+        recentReferences.put(reference, Boolean.TRUE);
+    }
+
+    /**
+     * Part des vérifications MongoDB qui se sont révélées inutiles (faux positifs du filtre de Bloom)
+     */
+    public double falsePositiveRate() {
+        long lookups = maybeSeenLookups.get();
+        return lookups == 0 ? 0.0 : (double) falsePositives.get() / lookups;
+    }
+
+    /**
+     * Mémoire occupée par le filtre (bits du filtre de Bloom + estimation du cache LRU)
+     */
+    public long memoryBytes() {
+        return (long) bits.length() * Long.BYTES + recentReferences.size() * LRU_ENTRY_BYTES;
+    }
+
+    // ============ FILTRE DE BLOOM ============
+
+    private void addToBloom(String reference) {
+        long hash = hash64(reference);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(h1, h2, i);
+            long mask = 1L << (bit & 63);
+            bits.getAndAccumulate((int) (bit >>> 6), mask, (current, m) -> current | m);
+        }
+    }
+
+    private boolean mightContain(String reference) {
+        long hash = hash64(reference);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(h1, h2, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Double hachage (Kirsch-Mitzenmacher) : h1 + i * h2
+     */
+    private long bitIndex(int h1, int h2, int i) {
+        int combined = h1 + i * h2;
+        if (combined < 0) {
+            combined = ~combined;
+        }
+        return combined % bitCount;
+    }
+
+    /**
+     * FNV-1a 64 bits suivi d'un brassage final (fmix64 de MurmurHash3)
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,45 @@
+package com.payiskoul.institution.tuition.service;
+
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Convertit au démarrage les montants de tuition_status encore stockés en chaîne vers Decimal128,
+ * type requis par les mises à jour atomiques ($add, $subtract) de {@link TuitionService}
+ */
+@Component
+@Order(0)
+@RequiredArgsConstructor
+@Slf4j
+public class TuitionAmountMigration implements ApplicationRunner {
+
+    private static final String COLLECTION = "tuition_status";
+    private static final List<String> AMOUNT_FIELDS = List.of("totalAmount", "paidAmount", "remainingAmount");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String field : AMOUNT_FIELDS) {
+            try {
+                UpdateResult result = mongoTemplate.getCollection(COLLECTION).updateMany(
+                        new Document(field, new Document("$type", "string")),
+                        List.of(new Document("$set", new Document(field, new Document("$toDecimal", "$" + field)))));
+                if (result.getModifiedCount() > 0) {
+                    log.info("{} montants '{}' convertis en Decimal128", result.getModifiedCount(), field);
+                }
+            } catch (Exception e) {
+                log.error("Échec de la conversion des montants '{}': {}", field, e.getMessage(), e);
+            }
+        }
+    }
+}
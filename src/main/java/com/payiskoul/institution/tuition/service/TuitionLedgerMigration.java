@@ -0,0 +1,30 @@
+package com.payiskoul.institution.tuition.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ouvre au démarrage, dans le grand livre, le solde des statuts de paiement créés avant son introduction.
+ * S'exécute après {@link TuitionAmountMigration} pour lire des montants déjà convertis en Decimal128
+ */
+@Component
+@Order(1)
+@RequiredArgsConstructor
+@Slf4j
+public class TuitionLedgerMigration implements ApplicationRunner {
+
+    private final TuitionLedgerService tuitionLedgerService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            tuitionLedgerService.openLegacyBalances();
+        } catch (Exception e) {
+            log.error("Échec de l'ouverture des soldes dans le grand livre: {}", e.getMessage(), e);
+        }
+    }
+}
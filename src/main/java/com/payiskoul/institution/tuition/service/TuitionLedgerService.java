@@ -0,0 +1,641 @@
+package com.payiskoul.institution.tuition.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.payiskoul.institution.tuition.model.LedgerEntry;
+import com.payiskoul.institution.tuition.model.LedgerEntryType;
+import com.payiskoul.institution.tuition.model.PaymentStatus;
+import com.payiskoul.institution.tuition.model.TuitionStatus;
+import com.payiskoul.institution.tuition.repository.LedgerEntryRepository;
+import com.payiskoul.institution.tuition.repository.TuitionStatusRepository;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Grand livre des frais de scolarité (collection tuition_ledger).
+ * <p>
+ * Les paiements, frais, remboursements, régularisations et changements manuels de statut sont des insertions :
+ * aucun document n'est modifié sur le chemin d'écriture. {@link TuitionStatus} est une projection rafraîchie périodiquement ; son champ
+ * ledgerSequence indique jusqu'où les écritures y ont été intégrées. Un solde courant se lit en chargeant
+ * la projection puis en rejouant les écritures postérieures à cette position.
+ * <p>
+ * Les positions sont des séquences réservées côté serveur ($inc sur tuition_ledger_sequence) avant l'insertion,
+ * et non des horodatages : une écriture retardée (nouvelle tentative du pilote, bascule du primaire, pause)
+ * garde sa place. Les projections n'avancent que jusqu'à la première séquence réservée mais pas encore écrite ;
+ * passé settle-window, cette séquence est neutralisée par une écriture VOID, et l'index unique des séquences fait
+ * échouer l'insertion retardée, qui est rejouée avec une nouvelle séquence. Aucune écriture ne peut donc se
+ * retrouver sous la position d'une projection sans y avoir été intégrée.
+ */
+@Service
+@Slf4j
+public class TuitionLedgerService {
+
+    // Position initiale : aucune écriture séquencée intégrée (les séquences commencent à 1). C'est aussi la position
+    // des projections antérieures au grand livre, dont les écritures d'ouverture n'ont pas de séquence
+    static final long START_POSITION = 0L;
+    // Point de départ d'une reconstruction : écritures d'ouverture comprises
+    private static final long ORIGIN_POSITION = -1L;
+
+    private static final String SEQUENCE_ID = "tuition_ledger";
+
+    // Statuts positionnés manuellement, non recalculés à partir des montants
+    private static final Set<PaymentStatus> MANUAL_STATUSES =
+            EnumSet.of(PaymentStatus.REFUNDED, PaymentStatus.CANCELLED, PaymentStatus.PENDING_VALIDATION);
+
+    private static final int BATCH_SIZE = 500;
+    // Séquences examinées au plus par rafraîchissement
+    private static final int SCAN_LIMIT = 10000;
+    private static final int MAX_APPEND_ATTEMPTS = 3;
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final TuitionStatusRepository tuitionStatusRepository;
+    private final MongoTemplate mongoTemplate;
+    private final long settleWindow;
+    private final int rebuildParallelism;
+
+    // Séquences manquantes, avec l'instant où elles ont été constatées (utilisé par le seul thread de projection)
+    private final NavigableMap<Long, Long> missingSince = new TreeMap<>();
+
+    public TuitionLedgerService(LedgerEntryRepository ledgerEntryRepository,
+                                TuitionStatusRepository tuitionStatusRepository,
+                                MongoTemplate mongoTemplate,
+                                @Value("${payiskoul.tuition.ledger.settle-window:2000}") long settleWindow,
+                                @Value("${payiskoul.tuition.ledger.rebuild-parallelism:0}") int rebuildParallelism) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.tuitionStatusRepository = tuitionStatusRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.settleWindow = settleWindow;
+        this.rebuildParallelism = rebuildParallelism > 0 ? rebuildParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    // ============ ÉCRITURE ============
+
+    /**
+     * Ajoute une écriture au grand livre, à une séquence réservée pour elle
+     * @return l'écriture enregistrée
+     */
+    public LedgerEntry append(String enrollmentId, String matricule, LedgerEntryType type,
+                              BigDecimal amount, String currency, String reference) {
+        return insert(entry(enrollmentId, matricule, type, amount, currency, reference));
+    }
+
+    /**
+     * Enregistre un changement manuel du statut de paiement (écriture STATUS, sans montant).
+     * La projection le reprend à sa place dans le grand livre : un statut REFUNDED, CANCELLED ou PENDING_VALIDATION
+     * est conservé par les projections suivantes, un autre statut est recalculé à partir des montants
+     * @return l'écriture enregistrée
+     */
+    public LedgerEntry appendStatus(String enrollmentId, String matricule, PaymentStatus paymentStatus) {
+        LedgerEntry entry = entry(enrollmentId, matricule, LedgerEntryType.STATUS, BigDecimal.ZERO, null, null);
+        entry.setPaymentStatus(paymentStatus);
+        return insert(entry);
+    }
+
+    /**
+     * Insère une écriture à une séquence réservée pour elle, rejouée avec une nouvelle séquence si celle-ci
+     * a été neutralisée entre-temps
+     */
+    private LedgerEntry insert(LedgerEntry entry) {
+        for (int attempt = 1; ; attempt++) {
+            entry.setId(null);
+            entry.setSequence(allocate(1));
+            try {
+                return ledgerEntryRepository.insert(entry);
+            } catch (DuplicateKeyException e) {
+                // Séquence neutralisée pendant l'insertion : l'écriture est rejouée avec une nouvelle séquence
+                if (!isSequenceConflict(e.getMessage()) || attempt >= MAX_APPEND_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Séquence {} neutralisée avant l'écriture, nouvelle tentative", entry.getSequence());
+            }
+        }
+    }
+
+    /**
+     * Ajoute plusieurs écritures en un seul bulkWrite non ordonné, sur une plage de séquences réservée en une fois
+     * (dans l'ordre de la liste). Une référence déjà présente signifie que l'écriture a été enregistrée par une
+     * tentative précédente ; une séquence neutralisée entre-temps est remplacée par une nouvelle.
+     * La séquence attribuée est renseignée sur chaque écriture.
+     * @return les indices des écritures qui n'ont pas pu être enregistrées
+     */
+    public Set<Integer> appendAll(List<LedgerEntry> entries) {
+        Set<Integer> failed = new HashSet<>();
+        List<Integer> pending = IntStream.range(0, entries.size()).boxed().toList();
+
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            long first = allocate(pending.size());
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LedgerEntry.class);
+            for (int k = 0; k < pending.size(); k++) {
+                LedgerEntry entry = entries.get(pending.get(k));
+                entry.setId(null);
+                entry.setSequence(first + k);
+                operations.insert(entry);
+            }
+
+            List<Integer> conflicts = new ArrayList<>();
+            try {
+                operations.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    int index = pending.get(error.getIndex());
+                    if (error.getCode() != DUPLICATE_KEY_ERROR) {
+                        log.error("Écriture du grand livre rejetée ({}): {}", entries.get(index).getReference(),
+                                error.getMessage());
+                        failed.add(index);
+                    } else if (isSequenceConflict(error.getMessage())) {
+                        if (attempt < MAX_APPEND_ATTEMPTS) {
+                            conflicts.add(index);
+                        } else {
+                            failed.add(index);
+                        }
+                    }
+                }
+            }
+            pending = conflicts;
+        }
+        return failed;
+    }
+
+    /**
+     * Construit une écriture (non enregistrée)
+     */
+    public static LedgerEntry entry(String enrollmentId, String matricule, LedgerEntryType type,
+                                    BigDecimal amount, String currency, String reference) {
+        return LedgerEntry.builder()
+                .enrollmentId(enrollmentId)
+                .matricule(matricule)
+                .type(type)
+                .amount(amount)
+                .currency(currency)
+                .reference(reference)
+                .recordedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // ============ LECTURE ============
+
+    /**
+     * Solde courant d'une inscription : projection + écritures postérieures
+     */
+    public TuitionStatus balance(TuitionStatus snapshot) {
+        return balances(List.of(snapshot)).get(0);
+    }
+
+    /**
+     * Solde d'une inscription juste après une écriture donnée (incluse)
+     */
+    public TuitionStatus balance(TuitionStatus snapshot, long upToSequence) {
+        Map<String, Delta> deltas = tail(List.of(snapshot), upToSequence);
+        return project(snapshot, deltas.getOrDefault(snapshot.getEnrollmentId(), Delta.ZERO), snapshot.getLedgerSequence());
+    }
+
+    /**
+     * Soldes courants de plusieurs inscriptions, avec une seule lecture du grand livre
+     */
+    public List<TuitionStatus> balances(List<TuitionStatus> snapshots) {
+        if (snapshots.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Delta> deltas = tail(snapshots, null);
+        return snapshots.stream()
+                .map(snapshot -> project(snapshot, deltas.getOrDefault(snapshot.getEnrollmentId(), Delta.ZERO),
+                        snapshot.getLedgerSequence()))
+                .toList();
+    }
+
+    // ============ PROJECTION ============
+
+    /**
+     * Intègre aux projections les écritures écrites depuis le dernier passage, jusqu'à la première séquence
+     * encore manquante. La mise à jour est conditionnée à la position précédente : une écriture n'est jamais
+     * intégrée deux fois. L'horizon atteint est enregistré en base, de sorte que les instances se relaient.
+     */
+    @Scheduled(fixedDelayString = "${payiskoul.tuition.ledger.snapshot-interval:5000}")
+    public void snapshot() {
+        try {
+            LedgerSequence sequence = mongoTemplate.findById(SEQUENCE_ID, LedgerSequence.class);
+            if (sequence == null) {
+                return;
+            }
+            long from = sequence.getProjected();
+            long horizon = settle(from, Math.min(sequence.getValue(), from + SCAN_LIMIT));
+            if (horizon <= from) {
+                return;
+            }
+
+            Query touched = Query.query(Criteria.where("sequence").gt(from).lte(horizon));
+            List<String> enrollmentIds = mongoTemplate.findDistinct(touched, "enrollmentId", LedgerEntry.class, String.class);
+
+            long updated = 0;
+            for (int i = 0; i < enrollmentIds.size(); i += BATCH_SIZE) {
+                updated += projectAll(enrollmentIds.subList(i, Math.min(i + BATCH_SIZE, enrollmentIds.size())), horizon, true);
+            }
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(SEQUENCE_ID)),
+                    new Update().max("projected", horizon), LedgerSequence.class);
+            if (updated > 0) {
+                log.debug("{} projections de frais de scolarité mises à jour", updated);
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors de la projection du grand livre: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recalcule toutes les projections à partir du grand livre, en parallèle.
+     * Les inscriptions sont réparties par hachage en autant de partitions que de cœurs (ou rebuild-parallelism)
+     * @return le résultat de la reconstruction
+     */
+    public RebuildResult rebuild() {
+        long start = System.currentTimeMillis();
+        openLegacyBalances();
+        LedgerSequence sequence = mongoTemplate.findById(SEQUENCE_ID, LedgerSequence.class);
+        long horizon = sequence != null ? sequence.getProjected() : START_POSITION;
+
+        List<List<String>> partitions = new ArrayList<>(rebuildParallelism);
+        for (int i = 0; i < rebuildParallelism; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        Query query = new Query().cursorBatchSize(5000);
+        query.fields().include("enrollmentId");
+        try (Stream<TuitionStatus> statuses = mongoTemplate.stream(query, TuitionStatus.class)) {
+            statuses.map(TuitionStatus::getEnrollmentId)
+                    .filter(Objects::nonNull)
+                    .forEach(id -> partitions.get(Math.floorMod(id.hashCode(), rebuildParallelism)).add(id));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildParallelism);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (List<String> partition : partitions) {
+                futures.add(executor.submit(() -> {
+                    long count = 0;
+                    for (int i = 0; i < partition.size(); i += BATCH_SIZE) {
+                        count += projectAll(partition.subList(i, Math.min(i + BATCH_SIZE, partition.size())), horizon, false);
+                    }
+                    return count;
+                }));
+            }
+
+            long projections = 0;
+            for (Future<Long> future : futures) {
+                projections += future.get();
+            }
+
+            RebuildResult result = new RebuildResult(projections, rebuildParallelism, System.currentTimeMillis() - start);
+            log.info("Projections reconstruites à partir du grand livre: {}", result);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstruction des projections interrompue", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Échec de la reconstruction des projections: " + e.getMessage(), e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Crée les écritures d'ouverture (frais + montant déjà payé) des projections antérieures au grand livre,
+     * pour qu'une reconstruction retrouve leurs montants. Idempotent grâce à l'unicité des références.
+     */
+    public void openLegacyBalances() {
+        Query query = Query.query(Criteria.where("ledgerSequence").is(null)).cursorBatchSize(BATCH_SIZE);
+        long opened = 0;
+        List<LedgerEntry> entries = new ArrayList<>();
+
+        try (Stream<TuitionStatus> statuses = mongoTemplate.stream(query, TuitionStatus.class)) {
+            Iterator<TuitionStatus> iterator = statuses.iterator();
+            while (iterator.hasNext()) {
+                TuitionStatus status = iterator.next();
+                addOpeningEntry(entries, status, LedgerEntryType.CHARGE, status.getTotalAmount(), "opening-charge:");
+                addOpeningEntry(entries, status, LedgerEntryType.ADJUSTMENT, status.getPaidAmount(), "opening-paid:");
+                if (entries.size() >= BATCH_SIZE) {
+                    opened += insertOpeningEntries(entries);
+                    entries.clear();
+                }
+            }
+        }
+        opened += insertOpeningEntries(entries);
+
+        if (opened > 0) {
+            log.info("{} écritures d'ouverture ajoutées au grand livre", opened);
+        }
+    }
+
+    // ============ MÉTHODES PRIVÉES ============
+
+    /**
+     * Recalcule les projections d'un lot d'inscriptions jusqu'à l'horizon (inclus)
+     * @param guarded true pour un rafraîchissement incrémental conditionné à la position courante,
+     *                false pour une reconstruction complète depuis l'origine
+     */
+    private long projectAll(List<String> enrollmentIds, long horizon, boolean guarded) {
+        List<TuitionStatus> snapshots = tuitionStatusRepository.findByEnrollmentIdIn(enrollmentIds);
+        if (guarded) {
+            // Projections créées au-delà de l'horizon avec leurs écritures initiales : rien à intégrer
+            snapshots = snapshots.stream().filter(snapshot -> position(snapshot) < horizon).toList();
+        }
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+
+        List<TuitionStatus> bases = guarded ? snapshots : snapshots.stream().map(TuitionLedgerService::origin).toList();
+        Map<String, Delta> deltas = tail(bases, horizon);
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TuitionStatus.class);
+        int count = 0;
+        for (int i = 0; i < snapshots.size(); i++) {
+            TuitionStatus snapshot = snapshots.get(i);
+            Delta delta = deltas.getOrDefault(snapshot.getEnrollmentId(), Delta.ZERO);
+            if (guarded && delta.isZero()) {
+                continue;
+            }
+
+            TuitionStatus projected = project(bases.get(i), delta, horizon);
+            Query query = Query.query(Criteria.where("_id").is(snapshot.getId()));
+            if (guarded) {
+                query.addCriteria(Criteria.where("ledgerSequence").is(snapshot.getLedgerSequence()));
+            }
+            operations.updateOne(query, new Update()
+                    .set("totalAmount", new Decimal128(projected.getTotalAmount()))
+                    .set("paidAmount", new Decimal128(projected.getPaidAmount()))
+                    .set("remainingAmount", new Decimal128(projected.getRemainingAmount()))
+                    .set("paymentStatus", projected.getPaymentStatus().name())
+                    .set("lastUpdatedAt", projected.getLastUpdatedAt())
+                    .set("ledgerSequence", horizon));
+            count++;
+        }
+
+        if (count > 0) {
+            operations.execute();
+        }
+        return count;
+    }
+
+    /**
+     * Somme, par inscription, les écritures postérieures à la position de chaque projection.
+     * Une seule requête : les écritures sont filtrées à partir de la plus petite position, puis par inscription.
+     * Les écritures d'ouverture (sans séquence) ne sont rejouées que depuis l'origine.
+     * @param upperBound séquence maximale (incluse), ou null pour toutes les écritures
+     */
+    private Map<String, Delta> tail(Collection<TuitionStatus> snapshots, Long upperBound) {
+        Map<String, Long> positions = new HashMap<>();
+        for (TuitionStatus snapshot : snapshots) {
+            positions.put(snapshot.getEnrollmentId(), position(snapshot));
+        }
+        long lowest = Collections.min(positions.values());
+
+        Criteria range = Criteria.where("sequence").gt(lowest);
+        if (upperBound != null) {
+            range = range.lte(upperBound);
+        }
+        if (lowest < START_POSITION) {
+            range = new Criteria().orOperator(range, Criteria.where("sequence").exists(false));
+        }
+        Query query = Query.query(Criteria.where("enrollmentId").in(positions.keySet())).addCriteria(range);
+        query.fields().include("enrollmentId", "type", "amount", "sequence", "paymentStatus");
+
+        Map<String, Delta> deltas = new HashMap<>();
+        for (LedgerEntry entry : mongoTemplate.find(query, LedgerEntry.class)) {
+            long position = positions.get(entry.getEnrollmentId());
+            boolean pending = entry.getSequence() != null ? entry.getSequence() > position : position < START_POSITION;
+            if (pending) {
+                deltas.merge(entry.getEnrollmentId(), Delta.of(entry), Delta::plus);
+            }
+        }
+        return deltas;
+    }
+
+    private TuitionStatus project(TuitionStatus snapshot, Delta delta, Long position) {
+        BigDecimal totalAmount = orZero(snapshot.getTotalAmount()).add(delta.total());
+        BigDecimal paidAmount = orZero(snapshot.getPaidAmount()).add(delta.paid());
+        // Le dernier changement manuel intégré remplace le statut de la projection
+        PaymentStatus manualStatus = delta.status() != null ? delta.status() : snapshot.getPaymentStatus();
+        PaymentStatus paymentStatus = MANUAL_STATUSES.contains(manualStatus)
+                ? manualStatus
+                : TuitionService.determinePaymentStatus(totalAmount, paidAmount);
+
+        return TuitionStatus.builder()
+                .id(snapshot.getId())
+                .enrollmentId(snapshot.getEnrollmentId())
+                .studentId(snapshot.getStudentId())
+                .matricule(snapshot.getMatricule())
+                .totalAmount(totalAmount)
+                .paidAmount(paidAmount)
+                .remainingAmount(totalAmount.subtract(paidAmount))
+                .currency(snapshot.getCurrency())
+                .paymentStatus(paymentStatus)
+                .lastUpdatedAt(delta.isZero() ? snapshot.getLastUpdatedAt() : LocalDateTime.now())
+                .ledgerSequence(position)
+                .build();
+    }
+
+    /**
+     * Projection vide positionnée à l'origine du grand livre (point de départ d'une reconstruction)
+     */
+    private static TuitionStatus origin(TuitionStatus snapshot) {
+        return TuitionStatus.builder()
+                .id(snapshot.getId())
+                .enrollmentId(snapshot.getEnrollmentId())
+                .studentId(snapshot.getStudentId())
+                .matricule(snapshot.getMatricule())
+                .totalAmount(BigDecimal.ZERO)
+                .paidAmount(BigDecimal.ZERO)
+                .currency(snapshot.getCurrency())
+                .paymentStatus(snapshot.getPaymentStatus())
+                .lastUpdatedAt(snapshot.getLastUpdatedAt())
+                .ledgerSequence(ORIGIN_POSITION)
+                .build();
+    }
+
+    private void addOpeningEntry(List<LedgerEntry> entries, TuitionStatus status, LedgerEntryType type,
+                                 BigDecimal amount, String referencePrefix) {
+        if (amount == null || amount.signum() == 0) {
+            return;
+        }
+        entries.add(entry(status.getEnrollmentId(), status.getMatricule(), type, amount, status.getCurrency(),
+                referencePrefix + status.getEnrollmentId()));
+    }
+
+    private long insertOpeningEntries(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LedgerEntry.class);
+        entries.forEach(operations::insert);
+        try {
+            return operations.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            e.getErrors().stream()
+                    .filter(error -> error.getCode() != DUPLICATE_KEY_ERROR)
+                    .forEach(error -> log.error("Écriture d'ouverture rejetée: {}", error.getMessage()));
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    /**
+     * Réserve {@code count} séquences consécutives en une seule opération findAndModify, sûre entre plusieurs
+     * instances. Le document est créé s'il n'existe pas (première écriture : séquence 1)
+     * @return la première séquence réservée
+     */
+    private long allocate(int count) {
+        Query query = Query.query(Criteria.where("_id").is(SEQUENCE_ID));
+        Update update = new Update().inc("value", count);
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
+        LedgerSequence sequence;
+        try {
+            sequence = mongoTemplate.findAndModify(query, update, options, LedgerSequence.class);
+        } catch (DuplicateKeyException e) {
+            // Deux instances ont créé la séquence en même temps : le document existe désormais
+            sequence = mongoTemplate.findAndModify(query, update, options, LedgerSequence.class);
+        }
+        return sequence.getValue() - count + 1;
+    }
+
+    /**
+     * Horizon de projection : plus grande séquence h de ]from, to] telle que toutes les séquences de ]from, h]
+     * soient écrites ou neutralisées. Une séquence réservée qui reste manquante plus de settle-window est
+     * neutralisée par une écriture VOID.
+     */
+    private long settle(long from, long to) {
+        if (to <= from) {
+            return from;
+        }
+        Query query = Query.query(Criteria.where("sequence").gt(from).lte(to)).with(Sort.by("sequence"));
+        query.fields().include("sequence");
+
+        long now = System.currentTimeMillis();
+        long horizon = to;
+        long expected = from + 1;
+        for (LedgerEntry entry : mongoTemplate.find(query, LedgerEntry.class)) {
+            for (; expected < entry.getSequence(); expected++) {
+                if (!neutralize(expected, now) && horizon == to) {
+                    horizon = expected - 1;
+                }
+            }
+            expected = entry.getSequence() + 1;
+        }
+        for (; expected <= to; expected++) {
+            if (!neutralize(expected, now) && horizon == to) {
+                horizon = expected - 1;
+            }
+        }
+        missingSince.headMap(horizon, true).clear();
+        return horizon;
+    }
+
+    /**
+     * Neutralise une séquence manquante depuis plus de settle-window
+     * @return true si la séquence est désormais occupée (par la neutralisation ou par l'écriture attendue)
+     */
+    private boolean neutralize(long sequence, long now) {
+        Long firstSeen = missingSince.putIfAbsent(sequence, now);
+        if (firstSeen == null || now - firstSeen < settleWindow) {
+            return false;
+        }
+        try {
+            ledgerEntryRepository.insert(LedgerEntry.builder()
+                    .sequence(sequence)
+                    .type(LedgerEntryType.VOID)
+                    .amount(BigDecimal.ZERO)
+                    .recordedAt(LocalDateTime.now())
+                    .build());
+            log.warn("Séquence {} du grand livre réservée mais jamais écrite : neutralisée", sequence);
+        } catch (DuplicateKeyException e) {
+            // L'écriture attendue est arrivée entre-temps
+        }
+        return true;
+    }
+
+    private static boolean isSequenceConflict(String message) {
+        return message != null && message.contains(LedgerEntry.SEQUENCE_INDEX);
+    }
+
+    private static long position(TuitionStatus snapshot) {
+        return snapshot.getLedgerSequence() != null ? snapshot.getLedgerSequence() : START_POSITION;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    // ============ CLASSES INTERNES ============
+
+    /**
+     * Variation apportée par une suite d'écritures : montants, et dernier statut manuel (écriture STATUS de plus
+     * grande séquence, ou null s'il n'y en a pas)
+     */
+    private record Delta(BigDecimal total, BigDecimal paid, PaymentStatus status, long statusSequence) {
+        static final Delta ZERO = new Delta(BigDecimal.ZERO, BigDecimal.ZERO, null, START_POSITION);
+
+        static Delta of(LedgerEntry entry) {
+            BigDecimal amount = orZero(entry.getAmount());
+            return switch (entry.getType()) {
+                case CHARGE -> new Delta(amount, BigDecimal.ZERO, null, START_POSITION);
+                case PAYMENT, ADJUSTMENT -> new Delta(BigDecimal.ZERO, amount, null, START_POSITION);
+                case REFUND -> new Delta(BigDecimal.ZERO, amount.negate(), null, START_POSITION);
+                case STATUS -> new Delta(BigDecimal.ZERO, BigDecimal.ZERO, entry.getPaymentStatus(), entry.getSequence());
+                case VOID -> ZERO;
+            };
+        }
+
+        // Les écritures sont lues sans ordre : le statut retenu est celui de la plus grande séquence
+        Delta plus(Delta other) {
+            Delta latest = other.status != null && (status == null || other.statusSequence > statusSequence) ? other : this;
+            return new Delta(total.add(other.total), paid.add(other.paid), latest.status, latest.statusSequence);
+        }
+
+        boolean isZero() {
+            return total.signum() == 0 && paid.signum() == 0 && status == null;
+        }
+    }
+
+    /**
+     * Séquence du grand livre : dernière séquence réservée et horizon atteint par les projections
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @org.springframework.data.mongodb.core.mapping.Document("tuition_ledger_sequence")
+    private static class LedgerSequence {
+        @Id
+        private String id;
+        private long value;
+        private long projected;
+    }
+
+    /**
+     * Résultat d'une reconstruction des projections
+     */
+    public record RebuildResult(
+            long projections,
+            int partitions,
+            long durationMs
+    ) {}
+}
@@ -1,9 +1,10 @@
 package com.payiskoul.institution.tuition.service;
 
+import com.payiskoul.institution.exception.InstitutionNotFoundException;
 import com.payiskoul.institution.exception.StudentNotFoundException;
-import com.payiskoul.institution.organization.service.InstitutionService;
+import com.payiskoul.institution.organization.model.Institution;
 import com.payiskoul.institution.program.model.TrainingOffer;
-import com.payiskoul.institution.program.repository.TrainingOfferRepository;
+import com.payiskoul.institution.reports.service.TuitionReportService;
 import com.payiskoul.institution.student.model.Enrollment;
 import com.payiskoul.institution.student.model.Student;
 import com.payiskoul.institution.student.repository.EnrollmentRepository;
@@ -12,22 +13,32 @@ import com.payiskoul.institution.tuition.dto.InstitutionInfo;
 import com.payiskoul.institution.tuition.dto.ProgramInfo;
 import com.payiskoul.institution.tuition.dto.TuitionInfo;
 import com.payiskoul.institution.tuition.dto.TuitionResponse;
+import com.payiskoul.institution.tuition.model.EntitlementStatus;
+import com.payiskoul.institution.tuition.model.LedgerEntry;
+import com.payiskoul.institution.tuition.model.LedgerEntryType;
 import com.payiskoul.institution.tuition.model.TuitionStatus;
 import com.payiskoul.institution.tuition.model.PaymentStatus;
+import com.payiskoul.institution.tuition.repository.LedgerEntryRepository;
 import com.payiskoul.institution.tuition.repository.TuitionStatusRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service de frais de scolarité mis à jour pour utiliser le modèle unifié TrainingOffer
@@ -37,11 +48,18 @@ import java.util.Optional;
 @Slf4j
 public class TuitionService {
 
+    // Références des écritures initiales d'une inscription
+    private static final String CHARGE_REFERENCE = "charge:";
+    private static final String INITIAL_PAYMENT_REFERENCE = "initial-payment:";
+
     private final TuitionStatusRepository tuitionStatusRepository;
     private final StudentRepository studentRepository;
     private final EnrollmentRepository enrollmentRepository;
-    private final TrainingOfferRepository trainingOfferRepository; // Remplace ProgramLevelRepository
-    private final InstitutionService institutionService;
+    private final MongoTemplate mongoTemplate;
+    private final TuitionReportService tuitionReportService;
+    private final TuitionLedgerService tuitionLedgerService;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final PaymentEntitlementCache paymentEntitlementCache;
 
     /**
      * Récupère les informations de paiement pour un étudiant par son matricule
@@ -58,26 +76,43 @@ public class TuitionService {
                         Map.of("matricule", matricule)));
 
         // Récupérer les statuts de paiement
-        List<TuitionStatus> tuitionStatuses = tuitionStatusRepository.findByMatricule(matricule);
+        List<TuitionStatus> tuitionStatuses = tuitionLedgerService.balances(tuitionStatusRepository.findByMatricule(matricule));
+
+        // Charger inscriptions, offres et institutions avec une requête $in par collection,
+        // en ne projetant que les champs utilisés par la réponse
+        Map<String, Enrollment> enrollments = findByIds(Enrollment.class, Enrollment::getId,
+                tuitionStatuses.stream().map(TuitionStatus::getEnrollmentId).toList(),
+                "programLevelId", "institutionId");
+        Map<String, TrainingOffer> trainingOffers = findByIds(TrainingOffer.class, TrainingOffer::getId,
+                enrollments.values().stream().map(Enrollment::getProgramLevelId).toList(),
+                "code", "label", "academicYear");
+        Map<String, Institution> institutions = findByIds(Institution.class, Institution::getId,
+                enrollments.values().stream().map(Enrollment::getInstitutionId).toList(),
+                "name");
 
-        // Récupérer les informations des offres pour chaque statut
         List<TuitionInfo> tuitionInfos = new ArrayList<>();
 
         for (TuitionStatus status : tuitionStatuses) {
-            // Récupérer l'inscription
-            Enrollment enrollment = enrollmentRepository.findById(status.getEnrollmentId())
-                    .orElseThrow(() -> new RuntimeException("Inscription introuvable"));
+            Enrollment enrollment = enrollments.get(status.getEnrollmentId());
+            if (enrollment == null) {
+                throw new RuntimeException("Inscription introuvable");
+            }
 
-            // Récupérer l'offre (remplace la récupération du programme)
-            TrainingOffer trainingOffer = trainingOfferRepository.findById(enrollment.getProgramLevelId())
-                    .orElseThrow(() -> new RuntimeException("Offre introuvable"));
+            TrainingOffer trainingOffer = trainingOffers.get(enrollment.getProgramLevelId());
+            if (trainingOffer == null) {
+                throw new RuntimeException("Offre introuvable");
+            }
 
-            var institution = institutionService.getInstitution(enrollment.getInstitutionId());
+            Institution institution = institutions.get(enrollment.getInstitutionId());
+            if (institution == null) {
+                throw new InstitutionNotFoundException(
+                        "L'institution avec l'ID " + enrollment.getInstitutionId() + " est introuvable");
+            }
 
             // Créer les objets ProgramInfo et InstitutionInfo
             InstitutionInfo institutionInfo = new InstitutionInfo(
                     enrollment.getInstitutionId(),
-                    institution.name()
+                    institution.getName()
             );
 
             ProgramInfo programInfo = new ProgramInfo(
@@ -110,7 +145,9 @@ public class TuitionService {
     }
 
     /**
-     * Crée un statut de paiement pour une inscription
+     * Crée un statut de paiement pour une inscription.
+     * Les frais et le montant déjà payé sont d'abord enregistrés dans le grand livre, puis la projection est créée
+     * avec ces montants, positionnée sur leurs séquences : elle est juste dès sa création
      * @param enrollmentId ID de l'inscription
      * @param studentId ID de l'étudiant
      * @param matricule matricule de l'étudiant
@@ -130,79 +167,113 @@ public class TuitionService {
     ) {
         log.info("Création d'un statut de paiement pour l'inscription: {}", enrollmentId);
 
-        // Calculer le montant restant et déterminer le statut
-        BigDecimal remainingAmount = totalAmount.subtract(paidAmount);
-        PaymentStatus paymentStatus = determinePaymentStatus(totalAmount, paidAmount);
-
-        // Créer le statut de paiement
-        TuitionStatus tuitionStatus = TuitionStatus.builder()
-                .enrollmentId(enrollmentId)
-                .studentId(studentId)
-                .matricule(matricule)
-                .totalAmount(totalAmount)
-                .paidAmount(paidAmount)
-                .remainingAmount(remainingAmount)
-                .currency(currency)
-                .paymentStatus(paymentStatus)
-                .lastUpdatedAt(LocalDateTime.now())
-                .build();
+        // Enregistrer les frais et le montant déjà payé dans le grand livre (références propres à l'inscription :
+        // une nouvelle tentative ne les enregistre pas deux fois)
+        List<LedgerEntry> entries = new ArrayList<>();
+        entries.add(TuitionLedgerService.entry(enrollmentId, matricule, LedgerEntryType.CHARGE, totalAmount, currency,
+                CHARGE_REFERENCE + enrollmentId));
+        if (paidAmount.signum() != 0) {
+            entries.add(TuitionLedgerService.entry(enrollmentId, matricule, LedgerEntryType.PAYMENT, paidAmount, currency,
+                    INITIAL_PAYMENT_REFERENCE + enrollmentId));
+        }
+        if (!tuitionLedgerService.appendAll(entries).isEmpty()) {
+            throw new RuntimeException("Impossible d'enregistrer les frais dans le grand livre pour l'inscription: " + enrollmentId);
+        }
 
-        // Sauvegarder le statut
-        TuitionStatus savedStatus = tuitionStatusRepository.save(tuitionStatus);
+        // Sauvegarder la projection avec ces montants
+        TuitionStatus savedStatus = tuitionStatusRepository.save(initialStatus(enrollmentId, studentId, matricule,
+                totalAmount, paidAmount, currency, entries, LocalDateTime.now()));
+        paymentEntitlementCache.invalidateStudent(studentId);
         log.info("Statut de paiement créé avec succès. ID: {}", savedStatus.getId());
 
         return savedStatus;
     }
 
     /**
-     * Met à jour un statut de paiement suite à un paiement
+     * Crée en masse les statuts de paiement de nouvelles inscriptions (importations).
+     * Les frais sont enregistrés dans le grand livre avec un seul bulkWrite non ordonné, puis les projections,
+     * avec leurs montants, sont insérées avec un second
+     * @param requests les statuts à créer
+     * @return les indices des statuts qui n'ont pas pu être créés
+     */
+    public Set<Integer> createTuitionStatuses(List<NewTuitionStatus> requests) {
+        if (requests.isEmpty()) {
+            return Set.of();
+        }
+        log.info("Création de {} statuts de paiement", requests.size());
+
+        // Enregistrer les frais dans le grand livre
+        List<LedgerEntry> charges = requests.stream()
+                .map(request -> TuitionLedgerService.entry(request.enrollmentId(), request.matricule(),
+                        LedgerEntryType.CHARGE, request.totalAmount(), request.currency(),
+                        CHARGE_REFERENCE + request.enrollmentId()))
+                .toList();
+        Set<Integer> failed = new HashSet<>(tuitionLedgerService.appendAll(charges));
+
+        // Insérer les projections des frais enregistrés
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> recorded = new ArrayList<>();
+        BulkOperations statusOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TuitionStatus.class);
+        for (int i = 0; i < requests.size(); i++) {
+            if (failed.contains(i)) {
+                continue;
+            }
+            NewTuitionStatus request = requests.get(i);
+            recorded.add(i);
+            statusOps.insert(initialStatus(request.enrollmentId(), request.studentId(), request.matricule(),
+                    request.totalAmount(), BigDecimal.ZERO, request.currency(), List.of(charges.get(i)), now));
+        }
+
+        if (!recorded.isEmpty()) {
+            try {
+                statusOps.execute();
+            } catch (BulkOperationException e) {
+                e.getErrors().forEach(error -> {
+                    int index = recorded.get(error.getIndex());
+                    log.error("Statut de paiement rejeté pour l'inscription {}: {}",
+                            requests.get(index).enrollmentId(), error.getMessage());
+                    failed.add(index);
+                });
+            }
+        }
+
+        recorded.stream()
+                .filter(i -> !failed.contains(i))
+                .forEach(i -> paymentEntitlementCache.invalidateStudent(requests.get(i).studentId()));
+        return failed;
+    }
+
+    /**
+     * Enregistre un paiement dans le grand livre.
+     * Le paiement est une simple insertion : deux paiements concurrents sur la même inscription
+     * ne touchent aucun document commun. La projection tuition_status est rafraîchie en différé.
      * @param matricule matricule de l'étudiant
      * @param enrollmentId ID de l'inscription
      * @param amountPaid montant payé
-     * @return le statut de paiement mis à jour
+     * @param reference référence du paiement
+     * @return le solde de l'inscription juste après ce paiement
      */
     @Transactional
     @CacheEvict(value = "tuitions", key = "#matricule")
-    public TuitionStatus updateTuitionStatus(String matricule, String enrollmentId, BigDecimal amountPaid) {
+    public TuitionStatus updateTuitionStatus(String matricule, String enrollmentId, BigDecimal amountPaid,
+                                             String reference) {
         log.info("Mise à jour du statut de paiement pour l'inscription: {}, montant: {}", enrollmentId, amountPaid);
 
-        // Récupérer le statut de paiement actuel
-        List<TuitionStatus> statuses = tuitionStatusRepository.findByEnrollmentId(enrollmentId);
-        if (statuses.isEmpty()) {
-            throw new RuntimeException("Aucun statut de paiement trouvé pour cette inscription: " + enrollmentId);
-        }
-
-        TuitionStatus status = statuses.get(0);
+        TuitionStatus snapshot = findSnapshot(enrollmentId);
 
-        // Mettre à jour le montant payé
-        BigDecimal newPaidAmount = status.getPaidAmount().add(amountPaid);
-        BigDecimal newRemainingAmount = status.getTotalAmount().subtract(newPaidAmount);
-        PaymentStatus newPaymentStatus = determinePaymentStatus(status.getTotalAmount(), newPaidAmount);
+        LedgerEntry entry;
+        try {
+            entry = tuitionLedgerService.append(enrollmentId, matricule, LedgerEntryType.PAYMENT, amountPaid,
+                    snapshot.getCurrency(), reference);
+        } catch (DuplicateKeyException e) {
+            // Écriture déjà enregistrée par une tentative précédente interrompue après l'insertion
+            entry = ledgerEntryRepository.findByReference(reference).orElseThrow(() -> e);
+        }
 
-        // Mettre à jour les champs
-        status.setPaidAmount(newPaidAmount);
-        status.setRemainingAmount(newRemainingAmount);
-        status.setPaymentStatus(newPaymentStatus);
-        status.setLastUpdatedAt(LocalDateTime.now());
+        TuitionStatus updatedStatus = tuitionLedgerService.balance(snapshot, entry.getSequence());
+        paymentEntitlementCache.invalidateStudent(snapshot.getStudentId());
 
-        // Sauvegarder les modifications
-        TuitionStatus updatedStatus = tuitionStatusRepository.save(status);
         log.info("Statut de paiement mis à jour avec succès. Nouveau statut: {}", updatedStatus.getPaymentStatus());
-
-        // Envoyer une notification (commenté pour l'instant)
-        // notificationService.sendTuitionStatusNotification(
-        //         matricule,
-        //         updatedStatus.getId(),
-        //         newPaymentStatus.name(),
-        //         Map.of(
-        //                 "totalAmount", status.getTotalAmount(),
-        //                 "paidAmount", newPaidAmount,
-        //                 "remainingAmount", newRemainingAmount,
-        //                 "paymentAmount", amountPaid,
-        //                 "currency", status.getCurrency()
-        //         )
-        // );
-
         return updatedStatus;
     }
 
@@ -215,7 +286,31 @@ public class TuitionService {
         log.debug("Récupération du statut de paiement pour l'inscription: {}", enrollmentId);
 
         List<TuitionStatus> statuses = tuitionStatusRepository.findByEnrollmentId(enrollmentId);
-        return statuses.isEmpty() ? Optional.empty() : Optional.of(statuses.get(0));
+        return statuses.isEmpty() ? Optional.empty() : Optional.of(tuitionLedgerService.balance(statuses.get(0)));
+    }
+
+    /**
+     * Récupère les statuts de paiement de plusieurs inscriptions,
+     * avec une requête $in et une seule lecture du grand livre
+     * @param enrollmentIds IDs des inscriptions
+     * @return le statut de paiement courant, par ID d'inscription
+     */
+    public Map<String, TuitionStatus> getTuitionStatusesByEnrollments(Collection<String> enrollmentIds) {
+        if (enrollmentIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Query query = Query.query(Criteria.where("enrollmentId").in(enrollmentIds)).with(Sort.by("_id"));
+        query.fields().include("enrollmentId", "studentId", "matricule", "totalAmount", "paidAmount",
+                "remainingAmount", "currency", "paymentStatus", "lastUpdatedAt", "ledgerSequence");
+
+        // Premier statut de chaque inscription, comme getTuitionStatusByEnrollment
+        Map<String, TuitionStatus> snapshots = new LinkedHashMap<>();
+        mongoTemplate.find(query, TuitionStatus.class)
+                .forEach(status -> snapshots.putIfAbsent(status.getEnrollmentId(), status));
+
+        return tuitionLedgerService.balances(new ArrayList<>(snapshots.values())).stream()
+                .collect(Collectors.toMap(TuitionStatus::getEnrollmentId, Function.identity()));
     }
 
     /**
@@ -225,25 +320,18 @@ public class TuitionService {
      * @return true si payé, false sinon
      */
     public boolean isOfferPaidByStudent(String studentId, String offerId) {
-        log.debug("Vérification du paiement pour l'étudiant {} et l'offre {}", studentId, offerId);
-
-        // Rechercher l'inscription de l'étudiant pour cette offre
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(studentId);
-
-        for (Enrollment enrollment : enrollments) {
-            if (enrollment.getProgramLevelId().equals(offerId)) {
-                List<TuitionStatus> statuses = tuitionStatusRepository.findByEnrollmentId(enrollment.getId());
-                if (!statuses.isEmpty()) {
-                    TuitionStatus status = statuses.get(0);
-                    boolean isPaid = status.getPaymentStatus() == PaymentStatus.PAID;
-                    log.debug("Statut de paiement pour l'inscription {}: {}", enrollment.getId(), status.getPaymentStatus());
-                    return isPaid;
-                }
-            }
-        }
+        return getEntitlement(studentId, offerId) == EntitlementStatus.PAID;
+    }
 
-        log.debug("Aucune inscription trouvée pour l'étudiant {} et l'offre {}", studentId, offerId);
-        return false;
+    /**
+     * Retourne le droit d'accès d'un étudiant au contenu d'une offre.
+     * Lecture en mémoire (near-cache puis Redis) ; MongoDB n'est interrogé qu'en cas d'absence
+     * @param studentId ID de l'étudiant
+     * @param offerId ID de l'offre
+     * @return le droit d'accès
+     */
+    public EntitlementStatus getEntitlement(String studentId, String offerId) {
+        return paymentEntitlementCache.get(studentId, offerId, () -> loadEntitlement(studentId, offerId));
     }
 
     /**
@@ -254,7 +342,7 @@ public class TuitionService {
     public BigDecimal getTotalUnpaidAmount(String matricule) {
         log.debug("Calcul du montant total impayé pour l'étudiant: {}", matricule);
 
-        List<TuitionStatus> statuses = tuitionStatusRepository.findByMatricule(matricule);
+        List<TuitionStatus> statuses = tuitionLedgerService.balances(tuitionStatusRepository.findByMatricule(matricule));
 
         BigDecimal totalUnpaid = statuses.stream()
                 .map(TuitionStatus::getRemainingAmount)
@@ -272,7 +360,7 @@ public class TuitionService {
     public BigDecimal getTotalPaidAmount(String matricule) {
         log.debug("Calcul du montant total payé pour l'étudiant: {}", matricule);
 
-        List<TuitionStatus> statuses = tuitionStatusRepository.findByMatricule(matricule);
+        List<TuitionStatus> statuses = tuitionLedgerService.balances(tuitionStatusRepository.findByMatricule(matricule));
 
         BigDecimal totalPaid = statuses.stream()
                 .map(TuitionStatus::getPaidAmount)
@@ -289,7 +377,7 @@ public class TuitionService {
      */
     public List<TuitionStatus> getAllTuitionStatusByMatricule(String matricule) {
         log.debug("Récupération de tous les statuts de paiement pour: {}", matricule);
-        return tuitionStatusRepository.findByMatricule(matricule);
+        return tuitionLedgerService.balances(tuitionStatusRepository.findByMatricule(matricule));
     }
 
     /**
@@ -300,7 +388,7 @@ public class TuitionService {
     public boolean hasUnpaidTuition(String matricule) {
         log.debug("Vérification des frais impayés pour: {}", matricule);
 
-        List<TuitionStatus> statuses = tuitionStatusRepository.findByMatricule(matricule);
+        List<TuitionStatus> statuses = tuitionLedgerService.balances(tuitionStatusRepository.findByMatricule(matricule));
 
         boolean hasUnpaid = statuses.stream()
                 .anyMatch(status -> status.getPaymentStatus() != PaymentStatus.PAID);
@@ -310,7 +398,11 @@ public class TuitionService {
     }
 
     /**
-     * Met à jour le statut de paiement directement
+     * Met à jour le statut de paiement directement.
+     * PAID et UNPAID sont traduits en une écriture de régularisation dans le grand livre ;
+     * le nouveau statut est ensuite enregistré comme écriture STATUS : REFUNDED, CANCELLED et PENDING_VALIDATION
+     * sont des statuts manuels conservés par la projection.
+     * PARTIALLY_PAID et OVERPAID découlent des montants et sont recalculés à chaque lecture.
      * @param enrollmentId ID de l'inscription
      * @param newStatus nouveau statut
      * @return le statut mis à jour
@@ -319,27 +411,30 @@ public class TuitionService {
     public TuitionStatus updatePaymentStatus(String enrollmentId, PaymentStatus newStatus) {
         log.info("Mise à jour directe du statut de paiement pour l'inscription: {} -> {}", enrollmentId, newStatus);
 
-        List<TuitionStatus> statuses = tuitionStatusRepository.findByEnrollmentId(enrollmentId);
-        if (statuses.isEmpty()) {
-            throw new RuntimeException("Aucun statut de paiement trouvé pour cette inscription: " + enrollmentId);
-        }
-
-        TuitionStatus status = statuses.get(0);
-        status.setPaymentStatus(newStatus);
-        status.setLastUpdatedAt(LocalDateTime.now());
+        TuitionStatus current = tuitionLedgerService.balance(findSnapshot(enrollmentId));
 
         // Ajuster les montants selon le nouveau statut
+        BigDecimal adjustment = BigDecimal.ZERO;
         if (newStatus == PaymentStatus.PAID) {
-            status.setPaidAmount(status.getTotalAmount());
-            status.setRemainingAmount(BigDecimal.ZERO);
+            adjustment = current.getTotalAmount().subtract(current.getPaidAmount());
         } else if (newStatus == PaymentStatus.UNPAID) {
-            status.setPaidAmount(BigDecimal.ZERO);
-            status.setRemainingAmount(status.getTotalAmount());
+            adjustment = current.getPaidAmount().negate();
         }
-        // Pour PARTIALLY_PAID, garder les montants actuels
-        // Pour OVERPAID, REFUNDED, CANCELLED, PENDING_VALIDATION, garder les montants actuels
+        if (adjustment.signum() != 0) {
+            tuitionLedgerService.append(enrollmentId, current.getMatricule(), LedgerEntryType.ADJUSTMENT, adjustment,
+                    current.getCurrency(), null);
+        }
+
+        // Le changement de statut est une écriture du grand livre : la projection le reprend à sa place, après
+        // la régularisation, au lieu de l'écraser avec un statut recalculé
+        tuitionLedgerService.appendStatus(enrollmentId, current.getMatricule(), newStatus);
 
-        TuitionStatus updatedStatus = tuitionStatusRepository.save(status);
+        TuitionStatus updatedStatus = tuitionLedgerService.balance(findSnapshot(enrollmentId));
+        paymentEntitlementCache.invalidateStudent(current.getStudentId());
+        if (updatedStatus.getPaymentStatus() != newStatus) {
+            log.warn("Statut {} recalculé à partir des montants pour l'inscription {}: {}",
+                    newStatus, enrollmentId, updatedStatus.getPaymentStatus());
+        }
         log.info("Statut de paiement mis à jour avec succès: {}", updatedStatus.getPaymentStatus());
 
         return updatedStatus;
@@ -353,24 +448,18 @@ public class TuitionService {
     public TuitionReportSummary generateTuitionReport(String offerId) {
         log.info("Génération du rapport de paiement pour l'offre: {}", offerId);
 
-        // Récupérer toutes les inscriptions pour cette offre
-        long totalEnrollments = enrollmentRepository.countByProgramLevelId(offerId);
-
-        // Récupérer tous les statuts de paiement pour cette offre
-        List<Enrollment> enrollments = enrollmentRepository.findByStudentId(""); // Cette méthode devrait être modifiée
-        // TODO: Ajouter une méthode dans EnrollmentRepository pour récupérer par offre
-
-        // Pour l'instant, retourner des données par défaut
-        return new TuitionReportSummary(
-                offerId,
-                totalEnrollments,
-                0L, // paidCount
-                0L, // partiallyPaidCount
-                0L, // unpaidCount
-                BigDecimal.ZERO, // totalAmount
-                BigDecimal.ZERO, // totalPaid
-                BigDecimal.ZERO  // totalRemaining
-        );
+        return tuitionReportService.offerReport(offerId)
+                .map(row -> new TuitionReportSummary(
+                        offerId,
+                        row.totalEnrollments(),
+                        row.paidCount(),
+                        row.partiallyPaidCount(),
+                        row.unpaidCount(),
+                        row.totalAmount(),
+                        row.totalPaid(),
+                        row.totalRemaining()))
+                .orElseGet(() -> new TuitionReportSummary(
+                        offerId, 0L, 0L, 0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
     }
 
     /**
@@ -379,7 +468,7 @@ public class TuitionService {
      * @param paidAmount montant payé
      * @return le statut de paiement
      */
-    private PaymentStatus determinePaymentStatus(BigDecimal totalAmount, BigDecimal paidAmount) {
+    static PaymentStatus determinePaymentStatus(BigDecimal totalAmount, BigDecimal paidAmount) {
         int comparison = paidAmount.compareTo(totalAmount);
 
         if (paidAmount.compareTo(BigDecimal.ZERO) == 0) {
@@ -393,8 +482,103 @@ public class TuitionService {
         }
     }
 
+    /**
+     * Calcule le droit d'accès à partir de la première inscription à l'offre qui a un statut de paiement.
+     * Mêmes règles que la vérification d'origine : seul PAID donne le droit PAID (un trop-perçu ne l'est pas),
+     * quel que soit le statut de l'inscription.
+     */
+    private EntitlementStatus loadEntitlement(String studentId, String offerId) {
+        log.debug("Vérification du paiement pour l'étudiant {} et l'offre {}", studentId, offerId);
+
+        boolean enrolled = false;
+        for (Enrollment enrollment : enrollmentRepository.findByStudentIdAndProgramLevelId(studentId, offerId)) {
+            enrolled = true;
+            List<TuitionStatus> statuses = tuitionStatusRepository.findByEnrollmentId(enrollment.getId());
+            if (statuses.isEmpty()) {
+                continue;
+            }
+
+            TuitionStatus status = tuitionLedgerService.balance(statuses.get(0));
+            log.debug("Statut de paiement pour l'inscription {}: {}", enrollment.getId(), status.getPaymentStatus());
+            return switch (status.getPaymentStatus()) {
+                case PAID -> EntitlementStatus.PAID;
+                case PARTIALLY_PAID -> EntitlementStatus.PARTIAL;
+                default -> EntitlementStatus.ENROLLED;
+            };
+        }
+
+        if (!enrolled) {
+            log.debug("Aucune inscription trouvée pour l'étudiant {} et l'offre {}", studentId, offerId);
+            return EntitlementStatus.NONE;
+        }
+        return EntitlementStatus.ENROLLED;
+    }
+
+    /**
+     * Projection du statut de paiement d'une inscription
+     */
+    private TuitionStatus findSnapshot(String enrollmentId) {
+        return tuitionStatusRepository.findByEnrollmentId(enrollmentId).stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException(
+                        "Aucun statut de paiement trouvé pour cette inscription: " + enrollmentId));
+    }
+
+    /**
+     * Charge des documents par identifiant en une seule requête $in, avec projection des champs demandés
+     * @return les documents indexés par identifiant
+     */
+    private <T> Map<String, T> findByIds(Class<T> type, Function<T, String> idOf, Collection<String> ids,
+                                         String... fields) {
+        Set<String> distinctIds = ids.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (distinctIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Query query = Query.query(Criteria.where("_id").in(distinctIds));
+        query.fields().include(fields);
+
+        return mongoTemplate.find(query, type).stream()
+                .collect(Collectors.toMap(idOf, Function.identity()));
+    }
+
+    /**
+     * Projection initiale d'une inscription, positionnée sur la dernière de ses écritures initiales
+     */
+    private static TuitionStatus initialStatus(String enrollmentId, String studentId, String matricule,
+                                               BigDecimal totalAmount, BigDecimal paidAmount, String currency,
+                                               List<LedgerEntry> entries, LocalDateTime now) {
+        long position = entries.stream()
+                .mapToLong(LedgerEntry::getSequence)
+                .max()
+                .orElse(TuitionLedgerService.START_POSITION);
+        return TuitionStatus.builder()
+                .enrollmentId(enrollmentId)
+                .studentId(studentId)
+                .matricule(matricule)
+                .totalAmount(totalAmount)
+                .paidAmount(paidAmount)
+                .remainingAmount(totalAmount.subtract(paidAmount))
+                .currency(currency)
+                .paymentStatus(determinePaymentStatus(totalAmount, paidAmount))
+                .lastUpdatedAt(now)
+                .ledgerSequence(position)
+                .build();
+    }
+
     // ============ CLASSES INTERNES ============
 
+    /**
+     * Statut de paiement à créer pour une nouvelle inscription
+     */
+    public record NewTuitionStatus(
+            String enrollmentId,
+            String studentId,
+            String matricule,
+            BigDecimal totalAmount,
+            String currency
+    ) {}
+
     /**
      * Résumé du rapport de frais de scolarité
      */
@@ -1,6 +1,7 @@
 package com.payiskoul.institution.classroom.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payiskoul.institution.classroom.dto.ClassroomStudentListResponse;
 import com.payiskoul.institution.classroom.service.ClassroomStudentService;
 import com.payiskoul.institution.exception.BusinessException;
 import com.payiskoul.institution.exception.ClassroomNotFound;
@@ -79,50 +80,71 @@ class ClassroomStudentControllerTest {
     @DisplayName("Devrait retourner la liste des étudiants pour une classe existante")
     void getStudentsByClassroom_ShouldReturnStudentList() throws Exception {
         // Préparation
-        when(classroomStudentService.getStudentsByClassroom(CLASSROOM_ID)).thenReturn(mockStudents);
+        when(classroomStudentService.getStudentsByClassroom(CLASSROOM_ID, 0, 10)).thenReturn(new ClassroomStudentListResponse(0, 10, 2, 1, mockStudents));
 
         // Exécution et vérification
         mockMvc.perform(get("/v1/classrooms/{classroomId}/students", CLASSROOM_ID)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[0].id", is("student1")))
-                .andExpect(jsonPath("$[0].matricule", is("PI-CI-25A0001")))
-                .andExpect(jsonPath("$[0].fullName", is("Jean Dupont")))
-                .andExpect(jsonPath("$[0].gender", is("MALE")))
-                .andExpect(jsonPath("$[0].email", is("jean.dupont@example.com")))
-                .andExpect(jsonPath("$[1].id", is("student2")))
-                .andExpect(jsonPath("$[1].matricule", is("PI-CI-25A0002")))
-                .andExpect(jsonPath("$[1].fullName", is("Marie Martin")))
-                .andExpect(jsonPath("$[1].gender", is("FEMALE")));
+                .andExpect(jsonPath("$.page", is(0)))
+                .andExpect(jsonPath("$.totalElements", is(2)))
+                .andExpect(jsonPath("$.students", hasSize(2)))
+                .andExpect(jsonPath("$.students[0].id", is("student1")))
+                .andExpect(jsonPath("$.students[0].matricule", is("PI-CI-25A0001")))
+                .andExpect(jsonPath("$.students[0].fullName", is("Jean Dupont")))
+                .andExpect(jsonPath("$.students[0].gender", is("MALE")))
+                .andExpect(jsonPath("$.students[0].email", is("jean.dupont@example.com")))
+                .andExpect(jsonPath("$.students[1].id", is("student2")))
+                .andExpect(jsonPath("$.students[1].matricule", is("PI-CI-25A0002")))
+                .andExpect(jsonPath("$.students[1].fullName", is("Marie Martin")))
+                .andExpect(jsonPath("$.students[1].gender", is("FEMALE")));
 
         // Vérifier que le service a été appelé une fois avec le bon ID
-        verify(classroomStudentService, times(1)).getStudentsByClassroom(CLASSROOM_ID);
+        verify(classroomStudentService, times(1)).getStudentsByClassroom(CLASSROOM_ID, 0, 10);
     }
 
     @Test
     @DisplayName("Devrait retourner une liste vide si aucun étudiant n'est trouvé")
     void getStudentsByClassroom_ShouldReturnEmptyList() throws Exception {
         // Préparation
-        when(classroomStudentService.getStudentsByClassroom(CLASSROOM_ID)).thenReturn(List.of());
+        when(classroomStudentService.getStudentsByClassroom(CLASSROOM_ID, 0, 10)).thenReturn(new ClassroomStudentListResponse(0, 10, 0, 0, List.of()));
 
         // Exécution et vérification
         mockMvc.perform(get("/v1/classrooms/{classroomId}/students", CLASSROOM_ID)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$", hasSize(0)));
+                .andExpect(jsonPath("$.totalElements", is(0)))
+                .andExpect(jsonPath("$.students", hasSize(0)));
 
         // Vérifier que le service a été appelé une fois avec le bon ID
-        verify(classroomStudentService, times(1)).getStudentsByClassroom(CLASSROOM_ID);
+        verify(classroomStudentService, times(1)).getStudentsByClassroom(CLASSROOM_ID, 0, 10);
+    }
+
+    @Test
+    @DisplayName("Devrait limiter la taille de page à 100")
+    void getStudentsByClassroom_ShouldClampPageSize() throws Exception {
+        // Préparation
+        when(classroomStudentService.getStudentsByClassroom(CLASSROOM_ID, 0, 100)).thenReturn(new ClassroomStudentListResponse(0, 100, 2, 1, mockStudents));
+
+        // Exécution et vérification
+        mockMvc.perform(get("/v1/classrooms/{classroomId}/students", CLASSROOM_ID)
+                        .param("page", "-1")
+                        .param("size", "100000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students", hasSize(2)));
+
+        // Vérifier que le service a été appelé avec une page et une taille bornées
+        verify(classroomStudentService, times(1)).getStudentsByClassroom(CLASSROOM_ID, 0, 100);
     }
 
     @Test
     @DisplayName("Devrait retourner 404 si la classe n'existe pas")
     void getStudentsByClassroom_ClassroomNotFound() throws Exception {
         // Préparation
-        when(classroomStudentService.getStudentsByClassroom(CLASSROOM_ID))
+        when(classroomStudentService.getStudentsByClassroom(CLASSROOM_ID, 0, 10))
                 .thenThrow(new ClassroomNotFound( "Classe introuvable", Map.of("classroomId", CLASSROOM_ID)));
 
         // Exécution et vérification
@@ -134,6 +156,6 @@ class ClassroomStudentControllerTest {
                 .andExpect(jsonPath("$.message", containsString("Classe introuvable")))
                 .andExpect(jsonPath("$.details.classroomId", is(CLASSROOM_ID)));
 
-        verify(classroomStudentService, times(1)).getStudentsByClassroom(CLASSROOM_ID);
+        verify(classroomStudentService, times(1)).getStudentsByClassroom(CLASSROOM_ID, 0, 10);
     }
 }
\ No newline at end of file
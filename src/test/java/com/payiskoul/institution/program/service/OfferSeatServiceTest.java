@@ -0,0 +1,95 @@
+package com.payiskoul.institution.program.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import com.payiskoul.institution.program.model.OfferSeats;
+import com.payiskoul.institution.program.model.TrainingOffer;
+import com.payiskoul.institution.student.model.Enrollment;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OfferSeatServiceTest {
+
+    private static final String OFFER_ID = "offer1";
+
+    private MongoTemplate mongoTemplate;
+    private OfferSeatService offerSeatService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        offerSeatService = new OfferSeatService(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("Devrait refuser une place au-delà de maxStudents après un enregistrement complet de l'offre")
+    void shouldRefuseSeatAfterOfferSave() {
+        TrainingOffer offer = TrainingOffer.builder().id(OFFER_ID).label("Offre").maxStudents(2).build();
+
+        // L'enregistrement de l'offre (replaceOne du document converti) ne porte pas l'effectif
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        Document saved = new Document();
+        converter.write(offer, saved);
+        assertFalse(saved.containsKey("enrolledCount"));
+
+        // L'effectif, tenu dans offer_seats, a atteint maxStudents : la réservation conditionnelle est refusée
+        whenOfferHasMaxStudents(offer);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(OfferSeats.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(mongoTemplate.findById(OFFER_ID, OfferSeats.class)).thenReturn(new OfferSeats(OFFER_ID, 2));
+
+        BusinessException exception = assertThrows(BusinessException.class, () -> offerSeatService.reserve(OFFER_ID));
+
+        assertEquals(ErrorCode.OFFER_FULL, exception.getErrorCode());
+        ArgumentCaptor<Query> reservation = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(reservation.capture(), any(Update.class), eq(OfferSeats.class));
+        assertEquals(new Document("$lte", 1), reservation.getValue().getQueryObject().get("enrolledCount"));
+    }
+
+    @Test
+    @DisplayName("Devrait réduire la réservation aux places restantes")
+    void shouldGrantRemainingSeats() {
+        whenOfferHasMaxStudents(TrainingOffer.builder().id(OFFER_ID).maxStudents(10).build());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(OfferSeats.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.findById(OFFER_ID, OfferSeats.class)).thenReturn(new OfferSeats(OFFER_ID, 7));
+
+        assertEquals(3, offerSeatService.reserve(OFFER_ID, 5));
+    }
+
+    @Test
+    @DisplayName("Devrait initialiser l'effectif à partir des inscriptions avant la première réservation")
+    void shouldInitializeEnrolledCount() {
+        whenOfferHasMaxStudents(TrainingOffer.builder().id(OFFER_ID).maxStudents(3).build());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(OfferSeats.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(mongoTemplate.findById(OFFER_ID, OfferSeats.class)).thenReturn(null);
+        when(mongoTemplate.count(any(Query.class), eq(Enrollment.class))).thenReturn(3L);
+
+        assertEquals(0, offerSeatService.reserve(OFFER_ID, 1));
+        verify(mongoTemplate).insert(argThat((OfferSeats seats) -> seats.getEnrolledCount() == 3));
+    }
+
+    // ============ MÉTHODES UTILITAIRES ============
+
+    private void whenOfferHasMaxStudents(TrainingOffer offer) {
+        when(mongoTemplate.findOne(any(Query.class), eq(TrainingOffer.class))).thenReturn(offer);
+    }
+}
@@ -0,0 +1,70 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.classroom.model.Classroom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CohortJobServiceTest {
+
+    @Test
+    @DisplayName("Devrait répartir les inscrits à parts égales entre classes de même capacité")
+    void shouldSplitEvenlyBetweenEqualClassrooms() {
+        int[] targets = CohortJobService.evenTargets(classrooms(30, 30, 30), 90);
+
+        assertArrayEquals(new int[]{30, 30, 30}, targets);
+    }
+
+    @Test
+    @DisplayName("Devrait attribuer le reste de la division aux dernières classes servies")
+    void shouldSpreadRemainder() {
+        int[] targets = CohortJobService.evenTargets(classrooms(30, 30, 30), 10);
+
+        assertArrayEquals(new int[]{3, 3, 4}, targets);
+    }
+
+    @Test
+    @DisplayName("Devrait plafonner les petites classes à leur capacité et reporter l'excédent sur les autres")
+    void shouldCapSmallClassroomsAtCapacity() {
+        // La classe de 10 places est servie en premier, quel que soit son rang dans la liste
+        int[] targets = CohortJobService.evenTargets(classrooms(30, 10, 30), 50);
+
+        assertArrayEquals(new int[]{20, 10, 20}, targets);
+    }
+
+    @Test
+    @DisplayName("Ne devrait jamais dépasser la capacité totale des classes")
+    void shouldNotExceedTotalCapacity() {
+        int[] targets = CohortJobService.evenTargets(classrooms(10, 20), 40);
+
+        assertArrayEquals(new int[]{10, 20}, targets);
+    }
+
+    @Test
+    @DisplayName("Devrait conserver le total des inscrits lorsque la capacité suffit")
+    void shouldPreserveTotal() {
+        int[] targets = CohortJobService.evenTargets(classrooms(7, 25, 12, 40), 61);
+
+        assertEquals(61, Arrays.stream(targets).sum());
+        assertArrayEquals(new int[]{7, 21, 12, 21}, targets);
+    }
+
+    @Test
+    @DisplayName("Devrait retourner des cibles nulles sans inscrit")
+    void shouldReturnZeroTargetsWithoutEnrollments() {
+        assertArrayEquals(new int[]{0, 0}, CohortJobService.evenTargets(classrooms(10, 20), 0));
+        assertArrayEquals(new int[0], CohortJobService.evenTargets(List.of(), 0));
+    }
+
+    // ============ MÉTHODES UTILITAIRES ============
+
+    private static List<Classroom> classrooms(int... capacities) {
+        return Arrays.stream(capacities)
+                .mapToObj(capacity -> Classroom.builder().capacity(capacity).build())
+                .toList();
+    }
+}
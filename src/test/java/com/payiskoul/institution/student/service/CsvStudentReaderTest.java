@@ -0,0 +1,137 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.exception.BusinessException;
+import com.payiskoul.institution.exception.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvStudentReaderTest {
+
+    private static final String CONTENT = "fullName,city\nAdèle Kouassi,Abidjan\nJérôme Yao,Bouaké\n";
+
+    private final CsvStudentReader reader = new CsvStudentReader();
+
+    @Test
+    @DisplayName("Devrait lire un fichier UTF-8 sans BOM")
+    void shouldDetectUtf8WithoutBom() {
+        List<StudentImportRow> rows = read(CONTENT.getBytes(StandardCharsets.UTF_8), null);
+
+        assertEquals(2, rows.size());
+        assertEquals("Adèle Kouassi", rows.get(0).cell(0));
+        assertEquals("Bouaké", rows.get(1).cell(1));
+    }
+
+    @Test
+    @DisplayName("Devrait consommer le BOM UTF-8 sans le mêler au premier en-tête")
+    void shouldSkipUtf8Bom() {
+        List<StudentImportRow> rows = read(concat(bytes(0xEF, 0xBB, 0xBF), CONTENT.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(0, rows.get(0).columns().position("fullName"));
+        assertEquals("Jérôme Yao", rows.get(1).cell(0));
+    }
+
+    @Test
+    @DisplayName("Devrait lire un fichier UTF-16 annoncé par son BOM")
+    void shouldDetectUtf16FromBom() {
+        List<StudentImportRow> rows = read(concat(bytes(0xFF, 0xFE), CONTENT.getBytes(StandardCharsets.UTF_16LE)), null);
+
+        assertEquals(0, rows.get(0).columns().position("fullName"));
+        assertEquals("Adèle Kouassi", rows.get(0).cell(0));
+    }
+
+    @Test
+    @DisplayName("Devrait se rabattre sur Windows-1252 quand le contenu n'est pas de l'UTF-8 valide")
+    void shouldFallBackToWindows1252() {
+        List<StudentImportRow> rows = read(CONTENT.getBytes(Charset.forName("windows-1252")), null);
+
+        assertEquals("Adèle Kouassi", rows.get(0).cell(0));
+        assertEquals("Bouaké", rows.get(1).cell(1));
+    }
+
+    @Test
+    @DisplayName("Devrait privilégier l'encodage déclaré sur la détection")
+    void shouldUseDeclaredCharset() {
+        // Ces octets sont de l'UTF-8 valide, mais l'appelant les déclare en ISO-8859-1
+        byte[] content = "fullName\nAdèle\n".getBytes(StandardCharsets.UTF_8);
+
+        List<StudentImportRow> rows = read(content, CsvStudentReader.declaredCharset("ISO-8859-1"));
+
+        assertEquals("AdÃ¨le", rows.get(0).cell(0));
+    }
+
+    @Test
+    @DisplayName("Devrait tolérer un caractère UTF-8 coupé en fin d'échantillon")
+    void shouldTolerateTruncatedSequenceAtSampleEnd() {
+        // L'échantillon de détection fait 64 Ko : le « é » final est coupé entre ses deux octets
+        String header = "fullName\n";
+        String value = "a".repeat(64 * 1024 - header.length() - 1) + "é";
+        byte[] content = (header + value + "\n").getBytes(StandardCharsets.UTF_8);
+
+        List<StudentImportRow> rows = read(content, null);
+
+        assertEquals(value, rows.get(0).cell(0));
+    }
+
+    @Test
+    @DisplayName("Devrait ignorer les lignes incomplètes en conservant la numérotation du fichier")
+    void shouldSkipIncompleteRows() {
+        byte[] content = "fullName,city\nAdèle\nJérôme Yao,Bouaké\n".getBytes(StandardCharsets.UTF_8);
+
+        List<StudentImportRow> rows = read(content, null);
+
+        assertEquals(1, rows.size());
+        assertEquals(3, rows.get(0).rowNumber());
+    }
+
+    @Test
+    @DisplayName("Devrait rejeter un fichier sans en-têtes")
+    void shouldRejectEmptyFile() {
+        BusinessException exception = assertThrows(BusinessException.class, () -> read(new byte[0], null));
+
+        assertEquals(ErrorCode.INVALID_FILE_FORMAT, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Devrait rejeter un encodage déclaré inconnu et ignorer un encodage vide")
+    void shouldResolveDeclaredCharset() {
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> CsvStudentReader.declaredCharset("klingon-8"));
+
+        assertEquals(ErrorCode.INVALID_INPUT, exception.getErrorCode());
+        assertNull(CsvStudentReader.declaredCharset(" "));
+        assertEquals(StandardCharsets.UTF_8, CsvStudentReader.declaredCharset(" utf-8 "));
+    }
+
+    // ============ MÉTHODES UTILITAIRES ============
+
+    private List<StudentImportRow> read(byte[] content, Charset declaredCharset) {
+        List<StudentImportRow> rows = new ArrayList<>();
+        reader.read(new ByteArrayResource(content), declaredCharset, UnaryOperator.identity(), rows::add);
+        return rows;
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(first);
+        out.writeBytes(second);
+        return out.toByteArray();
+    }
+}
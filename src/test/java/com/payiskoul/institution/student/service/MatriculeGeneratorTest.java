@@ -0,0 +1,124 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.student.service.MatriculeGenerator.MatriculeSequence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MatriculeGeneratorTest {
+
+    private MongoTemplate mongoTemplate;
+    private String year;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        year = String.valueOf(LocalDateTime.now().getYear()).substring(2);
+    }
+
+    @Test
+    @DisplayName("Devrait servir les petites demandes depuis le bloc local et ne réserver un nouveau bloc qu'une fois épuisé")
+    void shouldServeFromLocalBlockUntilExhausted() {
+        // Bloc de 3 positions : A0000-A0002, puis A0003-A0005
+        whenReserved(sequence(0, 2), sequence(0, 5));
+        MatriculeGenerator generator = new MatriculeGenerator(mongoTemplate, 3);
+
+        List<String> matricules = List.of(
+                generator.generateMatricule("CI"),
+                generator.generateMatricule("CI"),
+                generator.generateMatricule("CI"),
+                generator.generateMatricule("CI"));
+
+        assertEquals(List.of(matricule("CI", "A0000"), matricule("CI", "A0001"),
+                matricule("CI", "A0002"), matricule("CI", "A0003")), matricules);
+        verifyReservations(2);
+    }
+
+    @Test
+    @DisplayName("Devrait réserver directement en base les demandes d'au moins un bloc")
+    void shouldReserveLargeRequestsDirectly() {
+        whenReserved(sequence(0, 104));
+        MatriculeGenerator generator = new MatriculeGenerator(mongoTemplate, 5);
+
+        List<String> matricules = generator.generateMatricules("CI", 5);
+
+        assertEquals(List.of(matricule("CI", "A0100"), matricule("CI", "A0101"), matricule("CI", "A0102"),
+                matricule("CI", "A0103"), matricule("CI", "A0104")), matricules);
+        verifyReservations(1);
+    }
+
+    @Test
+    @DisplayName("Devrait passer à la lettre suivante au-delà de 9999")
+    void shouldRollOverToNextLetter() {
+        // Dernière position réservée : B0001, le bloc de 4 commence donc à A9998
+        whenReserved(sequence(1, 1));
+        MatriculeGenerator generator = new MatriculeGenerator(mongoTemplate, 4);
+
+        List<String> matricules = generator.generateMatricules("CI", 4);
+
+        assertEquals(List.of(matricule("CI", "A9998"), matricule("CI", "A9999"),
+                matricule("CI", "B0000"), matricule("CI", "B0001")), matricules);
+    }
+
+    @Test
+    @DisplayName("Devrait refuser de générer un matricule une fois toutes les lettres épuisées")
+    void shouldFailWhenAllLettersAreExhausted() {
+        whenReserved(sequence(26, 0));
+        MatriculeGenerator generator = new MatriculeGenerator(mongoTemplate, 1);
+
+        assertThrows(RuntimeException.class, () -> generator.generateMatricule("CI"));
+    }
+
+    @Test
+    @DisplayName("Devrait normaliser le code pays")
+    void shouldNormalizeCountryCode() {
+        whenReserved(sequence(0, 0), sequence(0, 1), sequence(0, 2));
+        MatriculeGenerator generator = new MatriculeGenerator(mongoTemplate, 1);
+
+        assertEquals(matricule("SE", "A0000"), generator.generateMatricule("sen"));
+        assertEquals(matricule("BX", "A0001"), generator.generateMatricule("b"));
+        assertEquals(matricule("CI", "A0002"), generator.generateMatricule(null));
+    }
+
+    @Test
+    @DisplayName("Ne devrait rien réserver pour une demande vide")
+    void shouldNotReserveForEmptyRequest() {
+        MatriculeGenerator generator = new MatriculeGenerator(mongoTemplate, 10);
+
+        assertTrue(generator.generateMatricules("CI", 0).isEmpty());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    // ============ MÉTHODES UTILITAIRES ============
+
+    private void whenReserved(MatriculeSequence first, MatriculeSequence... next) {
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(MatriculeSequence.class)))
+                .thenReturn(first, next);
+    }
+
+    private void verifyReservations(int times) {
+        verify(mongoTemplate, times(times)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(MatriculeSequence.class));
+    }
+
+    private static MatriculeSequence sequence(int letterIndex, int numberSequence) {
+        return new MatriculeSequence("test", letterIndex, numberSequence);
+    }
+
+    private String matricule(String countryCode, String suffix) {
+        return "PI-" + countryCode + "-" + year + suffix;
+    }
+}
@@ -0,0 +1,114 @@
+package com.payiskoul.institution.student.service;
+
+import com.payiskoul.institution.student.dto.CreateStudentRequest;
+import com.payiskoul.institution.student.model.Gender;
+import com.payiskoul.institution.student.service.StudentRowValidator.RowValidation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentRowValidatorTest {
+
+    private static final String OFFER_ID = "offer123";
+
+    // En-têtes mêlant clés techniques et en-têtes du template
+    private final ImportColumns columns = new ImportColumns(new String[]{
+            "matricule", "fullName", "Genre (MALE/FEMALE)", "Date de naissance (YYYY-MM-DD)", "email", "Téléphone"});
+    private final StudentRowValidator validator = StudentRowValidator.forColumns(columns);
+
+    @Test
+    @DisplayName("Devrait construire la requête de création d'une ligne valide")
+    void shouldBuildRequestForValidRow() {
+        RowValidation validation = validate("", "Adèle Kouassi", "FEMALE", "2004-02-29", "adele@example.com", "0700000000");
+
+        assertNull(validation.error());
+        assertNull(validation.matricule());
+        assertEquals(new CreateStudentRequest("Adèle Kouassi", Gender.FEMALE, LocalDate.of(2004, 2, 29),
+                "adele@example.com", "0700000000", OFFER_ID, null), validation.request());
+    }
+
+    @Test
+    @DisplayName("Devrait retenir le matricule d'un étudiant existant sans valider les autres colonnes")
+    void shouldReturnExistingMatricule() {
+        RowValidation validation = validate("PI-CI-25A0001", "", "", "", "", "");
+
+        assertEquals("PI-CI-25A0001", validation.matricule());
+        assertNull(validation.request());
+        assertNull(validation.error());
+    }
+
+    @Test
+    @DisplayName("Devrait signaler le premier champ manquant")
+    void shouldReportMissingFields() {
+        assertError("Nom complet manquant ou vide",
+                validate("", " ", "MALE", "2000-01-01", "yao@example.com", "0700000000"));
+        assertError("Genre manquant ou vide",
+                validate("", "Jérôme Yao", "", "2000-01-01", "yao@example.com", "0700000000"));
+        assertError("Date de naissance manquant ou vide",
+                validate("", "Jérôme Yao", "MALE", "", "yao@example.com", "0700000000"));
+        assertError("Email manquant ou vide",
+                validate("", "Jérôme Yao", "MALE", "2000-01-01", "", "0700000000"));
+        assertError("Téléphone manquant ou vide",
+                validate("", "Jérôme Yao", "MALE", "2000-01-01", "yao@example.com", ""));
+    }
+
+    @Test
+    @DisplayName("Devrait rejeter un genre inconnu")
+    void shouldRejectUnknownGender() {
+        assertError("Genre invalide. Doit être MALE ou FEMALE",
+                validate("", "Jérôme Yao", "male", "2000-01-01", "yao@example.com", "0700000000"));
+    }
+
+    @Test
+    @DisplayName("Devrait rejeter les dates mal formées ou inexistantes")
+    void shouldRejectInvalidDates() {
+        for (String date : new String[]{"01/01/2000", "2000-1-01", "2000-13-01", "2000-00-10", "2023-02-29", "20a0-01-01"}) {
+            assertError("Format de date invalide. Utilisez YYYY-MM-DD",
+                    validate("", "Jérôme Yao", "MALE", date, "yao@example.com", "0700000000"));
+        }
+    }
+
+    @Test
+    @DisplayName("Devrait rejeter un email sans arobase ou sans point")
+    void shouldRejectInvalidEmail() {
+        assertError("Email manquant ou invalide",
+                validate("", "Jérôme Yao", "MALE", "2000-01-01", "yao.example.com", "0700000000"));
+        assertError("Email manquant ou invalide",
+                validate("", "Jérôme Yao", "MALE", "2000-01-01", "yao@example", "0700000000"));
+    }
+
+    @Test
+    @DisplayName("Devrait prendre la première variante d'en-tête renseignée")
+    void shouldUseFirstFilledHeaderVariant() {
+        ImportColumns variants = new ImportColumns(new String[]{
+                "fullName", "Nom complet", "gender", "birthDate", "email", "phone"});
+        StudentRowValidator variantValidator = StudentRowValidator.forColumns(variants);
+
+        RowValidation validation = variantValidator.validate(new StudentImportRow(2, variants, new String[]{
+                "", "Jérôme Yao", "MALE", "2000-01-01", "yao@example.com", "0700000000"}), OFFER_ID);
+
+        assertEquals("Jérôme Yao", validation.request().fullName());
+    }
+
+    @Test
+    @DisplayName("Ne devrait accepter que les en-têtes pour lesquels il a été préparé")
+    void shouldSupportOnlyItsColumns() {
+        assertTrue(validator.supports(columns));
+        assertFalse(validator.supports(new ImportColumns(new String[]{"matricule"})));
+    }
+
+    // ============ MÉTHODES UTILITAIRES ============
+
+    private RowValidation validate(String... cells) {
+        return validator.validate(new StudentImportRow(2, columns, cells), OFFER_ID);
+    }
+
+    private static void assertError(String expected, RowValidation validation) {
+        assertEquals(expected, validation.error());
+        assertNull(validation.request());
+        assertNull(validation.matricule());
+    }
+}
@@ -0,0 +1,197 @@
+package com.payiskoul.institution.tuition.service;
+
+import com.payiskoul.institution.tuition.model.LedgerEntry;
+import com.payiskoul.institution.tuition.model.LedgerEntryType;
+import com.payiskoul.institution.tuition.model.PaymentStatus;
+import com.payiskoul.institution.tuition.model.TuitionStatus;
+import com.payiskoul.institution.tuition.repository.LedgerEntryRepository;
+import com.payiskoul.institution.tuition.repository.TuitionStatusRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TuitionLedgerServiceTest {
+
+    private static final LocalDateTime SNAPSHOT_TIME = LocalDateTime.of(2025, 4, 18, 10, 30, 0);
+
+    private MongoTemplate mongoTemplate;
+    private TuitionLedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        ledgerService = new TuitionLedgerService(mock(LedgerEntryRepository.class),
+                mock(TuitionStatusRepository.class), mongoTemplate, 2000, 1);
+    }
+
+    @Test
+    @DisplayName("Devrait rejouer sur la projection les seules écritures postérieures à sa position")
+    void shouldReplayEntriesAfterSnapshotPosition() {
+        whenLedgerContains(
+                entry("enr1", 4L, LedgerEntryType.PAYMENT, "100"), // déjà intégrée à la projection
+                entry("enr1", 6L, LedgerEntryType.PAYMENT, "300"),
+                entry("enr1", 7L, LedgerEntryType.CHARGE, "500"),
+                entry("enr1", 8L, LedgerEntryType.REFUND, "50"),
+                entry("enr1", 9L, LedgerEntryType.VOID, null),
+                entry("enr1", 10L, LedgerEntryType.ADJUSTMENT, "-25"));
+
+        TuitionStatus balance = ledgerService.balance(snapshot("enr1", "1000", "200", PaymentStatus.PARTIALLY_PAID, 5L));
+
+        assertAmount("1500", balance.getTotalAmount());
+        assertAmount("425", balance.getPaidAmount());
+        assertAmount("1075", balance.getRemainingAmount());
+        assertEquals(PaymentStatus.PARTIALLY_PAID, balance.getPaymentStatus());
+        assertEquals(5L, balance.getLedgerSequence());
+        assertNotEquals(SNAPSHOT_TIME, balance.getLastUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Devrait retourner la projection telle quelle sans écriture postérieure")
+    void shouldKeepSnapshotWithoutNewEntries() {
+        whenLedgerContains();
+
+        TuitionStatus balance = ledgerService.balance(snapshot("enr1", "1000", "1000", PaymentStatus.PAID, 5L));
+
+        assertAmount("1000", balance.getPaidAmount());
+        assertAmount("0", balance.getRemainingAmount());
+        assertEquals(PaymentStatus.PAID, balance.getPaymentStatus());
+        assertEquals(SNAPSHOT_TIME, balance.getLastUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Devrait recalculer le statut de paiement à partir des montants projetés")
+    void shouldRecomputePaymentStatus() {
+        whenLedgerContains(entry("enr1", 6L, LedgerEntryType.PAYMENT, "800"));
+
+        TuitionStatus paid = ledgerService.balance(snapshot("enr1", "1000", "200", PaymentStatus.PARTIALLY_PAID, 5L));
+
+        assertEquals(PaymentStatus.PAID, paid.getPaymentStatus());
+    }
+
+    @Test
+    @DisplayName("Devrait conserver un statut positionné manuellement")
+    void shouldKeepManualStatus() {
+        whenLedgerContains(entry("enr1", 6L, LedgerEntryType.PAYMENT, "800"));
+
+        TuitionStatus balance = ledgerService.balance(snapshot("enr1", "1000", "0", PaymentStatus.CANCELLED, 5L));
+
+        assertAmount("800", balance.getPaidAmount());
+        assertEquals(PaymentStatus.CANCELLED, balance.getPaymentStatus());
+    }
+
+    @Test
+    @DisplayName("Devrait reprendre le dernier changement manuel de statut du grand livre")
+    void shouldApplyLatestStatusEntry() {
+        whenLedgerContains(
+                statusEntry("enr1", 8L, PaymentStatus.CANCELLED), // lue avant l'écriture qui la précède
+                statusEntry("enr1", 6L, PaymentStatus.REFUNDED),
+                entry("enr1", 7L, LedgerEntryType.PAYMENT, "300"));
+
+        TuitionStatus balance = ledgerService.balance(snapshot("enr1", "1000", "200", PaymentStatus.PARTIALLY_PAID, 5L));
+
+        assertAmount("500", balance.getPaidAmount());
+        assertEquals(PaymentStatus.CANCELLED, balance.getPaymentStatus());
+        assertNotEquals(SNAPSHOT_TIME, balance.getLastUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Devrait recalculer le statut lorsqu'un changement manuel lève un statut manuel")
+    void shouldRecomputeStatusAfterNonManualStatusEntry() {
+        whenLedgerContains(
+                entry("enr1", 6L, LedgerEntryType.ADJUSTMENT, "800"),
+                statusEntry("enr1", 7L, PaymentStatus.PAID));
+
+        TuitionStatus balance = ledgerService.balance(snapshot("enr1", "1000", "200", PaymentStatus.CANCELLED, 5L));
+
+        assertEquals(PaymentStatus.PAID, balance.getPaymentStatus());
+    }
+
+    @Test
+    @DisplayName("Devrait ignorer les écritures d'ouverture pour une projection antérieure au grand livre")
+    void shouldIgnoreOpeningEntriesForLegacySnapshot() {
+        whenLedgerContains(
+                entry("enr1", null, LedgerEntryType.PAYMENT, "200"), // écriture d'ouverture, déjà dans la projection
+                entry("enr1", 1L, LedgerEntryType.PAYMENT, "100"));
+
+        TuitionStatus balance = ledgerService.balance(snapshot("enr1", "1000", "200", PaymentStatus.PARTIALLY_PAID, null));
+
+        assertAmount("300", balance.getPaidAmount());
+    }
+
+    @Test
+    @DisplayName("Devrait projeter plusieurs inscriptions avec une seule lecture du grand livre")
+    void shouldProjectSeveralEnrollmentsWithOneRead() {
+        whenLedgerContains(
+                entry("enr1", 6L, LedgerEntryType.PAYMENT, "100"),
+                entry("enr2", 6L, LedgerEntryType.PAYMENT, "100"), // déjà intégrée à la projection de enr2
+                entry("enr2", 12L, LedgerEntryType.PAYMENT, "400"));
+
+        List<TuitionStatus> balances = ledgerService.balances(List.of(
+                snapshot("enr1", "1000", "0", PaymentStatus.UNPAID, 5L),
+                snapshot("enr2", "500", "100", PaymentStatus.PARTIALLY_PAID, 10L),
+                snapshot("enr3", "700", "0", PaymentStatus.UNPAID, 10L)));
+
+        assertAmount("100", balances.get(0).getPaidAmount());
+        assertAmount("500", balances.get(1).getPaidAmount());
+        assertEquals(PaymentStatus.PAID, balances.get(1).getPaymentStatus());
+        assertAmount("0", balances.get(2).getPaidAmount());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(LedgerEntry.class));
+    }
+
+    @Test
+    @DisplayName("Ne devrait pas lire le grand livre sans projection")
+    void shouldNotReadLedgerForEmptyList() {
+        assertTrue(ledgerService.balances(List.of()).isEmpty());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    // ============ MÉTHODES UTILITAIRES ============
+
+    private void whenLedgerContains(LedgerEntry... entries) {
+        when(mongoTemplate.find(any(Query.class), eq(LedgerEntry.class))).thenReturn(List.of(entries));
+    }
+
+    private static LedgerEntry entry(String enrollmentId, Long sequence, LedgerEntryType type, String amount) {
+        return LedgerEntry.builder()
+                .enrollmentId(enrollmentId)
+                .sequence(sequence)
+                .type(type)
+                .amount(amount != null ? new BigDecimal(amount) : null)
+                .build();
+    }
+
+    private static LedgerEntry statusEntry(String enrollmentId, Long sequence, PaymentStatus status) {
+        LedgerEntry entry = entry(enrollmentId, sequence, LedgerEntryType.STATUS, "0");
+        entry.setPaymentStatus(status);
+        return entry;
+    }
+
+    private static TuitionStatus snapshot(String enrollmentId, String total, String paid, PaymentStatus status,
+                                          Long ledgerSequence) {
+        return TuitionStatus.builder()
+                .id("status-" + enrollmentId)
+                .enrollmentId(enrollmentId)
+                .totalAmount(new BigDecimal(total))
+                .paidAmount(new BigDecimal(paid))
+                .currency("XOF")
+                .paymentStatus(status)
+                .lastUpdatedAt(SNAPSHOT_TIME)
+                .ledgerSequence(ledgerSequence)
+                .build();
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> "attendu " + expected + ", obtenu " + actual);
+    }
+}